@@ -0,0 +1,23 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.appointment-import")
+public class AppointmentImportProperties {
+
+    // Lines parsed, checked and inserted per transaction
+    private int chunkSize = 1_000;
+
+    // Rows per JDBC batch within a chunk
+    private int batchSize = 500;
+
+    // Client and doctor ids whose existence is remembered per import, least recently used dropped first
+    private int lookupCacheSize = 10_000;
+
+    // Failed lines listed in the result; the failure count keeps counting past it
+    private int maxReportedErrors = 1_000;
+}
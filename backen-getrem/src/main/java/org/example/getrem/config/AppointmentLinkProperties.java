@@ -0,0 +1,26 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.appointment-links")
+public class AppointmentLinkProperties {
+
+    // HMAC key for confirm/cancel links; links are left out of emails while it is empty
+    private String secret = "";
+
+    // Public address the links in emails point at
+    private String baseUrl = "http://localhost:8080";
+
+    // Followed links are applied to appointments in batches this often
+    private long flushIntervalMs = 1000;
+
+    // Appointment ids per UPDATE statement
+    private int batchSize = 500;
+
+    // How long a confirm/cancel waits for its flush before answering that it will be applied shortly
+    private long resultTimeoutMs = 5000;
+}
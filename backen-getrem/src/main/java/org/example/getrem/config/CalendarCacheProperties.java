@@ -0,0 +1,16 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.calendar-cache")
+public class CalendarCacheProperties {
+
+    private boolean enabled = true;
+
+    // Upper bound on the serialised day buckets kept in memory; least recently used go first
+    private long maxBytes = 32L * 1024 * 1024;
+}
@@ -0,0 +1,28 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.calendar-events")
+public class CalendarEventProperties {
+
+    // Events queued per subscriber; a subscriber that falls further behind gets a RESYNC instead
+    private int bufferSize = 256;
+
+    private int maxSubscribers = 1_000;
+
+    // A subscriber whose write has not finished in this long is dropped; checked at each heartbeat
+    private long writeTimeoutMs = 30_000;
+
+    // How often changes committed on other nodes are looked for, while anyone is subscribed
+    private long relayIntervalMs = 2_000;
+
+    // Comment lines that keep idle connections open through proxies and detect closed ones
+    private long heartbeatIntervalMs = 15_000;
+
+    // Clients reconnect on their own when a stream ends
+    private long streamTimeoutMs = 1_800_000;
+}
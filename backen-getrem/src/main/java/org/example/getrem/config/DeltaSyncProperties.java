@@ -0,0 +1,20 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.delta-sync")
+public class DeltaSyncProperties {
+
+    // Change entries per page; every change of the transaction a page ends in is included too
+    private int defaultLimit = 500;
+    private int maxLimit = 5_000;
+
+    // Clients that have not synced for longer than this have to refetch in full
+    private int retentionDays = 30;
+
+    private String pruneCron = "0 45 3 * * *";
+}
@@ -0,0 +1,25 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.dispatch")
+public class DispatchProperties {
+
+    // Stable name for this node; claims left by an earlier run of the same node are recovered at startup
+    private String nodeId = "local";
+
+    // Reminders sent and committed per transaction; a hard kill can repeat at most one chunk
+    private int chunkSize = 50;
+
+    // Claims older than this are treated as abandoned by a node that died
+    private long claimLeaseMs = 900000;
+
+    // How long shutdown waits for an in-flight run before handing its remaining claims back
+    private long shutdownDrainTimeoutMs = 25000;
+
+    private long recoveryIntervalMs = 60000;
+}
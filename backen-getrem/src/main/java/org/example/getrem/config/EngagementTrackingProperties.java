@@ -0,0 +1,32 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.tracking")
+public class EngagementTrackingProperties {
+
+    // Route links in reminder emails through the click tracker
+    private boolean enabled = true;
+
+    // Public address the tracking URLs in emails point at
+    private String baseUrl = "http://localhost:8080";
+
+    // Click redirects only go to URLs starting with one of these; the tracker's own base URL is always allowed
+    private List<String> allowedRedirectPrefixes = new ArrayList<>();
+
+    // How often aggregated counts are written to reminder_engagement
+    private long flushIntervalMs = 10000;
+
+    // Reminders per upsert statement
+    private int batchSize = 500;
+
+    // Distinct reminders held in memory between flushes; hits beyond this are dropped
+    private int maxPendingReminders = 100000;
+}
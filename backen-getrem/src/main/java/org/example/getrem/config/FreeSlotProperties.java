@@ -0,0 +1,29 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.LocalTime;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.free-slots")
+public class FreeSlotProperties {
+
+    // Candidate slots start at opening time and must end by closing time, every step minutes
+    private LocalTime openingTime = LocalTime.of(8, 0);
+    private LocalTime closingTime = LocalTime.of(18, 0);
+    private int stepMinutes = 30;
+
+    private int defaultCount = 10;
+    private int maxCount = 200;
+
+    // Used when no end date is given, and the widest range a search may span
+    private int defaultRangeDays = 31;
+    private int maxRangeDays = 92;
+
+    // Limits on one availability matrix request
+    private int maxMatrixDoctors = 100;
+    private int maxMatrixSlots = 2_000;
+}
@@ -0,0 +1,27 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.ics-feed")
+public class IcsFeedProperties {
+
+    // Zone the stored appointment times are in; events are written in UTC. Empty uses the JVM default
+    private String timeZone = "";
+
+    // Window served when a feed is requested without from/to
+    private int pastDays = 30;
+    private int futureDays = 365;
+
+    // Widest range a client may ask for
+    private int maxRangeDays = 731;
+
+    private String calendarName = "GetRem appointments";
+
+    // Fetch size of the feed query only; Integer.MIN_VALUE streams rows one by one on MySQL Connector/J.
+    // Other drivers need a positive size
+    private int fetchSize = Integer.MIN_VALUE;
+}
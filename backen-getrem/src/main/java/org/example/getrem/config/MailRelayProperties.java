@@ -0,0 +1,65 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.mail")
+public class MailRelayProperties {
+
+    // Empty means all mail goes through the spring.mail.* sender
+    private List<Relay> relays = new ArrayList<>();
+
+    // Consecutive connection failures before a relay is taken out of rotation
+    private int failureThreshold = 2;
+
+    // How long a failed relay sits out before it is tried again
+    private long cooldownMs = 60000;
+
+    private long healthCheckIntervalMs = 60000;
+
+    // Daily quota each node takes from the shared count at a time; unused units are lost on restart
+    private int quotaLeaseSize = 20;
+
+    // Wait before asking again when the shared count could not be read or updated
+    private long quotaRetryMs = 5000;
+
+    private Probe probe = new Probe();
+
+    @Getter
+    @Setter
+    public static class Relay {
+
+        private String name;
+        private String host;
+        private int port = 587;
+        private String username;
+        private String password;
+        // Sender address for this account; providers often reject a From that differs from the login
+        private String from;
+        // Share of traffic relative to the other relays
+        private int weight = 1;
+        // Messages per calendar day across every node, counted in the database; 0 means unlimited
+        private int dailyQuota;
+        private boolean starttls = true;
+        // Extra JavaMail properties, e.g. mail.smtp.ssl.trust
+        private Map<String, String> properties = new HashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Probe {
+
+        // Upper bound on a diagnostic burst, so it cannot eat a relay's daily quota
+        private int maxMessages = 50;
+        // Socket connect and read timeout for each probe command
+        private int timeoutMs = 10000;
+    }
+}
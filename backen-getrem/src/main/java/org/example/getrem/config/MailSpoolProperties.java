@@ -0,0 +1,30 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.mail-spool")
+public class MailSpoolProperties {
+
+    // When disabled, emails that hit an SMTP outage are logged as FAILED as before
+    private boolean enabled = true;
+
+    private String directory = "spool/mail";
+
+    // Size of each memory-mapped journal file; also the largest message that can be spooled
+    private int segmentBytes = 8 * 1024 * 1024;
+
+    // Replay rate once the provider is reachable again
+    private double ratePerSecond = 5;
+
+    // How often an empty spool is checked for new work
+    private long idleIntervalMs = 1000;
+
+    // First wait after a failed replay; doubles up to max-retry-interval-ms
+    private long retryIntervalMs = 5000;
+
+    private long maxRetryIntervalMs = 300000;
+}
@@ -0,0 +1,25 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.example.getrem.enums.NotificationChannel;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.notifications.execution")
+public class NotificationExecutionProperties {
+
+    // Run reminder dispatch and channel fan-out on virtual threads instead of inline
+    private boolean virtualThreads = false;
+
+    // Upper bound on in-flight sends per provider, whatever the thread model
+    private Map<NotificationChannel, Integer> maxConcurrent = new EnumMap<>(Map.of(
+            NotificationChannel.EMAIL, 20,
+            NotificationChannel.SMS, 50,
+            NotificationChannel.WHATSAPP, 50
+    ));
+}
@@ -0,0 +1,35 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.notification-log.archive")
+public class NotificationLogArchiveProperties {
+
+    // Turns off the scheduled run only; the manual trigger and read-back keep working
+    private boolean enabled = true;
+
+    // Logs older than this move from notification_log to the archive
+    private int retentionDays = 90;
+
+    // One gzip NDJSON segment per month is kept here
+    private String directory = "archive/notification-log";
+
+    // Dispatch node id of the node whose directory is the archive; only it runs the scheduled archive.
+    // Blank lets any node run it, for a directory on storage every node shares
+    private String nodeId = "";
+
+    // How long a run holds the shared lease without finishing a chunk before another node may take over
+    private long leaseMs = 600_000;
+
+    // Rows archived and deleted per transaction
+    private int chunkSize = 500;
+
+    // Pause between chunks so the delete does not hog the table
+    private long chunkPauseMs = 100;
+
+    private String cron = "0 30 3 * * *";
+}
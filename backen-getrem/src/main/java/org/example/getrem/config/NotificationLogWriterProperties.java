@@ -0,0 +1,26 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.notification-log.writer")
+public class NotificationLogWriterProperties {
+
+    // When disabled, logs are written synchronously in the sender's transaction
+    private boolean enabled = true;
+
+    // Rounded up to a power of two
+    private int capacity = 8192;
+
+    // Rows per multi-row INSERT
+    private int batchSize = 200;
+
+    // How long the writer sleeps when the buffer is empty
+    private long flushIntervalMs = 200;
+
+    // Attempts per batch before it is dropped and counted as failed
+    private int maxRetries = 5;
+}
@@ -0,0 +1,14 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.notification-preferences")
+public class NotificationPreferenceProperties {
+
+    // Maximum number of clients whose preferences are kept in memory
+    private int cacheSize = 10_000;
+}
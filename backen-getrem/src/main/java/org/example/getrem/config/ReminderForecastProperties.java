@@ -0,0 +1,17 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.reminder-forecast")
+public class ReminderForecastProperties {
+
+    // Longest window the forecast endpoint will answer for
+    private int maxHours = 14 * 24;
+
+    // Periodic full rebuild that corrects drift, e.g. from writes made without going through the index
+    private String rebuildCron = "0 0 */6 * * *";
+}
@@ -0,0 +1,20 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.reminder-plan")
+public class ReminderPlanProperties {
+
+    // Planned reminders become reminder rows once they are due within this many hours
+    private int horizonHours = 48;
+
+    // How often the horizon moves forward; keep it well under the horizon
+    private long materializeIntervalMs = 600000;
+
+    // Appointments materialised per transaction
+    private int batchSize = 200;
+}
@@ -0,0 +1,17 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.reminder-replan")
+public class ReminderReplanProperties {
+
+    // Time-only edits within this long of the first one collapse into one re-plan; 0 re-plans on every edit
+    private long debounceMs = 30000;
+
+    // How often due re-plans are picked up
+    private long sweepIntervalMs = 5000;
+}
@@ -0,0 +1,20 @@
+package org.example.getrem.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "getrem.slot-index")
+public class SlotIndexProperties {
+
+    // Off sends every conflict check to the database, so availability also reflects other backends at once
+    private boolean enabled = true;
+
+    // Past days kept in memory; checks further back go to the database
+    private int historyDays = 1;
+
+    // Doctors are dropped and reloaded on their next check, which also moves the history window on
+    private long refreshIntervalMs = 3_600_000;
+}
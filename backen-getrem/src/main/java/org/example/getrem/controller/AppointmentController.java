@@ -2,23 +2,39 @@ package org.example.getrem.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.appointment.AppointmentChangesResponse;
+import org.example.getrem.dto.appointment.AppointmentImportResult;
 import org.example.getrem.dto.appointment.AppointmentResponse;
 import org.example.getrem.dto.appointment.CalendarAppointmentResponse;
 import org.example.getrem.dto.appointment.CreateAppointmentRequest;
 import org.example.getrem.dto.appointment.UpdateAppointmentRequest;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentImporter;
 import org.example.getrem.service.AppointmentService;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.IcsCalendarFeed;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/v1/appointments")
@@ -26,6 +42,10 @@ import java.util.UUID;
 public class AppointmentController {
 
     private final AppointmentService appointmentService;
+    private final AppointmentImporter appointmentImporter;
+    private final IcsCalendarFeed icsCalendarFeed;
+    private final CalendarEventBroadcaster calendarEvents;
+    private final AppointmentChangeLog changeLog;
 
     @PostMapping
     public ResponseEntity<AppointmentResponse> createAppointment(
@@ -34,24 +54,58 @@ public class AppointmentController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    // Bulk import for migrations: one appointment per NDJSON line or CSV record, failures reported per line
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<AppointmentImportResult> importAppointments(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body) throws IOException {
+        AppointmentImporter.Format format = contentType.isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? AppointmentImporter.Format.CSV
+                : AppointmentImporter.Format.NDJSON;
+        return ResponseEntity.ok(appointmentImporter.importAppointments(body, format));
+    }
+
+    // Delta sync: what changed after the watermark a calendar last saw, in commit order
+    @GetMapping("/changes")
+    public ResponseEntity<AppointmentChangesResponse> getChanges(
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(appointmentService.getChanges(since, limit));
+    }
+
+    // Lists are tagged with the change watermark, taken before the query so the body is never older than its tag
     @GetMapping("/{id}")
-    public ResponseEntity<AppointmentResponse> getAppointmentById(@PathVariable UUID id) {
+    public ResponseEntity<AppointmentResponse> getAppointmentById(@PathVariable UUID id, WebRequest webRequest) {
+        String etag = watermarkEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         AppointmentResponse response = appointmentService.getAppointmentById(id);
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(response);
     }
 
     @GetMapping
     public ResponseEntity<Page<AppointmentResponse>> getAllAppointments(
-            @PageableDefault(size = 20) Pageable pageable) {
+            @PageableDefault(size = 20) Pageable pageable,
+            WebRequest webRequest) {
+        String etag = watermarkEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         Page<AppointmentResponse> appointments = appointmentService.getAllAppointments(pageable);
-        return ResponseEntity.ok(appointments);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(appointments);
     }
 
     @GetMapping("/client/{clientId}")
     public ResponseEntity<List<AppointmentResponse>> getAppointmentsByClientId(
-            @PathVariable UUID clientId) {
+            @PathVariable UUID clientId,
+            WebRequest webRequest) {
+        String etag = watermarkEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<AppointmentResponse> appointments = appointmentService.getAppointmentsByClientId(clientId);
-        return ResponseEntity.ok(appointments);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(appointments);
     }
 
     @PutMapping("/{id}")
@@ -68,41 +122,125 @@ public class AppointmentController {
         return ResponseEntity.noContent().build();
     }
 
-    // Calendar endpoints
-    @GetMapping("/calendar/month")
-    public ResponseEntity<List<CalendarAppointmentResponse>> getAppointmentsForMonth(
+    // Calendar endpoints; month, week and day are served from pre-serialised day buckets
+    @GetMapping(value = "/calendar/month", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAppointmentsForMonth(
             @RequestParam int year,
-            @RequestParam int month) {
-        List<CalendarAppointmentResponse> appointments = appointmentService.getAppointmentsForMonth(year, month);
-        return ResponseEntity.ok(appointments);
+            @RequestParam int month,
+            @RequestParam(required = false) UUID doctorId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return calendarView(ifNoneMatch, appointmentService.getCalendarMonthEtag(year, month, doctorId),
+                () -> appointmentService.getCalendarMonthView(year, month, doctorId));
     }
 
-    @GetMapping("/calendar/week")
-    public ResponseEntity<List<CalendarAppointmentResponse>> getAppointmentsForWeek(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate) {
-        List<CalendarAppointmentResponse> appointments = appointmentService.getAppointmentsForWeek(startDate);
-        return ResponseEntity.ok(appointments);
+    @GetMapping(value = "/calendar/week", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAppointmentsForWeek(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) UUID doctorId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LocalDate endDate = startDate.plusWeeks(1);
+        return calendarView(ifNoneMatch, appointmentService.getCalendarEtag(startDate, endDate, doctorId),
+                () -> appointmentService.getCalendarView(startDate, endDate, doctorId));
     }
 
-    @GetMapping("/calendar/day")
-    public ResponseEntity<List<CalendarAppointmentResponse>> getAppointmentsForDay(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        List<CalendarAppointmentResponse> appointments = appointmentService.getAppointmentsForDay(date);
-        return ResponseEntity.ok(appointments);
+    @GetMapping(value = "/calendar/day", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getAppointmentsForDay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) UUID doctorId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return calendarView(ifNoneMatch, appointmentService.getCalendarEtag(date, date.plusDays(1), doctorId),
+                () -> appointmentService.getCalendarView(date, date.plusDays(1), doctorId));
+    }
+
+    // Live calendar changes as Server-Sent Events, optionally for one doctor and a day range
+    @GetMapping(value = "/calendar/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCalendarEvents(
+            @RequestParam(required = false) UUID doctorId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return calendarEvents.subscribe(doctorId, from, to);
+    }
+
+    // Clinic-wide iCalendar feed for subscribing calendar apps; polls with If-None-Match get a 304 when nothing changed
+    @GetMapping("/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getCalendarFeed(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest) {
+        IcsCalendarFeed.Feed feed = icsCalendarFeed.open(null, from, to);
+        if (webRequest.checkNotModified(feed.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(IcsCalendarFeed.TEXT_CALENDAR)
+                .cacheControl(CacheControl.noCache())
+                .eTag(feed.getEtag())
+                .body(feed::writeTo);
     }
 
     @GetMapping("/calendar/range")
     public ResponseEntity<List<CalendarAppointmentResponse>> getAppointmentsForDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            WebRequest webRequest) {
+        String etag = watermarkEtag();
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<CalendarAppointmentResponse> appointments = appointmentService.getAppointmentsForDateRange(startDate, endDate);
-        return ResponseEntity.ok(appointments);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(appointments);
     }
 
+    // Not tagged: the window moves with the clock, so the same watermark does not mean the same list
     @GetMapping("/calendar/upcoming")
     public ResponseEntity<List<CalendarAppointmentResponse>> getUpcomingAppointments() {
         List<CalendarAppointmentResponse> appointments = appointmentService.getUpcomingAppointments();
         return ResponseEntity.ok(appointments);
     }
-}
 
+    // Every change to an appointment, its reminders, or the client and doctor names it shows moves the watermark
+    private String watermarkEtag() {
+        return "\"w" + Long.toHexString(changeLog.committedSequence()) + "\"";
+    }
+
+    /**
+     * Answers 304 from the cached days' digests when the client holds the
+     * current view, without loading it. The cache first applies changes other
+     * nodes committed, so a node that has not seen a write cannot vouch for
+     * the old tag. Otherwise the view is loaded and tagged with the digests
+     * of what was actually served, which Spring also compares against
+     * If-None-Match.
+     */
+    private static ResponseEntity<byte[]> calendarView(String ifNoneMatch, String currentEtag,
+                                                       Supplier<CalendarCache.View> load) {
+        if (currentEtag != null && matches(ifNoneMatch, currentEtag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(currentEtag)
+                    .build();
+        }
+        CalendarCache.View view = load.get();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        if (view.etag() != null) {
+            response.eTag(view.etag());
+        }
+        return response.body(view.json());
+    }
+
+    // Weak comparison, as If-None-Match uses; our tags never contain commas
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.getrem.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.getrem.config.AppointmentLinkProperties;
+import org.example.getrem.dto.appointment.AppointmentLinkToken;
+import org.example.getrem.enums.AppointmentAction;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.exception.NotFoundException;
+import org.example.getrem.service.AppointmentActionBatcher;
+import org.example.getrem.service.AppointmentLinkSigner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Target of the links in reminder emails; the token alone authorises the action.
+// Mail scanners and link prefetchers follow every GET, so only the POST from the confirmation page acts.
+@RestController
+@RequestMapping("/api/v1/appointment-links")
+@RequiredArgsConstructor
+public class AppointmentLinkController {
+
+    private final AppointmentLinkSigner appointmentLinkSigner;
+    private final AppointmentActionBatcher appointmentActionBatcher;
+    private final AppointmentLinkProperties properties;
+
+    @GetMapping("/{token}")
+    public ResponseEntity<String> showConfirmation(@PathVariable String token) {
+        AppointmentLinkToken link = appointmentLinkSigner.verify(token);
+        boolean cancel = link.getAction() == AppointmentAction.CANCEL;
+        String question = cancel
+                ? "Do you want to cancel your appointment?"
+                : "Do you want to confirm your appointment?";
+        // The token is base64url, so it needs no escaping; the form posts back to this same URL
+        String page = "<!DOCTYPE html>\n"
+                + "<html><head><meta charset=\"utf-8\"><meta name=\"robots\" content=\"noindex\">"
+                + "<title>GetRem Dental Clinic</title></head><body>\n"
+                + "<p>" + question + "</p>\n"
+                + "<p>This link is valid until "
+                + link.getExpiresAt().format(DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm")) + ".</p>\n"
+                + "<form method=\"post\"><button type=\"submit\">"
+                + (cancel ? "Cancel appointment" : "Confirm appointment")
+                + "</button></form>\n"
+                + "</body></html>\n";
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_HTML)
+                .header("Cache-Control", "no-store")
+                .body(page);
+    }
+
+    // Answers once the batcher has committed the action, so the page never claims more than was applied
+    @PostMapping("/{token}")
+    public CompletableFuture<ResponseEntity<String>> applyLink(@PathVariable String token) {
+        AppointmentLinkToken link = appointmentLinkSigner.verify(token);
+        return appointmentActionBatcher.submit(link)
+                .thenApply(status -> result(link, status))
+                .completeOnTimeout(text(HttpStatus.ACCEPTED,
+                                "We have received your request; it will be applied in a moment."),
+                        properties.getResultTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private ResponseEntity<String> result(AppointmentLinkToken link, AppointmentStatus status) {
+        if (status == null) {
+            throw new NotFoundException("Appointment not found with id: " + link.getAppointmentId());
+        }
+        if (link.getAction() == AppointmentAction.CANCEL) {
+            return status == AppointmentStatus.CANCELLED
+                    ? text(HttpStatus.OK, "Your appointment has been cancelled.")
+                    : text(HttpStatus.CONFLICT, "Your appointment could not be cancelled; it is "
+                            + status.name().toLowerCase() + ".");
+        }
+        return status == AppointmentStatus.CONFIRMED
+                ? text(HttpStatus.OK, "Thank you, your appointment is confirmed.")
+                : text(HttpStatus.CONFLICT, "Your appointment could not be confirmed; it is "
+                        + status.name().toLowerCase() + ".");
+    }
+
+    private static ResponseEntity<String> text(HttpStatus status, String message) {
+        return ResponseEntity.status(status).contentType(MediaType.TEXT_PLAIN).body(message);
+    }
+}
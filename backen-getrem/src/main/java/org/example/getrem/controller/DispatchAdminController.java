@@ -0,0 +1,39 @@
+package org.example.getrem.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.reminder.DispatchStatus;
+import org.example.getrem.service.DispatchControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+
+// Lets a deploy script pause and drain this node's reminder dispatch before it is stopped
+@RestController
+@RequestMapping("/api/v1/admin/dispatch")
+@RequiredArgsConstructor
+public class DispatchAdminController {
+
+    private final DispatchControl dispatchControl;
+
+    @GetMapping
+    public ResponseEntity<DispatchStatus> getStatus() {
+        return ResponseEntity.ok(dispatchControl.getStatus());
+    }
+
+    @PostMapping("/pause")
+    public ResponseEntity<DispatchStatus> pause() {
+        return ResponseEntity.ok(dispatchControl.pause());
+    }
+
+    @PostMapping("/resume")
+    public ResponseEntity<DispatchStatus> resume() {
+        return ResponseEntity.ok(dispatchControl.resume());
+    }
+
+    // State is PAUSED once drained, DRAINING if the timeout ran out first
+    @PostMapping("/drain")
+    public ResponseEntity<DispatchStatus> drain(@RequestParam(defaultValue = "30") int timeoutSeconds) {
+        return ResponseEntity.ok(dispatchControl.drain(Duration.ofSeconds(Math.max(0, timeoutSeconds))));
+    }
+}
@@ -2,14 +2,22 @@ package org.example.getrem.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.doctor.AvailabilityMatrixRequest;
+import org.example.getrem.dto.doctor.AvailabilityMatrixResponse;
 import org.example.getrem.dto.doctor.CreateDoctorRequest;
 import org.example.getrem.dto.doctor.DoctorResponse;
+import org.example.getrem.dto.doctor.FreeSlotResponse;
 import org.example.getrem.service.DoctorService;
+import org.example.getrem.service.IcsCalendarFeed;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +29,7 @@ import java.util.UUID;
 public class DoctorController {
 
     private final DoctorService doctorService;
+    private final IcsCalendarFeed icsCalendarFeed;
 
     @PostMapping
     public ResponseEntity<DoctorResponse> createDoctor(@Valid @RequestBody CreateDoctorRequest request) {
@@ -68,5 +77,42 @@ public class DoctorController {
         boolean available = doctorService.isTimeSlotAvailable(id, appointmentTime, excludeAppointmentId);
         return ResponseEntity.ok(Map.of("available", available));
     }
-}
 
+    // The doctor's appointments as an iCalendar feed; polls with If-None-Match get a 304 when nothing changed
+    @GetMapping("/{id}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getCalendarFeed(
+            @PathVariable UUID id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            WebRequest webRequest) {
+        IcsCalendarFeed.Feed feed = icsCalendarFeed.open(id, from, to);
+        if (webRequest.checkNotModified(feed.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .contentType(IcsCalendarFeed.TEXT_CALENDAR)
+                .cacheControl(CacheControl.noCache())
+                .eTag(feed.getEtag())
+                .body(feed::writeTo);
+    }
+
+    // Availability of many doctors at many times in one call, as one bitset per doctor
+    @PostMapping("/availability")
+    public ResponseEntity<AvailabilityMatrixResponse> getAvailabilityMatrix(
+            @Valid @RequestBody AvailabilityMatrixRequest request) {
+        AvailabilityMatrixResponse response = doctorService.getAvailabilityMatrix(request);
+        return ResponseEntity.ok(response);
+    }
+
+    // Next free slots for one doctor, a specialization, or every active doctor, earliest first
+    @GetMapping("/free-slots")
+    public ResponseEntity<List<FreeSlotResponse>> findFreeSlots(
+            @RequestParam(required = false) UUID doctorId,
+            @RequestParam(required = false) String specialization,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer count) {
+        List<FreeSlotResponse> slots = doctorService.findFreeSlots(doctorId, specialization, from, to, count);
+        return ResponseEntity.ok(slots);
+    }
+}
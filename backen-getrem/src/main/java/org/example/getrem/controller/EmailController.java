@@ -2,16 +2,25 @@ package org.example.getrem.controller;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.notification.MailRelayStatus;
+import org.example.getrem.dto.notification.MailSpoolStats;
+import org.example.getrem.dto.notification.SmtpProbeRequest;
+import org.example.getrem.dto.notification.SmtpProbeResult;
 import org.example.getrem.dto.reminder.TestEmailRequest;
+import org.example.getrem.service.MailRelayRouter;
+import org.example.getrem.service.MailSpool;
 import org.example.getrem.service.NotificationService;
+import org.example.getrem.service.SmtpProbe;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -20,6 +29,9 @@ import java.util.Map;
 public class EmailController {
 
     private final NotificationService notificationService;
+    private final MailSpool mailSpool;
+    private final MailRelayRouter mailRelayRouter;
+    private final SmtpProbe smtpProbe;
 
     @PostMapping("/test")
     public ResponseEntity<Map<String, String>> sendTestEmail(
@@ -37,5 +49,26 @@ public class EmailController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
-}
 
+    /**
+     * Diagnostic variant of the test email: times connect, TLS, AUTH and each
+     * message of a burst to a sink address, and reports percentiles.
+     */
+    @PostMapping("/test/probe")
+    public ResponseEntity<SmtpProbeResult> probeSmtp(@Valid @RequestBody SmtpProbeRequest request) {
+        SmtpProbeResult result = smtpProbe.probe(request);
+        return result.getError() == null
+                ? ResponseEntity.ok(result)
+                : ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(result);
+    }
+
+    @GetMapping("/spool")
+    public ResponseEntity<MailSpoolStats> getSpoolStats() {
+        return ResponseEntity.ok(mailSpool.getStats());
+    }
+
+    @GetMapping("/relays")
+    public ResponseEntity<List<MailRelayStatus>> getRelayStatus() {
+        return ResponseEntity.ok(mailRelayRouter.getStatus());
+    }
+}
@@ -1,17 +1,34 @@
 package org.example.getrem.controller;
 
 import lombok.RequiredArgsConstructor;
-import org.example.getrem.model.NotificationLog;
+import org.example.getrem.dto.notification.NotificationLogArchiveResult;
+import org.example.getrem.dto.notification.NotificationLogArchiveSegment;
+import org.example.getrem.dto.notification.NotificationLogCursor;
+import org.example.getrem.dto.notification.NotificationLogFilter;
+import org.example.getrem.dto.notification.NotificationLogPageResponse;
+import org.example.getrem.dto.notification.NotificationLogResponse;
+import org.example.getrem.dto.notification.NotificationLogWriterStats;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.NotificationStatus;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.repository.CustomNotificationLogRepo;
 import org.example.getrem.repository.NotificationLogRepository;
+import org.example.getrem.service.NotificationLogArchiver;
+import org.example.getrem.service.NotificationLogWriter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
@@ -19,27 +36,107 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class NotificationLogController {
 
+    private static final int MAX_SEARCH_LIMIT = 500;
+
     private final NotificationLogRepository notificationLogRepository;
+    private final CustomNotificationLogRepo customNotificationLogRepo;
+    private final NotificationLogWriter notificationLogWriter;
+    private final NotificationLogArchiver notificationLogArchiver;
 
+    // Offset paging for the dashboard table; use /search for deep or filtered reads
     @GetMapping
-    public ResponseEntity<Page<NotificationLog>> getAllNotificationLogs(
-            @PageableDefault(size = 20) Pageable pageable) {
-        Page<NotificationLog> logs = notificationLogRepository.findAll(pageable);
+    public ResponseEntity<Page<NotificationLogResponse>> getAllNotificationLogs(
+            @PageableDefault(size = 20, sort = "timestamp", direction = Sort.Direction.DESC) Pageable pageable) {
+        Page<NotificationLogResponse> logs = notificationLogRepository.findAllResponses(pageable);
         return ResponseEntity.ok(logs);
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<NotificationLogPageResponse> searchNotificationLogs(
+            @RequestParam(required = false) String recipient,
+            @RequestParam(required = false) NotificationStatus status,
+            @RequestParam(required = false) NotificationChannel channel,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) UUID reminderId,
+            @RequestParam(required = false) UUID appointmentId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new ValidationException("limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        NotificationLogFilter filter = NotificationLogFilter.builder()
+                .recipient(recipient)
+                .status(status)
+                .channel(channel)
+                .from(from)
+                .to(to)
+                .reminderId(reminderId)
+                .appointmentId(appointmentId)
+                .build();
+        NotificationLogCursor after = cursor == null || cursor.isBlank() ? null : NotificationLogCursor.decode(cursor);
+
+        // One extra row tells us whether another page exists without a COUNT
+        List<NotificationLogResponse> rows = customNotificationLogRepo.search(filter, after, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<NotificationLogResponse> items = hasMore ? rows.subList(0, limit) : rows;
+
+        return ResponseEntity.ok(NotificationLogPageResponse.builder()
+                .items(items)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? NotificationLogCursor.of(items.get(items.size() - 1)).encode() : null)
+                .build());
+    }
+
     @GetMapping("/appointment/{appointmentId}")
-    public ResponseEntity<java.util.List<NotificationLog>> getLogsByAppointmentId(
+    public ResponseEntity<List<NotificationLogResponse>> getLogsByAppointmentId(
             @PathVariable UUID appointmentId) {
-        java.util.List<NotificationLog> logs = notificationLogRepository.findByAppointmentId(appointmentId);
+        List<NotificationLogResponse> logs = notificationLogRepository.findByAppointmentId(appointmentId);
         return ResponseEntity.ok(logs);
     }
 
     @GetMapping("/reminder/{reminderId}")
-    public ResponseEntity<java.util.List<NotificationLog>> getLogsByReminderId(
+    public ResponseEntity<List<NotificationLogResponse>> getLogsByReminderId(
             @PathVariable UUID reminderId) {
-        java.util.List<NotificationLog> logs = notificationLogRepository.findByReminderId(reminderId);
+        List<NotificationLogResponse> logs = notificationLogRepository.findByReminderId(reminderId);
         return ResponseEntity.ok(logs);
     }
-}
 
+    @GetMapping("/writer-stats")
+    public ResponseEntity<NotificationLogWriterStats> getWriterStats() {
+        return ResponseEntity.ok(notificationLogWriter.getStats());
+    }
+
+    @GetMapping("/archive")
+    public ResponseEntity<List<NotificationLogArchiveSegment>> getArchiveSegments() {
+        return ResponseEntity.ok(notificationLogArchiver.listSegments());
+    }
+
+    // NDJSON by default; compressed=true hands back the stored gzip file as-is
+    @GetMapping("/archive/{month}")
+    public ResponseEntity<StreamingResponseBody> streamArchiveSegment(
+            @PathVariable String month,
+            @RequestParam(defaultValue = "false") boolean compressed) {
+        InputStream segment = notificationLogArchiver.openSegment(month, !compressed);
+        StreamingResponseBody body = out -> {
+            try (InputStream in = segment) {
+                in.transferTo(out);
+            }
+        };
+        if (compressed) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/gzip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"notification-log-" + month + ".ndjson.gz\"")
+                    .body(body);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @PostMapping("/archive/run")
+    public ResponseEntity<NotificationLogArchiveResult> runArchive() {
+        return ResponseEntity.ok(notificationLogArchiver.archive());
+    }
+}
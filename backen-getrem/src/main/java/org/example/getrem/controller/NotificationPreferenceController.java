@@ -0,0 +1,31 @@
+package org.example.getrem.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.preference.NotificationPreferenceRequest;
+import org.example.getrem.dto.preference.NotificationPreferenceResponse;
+import org.example.getrem.service.NotificationPreferenceService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/clients/{clientId}/notification-preferences")
+@RequiredArgsConstructor
+public class NotificationPreferenceController {
+
+    private final NotificationPreferenceService notificationPreferenceService;
+
+    @GetMapping
+    public ResponseEntity<NotificationPreferenceResponse> getPreferences(@PathVariable UUID clientId) {
+        return ResponseEntity.ok(notificationPreferenceService.getPreferences(clientId));
+    }
+
+    @PutMapping
+    public ResponseEntity<NotificationPreferenceResponse> updatePreferences(
+            @PathVariable UUID clientId,
+            @Valid @RequestBody NotificationPreferenceRequest request) {
+        return ResponseEntity.ok(notificationPreferenceService.updatePreferences(clientId, request));
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.getrem.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.reminder.ReminderForecastResponse;
+import org.example.getrem.service.ReminderLoadIndex;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.temporal.ChronoUnit;
+
+@RestController
+@RequestMapping("/api/v1/reminders")
+@RequiredArgsConstructor
+public class ReminderForecastController {
+
+    private final ReminderLoadIndex reminderLoadIndex;
+
+    // Answered from the in-memory index after catching up on other nodes' changes; safe for dashboards to poll
+    @GetMapping("/forecast")
+    public ResponseEntity<ReminderForecastResponse> getForecast(
+            @RequestParam(defaultValue = "72") int hours,
+            @RequestParam(defaultValue = "HOURS") ChronoUnit granularity) {
+        return ResponseEntity.ok(reminderLoadIndex.forecast(hours, granularity));
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.getrem.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.notification.ReminderEngagementResponse;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.service.EngagementTracker;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.Base64;
+import java.util.UUID;
+
+// Hit once per opened email or followed link; answers from memory and never waits on the database
+@RestController
+@RequestMapping("/api/v1/tracking")
+@RequiredArgsConstructor
+public class TrackingController {
+
+    // 1x1 transparent GIF
+    private static final byte[] PIXEL = Base64.getDecoder().decode("R0lGODlhAQABAIAAAAAAAP///yH5BAEAAAAALAAAAAABAAEAAAIBRAA7");
+
+    private final EngagementTracker engagementTracker;
+
+    @GetMapping("/open/{reminderId}.gif")
+    public ResponseEntity<byte[]> trackOpen(@PathVariable String reminderId) {
+        UUID id = parse(reminderId);
+        if (id != null) {
+            engagementTracker.recordOpen(id);
+        }
+        // Mail clients always get the image, whatever the id, and must not cache it
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_GIF)
+                .cacheControl(CacheControl.noStore())
+                .body(PIXEL);
+    }
+
+    @GetMapping("/click/{reminderId}")
+    public ResponseEntity<Void> trackClick(@PathVariable String reminderId, @RequestParam String url) {
+        if (!engagementTracker.isAllowedRedirect(url)) {
+            throw new ValidationException("Redirect target is not allowed");
+        }
+        UUID id = parse(reminderId);
+        if (id != null) {
+            engagementTracker.recordClick(id);
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(url))
+                .cacheControl(CacheControl.noStore())
+                .build();
+    }
+
+    @GetMapping("/reminders/{reminderId}")
+    public ResponseEntity<ReminderEngagementResponse> getEngagement(@PathVariable UUID reminderId) {
+        return ResponseEntity.ok(engagementTracker.getEngagement(reminderId));
+    }
+
+    private static UUID parse(String reminderId) {
+        try {
+            return UUID.fromString(reminderId);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
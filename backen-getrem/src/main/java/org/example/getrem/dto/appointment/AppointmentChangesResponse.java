@@ -0,0 +1,25 @@
+package org.example.getrem.dto.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentChangesResponse {
+
+    // Pass as since on the next call
+    private long watermark;
+    // More changes are waiting past the watermark; call again straight away
+    private boolean hasMore;
+    // The changes since the given point are no longer known; refetch the calendar, then sync from the watermark
+    private boolean resyncRequired;
+    private List<CalendarAppointmentResponse> upserts;
+    private List<UUID> deletedIds;
+}
@@ -0,0 +1,34 @@
+package org.example.getrem.dto.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentImportResult {
+
+    private long lines;
+    private long imported;
+    private long failed;
+    // Appointments given a reminder plan; their reminders are created by the materializer as they come due
+    private long withReminders;
+    private List<LineError> errors;
+    // More lines failed than are listed in errors
+    private boolean errorsTruncated;
+    private long elapsedMs;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class LineError {
+        // 1-based line number in the uploaded file, counting a CSV header as line 1
+        private long line;
+        private String error;
+    }
+}
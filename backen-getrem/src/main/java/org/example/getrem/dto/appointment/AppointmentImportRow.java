@@ -0,0 +1,35 @@
+package org.example.getrem.dto.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.AppointmentStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One appointment in a bulk import, as an NDJSON object or a CSV record.
+ * In CSV the two list columns separate their values with {@code |}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentImportRow {
+
+    private UUID clientId;
+    private UUID doctorId;
+    private LocalDateTime appointmentTime;
+    private String notes;
+
+    // SCHEDULED when absent; CANCELLED rows are kept as history and hold no slot
+    private AppointmentStatus status;
+
+    // "TEN_MINUTES_BEFORE", "ONE_DAY_BEFORE"; no confirmation is sent for imported appointments
+    private List<String> reminderOptions;
+
+    private List<LocalDateTime> customReminderTimes;
+}
@@ -0,0 +1,16 @@
+package org.example.getrem.dto.appointment;
+
+import lombok.Value;
+import org.example.getrem.enums.AppointmentAction;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/** Contents of a verified confirm/cancel link. */
+@Value
+public class AppointmentLinkToken {
+
+    UUID appointmentId;
+    AppointmentAction action;
+    LocalDateTime expiresAt;
+}
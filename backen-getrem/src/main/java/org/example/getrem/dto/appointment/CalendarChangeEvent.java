@@ -0,0 +1,30 @@
+package org.example.getrem.dto.appointment;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.CalendarChangeType;
+import org.example.getrem.enums.ReminderStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CalendarChangeEvent {
+
+    private CalendarChangeType type;
+    private UUID appointmentId;
+    private UUID doctorId;
+    private LocalDateTime appointmentTime;
+    private AppointmentStatus status;
+    // Set on updates that moved the appointment, so views of the old doctor or day can drop it
+    private UUID previousDoctorId;
+    private LocalDateTime previousAppointmentTime;
+    private UUID reminderId;
+    private ReminderStatus reminderStatus;
+}
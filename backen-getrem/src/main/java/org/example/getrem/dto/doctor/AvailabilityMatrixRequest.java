@@ -0,0 +1,29 @@
+package org.example.getrem.dto.doctor;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityMatrixRequest {
+
+    @NotEmpty(message = "At least one doctor is required")
+    private List<UUID> doctorIds;
+
+    // Either explicit slot start times, in the order the bits should follow...
+    private List<LocalDateTime> slots;
+
+    // ...or every stepMinutes from `from` (inclusive) to `to` (exclusive)
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Integer stepMinutes;
+}
@@ -0,0 +1,30 @@
+package org.example.getrem.dto.doctor;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityMatrixResponse {
+
+    public static final String ENCODING = "base64-bitset-lsb0";
+
+    // Slot i is bit (i % 8) of byte (i / 8), counting from the least significant bit; a set bit is free
+    private String encoding;
+    private int slotCount;
+
+    // Set for range requests, so slot i starts at from + i * stepMinutes
+    private LocalDateTime from;
+    private Integer stepMinutes;
+
+    // One base64 row per doctor, in request order
+    private Map<UUID, String> availability;
+}
@@ -0,0 +1,21 @@
+package org.example.getrem.dto.doctor;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FreeSlotResponse {
+    private UUID doctorId;
+    private String doctorName;
+    private String specialization;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+}
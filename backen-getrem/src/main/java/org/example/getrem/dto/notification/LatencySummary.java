@@ -0,0 +1,38 @@
+package org.example.getrem.dto.notification;
+
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** Nearest-rank percentiles of a set of timings, in milliseconds. */
+@Value
+public class LatencySummary {
+
+    int count;
+    double minMs;
+    double p50Ms;
+    double p90Ms;
+    double p99Ms;
+    double maxMs;
+    double meanMs;
+
+    public static LatencySummary ofNanos(List<Long> nanos) {
+        if (nanos.isEmpty()) {
+            return new LatencySummary(0, 0, 0, 0, 0, 0, 0);
+        }
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        return new LatencySummary(sorted.length, millis(sorted[0]),
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 90)), millis(percentile(sorted, 99)),
+                millis(sorted[sorted.length - 1]), millis((long) Arrays.stream(sorted).average().orElse(0)));
+    }
+
+    public static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailRelayStatus {
+
+    private String name;
+    private String host;
+    private int weight;
+    private boolean healthy;
+    private int sentToday;
+    // 0 means unlimited
+    private int dailyQuota;
+    private int consecutiveFailures;
+    private String lastError;
+    private LocalDateTime lastFailureAt;
+    private LocalDateTime lastCheckedAt;
+}
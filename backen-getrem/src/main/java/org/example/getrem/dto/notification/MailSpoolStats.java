@@ -0,0 +1,27 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MailSpoolStats {
+
+    private boolean enabled;
+    private boolean providerAvailable;
+    private long pendingMessages;
+    private long spooled;
+    private long replayed;
+    // Spooled messages the provider rejected outright on replay
+    private long dropped;
+    // Spooled reminders not sent because their appointment was cancelled, moved or had already started
+    private long skipped;
+    private String lastError;
+    private LocalDateTime lastFailureAt;
+}
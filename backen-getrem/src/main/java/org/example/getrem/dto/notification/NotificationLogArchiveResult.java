@@ -0,0 +1,23 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationLogArchiveResult {
+
+    private LocalDateTime cutoff;
+    private long archivedRows;
+    private int chunks;
+    // Months whose segment received rows in this run
+    private List<String> segments;
+    private long elapsedMillis;
+}
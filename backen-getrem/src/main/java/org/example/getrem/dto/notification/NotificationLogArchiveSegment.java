@@ -0,0 +1,21 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationLogArchiveSegment {
+
+    // yyyy-MM of the log timestamps held in the segment
+    private String month;
+    private String fileName;
+    private long compressedBytes;
+    private LocalDateTime lastModified;
+}
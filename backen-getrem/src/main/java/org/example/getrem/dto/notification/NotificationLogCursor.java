@@ -0,0 +1,40 @@
+package org.example.getrem.dto.notification;
+
+import lombok.Value;
+import org.example.getrem.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of the last row a client has seen, in (timestamp DESC, id DESC)
+ * order. Handed out as an opaque URL-safe token.
+ */
+@Value
+public class NotificationLogCursor {
+
+    LocalDateTime timestamp;
+    UUID id;
+
+    public static NotificationLogCursor of(NotificationLogResponse row) {
+        return new NotificationLogCursor(row.getTimestamp(), row.getId());
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NotificationLogCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new NotificationLogCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.NotificationStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationLogFilter {
+
+    private String recipient;
+    private NotificationStatus status;
+    private NotificationChannel channel;
+    // Inclusive lower bound
+    private LocalDateTime from;
+    // Exclusive upper bound
+    private LocalDateTime to;
+    private UUID reminderId;
+    private UUID appointmentId;
+}
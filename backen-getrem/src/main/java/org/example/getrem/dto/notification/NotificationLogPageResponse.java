@@ -0,0 +1,20 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationLogPageResponse {
+
+    private List<NotificationLogResponse> items;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,27 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.NotificationStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationLogResponse {
+
+    private UUID id;
+    private UUID reminderId;
+    private UUID appointmentId;
+    private NotificationChannel channel;
+    private NotificationStatus status;
+    private LocalDateTime timestamp;
+    private String recipient;
+    private String errorMessage;
+}
@@ -0,0 +1,24 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationLogWriterStats {
+
+    private boolean running;
+    private int capacity;
+    private int depth;
+    private long published;
+    private long written;
+    private long batches;
+    // Publishes that found the buffer full and had to wait for the writer
+    private long blockedPublishes;
+    private long blockedMillis;
+    private long failedWrites;
+}
@@ -0,0 +1,33 @@
+package org.example.getrem.dto.notification;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/** Opens and clicks counted in memory for one reminder since the last flush. */
+@Value
+public class ReminderEngagementDelta {
+
+    UUID reminderId;
+    long opens;
+    long clicks;
+    LocalDateTime firstOpenedAt;
+    LocalDateTime lastOpenedAt;
+    LocalDateTime lastClickedAt;
+
+    public ReminderEngagementDelta merge(ReminderEngagementDelta other) {
+        return new ReminderEngagementDelta(reminderId, opens + other.opens, clicks + other.clicks,
+                earliest(firstOpenedAt, other.firstOpenedAt),
+                latest(lastOpenedAt, other.lastOpenedAt),
+                latest(lastClickedAt, other.lastClickedAt));
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null ? b : b == null || a.isBefore(b) ? a : b;
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a == null ? b : b == null || a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderEngagementResponse {
+
+    private UUID reminderId;
+    private long opens;
+    private long clicks;
+    private LocalDateTime firstOpenedAt;
+    private LocalDateTime lastOpenedAt;
+    private LocalDateTime lastClickedAt;
+}
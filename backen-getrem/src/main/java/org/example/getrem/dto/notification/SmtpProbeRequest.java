@@ -0,0 +1,35 @@
+package org.example.getrem.dto.notification;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmtpProbeRequest {
+
+    // Should be a sink mailbox; a burst sends every message to it
+    @NotBlank(message = "Email address is required")
+    @Email(message = "Invalid email format")
+    private String to;
+
+    // Defaults to the relay's sender address, then its login
+    @Email(message = "Invalid email format")
+    private String from;
+
+    // Relay name from getrem.mail.relays; empty means the first one
+    private String relay;
+
+    @Builder.Default
+    @Min(value = 1, message = "At least one message is required")
+    private int messages = 1;
+
+    // Also time the same messages through the JavaMail sender that dispatch uses
+    private boolean compareWithSender;
+}
@@ -0,0 +1,49 @@
+package org.example.getrem.dto.notification;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Timings of one SMTP probe session, in milliseconds. Connect and EHLO are
+ * mostly network round trips, greeting, AUTH and per-message times are mostly
+ * the provider. Phases that did not run are null.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SmtpProbeResult {
+
+    private String relay;
+    private String host;
+    private int port;
+    // NONE, STARTTLS or TLS (implicit, e.g. port 465)
+    private String security;
+    private String tlsProtocol;
+    private String tlsCipher;
+    private String greeting;
+
+    private Double resolveMs;
+    private Double connectMs;
+    private Double greetingMs;
+    private Double ehloMs;
+    private Double tlsHandshakeMs;
+    private Double authMs;
+
+    private int messagesRequested;
+    private int messagesSent;
+    private int messagesFailed;
+    // MAIL FROM through the server's acceptance of the data, over the one connection
+    private LatencySummary messageSend;
+    private Double burstMs;
+    private Double messagesPerSecond;
+
+    // The dispatch sender connects, negotiates TLS and authenticates for every message
+    private LatencySummary senderSend;
+    private Double senderMessagesPerSecond;
+
+    private String failedStage;
+    private String error;
+}
@@ -0,0 +1,51 @@
+package org.example.getrem.dto.preference;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.NotificationChannel;
+
+import java.time.LocalTime;
+import java.util.IllformedLocaleException;
+import java.util.Locale;
+import java.util.Set;
+
+// Replaces all of a client's preferences: omitted channels are enabled and omitted settings cleared
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPreferenceRequest {
+
+    private static final Set<String> KNOWN_LANGUAGES = Set.of(Locale.getISOLanguages());
+
+    private Boolean emailEnabled;
+    private Boolean smsEnabled;
+    private Boolean whatsappEnabled;
+
+    private NotificationChannel preferredChannel;
+
+    // Both must be set to enable quiet hours; a start after the end spans midnight
+    private LocalTime quietHoursStart;
+    private LocalTime quietHoursEnd;
+
+    // IETF language tag such as "de-DE"
+    private String locale;
+
+    @JsonIgnore
+    @AssertTrue(message = "locale must be a well-formed language tag with a known ISO 639 language")
+    public boolean isLocaleKnown() {
+        if (locale == null || locale.isBlank()) {
+            return true;
+        }
+        try {
+            String language = new Locale.Builder().setLanguageTag(locale).build().getLanguage();
+            return KNOWN_LANGUAGES.contains(language);
+        } catch (IllformedLocaleException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.getrem.dto.preference;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.NotificationChannel;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationPreferenceResponse {
+
+    private UUID clientId;
+    private Boolean emailEnabled;
+    private Boolean smsEnabled;
+    private Boolean whatsappEnabled;
+    private NotificationChannel preferredChannel;
+    private LocalTime quietHoursStart;
+    private LocalTime quietHoursEnd;
+    private String locale;
+    private LocalDateTime updatedAt;
+}
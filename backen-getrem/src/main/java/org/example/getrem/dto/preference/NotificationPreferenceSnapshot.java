@@ -0,0 +1,135 @@
+package org.example.getrem.dto.preference;
+
+import lombok.Builder;
+import lombok.Value;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.model.NotificationPreference;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable, cache-friendly view of a client's notification preferences.
+ * Clients without a stored preference get {@link #defaults(UUID)}, which
+ * matches the original "email, then phone" behaviour.
+ */
+@Value
+@Builder
+public class NotificationPreferenceSnapshot {
+
+    /** Channels reminders actually go out on; SMS and WhatsApp are not wired up yet. */
+    public static final Set<NotificationChannel> DELIVERED_CHANNELS = EnumSet.of(NotificationChannel.EMAIL);
+
+    UUID clientId;
+    boolean emailEnabled;
+    boolean smsEnabled;
+    boolean whatsappEnabled;
+    NotificationChannel preferredChannel;
+    LocalTime quietHoursStart;
+    LocalTime quietHoursEnd;
+    Locale locale;
+
+    public static NotificationPreferenceSnapshot defaults(UUID clientId) {
+        return NotificationPreferenceSnapshot.builder()
+                .clientId(clientId)
+                .emailEnabled(true)
+                .smsEnabled(true)
+                .whatsappEnabled(true)
+                .build();
+    }
+
+    public static NotificationPreferenceSnapshot of(NotificationPreference preference) {
+        return NotificationPreferenceSnapshot.builder()
+                .clientId(preference.getClient().getId())
+                .emailEnabled(!Boolean.FALSE.equals(preference.getEmailEnabled()))
+                .smsEnabled(!Boolean.FALSE.equals(preference.getSmsEnabled()))
+                .whatsappEnabled(!Boolean.FALSE.equals(preference.getWhatsappEnabled()))
+                .preferredChannel(preference.getPreferredChannel())
+                .quietHoursStart(preference.getQuietHoursStart())
+                .quietHoursEnd(preference.getQuietHoursEnd())
+                .locale(preference.getLocale() != null && !preference.getLocale().isBlank()
+                        ? Locale.forLanguageTag(preference.getLocale())
+                        : null)
+                .build();
+    }
+
+    public boolean isEnabled(NotificationChannel channel) {
+        return switch (channel) {
+            case EMAIL -> emailEnabled;
+            case SMS -> smsEnabled;
+            case WHATSAPP -> whatsappEnabled;
+        };
+    }
+
+    /**
+     * Opted-in channels in the order they should be tried: the preferred
+     * channel first (if opted in), then email, SMS and WhatsApp.
+     */
+    public List<NotificationChannel> orderedChannels() {
+        List<NotificationChannel> channels = new ArrayList<>();
+        if (preferredChannel != null && isEnabled(preferredChannel)) {
+            channels.add(preferredChannel);
+        }
+        for (NotificationChannel channel : List.of(NotificationChannel.EMAIL, NotificationChannel.SMS, NotificationChannel.WHATSAPP)) {
+            if (channel != preferredChannel && isEnabled(channel)) {
+                channels.add(channel);
+            }
+        }
+        return channels;
+    }
+
+    /**
+     * Channels a reminder is expected to go out on, given the client's contact
+     * details: just the first reachable delivered channel when one is
+     * preferred, else every reachable opted-in delivered channel.
+     */
+    public List<NotificationChannel> expectedChannels(String email, String phone) {
+        List<NotificationChannel> channels = new ArrayList<>();
+        for (NotificationChannel channel : orderedChannels()) {
+            String recipient = channel == NotificationChannel.EMAIL ? email : phone;
+            if (recipient != null && !recipient.isEmpty() && DELIVERED_CHANNELS.contains(channel)) {
+                channels.add(channel);
+                if (preferredChannel != null) {
+                    break;
+                }
+            }
+        }
+        return channels;
+    }
+
+    public boolean hasQuietHours() {
+        return quietHoursStart != null && quietHoursEnd != null && !quietHoursStart.equals(quietHoursEnd);
+    }
+
+    public boolean isQuietAt(LocalTime time) {
+        if (!hasQuietHours()) {
+            return false;
+        }
+        if (quietHoursStart.isBefore(quietHoursEnd)) {
+            return !time.isBefore(quietHoursStart) && time.isBefore(quietHoursEnd);
+        }
+        // Window spans midnight, e.g. 21:00 - 08:00
+        return !time.isBefore(quietHoursStart) || time.isBefore(quietHoursEnd);
+    }
+
+    /**
+     * First moment at or after {@code time} that falls outside quiet hours.
+     */
+    public LocalDateTime nextAllowedTime(LocalDateTime time) {
+        if (!isQuietAt(time.toLocalTime())) {
+            return time;
+        }
+        LocalDateTime end = time.toLocalDate().atTime(quietHoursEnd);
+        return end.isAfter(time) ? end : end.plusDays(1);
+    }
+
+    public Locale localeOrDefault() {
+        return locale != null ? locale : Locale.getDefault();
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.getrem.dto.reminder;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.DispatchState;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DispatchStatus {
+
+    private String instanceId;
+    private DispatchState state;
+
+    // Progress of the run in flight, if any
+    private boolean runInFlight;
+    private int claimedInRun;
+    private int completedInRun;
+    private LocalDateTime runStartedAt;
+
+    private LocalDateTime lastRunFinishedAt;
+    private long totalSent;
+    private long totalFailed;
+    private long totalReleased;
+    private long totalRecovered;
+}
@@ -0,0 +1,40 @@
+package org.example.getrem.dto.reminder;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.ReminderType;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderForecastResponse {
+
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private ChronoUnit granularity;
+    private long total;
+    // PENDING reminders already past due; they go out on the next scheduler run
+    private long overdue;
+    // Sparse: buckets with nothing due are omitted
+    private List<Bucket> buckets;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Bucket {
+        private LocalDateTime start;
+        private long total;
+        private Map<ReminderType, Long> byType;
+        private Map<NotificationChannel, Long> byChannel;
+    }
+}
@@ -0,0 +1,7 @@
+package org.example.getrem.enums;
+
+// What a signed link in a reminder email does when followed
+public enum AppointmentAction {
+    CONFIRM,
+    CANCEL
+}
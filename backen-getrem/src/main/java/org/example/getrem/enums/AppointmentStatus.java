@@ -2,6 +2,7 @@ package org.example.getrem.enums;
 
 public enum AppointmentStatus {
     SCHEDULED,
+    CONFIRMED,
     COMPLETED,
     CANCELLED
 }
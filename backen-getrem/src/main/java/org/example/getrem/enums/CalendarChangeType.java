@@ -0,0 +1,9 @@
+package org.example.getrem.enums;
+
+public enum CalendarChangeType {
+    APPOINTMENT_CREATED,
+    APPOINTMENT_UPDATED,      // Includes moves; the previous doctor and time say where it came from
+    APPOINTMENT_DELETED,
+    REMINDER_STATUS_CHANGED,
+    RESYNC                    // Too much changed to describe, e.g. a bulk import or an overflowed buffer; refetch
+}
@@ -0,0 +1,7 @@
+package org.example.getrem.enums;
+
+public enum DispatchState {
+    RUNNING,    // Runs claim and send due reminders
+    DRAINING,   // Paused, with a run still finishing its current chunk
+    PAUSED      // No run in flight and none will start until resumed
+}
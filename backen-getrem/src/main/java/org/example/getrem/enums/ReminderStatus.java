@@ -2,6 +2,7 @@ package org.example.getrem.enums;
 
 public enum ReminderStatus {
     PENDING,
+    SENDING,                // Claimed by a dispatcher run that has not finished with it yet
     SENT,
     FAILED,
     CANCELLED
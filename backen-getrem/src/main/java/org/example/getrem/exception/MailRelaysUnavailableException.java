@@ -0,0 +1,10 @@
+package org.example.getrem.exception;
+
+import org.springframework.mail.MailSendException;
+
+public class MailRelaysUnavailableException extends MailSendException {
+
+    public MailRelaysUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,9 +1,14 @@
 package org.example.getrem.mapper;
 
 import org.example.getrem.dto.appointment.ReminderScheduleInfo;
+import org.example.getrem.enums.ReminderStatus;
+import org.example.getrem.model.Appointment;
 import org.example.getrem.model.Reminder;
+import org.example.getrem.model.ReminderPlan;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,6 +27,22 @@ public class ReminderMapper {
                 .build();
     }
 
+    /**
+     * The appointment's reminder rows plus the plan entries not yet
+     * materialised as rows, which show as pending without an id, in time order.
+     */
+    public List<ReminderScheduleInfo> toScheduleInfoList(Appointment appointment, List<Reminder> reminders) {
+        List<ReminderScheduleInfo> schedules = new ArrayList<>(toScheduleInfoList(reminders));
+        ReminderPlan.forEachPlanned(appointment, (type, time) -> schedules.add(ReminderScheduleInfo.builder()
+                .type(type)
+                .scheduledTime(time)
+                .status(ReminderStatus.PENDING)
+                .build()));
+        schedules.sort(Comparator.comparing(ReminderScheduleInfo::getScheduledTime,
+                Comparator.nullsLast(Comparator.naturalOrder())));
+        return schedules;
+    }
+
     public List<ReminderScheduleInfo> toScheduleInfoList(List<Reminder> reminders) {
         if (reminders == null) {
             return List.of();
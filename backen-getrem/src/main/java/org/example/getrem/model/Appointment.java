@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import org.example.getrem.enums.AppointmentStatus;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -12,6 +13,11 @@ import java.util.UUID;
 @Entity
 @Getter
 @Setter
+@Table(indexes = {
+        @Index(name = "idx_appointment_reminders_replan_at", columnList = "reminders_replan_at"),
+        @Index(name = "idx_appointment_plan_next_due_at", columnList = "plan_next_due_at"),
+        @Index(name = "idx_appointment_doctor_time", columnList = "doctor_id, appointment_time")
+})
 public class Appointment {
 
     @Id
@@ -37,6 +43,21 @@ public class Appointment {
     @Column(nullable = false)
     private AppointmentStatus status;
 
+    // Set while a debounced reminder re-plan is pending; the re-plan runs no later than this
+    private LocalDateTime remindersReplanAt;
+
+    // Reminders still to be created as rows; only those near their due time exist in the reminder table
+    @Convert(converter = ReminderPlanConverter.class)
+    @Column(length = 1024)
+    private ReminderPlan reminderPlan;
+
+    // Earliest plan entry without a reminder row yet, or null once every entry has one
+    private LocalDateTime planNextDueAt;
+
+    // Set on insert and every change, bulk updates included; calendar feeds use it to answer conditional requests
+    @UpdateTimestamp
+    private LocalDateTime updatedAt;
+
     @OneToMany(mappedBy = "appointment", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Reminder> reminders;
 
@@ -0,0 +1,36 @@
+package org.example.getrem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Append-only log of appointment changes for delta sync; written only by AppointmentChangeLog
+@Entity
+@Getter
+@Setter
+@Table(name = "appointment_change", indexes = {
+        @Index(name = "idx_appointment_change_seq", columnList = "seq")
+})
+public class AppointmentChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // Shared by every change committed in the same transaction; commit order follows it
+    @Column(nullable = false)
+    private long seq;
+
+    // Not a foreign key: tombstones outlive the appointment
+    @Column(nullable = false)
+    private UUID appointmentId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,21 @@
+package org.example.getrem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+// Named counters shared by every node; incremented in place so the row lock orders writers
+@Entity
+@Getter
+@Setter
+@Table(name = "change_sequence")
+public class ChangeSequence {
+
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // VALUE is reserved in H2
+    @Column(name = "current_value", nullable = false)
+    private long value;
+}
@@ -0,0 +1,21 @@
+package org.example.getrem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+// Messages a relay may send on one day, summed over every node; leased out in blocks by MailRelayQuota
+@Entity
+@Getter
+@Setter
+@Table(name = "mail_relay_usage")
+public class MailRelayUsage {
+
+    // <relay name>/<yyyy-mm-dd>, one row per relay and day
+    @Id
+    @Column(length = 120)
+    private String id;
+
+    @Column(nullable = false)
+    private int sent;
+}
@@ -12,7 +12,13 @@ import java.util.UUID;
 @Entity
 @Getter
 @Setter
-@Table(name = "notification_log")
+// InnoDB appends the primary key to each secondary index, so these also cover the (timestamp, id) keyset order
+@Table(name = "notification_log", indexes = {
+        @Index(name = "idx_notification_log_timestamp", columnList = "timestamp"),
+        @Index(name = "idx_notification_log_recipient_ts", columnList = "recipient, timestamp"),
+        @Index(name = "idx_notification_log_status_ts", columnList = "status, timestamp"),
+        @Index(name = "idx_notification_log_channel_status_ts", columnList = "channel, status, timestamp")
+})
 public class NotificationLog {
 
     @Id
@@ -0,0 +1,57 @@
+package org.example.getrem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import org.example.getrem.enums.NotificationChannel;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Entity
+@Getter
+@Setter
+@Table(name = "notification_preference")
+public class NotificationPreference {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    // One preference row per client; clients without a row get the defaults
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "client_id", nullable = false, unique = true)
+    private Clients client;
+
+    @Column(name = "email_enabled", nullable = false)
+    private Boolean emailEnabled = true;
+
+    @Column(name = "sms_enabled", nullable = false)
+    private Boolean smsEnabled = true;
+
+    @Column(name = "whatsapp_enabled", nullable = false)
+    private Boolean whatsappEnabled = true;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "preferred_channel")
+    private NotificationChannel preferredChannel;
+
+    @Column(name = "quiet_hours_start")
+    private LocalTime quietHoursStart;
+
+    @Column(name = "quiet_hours_end")
+    private LocalTime quietHoursEnd;
+
+    // IETF language tag, e.g. "en-IN"
+    private String locale;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -12,6 +12,7 @@ import java.util.UUID;
 @Entity
 @Getter
 @Setter
+@Table(indexes = @Index(name = "idx_reminder_status_scheduled", columnList = "status, scheduled_time"))
 public class Reminder {
 
     @Id
@@ -37,5 +38,11 @@ public class Reminder {
     private LocalDateTime createdAt;
 
     private LocalDateTime sentAt;
+
+    // Dispatcher run that moved this reminder to SENDING, and when; kept afterwards as a record of who sent it
+    @Column(length = 100)
+    private String claimedBy;
+
+    private LocalDateTime claimedAt;
 }
 
@@ -0,0 +1,31 @@
+package org.example.getrem.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Aggregated opens and clicks per reminder, written only by EngagementTracker's batched upserts
+@Entity
+@Getter
+@Setter
+@Table(name = "reminder_engagement")
+public class ReminderEngagement {
+
+    @Id
+    private UUID reminderId;
+
+    @Column(nullable = false)
+    private long opens;
+
+    @Column(nullable = false)
+    private long clicks;
+
+    private LocalDateTime firstOpenedAt;
+
+    private LocalDateTime lastOpenedAt;
+
+    private LocalDateTime lastClickedAt;
+}
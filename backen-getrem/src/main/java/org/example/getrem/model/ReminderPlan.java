@@ -0,0 +1,101 @@
+package org.example.getrem.model;
+
+import org.example.getrem.enums.ReminderType;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * The reminders an appointment is due to get, kept on the appointment row
+ * instead of as reminder rows. Offset reminders are stored by type and
+ * resolved against the appointment time, so they follow it when it moves
+ * (see {@code ReminderService#moveRemindersWithAppointment}); custom
+ * reminders keep their absolute time.
+ * <p>
+ * Stored as e.g. {@code ONE_DAY_BEFORE;TEN_MINUTES_BEFORE;CUSTOM@2024-05-01T09:30}.
+ */
+public record ReminderPlan(List<Entry> entries) {
+
+    private static final String ENTRY_SEPARATOR = ";";
+    private static final String TIME_SEPARATOR = "@";
+
+    public ReminderPlan {
+        entries = List.copyOf(entries);
+    }
+
+    public String format() {
+        return entries.stream().map(Entry::format).collect(Collectors.joining(ENTRY_SEPARATOR));
+    }
+
+    /**
+     * Calls {@code action} with the type and time of each of the
+     * appointment's plan entries that does not have a reminder row yet.
+     */
+    public static void forEachPlanned(Appointment appointment, BiConsumer<ReminderType, LocalDateTime> action) {
+        ReminderPlan plan = appointment.getReminderPlan();
+        LocalDateTime nextDueAt = appointment.getPlanNextDueAt();
+        if (plan == null || nextDueAt == null) {
+            return;
+        }
+        // Entries before the next due time already have rows
+        for (Entry entry : plan.entries()) {
+            LocalDateTime time = entry.timeFor(appointment.getAppointmentTime());
+            if (!time.isBefore(nextDueAt)) {
+                action.accept(entry.type(), time);
+            }
+        }
+    }
+
+    public static ReminderPlan parse(String value) {
+        List<Entry> entries = new ArrayList<>();
+        for (String token : value.split(ENTRY_SEPARATOR)) {
+            if (!token.isBlank()) {
+                entries.add(Entry.parse(token.trim()));
+            }
+        }
+        return new ReminderPlan(entries);
+    }
+
+    public record Entry(ReminderType type, LocalDateTime time) {
+
+        public static Entry offset(ReminderType type) {
+            if (type != ReminderType.TEN_MINUTES_BEFORE && type != ReminderType.ONE_DAY_BEFORE) {
+                throw new IllegalArgumentException(type + " is not relative to the appointment time");
+            }
+            return new Entry(type, null);
+        }
+
+        public static Entry custom(LocalDateTime time) {
+            return new Entry(ReminderType.CUSTOM, time.truncatedTo(ChronoUnit.SECONDS));
+        }
+
+        /**
+         * When this reminder is due, in whole seconds so that it compares
+         * exactly with times read back from datetime columns.
+         */
+        public LocalDateTime timeFor(LocalDateTime appointmentTime) {
+            return switch (type) {
+                case TEN_MINUTES_BEFORE -> appointmentTime.minusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+                case ONE_DAY_BEFORE -> appointmentTime.minusDays(1).truncatedTo(ChronoUnit.SECONDS);
+                default -> time;
+            };
+        }
+
+        String format() {
+            return time == null ? type.name() : type.name() + TIME_SEPARATOR + time;
+        }
+
+        static Entry parse(String token) {
+            int separator = token.indexOf(TIME_SEPARATOR);
+            if (separator < 0) {
+                return offset(ReminderType.valueOf(token));
+            }
+            return new Entry(ReminderType.valueOf(token.substring(0, separator)),
+                    LocalDateTime.parse(token.substring(separator + 1)));
+        }
+    }
+}
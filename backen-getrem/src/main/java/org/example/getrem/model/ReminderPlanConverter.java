@@ -0,0 +1,18 @@
+package org.example.getrem.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class ReminderPlanConverter implements AttributeConverter<ReminderPlan, String> {
+
+    @Override
+    public String convertToDatabaseColumn(ReminderPlan plan) {
+        return plan == null || plan.entries().isEmpty() ? null : plan.format();
+    }
+
+    @Override
+    public ReminderPlan convertToEntityAttribute(String value) {
+        return value == null || value.isBlank() ? null : ReminderPlan.parse(value);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.getrem.repository;
+
+import org.example.getrem.model.AppointmentChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface AppointmentChangeRepository extends JpaRepository<AppointmentChange, UUID> {
+
+    // Sequence numbers only, read from the index, to find where a page of changes ends
+    @Query("SELECT c.seq FROM AppointmentChange c WHERE c.seq > :since AND c.seq <= :until ORDER BY c.seq ASC")
+    List<Long> findSeqsBetween(@Param("since") long since, @Param("until") long until, Pageable pageable);
+
+    // seq, appointmentId, deleted - in sequence order
+    @Query("SELECT c.seq, c.appointmentId, c.deleted FROM AppointmentChange c WHERE c.seq > :since AND c.seq <= :until ORDER BY c.seq ASC")
+    List<Object[]> findBetween(@Param("since") long since, @Param("until") long until);
+
+    @Query("SELECT MAX(c.seq) FROM AppointmentChange c WHERE c.createdAt < :cutoff")
+    Long findMaxSeqBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM AppointmentChange c WHERE c.seq <= :seq")
+    int deleteThrough(@Param("seq") long seq);
+}
@@ -1,12 +1,17 @@
 package org.example.getrem.repository;
 
+import jakarta.persistence.LockModeType;
 import org.example.getrem.model.Appointment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,13 +21,89 @@ public interface AppointmentRepository extends JpaRepository<Appointment, UUID>
     @Query("SELECT a FROM Appointment a WHERE a.client.id = :clientId")
     List<Appointment> findByClientId(@Param("clientId") UUID clientId);
 
-    @Query("SELECT a FROM Appointment a WHERE a.appointmentTime >= :startDate AND a.appointmentTime < :endDate ORDER BY a.appointmentTime ASC")
+    // Client and doctor are fetched with the rows because every calendar entry shows both
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.client JOIN FETCH a.doctor WHERE a.appointmentTime >= :startDate AND a.appointmentTime < :endDate ORDER BY a.appointmentTime ASC")
     List<Appointment> findByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
 
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.client JOIN FETCH a.doctor d WHERE d.id = :doctorId AND a.appointmentTime >= :startDate AND a.appointmentTime < :endDate ORDER BY a.appointmentTime ASC")
+    List<Appointment> findByDoctorIdAndDateRange(@Param("doctorId") UUID doctorId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
     @Query("SELECT a FROM Appointment a WHERE DATE(a.appointmentTime) = DATE(:date) ORDER BY a.appointmentTime ASC")
     List<Appointment> findByDate(@Param("date") LocalDateTime date);
 
-    @Query("SELECT a FROM Appointment a WHERE a.appointmentTime >= :startDate AND a.appointmentTime < :endDate AND a.status = 'SCHEDULED' ORDER BY a.appointmentTime ASC")
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.client JOIN FETCH a.doctor WHERE a.appointmentTime >= :startDate AND a.appointmentTime < :endDate AND a.status IN ('SCHEDULED', 'CONFIRMED') ORDER BY a.appointmentTime ASC")
     List<Appointment> findUpcomingAppointments(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
-}
 
+    // appointmentId, appointmentTime of a doctor's bookings that still hold their slot - used to load the slot index
+    @Query("SELECT a.id, a.appointmentTime FROM Appointment a WHERE a.doctor.id = :doctorId AND a.status <> 'CANCELLED' AND a.appointmentTime >= :from")
+    List<Object[]> findOccupiedSlots(@Param("doctorId") UUID doctorId, @Param("from") LocalDateTime from);
+
+    // doctorId, appointmentTime of bookings holding a slot strictly between the bounds, in time order - for free-slot searches
+    @Query("SELECT a.doctor.id, a.appointmentTime FROM Appointment a WHERE a.doctor.id IN :doctorIds AND a.status <> 'CANCELLED' AND a.appointmentTime > :after AND a.appointmentTime < :before ORDER BY a.appointmentTime ASC")
+    List<Object[]> findOccupiedSlotsBetween(@Param("doctorIds") Collection<UUID> doctorIds,
+                                            @Param("after") LocalDateTime after,
+                                            @Param("before") LocalDateTime before);
+
+    @Query("SELECT a.id FROM Appointment a WHERE a.remindersReplanAt <= :now")
+    List<UUID> findIdsWithRemindersReplanDue(@Param("now") LocalDateTime now);
+
+    // Only clears the request that was acted on; a newer edit keeps its own deadline
+    @Modifying
+    @Query("UPDATE Appointment a SET a.remindersReplanAt = NULL WHERE a.id = :id AND a.remindersReplanAt = :replanAt")
+    int clearRemindersReplan(@Param("id") UUID id, @Param("replanAt") LocalDateTime replanAt);
+
+    // Appointments with planned reminders falling due by :until; the client is needed for the forecast index
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.client WHERE a.planNextDueAt <= :until ORDER BY a.planNextDueAt ASC")
+    List<Appointment> findWithPlannedRemindersDueBy(@Param("until") LocalDateTime until, Pageable pageable);
+
+    // appointmentId, appointmentTime, reminderPlan, planNextDueAt, clientId, email, phone - used to rebuild the forecast index
+    @Query("SELECT a.id, a.appointmentTime, a.reminderPlan, a.planNextDueAt, c.id, c.email, c.phone FROM Appointment a JOIN a.client c WHERE a.planNextDueAt IS NOT NULL")
+    List<Object[]> findPlannedForecastRows();
+
+    @Query("SELECT a.id, a.appointmentTime, a.reminderPlan, a.planNextDueAt, c.id, c.email, c.phone FROM Appointment a JOIN a.client c WHERE a.planNextDueAt IS NOT NULL AND a.id IN :ids")
+    List<Object[]> findPlannedForecastRows(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = 'CONFIRMED', a.updatedAt = :now WHERE a.id IN :ids AND a.status = 'SCHEDULED'")
+    int confirmScheduled(@Param("ids") Collection<UUID> ids, @Param("now") LocalDateTime now);
+
+    // Locks the rows cancelActive will change, so their reminders and slots are released together with them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a.id FROM Appointment a WHERE a.id IN :ids AND a.status IN ('SCHEDULED', 'CONFIRMED')")
+    List<UUID> lockActiveIds(@Param("ids") Collection<UUID> ids);
+
+    // Cancelled appointments drop out of the overlap check, freeing the slot; leftover plans go with them
+    @Modifying
+    @Query("UPDATE Appointment a SET a.status = 'CANCELLED', a.reminderPlan = NULL, a.planNextDueAt = NULL, a.remindersReplanAt = NULL, a.updatedAt = :now WHERE a.id IN :ids AND a.status IN ('SCHEDULED', 'CONFIRMED')")
+    int cancelActive(@Param("ids") Collection<UUID> ids, @Param("now") LocalDateTime now);
+
+    // Appointments listed by a delta sync, with what every calendar entry shows
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.client JOIN FETCH a.doctor WHERE a.id IN :ids")
+    List<Appointment> findAllWithClientAndDoctorByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // appointmentId, doctorId, appointmentTime, status - enough to describe a bulk status change to calendar subscribers
+    @Query("SELECT a.id, a.doctor.id, a.appointmentTime, a.status FROM Appointment a WHERE a.id IN :ids")
+    List<Object[]> findCalendarKeys(@Param("ids") Collection<UUID> ids);
+
+    // Renaming a client or doctor changes how their appointments show in calendar feeds
+    @Query("SELECT a.id FROM Appointment a WHERE a.client.id = :clientId")
+    List<UUID> findIdsByClientId(@Param("clientId") UUID clientId);
+
+    @Query("SELECT a.id FROM Appointment a WHERE a.doctor.id = :doctorId")
+    List<UUID> findIdsByDoctorId(@Param("doctorId") UUID doctorId);
+
+    @Modifying
+    @Query("UPDATE Appointment a SET a.updatedAt = :now WHERE a.client.id = :clientId")
+    int touchByClientId(@Param("clientId") UUID clientId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Appointment a SET a.updatedAt = :now WHERE a.doctor.id = :doctorId")
+    int touchByDoctorId(@Param("doctorId") UUID doctorId, @Param("now") LocalDateTime now);
+
+    // count, latest updatedAt of the appointments in a range - the validator for calendar feeds
+    @Query("SELECT COUNT(a), MAX(a.updatedAt) FROM Appointment a WHERE a.appointmentTime >= :startDate AND a.appointmentTime < :endDate")
+    List<Object[]> summarizeRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT COUNT(a), MAX(a.updatedAt) FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentTime >= :startDate AND a.appointmentTime < :endDate")
+    List<Object[]> summarizeDoctorRange(@Param("doctorId") UUID doctorId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+}
@@ -0,0 +1,41 @@
+package org.example.getrem.repository;
+
+import org.example.getrem.model.ChangeSequence;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ChangeSequenceRepository extends JpaRepository<ChangeSequence, String> {
+
+    // Holds the row lock until commit, so the next writer only gets its value once this one is visible
+    @Modifying
+    @Query("UPDATE ChangeSequence s SET s.value = s.value + 1 WHERE s.name = :name")
+    int increment(@Param("name") String name);
+
+    @Modifying
+    @Query("UPDATE ChangeSequence s SET s.value = :value WHERE s.name = :name AND s.value < :value")
+    int raiseTo(@Param("name") String name, @Param("value") long value);
+
+    // Leases keep their expiry in epoch millis; taken only once the current holder's has passed
+    @Modifying
+    @Query("UPDATE ChangeSequence s SET s.value = :until WHERE s.name = :name AND s.value < :now")
+    int takeIfExpired(@Param("name") String name, @Param("now") long now, @Param("until") long until);
+
+    // Renews or releases a lease, but only for the holder whose expiry is still in the row
+    @Modifying
+    @Query("UPDATE ChangeSequence s SET s.value = :value WHERE s.name = :name AND s.value = :held")
+    int replaceIfHeld(@Param("name") String name, @Param("held") long held, @Param("value") long value);
+
+    // Plain insert, so a row another node created first fails instead of being overwritten
+    @Modifying
+    @Query(value = "INSERT INTO change_sequence (name, current_value) VALUES (:name, :value)", nativeQuery = true)
+    int create(@Param("name") String name, @Param("value") long value);
+
+    @Query("SELECT s.value FROM ChangeSequence s WHERE s.name = :name")
+    Optional<Long> findValue(@Param("name") String name);
+}
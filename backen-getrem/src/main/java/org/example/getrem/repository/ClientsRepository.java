@@ -2,11 +2,18 @@ package org.example.getrem.repository;
 
 import org.example.getrem.model.Clients;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ClientsRepository extends JpaRepository<Clients, UUID> {
-}
 
+    // Which of these ids exist, without loading the clients - for bulk imports
+    @Query("SELECT c.id FROM Clients c WHERE c.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+}
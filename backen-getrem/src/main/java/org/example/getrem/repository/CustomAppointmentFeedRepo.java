@@ -0,0 +1,43 @@
+package org.example.getrem.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public class CustomAppointmentFeedRepo {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Streams id, appointmentTime, status, notes, updatedAt, client name,
+     * doctor name and specialization of the appointments in the range, in
+     * time order, for everyone or one doctor. The fetch size is set on this
+     * query alone: {@link Integer#MIN_VALUE} makes MySQL Connector/J stream
+     * rows one by one instead of buffering the result, without switching the
+     * whole datasource to server-side cursors. Must run in a transaction and
+     * be closed; no other statement may use the connection until it is.
+     */
+    public Stream<Object[]> streamFeedRows(UUID doctorId, LocalDateTime startDate, LocalDateTime endDate, int fetchSize) {
+        TypedQuery<Object[]> query = em.createQuery("SELECT a.id, a.appointmentTime, a.status, a.notes, a.updatedAt, "
+                        + "c.name, d.name, d.specialization FROM Appointment a JOIN a.client c JOIN a.doctor d "
+                        + "WHERE a.appointmentTime >= :startDate AND a.appointmentTime < :endDate"
+                        + (doctorId != null ? " AND d.id = :doctorId" : "")
+                        + " ORDER BY a.appointmentTime ASC", Object[].class)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (doctorId != null) {
+            query.setParameter("doctorId", doctorId);
+        }
+        return query.getResultStream();
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.getrem.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.example.getrem.dto.notification.NotificationLogCursor;
+import org.example.getrem.dto.notification.NotificationLogFilter;
+import org.example.getrem.dto.notification.NotificationLogResponse;
+import org.example.getrem.model.NotificationLog;
+import org.example.getrem.model.Reminder;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public class CustomNotificationLogRepo {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Newest first, resuming strictly after {@code after}. Each filter
+     * combination is served by one of the composite indexes on
+     * notification_log, so the cost is the page size, not the offset.
+     * Returns up to {@code limit} rows.
+     */
+    public List<NotificationLogResponse> search(NotificationLogFilter filter, NotificationLogCursor after, int limit) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<NotificationLogResponse> cq = cb.createQuery(NotificationLogResponse.class);
+        Root<NotificationLog> root = cq.from(NotificationLog.class);
+        Join<NotificationLog, Reminder> reminder = root.join("reminder");
+        Path<LocalDateTime> timestamp = root.get("timestamp");
+        Path<UUID> id = root.get("id");
+
+        // Flat projection; the reminder join only reads its id and FK columns
+        cq.select(cb.construct(NotificationLogResponse.class,
+                id,
+                reminder.get("id"),
+                reminder.get("appointment").get("id"),
+                root.get("channel"),
+                root.get("status"),
+                timestamp,
+                root.get("recipient"),
+                root.get("errorMessage")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getRecipient() != null) {
+            predicates.add(cb.equal(root.get("recipient"), filter.getRecipient()));
+        }
+        if (filter.getStatus() != null) {
+            predicates.add(cb.equal(root.get("status"), filter.getStatus()));
+        }
+        if (filter.getChannel() != null) {
+            predicates.add(cb.equal(root.get("channel"), filter.getChannel()));
+        }
+        if (filter.getFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(timestamp, filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            predicates.add(cb.lessThan(timestamp, filter.getTo()));
+        }
+        if (filter.getReminderId() != null) {
+            predicates.add(cb.equal(reminder.get("id"), filter.getReminderId()));
+        }
+        if (filter.getAppointmentId() != null) {
+            predicates.add(cb.equal(reminder.get("appointment").get("id"), filter.getAppointmentId()));
+        }
+        if (after != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(timestamp, after.getTimestamp()),
+                    cb.and(cb.equal(timestamp, after.getTimestamp()), cb.lessThan(id, after.getId()))));
+        }
+
+        cq.where(predicates.toArray(new Predicate[0]));
+        cq.orderBy(cb.desc(timestamp), cb.desc(id));
+
+        return em.createQuery(cq)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
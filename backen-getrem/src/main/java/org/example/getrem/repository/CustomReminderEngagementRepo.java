@@ -0,0 +1,54 @@
+package org.example.getrem.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.example.getrem.dto.notification.ReminderEngagementDelta;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class CustomReminderEngagementRepo {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * Adds the deltas to reminder_engagement with a single multi-row
+     * {@code INSERT ... ON DUPLICATE KEY UPDATE} (MySQL), creating rows for
+     * reminders seen for the first time. Must run in a transaction.
+     */
+    public int upsert(List<ReminderEngagementDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO reminder_engagement "
+                + "(reminder_id, opens, clicks, first_opened_at, last_opened_at, last_clicked_at) VALUES ");
+        for (int i = 0; i < deltas.size(); i++) {
+            sql.append(i == 0 ? "" : ", ")
+                    .append("(:id").append(i).append(", :opens").append(i).append(", :clicks").append(i)
+                    .append(", :firstOpened").append(i).append(", :lastOpened").append(i)
+                    .append(", :lastClicked").append(i).append(')');
+        }
+        // Deltas are flushed in time order, so a non-null incoming "last" time is the newer one
+        sql.append(" ON DUPLICATE KEY UPDATE "
+                + "opens = opens + VALUES(opens), "
+                + "clicks = clicks + VALUES(clicks), "
+                + "first_opened_at = COALESCE(first_opened_at, VALUES(first_opened_at)), "
+                + "last_opened_at = COALESCE(VALUES(last_opened_at), last_opened_at), "
+                + "last_clicked_at = COALESCE(VALUES(last_clicked_at), last_clicked_at)");
+
+        Query query = em.createNativeQuery(sql.toString());
+        for (int i = 0; i < deltas.size(); i++) {
+            ReminderEngagementDelta delta = deltas.get(i);
+            query.setParameter("id" + i, delta.getReminderId());
+            query.setParameter("opens" + i, delta.getOpens());
+            query.setParameter("clicks" + i, delta.getClicks());
+            query.setParameter("firstOpened" + i, delta.getFirstOpenedAt());
+            query.setParameter("lastOpened" + i, delta.getLastOpenedAt());
+            query.setParameter("lastClicked" + i, delta.getLastClickedAt());
+        }
+        return query.executeUpdate();
+    }
+}
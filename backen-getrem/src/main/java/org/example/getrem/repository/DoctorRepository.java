@@ -7,35 +7,46 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface DoctorRepository extends JpaRepository<Doctor, UUID> {
     List<Doctor> findByActiveTrue();
+
+    List<Doctor> findByActiveTrueAndSpecializationIgnoreCase(String specialization);
+
+    // Which of these ids exist, without loading the doctors - for bulk imports
+    @Query("SELECT d.id FROM Doctor d WHERE d.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
     
     // Check for overlapping appointments (assuming 30-minute appointment duration)
-    // Two appointments overlap if:
-    // - New start time is before existing end time AND
-    // - New end time is after existing start time
-    // Existing: [a.appointment_time, a.appointment_time + 30 min]
-    // New: [:appointmentTime, :appointmentTime + 30 min]
-    // Overlap if: :appointmentTime < (a.appointment_time + 30 min) AND (:appointmentTime + 30 min) > a.appointment_time
-    @Query(value = """
-    SELECT COUNT(*)
-    FROM appointment a
-    WHERE a.doctor_id = :doctorId
+    // An existing appointment conflicts if:
+    // - The new start time is before the existing end time (a.appointment_time + 30 min) AND
+    // - The new start time + 1 min is after the existing start time
+    // Rearranged as a.appointment_time in (:appointmentTime - 30 min, :appointmentTime + 1 min),
+    // so the (doctor_id, appointment_time) index answers it instead of a scan of the doctor's history
+    default Long countOverlappingAppointments(UUID doctorId, LocalDateTime appointmentTime, UUID excludeAppointmentId) {
+        return countAppointmentsStartingBetween(doctorId, appointmentTime.minusMinutes(30),
+                appointmentTime.plusMinutes(1), excludeAppointmentId);
+    }
+
+    @Query("""
+    SELECT COUNT(a)
+    FROM Appointment a
+    WHERE a.doctor.id = :doctorId
       AND a.status <> 'CANCELLED'
       AND (:excludeAppointmentId IS NULL OR a.id <> :excludeAppointmentId)
-      AND :appointmentTime < DATE_ADD(a.appointment_time, INTERVAL 30 MINUTE)
-      AND DATE_ADD(:appointmentTime, INTERVAL 1 MINUTE) > a.appointment_time
-    """, nativeQuery = true)
-    Long countOverlappingAppointments(
+      AND a.appointmentTime > :after
+      AND a.appointmentTime < :before
+    """)
+    Long countAppointmentsStartingBetween(
             @Param("doctorId") UUID doctorId,
-            @Param("appointmentTime") LocalDateTime appointmentTime,
+            @Param("after") LocalDateTime after,
+            @Param("before") LocalDateTime before,
             @Param("excludeAppointmentId") UUID excludeAppointmentId
     );
 
-
 }
 
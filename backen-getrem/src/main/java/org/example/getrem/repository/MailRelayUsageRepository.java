@@ -0,0 +1,22 @@
+package org.example.getrem.repository;
+
+import org.example.getrem.model.MailRelayUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface MailRelayUsageRepository extends JpaRepository<MailRelayUsage, String> {
+
+    @Query("SELECT u.sent FROM MailRelayUsage u WHERE u.id = :id")
+    Optional<Integer> findSent(@Param("id") String id);
+
+    // Only applies if no other node leased in between, so concurrent leases can never add up past the quota
+    @Modifying
+    @Query("UPDATE MailRelayUsage u SET u.sent = :expected + :count WHERE u.id = :id AND u.sent = :expected")
+    int compareAndAdd(@Param("id") String id, @Param("expected") int expected, @Param("count") int count);
+}
@@ -1,21 +1,47 @@
 package org.example.getrem.repository;
 
+import org.example.getrem.dto.notification.NotificationLogResponse;
 import org.example.getrem.model.NotificationLog;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface NotificationLogRepository extends JpaRepository<NotificationLog, UUID> {
 
-    @Query("SELECT n FROM NotificationLog n WHERE n.reminder.id = :reminderId ORDER BY n.timestamp DESC")
-    List<NotificationLog> findByReminderId(@Param("reminderId") UUID reminderId);
+    @Query(value = "SELECT new org.example.getrem.dto.notification.NotificationLogResponse(" +
+                   "n.id, r.id, r.appointment.id, n.channel, n.status, n.timestamp, n.recipient, n.errorMessage) " +
+                   "FROM NotificationLog n JOIN n.reminder r",
+           countQuery = "SELECT COUNT(n) FROM NotificationLog n")
+    Page<NotificationLogResponse> findAllResponses(Pageable pageable);
 
-    @Query("SELECT n FROM NotificationLog n WHERE n.reminder.appointment.id = :appointmentId ORDER BY n.timestamp DESC")
-    List<NotificationLog> findByAppointmentId(@Param("appointmentId") UUID appointmentId);
-}
+    @Query("SELECT new org.example.getrem.dto.notification.NotificationLogResponse(" +
+           "n.id, r.id, r.appointment.id, n.channel, n.status, n.timestamp, n.recipient, n.errorMessage) " +
+           "FROM NotificationLog n JOIN n.reminder r WHERE r.id = :reminderId ORDER BY n.timestamp DESC")
+    List<NotificationLogResponse> findByReminderId(@Param("reminderId") UUID reminderId);
+
+    @Query("SELECT new org.example.getrem.dto.notification.NotificationLogResponse(" +
+           "n.id, r.id, r.appointment.id, n.channel, n.status, n.timestamp, n.recipient, n.errorMessage) " +
+           "FROM NotificationLog n JOIN n.reminder r WHERE r.appointment.id = :appointmentId ORDER BY n.timestamp DESC")
+    List<NotificationLogResponse> findByAppointmentId(@Param("appointmentId") UUID appointmentId);
 
+    // Oldest first; archived rows are deleted, so the first page is always the next chunk
+    @Query("SELECT new org.example.getrem.dto.notification.NotificationLogResponse(" +
+           "n.id, r.id, r.appointment.id, n.channel, n.status, n.timestamp, n.recipient, n.errorMessage) " +
+           "FROM NotificationLog n JOIN n.reminder r " +
+           "WHERE n.timestamp < :cutoff ORDER BY n.timestamp, n.id")
+    List<NotificationLogResponse> findArchivableBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM NotificationLog n WHERE n.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<UUID> ids);
+}
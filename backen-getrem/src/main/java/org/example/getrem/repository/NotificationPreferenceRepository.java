@@ -0,0 +1,27 @@
+package org.example.getrem.repository;
+
+import org.example.getrem.model.NotificationPreference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface NotificationPreferenceRepository extends JpaRepository<NotificationPreference, UUID> {
+
+    @Query("SELECT p FROM NotificationPreference p WHERE p.client.id = :clientId")
+    Optional<NotificationPreference> findByClientId(@Param("clientId") UUID clientId);
+
+    @Query("SELECT p FROM NotificationPreference p JOIN FETCH p.client WHERE p.client.id IN :clientIds")
+    List<NotificationPreference> findByClientIdIn(@Param("clientIds") Collection<UUID> clientIds);
+
+    @Modifying
+    @Query("DELETE FROM NotificationPreference p WHERE p.client.id = :clientId")
+    void deleteByClientId(@Param("clientId") UUID clientId);
+}
@@ -0,0 +1,11 @@
+package org.example.getrem.repository;
+
+import org.example.getrem.model.ReminderEngagement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface ReminderEngagementRepository extends JpaRepository<ReminderEngagement, UUID> {
+}
@@ -2,11 +2,13 @@ package org.example.getrem.repository;
 
 import org.example.getrem.model.Reminder;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,8 +18,64 @@ public interface ReminderRepository extends JpaRepository<Reminder, UUID> {
     @Query("SELECT r FROM Reminder r WHERE r.appointment.id = :appointmentId")
     List<Reminder> findByAppointmentId(@Param("appointmentId") UUID appointmentId);
 
-    @Query("SELECT r FROM Reminder r WHERE r.status = 'PENDING' AND r.scheduledTime <= :currentTime")
+    // Reminders for a whole calendar page in one round trip; callers group them by appointment
+    @Query("SELECT r FROM Reminder r WHERE r.appointment.id IN :appointmentIds ORDER BY r.scheduledTime ASC")
+    List<Reminder> findByAppointmentIdIn(@Param("appointmentIds") Collection<UUID> appointmentIds);
+
+    @Query("SELECT r FROM Reminder r JOIN FETCH r.appointment a JOIN FETCH a.client WHERE r.status = 'PENDING' AND r.scheduledTime <= :currentTime")
     List<Reminder> findPendingRemindersToSend(@Param("currentTime") LocalDateTime currentTime);
 
-}
+    // appointmentId, type, scheduledTime, clientId, email, phone - used to rebuild the forecast index
+    @Query("SELECT a.id, r.type, r.scheduledTime, c.id, c.email, c.phone FROM Reminder r JOIN r.appointment a JOIN a.client c WHERE r.status = 'PENDING'")
+    List<Object[]> findPendingForecastRows();
+
+    // The same rows for a few appointments, when another node has changed them
+    @Query("SELECT a.id, r.type, r.scheduledTime, c.id, c.email, c.phone FROM Reminder r JOIN r.appointment a JOIN a.client c WHERE r.status = 'PENDING' AND a.id IN :appointmentIds")
+    List<Object[]> findPendingForecastRows(@Param("appointmentIds") Collection<UUID> appointmentIds);
+
+    // type, scheduledTime of an appointment's pending reminders
+    @Query("SELECT r.type, r.scheduledTime FROM Reminder r WHERE r.appointment.id = :appointmentId AND r.status = 'PENDING'")
+    List<Object[]> findPendingTypesAndTimes(@Param("appointmentId") UUID appointmentId);
+
+    @Modifying
+    @Query("UPDATE Reminder r SET r.status = 'CANCELLED' WHERE r.appointment.id IN :appointmentIds AND r.status = 'PENDING'")
+    int cancelPendingForAppointments(@Param("appointmentIds") Collection<UUID> appointmentIds);
+
+    @Query("SELECT r.id FROM Reminder r WHERE r.id IN :ids")
+    List<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
 
+    // Rows another run claimed first are skipped; the claim token identifies the ones this run won
+    @Modifying
+    @Query("UPDATE Reminder r SET r.status = 'SENDING', r.claimedBy = :claim, r.claimedAt = :now WHERE r.id IN :ids AND r.status = 'PENDING'")
+    int claim(@Param("ids") Collection<UUID> ids, @Param("claim") String claim, @Param("now") LocalDateTime now);
+
+    @Query("SELECT r.id FROM Reminder r WHERE r.claimedBy = :claim AND r.status = 'SENDING'")
+    List<UUID> findIdsClaimedBy(@Param("claim") String claim);
+
+    // Stamped before each chunk is sent, so a long run's unsent tail is not mistaken for an abandoned claim
+    @Modifying
+    @Query("UPDATE Reminder r SET r.claimedAt = :now WHERE r.id IN :ids AND r.status = 'SENDING' AND r.claimedBy = :claim")
+    int renewClaim(@Param("ids") Collection<UUID> ids, @Param("claim") String claim, @Param("now") LocalDateTime now);
+
+    // Rows released by recovery in the meantime, and possibly claimed by another run, are left out
+    @Query("SELECT r FROM Reminder r JOIN FETCH r.appointment a JOIN FETCH a.client "
+            + "WHERE r.id IN :ids AND r.status = 'SENDING' AND r.claimedBy = :claim")
+    List<Reminder> findAllForDispatch(@Param("ids") Collection<UUID> ids, @Param("claim") String claim);
+
+    // Hands claimed reminders that were never attempted back to the pool
+    @Modifying
+    @Query("UPDATE Reminder r SET r.status = 'PENDING', r.claimedBy = NULL, r.claimedAt = NULL WHERE r.claimedBy = :claim AND r.status = 'SENDING'")
+    int releaseClaim(@Param("claim") String claim);
+
+    // Logs are written after a chunk commits, so an abandoned claim cannot show
+    // whether its chunk was delivered; it goes back to PENDING and a chunk killed mid-send is sent again
+    @Modifying
+    @Query("""
+            UPDATE Reminder r SET r.status = 'PENDING', r.claimedBy = NULL, r.claimedAt = NULL
+            WHERE r.status = 'SENDING'
+              AND (r.claimedAt < :cutoff OR (r.claimedBy LIKE :previousRuns AND r.claimedBy NOT LIKE :currentRuns))
+            """)
+    int releaseAbandoned(@Param("cutoff") LocalDateTime cutoff,
+                         @Param("previousRuns") String previousRuns,
+                         @Param("currentRuns") String currentRuns);
+}
@@ -0,0 +1,224 @@
+package org.example.getrem.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.AppointmentLinkProperties;
+import org.example.getrem.dto.appointment.AppointmentLinkToken;
+import org.example.getrem.dto.appointment.CalendarChangeEvent;
+import org.example.getrem.enums.AppointmentAction;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.CalendarChangeType;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Applies followed confirm/cancel links to appointments in bulk. A burst of
+ * clicks after a mass send turns into a handful of set-wise UPDATEs per
+ * flush instead of a read-modify-write per click. Repeated clicks on the
+ * same link collapse, and a cancellation wins over a confirmation.
+ * <p>
+ * Clicks waiting for the next flush live only in memory; they are flushed on
+ * shutdown, and a crash loses at most one flush interval of them. Each
+ * submission gets a future that completes with the appointment's status once
+ * its chunk has committed, so the caller only reports what was applied.
+ */
+@Component
+@Slf4j
+public class AppointmentActionBatcher {
+
+    private final AppointmentRepository appointmentRepository;
+    private final ReminderRepository reminderRepository;
+    private final ReminderLoadIndex reminderLoadIndex;
+    private final CalendarCache calendarCache;
+    private final AppointmentSlotIndex slotIndex;
+    private final CalendarEventBroadcaster calendarEvents;
+    private final AppointmentChangeLog changeLog;
+    private final AppointmentLinkProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Object lock = new Object();
+    private Set<UUID> confirmations = new LinkedHashSet<>();
+    private Set<UUID> cancellations = new LinkedHashSet<>();
+    private Map<UUID, List<CompletableFuture<AppointmentStatus>>> waiting = new HashMap<>();
+
+    public AppointmentActionBatcher(AppointmentRepository appointmentRepository,
+                                    ReminderRepository reminderRepository,
+                                    ReminderLoadIndex reminderLoadIndex,
+                                    CalendarCache calendarCache,
+                                    AppointmentSlotIndex slotIndex,
+                                    CalendarEventBroadcaster calendarEvents,
+                                    AppointmentChangeLog changeLog,
+                                    AppointmentLinkProperties properties,
+                                    PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.reminderRepository = reminderRepository;
+        this.reminderLoadIndex = reminderLoadIndex;
+        this.calendarCache = calendarCache;
+        this.slotIndex = slotIndex;
+        this.calendarEvents = calendarEvents;
+        this.changeLog = changeLog;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Queues the link's action for the next flush.
+     *
+     * @return completes with the appointment's status after the flush that applied the action
+     * has committed, or with null if there is no such appointment
+     */
+    public CompletableFuture<AppointmentStatus> submit(AppointmentLinkToken token) {
+        CompletableFuture<AppointmentStatus> applied = new CompletableFuture<>();
+        synchronized (lock) {
+            (token.getAction() == AppointmentAction.CANCEL ? cancellations : confirmations)
+                    .add(token.getAppointmentId());
+            waiting.computeIfAbsent(token.getAppointmentId(), id -> new ArrayList<>()).add(applied);
+        }
+        return applied;
+    }
+
+    @Scheduled(fixedDelayString = "${getrem.appointment-links.flush-interval-ms:1000}")
+    public void flush() {
+        Set<UUID> confirming;
+        Set<UUID> cancelling;
+        Map<UUID, List<CompletableFuture<AppointmentStatus>>> waiters;
+        synchronized (lock) {
+            if (confirmations.isEmpty() && cancellations.isEmpty()) {
+                return;
+            }
+            confirming = confirmations;
+            cancelling = cancellations;
+            waiters = waiting;
+            confirmations = new LinkedHashSet<>();
+            cancellations = new LinkedHashSet<>();
+            waiting = new HashMap<>();
+        }
+        // Confirm first so that a cancel in the same batch gets the last word
+        confirming.removeAll(cancelling);
+
+        int confirmed = 0;
+        int cancelled = 0;
+        for (List<UUID> chunk : chunks(confirming)) {
+            Map<UUID, AppointmentStatus> statuses = new HashMap<>();
+            try {
+                confirmed += transactionTemplate.execute(status -> {
+                    calendarCache.invalidateAppointments(chunk);
+                    int updated = appointmentRepository.confirmScheduled(chunk, LocalDateTime.now());
+                    changeLog.recordChanged(chunk);
+                    readStatuses(chunk, AppointmentStatus.CONFIRMED, waiters, statuses);
+                    return updated;
+                });
+                complete(chunk, statuses, waiters);
+            } catch (Exception e) {
+                log.error("Failed to confirm {} appointments; retrying on the next flush", chunk.size(), e);
+                requeue(chunk, AppointmentAction.CONFIRM, waiters);
+            }
+        }
+        for (List<UUID> chunk : chunks(cancelling)) {
+            Map<UUID, AppointmentStatus> statuses = new HashMap<>();
+            try {
+                cancelled += transactionTemplate.execute(status -> {
+                    // Completed, already cancelled or unknown appointments keep their reminders and slots
+                    List<UUID> active = appointmentRepository.lockActiveIds(chunk);
+                    int updated = 0;
+                    if (!active.isEmpty()) {
+                        reminderRepository.cancelPendingForAppointments(active);
+                        reminderLoadIndex.onAppointmentsCancelled(Set.copyOf(active));
+                        calendarCache.invalidateAppointments(active);
+                        slotIndex.release(active);
+                        updated = appointmentRepository.cancelActive(active, LocalDateTime.now());
+                        changeLog.recordChanged(active);
+                    }
+                    readStatuses(chunk, AppointmentStatus.CANCELLED, waiters, statuses);
+                    return updated;
+                });
+                complete(chunk, statuses, waiters);
+            } catch (Exception e) {
+                log.error("Failed to cancel {} appointments; retrying on the next flush", chunk.size(), e);
+                requeue(chunk, AppointmentAction.CANCEL, waiters);
+            }
+        }
+        log.info("Applied appointment links: {} confirmed, {} cancelled", confirmed, cancelled);
+    }
+
+    // Read back after the update, so appointments that were already past the status are left out
+    private void readStatuses(List<UUID> chunk, AppointmentStatus status,
+                              Map<UUID, List<CompletableFuture<AppointmentStatus>>> waiters,
+                              Map<UUID, AppointmentStatus> statuses) {
+        boolean publish = calendarEvents.hasSubscribers();
+        if (!publish && chunk.stream().noneMatch(waiters::containsKey)) {
+            return;
+        }
+        for (Object[] row : appointmentRepository.findCalendarKeys(chunk)) {
+            statuses.put((UUID) row[0], (AppointmentStatus) row[3]);
+            if (publish && row[3] == status) {
+                calendarEvents.publishAfterCommit(CalendarChangeEvent.builder()
+                        .type(CalendarChangeType.APPOINTMENT_UPDATED)
+                        .appointmentId((UUID) row[0])
+                        .doctorId((UUID) row[1])
+                        .appointmentTime((LocalDateTime) row[2])
+                        .status(status)
+                        .build());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Only once committed; an id missing from the statuses has no appointment
+    private void complete(List<UUID> chunk, Map<UUID, AppointmentStatus> statuses,
+                          Map<UUID, List<CompletableFuture<AppointmentStatus>>> waiters) {
+        for (UUID id : chunk) {
+            List<CompletableFuture<AppointmentStatus>> futures = waiters.remove(id);
+            if (futures != null) {
+                futures.forEach(future -> future.complete(statuses.get(id)));
+            }
+        }
+    }
+
+    private void requeue(List<UUID> appointmentIds, AppointmentAction action,
+                         Map<UUID, List<CompletableFuture<AppointmentStatus>>> waiters) {
+        synchronized (lock) {
+            (action == AppointmentAction.CANCEL ? cancellations : confirmations).addAll(appointmentIds);
+            for (UUID id : appointmentIds) {
+                List<CompletableFuture<AppointmentStatus>> futures = waiters.remove(id);
+                if (futures != null) {
+                    waiting.computeIfAbsent(id, key -> new ArrayList<>()).addAll(futures);
+                }
+            }
+        }
+    }
+
+    private List<List<UUID>> chunks(Set<UUID> ids) {
+        List<List<UUID>> chunks = new ArrayList<>();
+        List<UUID> chunk = new ArrayList<>(properties.getBatchSize());
+        for (UUID id : ids) {
+            chunk.add(id);
+            if (chunk.size() == properties.getBatchSize()) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(properties.getBatchSize());
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
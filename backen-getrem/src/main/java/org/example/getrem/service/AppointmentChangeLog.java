@@ -0,0 +1,222 @@
+package org.example.getrem.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.DeltaSyncProperties;
+import org.example.getrem.model.AppointmentChange;
+import org.example.getrem.model.ChangeSequence;
+import org.example.getrem.repository.AppointmentChangeRepository;
+import org.example.getrem.repository.ChangeSequenceRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which appointments changed, and in what order, so calendars can
+ * sync by asking for everything after the last sequence number they saw.
+ * <p>
+ * Each writing transaction takes one number from a shared counter row and
+ * stamps all of its changes with it. The counter's row lock is held until
+ * commit, so numbers become visible in order: once a number is committed,
+ * every lower one is too, and a client can never skip past a change that
+ * was still in flight. Changes are only collected while the transaction
+ * runs; the number is taken and the log rows inserted just before commit,
+ * so the lock is never held across the transaction's own work, such as
+ * sending mail, or while it waits on appointment row locks.
+ * <p>
+ * Entries older than the retention window are pruned and changes too broad
+ * to list raise a floor; clients behind the floor must refetch in full.
+ */
+@Component
+@Slf4j
+public class AppointmentChangeLog {
+
+    static final String SEQUENCE = "appointment-changes";
+    // Clients that synced before this must do a full refetch
+    static final String FLOOR = "appointment-changes-floor";
+
+    private final ChangeSequenceRepository sequenceRepository;
+    private final AppointmentChangeRepository changeRepository;
+    private final DeltaSyncProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    // Numbers taken by this node's transactions, so other nodes' changes can be told apart
+    private final Set<Long> localSequences = ConcurrentHashMap.newKeySet();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AppointmentChangeLog(ChangeSequenceRepository sequenceRepository,
+                                AppointmentChangeRepository changeRepository,
+                                DeltaSyncProperties properties,
+                                PlatformTransactionManager transactionManager) {
+        this.sequenceRepository = sequenceRepository;
+        this.changeRepository = changeRepository;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Records that these appointments were created or changed. Must be called in the writing transaction. */
+    public void recordChanged(Collection<UUID> appointmentIds) {
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+        Pending pending = pending();
+        appointmentIds.forEach(appointmentId -> pending.deleted.putIfAbsent(appointmentId, false));
+    }
+
+    /** Records a tombstone for a deleted appointment. Must be called in the deleting transaction. */
+    public void recordDeleted(UUID appointmentId) {
+        pending().deleted.put(appointmentId, true);
+    }
+
+    /** Sends every client behind this transaction back to a full refetch, for changes too broad to list. */
+    public void requireResync() {
+        pending().resync = true;
+    }
+
+    /** The highest committed sequence number; every change up to it is visible. */
+    public long committedSequence() {
+        return sequenceRepository.findValue(SEQUENCE).orElse(0L);
+    }
+
+    /** Whether {@code seq} was committed, or is being committed, by this node. */
+    public boolean isLocal(long seq) {
+        return localSequences.contains(seq);
+    }
+
+    /** Stops remembering this node's sequence numbers up to {@code seq}, or all of them when negative. */
+    public void forgetLocalThrough(long seq) {
+        if (seq < 0) {
+            localSequences.clear();
+        } else {
+            localSequences.removeIf(local -> local <= seq);
+        }
+    }
+
+    public long floor() {
+        return sequenceRepository.findValue(FLOOR).orElse(0L);
+    }
+
+    /** Sequence numbers of up to {@code limit} entries after {@code since}, in order. */
+    public List<Long> sequencesAfter(long since, long until, int limit) {
+        return changeRepository.findSeqsBetween(since, until, PageRequest.of(0, limit));
+    }
+
+    /** seq, appointmentId, deleted of every entry after {@code since} up to {@code until}, in order. */
+    public List<Object[]> entriesBetween(long since, long until) {
+        return changeRepository.findBetween(since, until);
+    }
+
+    @Scheduled(cron = "${getrem.delta-sync.prune-cron:0 45 3 * * *}")
+    public void prune() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(properties.getRetentionDays());
+        Integer pruned = transactionTemplate.execute(status -> {
+            Long through = changeRepository.findMaxSeqBefore(cutoff);
+            if (through == null) {
+                return 0;
+            }
+            raiseFloor(through);
+            return changeRepository.deleteThrough(through);
+        });
+        if (pruned != null && pruned > 0) {
+            log.info("Pruned {} appointment change entries older than {}", pruned, cutoff);
+        }
+    }
+
+    private void persist(long seq, UUID appointmentId, boolean deleted) {
+        AppointmentChange change = new AppointmentChange();
+        change.setSeq(seq);
+        change.setAppointmentId(appointmentId);
+        change.setDeleted(deleted);
+        change.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(change);
+    }
+
+    // The transaction's collected changes; registered as a synchronization, so suspended along with it
+    private Pending pending() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Appointment changes must be recorded inside the writing transaction");
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Pending pending && pending.owner() == this) {
+                return pending;
+            }
+        }
+        Pending pending = new Pending();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    // Runs just before commit: the counter's row lock is only held from here until the commit completes
+    private void write(Pending pending) {
+        if (pending.deleted.isEmpty() && !pending.resync) {
+            return;
+        }
+        if (sequenceRepository.increment(SEQUENCE) == 0) {
+            createCounter(SEQUENCE, 1);
+        }
+        long seq = sequenceRepository.findValue(SEQUENCE).orElseThrow();
+        // Noted before commit, so the number is known to be ours by the time anyone can see it
+        pending.seq = seq;
+        localSequences.add(seq);
+        pending.deleted.forEach((appointmentId, deleted) -> persist(seq, appointmentId, deleted));
+        if (pending.resync) {
+            raiseFloor(seq);
+        }
+    }
+
+    private void raiseFloor(long seq) {
+        if (sequenceRepository.raiseTo(FLOOR, seq) == 0 && sequenceRepository.findValue(FLOOR).isEmpty()) {
+            createCounter(FLOOR, seq);
+        }
+    }
+
+    // Counters are created on first use; two nodes racing to do so fail one transaction, once
+    private void createCounter(String name, long value) {
+        ChangeSequence counter = new ChangeSequence();
+        counter.setName(name);
+        counter.setValue(value);
+        entityManager.persist(counter);
+        entityManager.flush();
+    }
+
+    private final class Pending implements TransactionSynchronization {
+
+        // One entry per appointment; a deletion wins over a change in the same transaction
+        private final Map<UUID, Boolean> deleted = new LinkedHashMap<>();
+        private boolean resync;
+        private long seq;
+
+        AppointmentChangeLog owner() {
+            return AppointmentChangeLog.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            write(this);
+        }
+
+        // A rolled back number is handed out again, possibly to another node
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED && seq != 0) {
+                localSequences.remove(seq);
+            }
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package org.example.getrem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.AppointmentImportProperties;
+import org.example.getrem.dto.appointment.AppointmentImportResult;
+import org.example.getrem.dto.appointment.AppointmentImportRow;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.Doctor;
+import org.example.getrem.model.ReminderPlan;
+import org.example.getrem.repository.ClientsRepository;
+import org.example.getrem.repository.DoctorRepository;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Streams appointments in from NDJSON or CSV, for migrations. Lines are read
+ * and handled a chunk at a time, so memory stays flat however long the file:
+ * clients and doctors are checked with one query per chunk and remembered in
+ * a bounded cache, conflicts are found by sorting each doctor's rows against
+ * their existing bookings, and the chunk is inserted in JDBC batches in its
+ * own transaction.
+ * <p>
+ * Nothing is sent on import. Reminders go into each appointment's plan, and
+ * {@link ReminderMaterializer} creates their rows as they come due. A line
+ * that cannot be imported is reported with its number and the rest carry on.
+ */
+@Component
+@Slf4j
+public class AppointmentImporter {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final char CSV_LIST_SEPARATOR = '|';
+
+    private final ObjectMapper objectMapper;
+    private final ClientsRepository clientsRepository;
+    private final DoctorRepository doctorRepository;
+    private final AppointmentSlotIndex slotIndex;
+    private final CalendarCache calendarCache;
+    private final CalendarEventBroadcaster calendarEvents;
+    private final AppointmentChangeLog changeLog;
+    private final ReminderLoadIndex reminderLoadIndex;
+    private final AppointmentImportProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public AppointmentImporter(ObjectMapper objectMapper,
+                               ClientsRepository clientsRepository,
+                               DoctorRepository doctorRepository,
+                               AppointmentSlotIndex slotIndex,
+                               CalendarCache calendarCache,
+                               CalendarEventBroadcaster calendarEvents,
+                               AppointmentChangeLog changeLog,
+                               ReminderLoadIndex reminderLoadIndex,
+                               AppointmentImportProperties properties,
+                               PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.clientsRepository = clientsRepository;
+        this.doctorRepository = doctorRepository;
+        this.slotIndex = slotIndex;
+        this.calendarCache = calendarCache;
+        this.calendarEvents = calendarEvents;
+        this.changeLog = changeLog;
+        this.reminderLoadIndex = reminderLoadIndex;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public AppointmentImportResult importAppointments(InputStream input, Format format) throws IOException {
+        long started = System.nanoTime();
+        Run run = new Run();
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        List<String> header = null;
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        long number = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            number++;
+            if (text.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = csvHeader(text);
+                continue;
+            }
+            run.lines++;
+            try {
+                AppointmentImportRow row = format == Format.CSV
+                        ? csvRow(header, text)
+                        : objectMapper.readValue(text, AppointmentImportRow.class);
+                chunk.add(new Line(number, row));
+            } catch (Exception e) {
+                run.fail(number, "Unreadable line: " + e.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, run);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, run);
+        }
+        // Planned reminders were written without loading clients, so recount the forecast once
+        if (run.withReminders > 0) {
+            reminderLoadIndex.rebuild();
+        }
+
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        log.info("Imported {} of {} appointments in {} ms ({} failed)", run.imported, run.lines, elapsedMs, run.failed);
+        return AppointmentImportResult.builder()
+                .lines(run.lines)
+                .imported(run.imported)
+                .failed(run.failed)
+                .withReminders(run.withReminders)
+                .errors(run.errors)
+                .errorsTruncated(run.failed > run.errors.size())
+                .elapsedMs(elapsedMs)
+                .build();
+    }
+
+    private void importChunk(List<Line> chunk, Run run) {
+        List<Line> valid = new ArrayList<>(chunk.size());
+        for (Line line : chunk) {
+            String error = validate(line.row);
+            if (error != null) {
+                run.fail(line.number, error);
+            } else {
+                valid.add(line);
+            }
+        }
+        run.resolve(valid.stream().map(line -> line.row.getClientId()).collect(Collectors.toSet()),
+                run.clients, clientsRepository::findExistingIds);
+        run.resolve(valid.stream().map(line -> line.row.getDoctorId()).collect(Collectors.toSet()),
+                run.doctors, doctorRepository::findExistingIds);
+
+        List<Line> accepted = new ArrayList<>(valid.size());
+        for (Line line : valid) {
+            if (!run.clients.get(line.row.getClientId())) {
+                run.fail(line.number, "Client not found with id: " + line.row.getClientId());
+            } else if (!run.doctors.get(line.row.getDoctorId())) {
+                run.fail(line.number, "Doctor not found with id: " + line.row.getDoctorId());
+            } else {
+                accepted.add(line);
+            }
+        }
+        rejectConflicts(accepted, run);
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        try {
+            insert(accepted, run);
+        } catch (Exception e) {
+            // One bad row fails its whole batch, so retry the lines one by one to find it
+            log.warn("Import chunk of {} rows failed, retrying line by line: {}", accepted.size(), e.getMessage());
+            for (Line line : accepted) {
+                try {
+                    insert(List.of(line), run);
+                } catch (Exception lineFailure) {
+                    run.fail(line.number, "Insert failed: " + lineFailure.getMessage());
+                }
+            }
+        }
+        // A whole chunk of days changed at once, and the cache has no index of rows it never loaded
+        calendarCache.invalidateAll();
+        calendarEvents.publishResync();
+    }
+
+    private void insert(List<Line> lines, Run run) {
+        LocalDateTime now = LocalDateTime.now();
+        int planned = transactionTemplate.execute(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(Math.max(1, properties.getBatchSize()));
+            int withPlan = 0;
+            List<UUID> imported = new ArrayList<>(lines.size());
+            for (Line line : lines) {
+                Appointment appointment = toAppointment(line.row, now);
+                entityManager.persist(appointment);
+                imported.add(appointment.getId());
+                if (appointment.getStatus() != AppointmentStatus.CANCELLED) {
+                    slotIndex.occupy(line.row.getDoctorId(), line.row.getAppointmentTime(), appointment.getId());
+                }
+                withPlan += appointment.getReminderPlan() != null ? 1 : 0;
+            }
+            // Log rows go into the same batches as the appointments
+            changeLog.recordChanged(imported);
+            entityManager.flush();
+            entityManager.clear();
+            return withPlan;
+        });
+        run.imported += lines.size();
+        run.withReminders += planned;
+    }
+
+    private Appointment toAppointment(AppointmentImportRow row, LocalDateTime now) {
+        Appointment appointment = new Appointment();
+        appointment.setClient(entityManager.getReference(Clients.class, row.getClientId()));
+        appointment.setDoctor(entityManager.getReference(Doctor.class, row.getDoctorId()));
+        appointment.setAppointmentTime(row.getAppointmentTime());
+        appointment.setNotes(row.getNotes());
+        appointment.setStatus(row.getStatus() != null ? row.getStatus() : AppointmentStatus.SCHEDULED);
+        if (appointment.getStatus() == AppointmentStatus.CANCELLED) {
+            return appointment;
+        }
+
+        // Same rules as booking, minus the confirmation: only reminders still ahead are planned
+        LocalDateTime appointmentTime = row.getAppointmentTime();
+        List<ReminderPlan.Entry> planned = new ArrayList<>();
+        if (row.getReminderOptions() != null) {
+            for (String option : row.getReminderOptions()) {
+                if (!"IMMEDIATE".equals(option)) {
+                    ReminderPlan.Entry entry = ReminderPlan.Entry.offset(ReminderType.valueOf(option));
+                    if (entry.timeFor(appointmentTime).isAfter(now)) {
+                        planned.add(entry);
+                    }
+                }
+            }
+        }
+        if (row.getCustomReminderTimes() != null) {
+            for (LocalDateTime customTime : row.getCustomReminderTimes()) {
+                if (customTime.isAfter(now) && customTime.isBefore(appointmentTime)) {
+                    planned.add(ReminderPlan.Entry.custom(customTime));
+                }
+            }
+        }
+        if (!planned.isEmpty()) {
+            appointment.setReminderPlan(new ReminderPlan(planned));
+            appointment.setPlanNextDueAt(planned.stream()
+                    .map(entry -> entry.timeFor(appointmentTime))
+                    .min(LocalDateTime::compareTo)
+                    .orElseThrow());
+        }
+        return appointment;
+    }
+
+    private static String validate(AppointmentImportRow row) {
+        if (row.getClientId() == null) {
+            return "Client ID is required";
+        }
+        if (row.getDoctorId() == null) {
+            return "Doctor ID is required";
+        }
+        if (row.getAppointmentTime() == null) {
+            return "Appointment time is required";
+        }
+        if (row.getReminderOptions() != null) {
+            for (String option : row.getReminderOptions()) {
+                if (!"IMMEDIATE".equals(option) && !"TEN_MINUTES_BEFORE".equals(option)
+                        && !"ONE_DAY_BEFORE".equals(option)) {
+                    return "Unknown reminder option: " + option;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sorts each doctor's rows by time and walks them alongside the doctor's
+     * existing bookings, dropping any row that would conflict with a booking
+     * or with an earlier row of the same import. Cancelled rows hold no slot
+     * and are left alone.
+     */
+    private void rejectConflicts(List<Line> accepted, Run run) {
+        Map<UUID, List<Line>> byDoctor = accepted.stream()
+                .filter(line -> line.row.getStatus() != AppointmentStatus.CANCELLED)
+                .collect(Collectors.groupingBy(line -> line.row.getDoctorId()));
+        if (byDoctor.isEmpty()) {
+            return;
+        }
+        Comparator<Line> byTime = Comparator.comparing((Line line) -> line.row.getAppointmentTime())
+                .thenComparingLong(line -> line.number);
+        LocalDateTime earliest = null;
+        LocalDateTime latest = null;
+        for (List<Line> lines : byDoctor.values()) {
+            lines.sort(byTime);
+            LocalDateTime first = lines.get(0).row.getAppointmentTime();
+            LocalDateTime last = lines.get(lines.size() - 1).row.getAppointmentTime();
+            earliest = earliest == null || first.isBefore(earliest) ? first : earliest;
+            latest = latest == null || last.isAfter(latest) ? last : latest;
+        }
+        // Sorted input keeps this span, and so the lookup, to the chunk's own stretch of time
+        Map<UUID, List<LocalDateTime>> booked = slotIndex.bookedStarts(byDoctor.keySet(),
+                earliest.minusMinutes(AppointmentSlotIndex.CONFLICT_BEFORE_MINUTES),
+                latest.plusMinutes(AppointmentSlotIndex.CONFLICT_AFTER_MINUTES));
+
+        Set<Line> rejected = new HashSet<>();
+        byDoctor.forEach((doctorId, lines) -> {
+            List<LocalDateTime> starts = booked.getOrDefault(doctorId, List.of());
+            int next = 0;
+            Line previous = null;
+            for (Line line : lines) {
+                LocalDateTime time = line.row.getAppointmentTime();
+                LocalDateTime conflictsAfter = time.minusMinutes(AppointmentSlotIndex.CONFLICT_BEFORE_MINUTES);
+                LocalDateTime conflictsBefore = time.plusMinutes(AppointmentSlotIndex.CONFLICT_AFTER_MINUTES);
+                while (next < starts.size() && !starts.get(next).isAfter(conflictsAfter)) {
+                    next++;
+                }
+                if (next < starts.size() && starts.get(next).isBefore(conflictsBefore)) {
+                    run.fail(line.number, "This time slot is already booked for the doctor");
+                    rejected.add(line);
+                } else if (previous != null && previous.row.getAppointmentTime().isAfter(conflictsAfter)) {
+                    run.fail(line.number, "Conflicts with line " + previous.number + " for the same doctor");
+                    rejected.add(line);
+                } else {
+                    previous = line;
+                }
+            }
+        });
+        accepted.removeAll(rejected);
+    }
+
+    private static List<String> csvHeader(String text) {
+        List<String> header = csvFields(text).stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        if (!header.contains("clientid") || !header.contains("doctorid") || !header.contains("appointmenttime")) {
+            throw new ValidationException("CSV header must name clientId, doctorId and appointmentTime columns");
+        }
+        return header;
+    }
+
+    private static AppointmentImportRow csvRow(List<String> header, String text) {
+        List<String> fields = csvFields(text);
+        if (fields.size() > header.size()) {
+            throw new IllegalArgumentException("expected at most " + header.size() + " fields, found " + fields.size());
+        }
+        AppointmentImportRow row = new AppointmentImportRow();
+        for (int i = 0; i < fields.size(); i++) {
+            String value = fields.get(i).trim();
+            if (value.isEmpty()) {
+                continue;
+            }
+            switch (header.get(i)) {
+                case "clientid" -> row.setClientId(UUID.fromString(value));
+                case "doctorid" -> row.setDoctorId(UUID.fromString(value));
+                case "appointmenttime" -> row.setAppointmentTime(LocalDateTime.parse(value));
+                case "notes" -> row.setNotes(fields.get(i));
+                case "status" -> row.setStatus(AppointmentStatus.valueOf(value.toUpperCase(Locale.ROOT)));
+                case "reminderoptions" -> row.setReminderOptions(csvList(value, Function.identity()));
+                case "customremindertimes" -> row.setCustomReminderTimes(csvList(value, LocalDateTime::parse));
+                default -> {
+                    // Columns the import does not know are ignored, so exports can be loaded as they are
+                }
+            }
+        }
+        return row;
+    }
+
+    private static <T> List<T> csvList(String value, Function<String, T> parser) {
+        return Arrays.stream(value.split("\\" + CSV_LIST_SEPARATOR))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .map(parser)
+                .toList();
+    }
+
+    // RFC 4180 fields on one line: quoted fields may hold commas and doubled quotes, not line breaks
+    private static List<String> csvFields(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record Line(long number, AppointmentImportRow row) {
+    }
+
+    /** Counters and lookups for one import; only touched by the importing thread. */
+    private final class Run {
+
+        private long lines;
+        private long imported;
+        private long failed;
+        private long withReminders;
+        private final List<AppointmentImportResult.LineError> errors = new ArrayList<>();
+        // Whether recently seen ids exist; never smaller than a chunk, whose ids must all stay until it is checked
+        private final Map<UUID, Boolean> clients = lookupCache();
+        private final Map<UUID, Boolean> doctors = lookupCache();
+
+        void fail(long line, String error) {
+            failed++;
+            if (errors.size() < properties.getMaxReportedErrors()) {
+                errors.add(new AppointmentImportResult.LineError(line, error));
+            }
+        }
+
+        private Map<UUID, Boolean> lookupCache() {
+            int maxSize = Math.max(Math.max(1, properties.getChunkSize()), properties.getLookupCacheSize());
+            return new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        void resolve(Set<UUID> ids, Map<UUID, Boolean> known, Function<Collection<UUID>, List<UUID>> findExisting) {
+            List<UUID> unknown = ids.stream().filter(id -> !known.containsKey(id)).toList();
+            if (unknown.isEmpty()) {
+                return;
+            }
+            Set<UUID> existing = new HashSet<>(findExisting.apply(unknown));
+            unknown.forEach(id -> known.put(id, existing.contains(id)));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.AppointmentLinkProperties;
+import org.example.getrem.dto.appointment.AppointmentLinkToken;
+import org.example.getrem.enums.AppointmentAction;
+import org.example.getrem.exception.ValidationException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Issues and checks the confirm/cancel links put in reminder emails. A token
+ * carries the appointment id, the action and an expiry, followed by a
+ * truncated HMAC-SHA256 over them, so following a link needs neither a
+ * database lookup nor a session; only the secret is shared between nodes.
+ * <p>
+ * Layout before base64url: {@code [version][appointment id][action][expiry epoch seconds][mac]}.
+ */
+@Component
+@Slf4j
+public class AppointmentLinkSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int PAYLOAD_BYTES = 1 + 2 * Long.BYTES + 1 + Long.BYTES;
+    // 128 bits of MAC is plenty for links that expire and keeps URLs short
+    private static final int MAC_BYTES = 16;
+    private static final String LINK_PATH = "/api/v1/appointment-links/";
+
+    private final AppointmentLinkProperties properties;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    public AppointmentLinkSigner(AppointmentLinkProperties properties) {
+        this.properties = properties;
+        String secret = properties.getSecret();
+        this.key = secret == null || secret.isBlank()
+                ? null
+                : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        if (key == null) {
+            log.info("No appointment link secret configured; reminder emails will not carry confirm/cancel links");
+        } else if (secret.length() < 32) {
+            log.warn("Appointment link secret is shorter than 32 characters");
+        }
+    }
+
+    public boolean isEnabled() {
+        return key != null;
+    }
+
+    /** Absolute URL that applies the action to the appointment when followed before it expires. */
+    public String link(UUID appointmentId, AppointmentAction action, LocalDateTime expiresAt) {
+        return stripTrailingSlash(properties.getBaseUrl()) + LINK_PATH + sign(appointmentId, action, expiresAt);
+    }
+
+    public String sign(UUID appointmentId, AppointmentAction action, LocalDateTime expiresAt) {
+        if (key == null) {
+            throw new IllegalStateException("Appointment links are not configured");
+        }
+        ByteBuffer token = ByteBuffer.allocate(PAYLOAD_BYTES + MAC_BYTES);
+        token.put(VERSION)
+                .putLong(appointmentId.getMostSignificantBits())
+                .putLong(appointmentId.getLeastSignificantBits())
+                .put((byte) action.ordinal())
+                .putLong(expiresAt.toEpochSecond(ZoneOffset.UTC));
+        token.put(mac(token.array()));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.array());
+    }
+
+    /**
+     * @throws ValidationException if the token is malformed, forged or expired
+     */
+    public AppointmentLinkToken verify(String token) {
+        if (key == null) {
+            throw new ValidationException("Appointment links are not enabled");
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid link");
+        }
+        if (bytes.length != PAYLOAD_BYTES + MAC_BYTES || bytes[0] != VERSION
+                || !MessageDigest.isEqual(mac(bytes), Arrays.copyOfRange(bytes, PAYLOAD_BYTES, bytes.length))) {
+            throw new ValidationException("Invalid link");
+        }
+
+        ByteBuffer payload = ByteBuffer.wrap(bytes, 1, PAYLOAD_BYTES - 1);
+        UUID appointmentId = new UUID(payload.getLong(), payload.getLong());
+        int action = payload.get();
+        LocalDateTime expiresAt = LocalDateTime.ofEpochSecond(payload.getLong(), 0, ZoneOffset.UTC);
+        if (action < 0 || action >= AppointmentAction.values().length) {
+            throw new ValidationException("Invalid link");
+        }
+        if (!LocalDateTime.now().isBefore(expiresAt)) {
+            throw new ValidationException("This link has expired");
+        }
+        return new AppointmentLinkToken(appointmentId, AppointmentAction.values()[action], expiresAt);
+    }
+
+    // MAC over the payload part of a token buffer, truncated to MAC_BYTES
+    private byte[] mac(byte[] token) {
+        Mac mac = macs.get();
+        mac.update(token, 0, PAYLOAD_BYTES);
+        return Arrays.copyOf(mac.doFinal(), MAC_BYTES);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.getrem.service;
 
+import org.example.getrem.dto.appointment.AppointmentChangesResponse;
 import org.example.getrem.dto.appointment.AppointmentResponse;
 import org.example.getrem.dto.appointment.CalendarAppointmentResponse;
 import org.example.getrem.dto.appointment.CreateAppointmentRequest;
@@ -36,5 +37,18 @@ public interface AppointmentService {
     List<CalendarAppointmentResponse> getAppointmentsForDateRange(LocalDateTime startDate, LocalDateTime endDate);
 
     List<CalendarAppointmentResponse> getUpcomingAppointments();
+
+    // Cached calendar views, already serialised as a JSON array; a doctorId narrows them to that doctor
+    CalendarCache.View getCalendarMonthView(int year, int month, UUID doctorId);
+
+    CalendarCache.View getCalendarView(LocalDate startDay, LocalDate endDay, UUID doctorId);
+
+    // A view's entity tag when it can be had without loading the view, otherwise null
+    String getCalendarMonthEtag(int year, int month, UUID doctorId);
+
+    String getCalendarEtag(LocalDate startDay, LocalDate endDay, UUID doctorId);
+
+    // Appointments created, changed or deleted after a sync watermark; without one, just the current watermark
+    AppointmentChangesResponse getChanges(Long since, Integer limit);
 }
 
@@ -0,0 +1,328 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.SlotIndexProperties;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.DoctorRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Per-doctor sorted index of booked start times, answering booking conflict
+ * checks in O(log n) without a query. A conflict is exactly what
+ * {@link DoctorRepository#countOverlappingAppointments} counts: another
+ * non-cancelled appointment starting within (t - 30 min, t + 1 min).
+ * <p>
+ * A doctor's slots are loaded on their first check, from a short history
+ * window onwards; checks reaching further back fall through to the database.
+ * {@link #tryReserve} checks and places a slot atomically per doctor, so two
+ * bookings on this node cannot both take the same slot, and takes it back if
+ * the transaction rolls back. Freed slots are only released after commit, so
+ * the index errs towards reporting a conflict.
+ * <p>
+ * The index only sees writes made through this node until its next refresh,
+ * so a reservation that passes it is still confirmed against the database:
+ * with several backends, bookings stay as safe as the plain database check,
+ * while availability answers may lag other nodes' bookings.
+ */
+@Component
+@Slf4j
+public class AppointmentSlotIndex {
+
+    // A booking starting within (t - 30 min, t + 1 min) conflicts with one at t
+    public static final long CONFLICT_BEFORE_MINUTES = 30;
+    public static final long CONFLICT_AFTER_MINUTES = 1;
+    // UUIDs compare as signed longs, so these bound every id at the same start time
+    private static final UUID LOWEST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+    private static final UUID HIGHEST_ID = new UUID(Long.MAX_VALUE, Long.MAX_VALUE);
+    private static final Comparator<Slot> SLOT_ORDER =
+            Comparator.comparing(Slot::time).thenComparing(Slot::appointmentId);
+
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorRepository doctorRepository;
+    private final SlotIndexProperties properties;
+    // Loads read in a transaction of their own so they see everything committed before the doctor was registered
+    private final TransactionTemplate loadTransaction;
+
+    private final ConcurrentHashMap<UUID, DoctorSlots> doctors = new ConcurrentHashMap<>();
+    // Where each indexed appointment sits, so moves and cancellations by id find their slot
+    private final ConcurrentHashMap<UUID, Placement> placements = new ConcurrentHashMap<>();
+
+    public AppointmentSlotIndex(AppointmentRepository appointmentRepository,
+                                DoctorRepository doctorRepository,
+                                SlotIndexProperties properties,
+                                PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.doctorRepository = doctorRepository;
+        this.properties = properties;
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.loadTransaction.setReadOnly(true);
+    }
+
+    /** Number of appointments that would conflict with one starting at {@code time}. */
+    public long countOverlapping(UUID doctorId, LocalDateTime time, UUID excludeAppointmentId) {
+        DoctorSlots slots = slotsCovering(doctorId, time);
+        if (slots == null) {
+            Long count = doctorRepository.countOverlappingAppointments(doctorId, time, excludeAppointmentId);
+            return count != null ? count : 0;
+        }
+        return slots.countConflicts(time, excludeAppointmentId);
+    }
+
+    /**
+     * Start times of each doctor's booked appointments strictly between
+     * {@code after} and {@code before}, ascending. Doctors the index cannot
+     * answer for are read together with a single range query.
+     */
+    public Map<UUID, List<LocalDateTime>> bookedStarts(Collection<UUID> doctorIds,
+                                                      LocalDateTime after, LocalDateTime before) {
+        Map<UUID, List<LocalDateTime>> booked = new HashMap<>();
+        List<UUID> notIndexed = new ArrayList<>();
+        for (UUID doctorId : doctorIds) {
+            DoctorSlots slots = slotsCovering(doctorId, after.plusMinutes(CONFLICT_BEFORE_MINUTES));
+            if (slots == null) {
+                notIndexed.add(doctorId);
+                continue;
+            }
+            booked.put(doctorId, slots.slots
+                    .subSet(new Slot(after, HIGHEST_ID), false, new Slot(before, LOWEST_ID), false)
+                    .stream()
+                    .map(Slot::time)
+                    .toList());
+        }
+        if (!notIndexed.isEmpty()) {
+            // Rows come in time order, so each doctor's list stays sorted
+            for (Object[] row : appointmentRepository.findOccupiedSlotsBetween(notIndexed, after, before)) {
+                booked.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add((LocalDateTime) row[1]);
+            }
+        }
+        return booked;
+    }
+
+    /**
+     * Takes the slot for an appointment that has just been saved, moving it
+     * from any slot it held before, unless another appointment conflicts.
+     * Must be called in the transaction that saves the appointment.
+     *
+     * @return false when the slot is taken; the caller should roll back
+     */
+    public boolean tryReserve(UUID doctorId, LocalDateTime time, UUID appointmentId) {
+        DoctorSlots slots = slotsCovering(doctorId, time);
+        if (slots == null) {
+            Long count = doctorRepository.countOverlappingAppointments(doctorId, time, appointmentId);
+            if (count != null && count > 0) {
+                return false;
+            }
+        } else {
+            Slot slot = new Slot(time, appointmentId);
+            synchronized (slots) {
+                if (slots.countConflicts(time, appointmentId) > 0) {
+                    return false;
+                }
+                slots.add(slot);
+            }
+            // Placed first, so a second booking on this node is turned away by the index instead of racing this check
+            Long count = doctorRepository.countOverlappingAppointments(doctorId, time, appointmentId);
+            if (count != null && count > 0) {
+                slots.remove(slot);
+                return false;
+            }
+        }
+        move(appointmentId, new Placement(doctorId, time));
+        return true;
+    }
+
+    /**
+     * Records an appointment's slot without a conflict check, for saves that
+     * did not move it but may have re-activated it.
+     */
+    public void occupy(UUID doctorId, LocalDateTime time, UUID appointmentId) {
+        DoctorSlots slots = doctors.get(doctorId);
+        if (slots != null) {
+            slots.add(new Slot(time, appointmentId));
+        }
+        move(appointmentId, new Placement(doctorId, time));
+    }
+
+    /** Frees the slots of cancelled or deleted appointments once the transaction commits. */
+    public void release(Collection<UUID> appointmentIds) {
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(appointmentIds);
+        afterCommit(() -> ids.forEach(id -> {
+            Placement placement = placements.remove(id);
+            if (placement != null) {
+                removeSlot(placement, id);
+            }
+        }));
+    }
+
+    // Dropping everything lets the history window move forward and bounds any drift
+    @Scheduled(fixedDelayString = "${getrem.slot-index.refresh-interval-ms:3600000}")
+    public void refresh() {
+        int doctorCount = doctors.size();
+        doctors.clear();
+        placements.clear();
+        log.debug("Dropped the slot index for {} doctors; they reload on their next check", doctorCount);
+    }
+
+    // The old slot is only given up on commit, so a rolled-back move leaves it held throughout
+    private void move(UUID appointmentId, Placement placement) {
+        Placement previous = placements.put(appointmentId, placement);
+        if (placement.equals(previous)) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (previous != null) {
+                removeSlot(previous, appointmentId);
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    if (previous != null) {
+                        removeSlot(previous, appointmentId);
+                    }
+                    // The index may have been refreshed and reloaded without this uncommitted row meanwhile
+                    DoctorSlots current = doctors.get(placement.doctorId);
+                    if (current != null && placement.equals(placements.get(appointmentId))) {
+                        current.add(new Slot(placement.time, appointmentId));
+                    }
+                    return;
+                }
+                removeSlot(placement, appointmentId);
+                if (previous != null) {
+                    placements.replace(appointmentId, placement, previous);
+                } else {
+                    placements.remove(appointmentId, placement);
+                }
+            }
+        });
+    }
+
+    private void removeSlot(Placement placement, UUID appointmentId) {
+        DoctorSlots slots = doctors.get(placement.doctorId);
+        if (slots != null) {
+            slots.remove(new Slot(placement.time, appointmentId));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /** The doctor's loaded slots, or null when the index cannot answer for this time. */
+    private DoctorSlots slotsCovering(UUID doctorId, LocalDateTime time) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        DoctorSlots slots = doctors.computeIfAbsent(doctorId, id ->
+                new DoctorSlots(LocalDate.now().minusDays(properties.getHistoryDays()).atStartOfDay()));
+        if (!slots.loaded) {
+            load(doctorId, slots);
+        }
+        return time.minusMinutes(CONFLICT_BEFORE_MINUTES).isBefore(slots.coveredFrom) ? null : slots;
+    }
+
+    private void load(UUID doctorId, DoctorSlots slots) {
+        synchronized (slots) {
+            if (slots.loaded) {
+                return;
+            }
+            List<Object[]> rows = loadTransaction.execute(status ->
+                    appointmentRepository.findOccupiedSlots(doctorId, slots.coveredFrom));
+            for (Object[] row : rows) {
+                Slot slot = new Slot((LocalDateTime) row[1], (UUID) row[0]);
+                // Writes that landed while loading win over the rows read
+                if (!slots.removedWhileLoading.contains(slot)) {
+                    slots.slots.add(slot);
+                    placements.putIfAbsent(slot.appointmentId, new Placement(doctorId, slot.time));
+                }
+            }
+            slots.removedWhileLoading.clear();
+            slots.loaded = true;
+            log.debug("Loaded {} booked slots for doctor {}", slots.slots.size(), doctorId);
+        }
+    }
+
+    private record Slot(LocalDateTime time, UUID appointmentId) {
+    }
+
+    private record Placement(UUID doctorId, LocalDateTime time) {
+    }
+
+    private static final class DoctorSlots {
+
+        private final LocalDateTime coveredFrom;
+        private final NavigableSet<Slot> slots = new ConcurrentSkipListSet<>(SLOT_ORDER);
+        // Guarded by this; only used until the load completes
+        private final Set<Slot> removedWhileLoading = new HashSet<>();
+        private volatile boolean loaded;
+
+        DoctorSlots(LocalDateTime coveredFrom) {
+            this.coveredFrom = coveredFrom;
+        }
+
+        long countConflicts(LocalDateTime time, UUID excludeAppointmentId) {
+            long count = 0;
+            for (Slot slot : slots.subSet(
+                    new Slot(time.minusMinutes(CONFLICT_BEFORE_MINUTES), HIGHEST_ID), false,
+                    new Slot(time.plusMinutes(CONFLICT_AFTER_MINUTES), LOWEST_ID), false)) {
+                if (!slot.appointmentId.equals(excludeAppointmentId)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        void add(Slot slot) {
+            slots.add(slot);
+        }
+
+        void remove(Slot slot) {
+            if (loaded) {
+                slots.remove(slot);
+                return;
+            }
+            synchronized (this) {
+                slots.remove(slot);
+                if (!loaded) {
+                    removedWhileLoading.add(slot);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package org.example.getrem.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.getrem.config.CalendarCacheProperties;
+import org.example.getrem.dto.appointment.CalendarAppointmentResponse;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.repository.AppointmentRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Calendar read model: each day's appointments, for one doctor or for all of
+ * them, kept as an already serialised JSON fragment. Month and week views are
+ * the day fragments joined into one array, so a repeat poll costs no query
+ * and no serialisation. Buckets are evicted least recently used once their
+ * total size passes the configured bound.
+ * <p>
+ * Writers invalidate precisely: the affected doctor and day when an
+ * appointment is booked, moved or deleted, and, through an index of which
+ * cached day holds which appointment, just that day when its reminders or
+ * status change. Like {@link NotificationPreferenceCache}, entries are evicted
+ * at once and again after commit, and a load that raced with an invalidation
+ * is served but not cached.
+ * <p>
+ * Those invalidations only reach this node. Writes made on other nodes are
+ * picked up from the {@link AppointmentChangeLog}: before serving, the cache
+ * reads the committed watermark, and if it has moved, evicts the days of the
+ * appointments changed since the last one it saw. A view is therefore never
+ * older than the last change committed anywhere before the request.
+ * <p>
+ * Every bucket carries a digest of its JSON, and a view's entity tag is a
+ * digest of its days' digests. Since writes evict the buckets they touch, a
+ * view whose days are all cached can be revalidated from the digests alone,
+ * for the watermark read and without joining the fragments. Tags are derived
+ * from content, and every node catches up with the watermark before it
+ * computes one, so a node can only answer 304 for a calendar that still
+ * matches every change committed before the request, wherever it was made.
+ */
+@Component
+public class CalendarCache {
+
+    // 128 bits of SHA-256: collisions are out of reach, and tags stay short
+    private static final int DIGEST_BYTES = 16;
+    // Further behind than this, dropping everything is cheaper than finding the days
+    private static final int MAX_CATCH_UP_ENTRIES = 1000;
+
+    private final ObjectMapper objectMapper;
+    private final AppointmentChangeLog changeLog;
+    private final AppointmentRepository appointmentRepository;
+    private final boolean enabled;
+    private final long maxBytes;
+
+    // Access-ordered for LRU eviction; guarded by itself, as is the index below
+    private final LinkedHashMap<DayKey, Bucket> buckets = new LinkedHashMap<>(256, 0.75f, true);
+    // Which day each cached appointment sits on, so reminder changes can find it by id alone
+    private final Map<UUID, DayKey> appointmentDays = new HashMap<>();
+    private long cachedBytes;
+    private final AtomicLong invalidations = new AtomicLong();
+    // Change log watermark the cached days reflect; -1 until the first read
+    private final Object catchUpLock = new Object();
+    private volatile long syncedSequence = -1;
+
+    public CalendarCache(ObjectMapper objectMapper,
+                         CalendarCacheProperties properties,
+                         AppointmentChangeLog changeLog,
+                         AppointmentRepository appointmentRepository) {
+        this.objectMapper = objectMapper;
+        this.changeLog = changeLog;
+        this.appointmentRepository = appointmentRepository;
+        this.enabled = properties.isEnabled();
+        this.maxBytes = Math.max(0, properties.getMaxBytes());
+    }
+
+    /**
+     * Returns the appointments from {@code startDay} up to but excluding
+     * {@code endDay} as a JSON array, ordered by time, with its entity tag.
+     * Days missing from the cache are loaded with a single call to
+     * {@code loader} covering the span from the first to the last missing day.
+     *
+     * @param doctorId only this doctor's appointments, or null for everyone's
+     * @param loader   loads the appointments in a day range, ordered by time
+     */
+    public View getView(LocalDate startDay, LocalDate endDay, UUID doctorId,
+                        BiFunction<LocalDate, LocalDate, List<CalendarAppointmentResponse>> loader) {
+        List<LocalDate> days = startDay.datesUntil(endDay).toList();
+        byte[][] fragments = new byte[days.size()][];
+        byte[][] digests = new byte[days.size()][];
+        LocalDate firstMiss = null;
+        LocalDate lastMiss = null;
+        if (enabled) {
+            catchUp();
+            synchronized (buckets) {
+                for (int i = 0; i < days.size(); i++) {
+                    Bucket bucket = buckets.get(new DayKey(doctorId, days.get(i)));
+                    if (bucket != null) {
+                        fragments[i] = bucket.json;
+                        digests[i] = bucket.digest;
+                    } else {
+                        lastMiss = days.get(i);
+                        firstMiss = firstMiss == null ? lastMiss : firstMiss;
+                    }
+                }
+            }
+        } else if (!days.isEmpty()) {
+            firstMiss = days.get(0);
+            lastMiss = days.get(days.size() - 1);
+        }
+
+        if (firstMiss != null) {
+            long generation = invalidations.get();
+            Map<LocalDate, List<CalendarAppointmentResponse>> loaded = loader.apply(firstMiss, lastMiss.plusDays(1))
+                    .stream()
+                    .collect(Collectors.groupingBy(appointment -> appointment.getAppointmentTime().toLocalDate()));
+            // Everything in the loaded span is fresh, so it replaces cached days as well as filling gaps
+            Map<DayKey, Bucket> fresh = new HashMap<>();
+            for (int i = days.indexOf(firstMiss); i <= days.indexOf(lastMiss); i++) {
+                List<CalendarAppointmentResponse> appointments = loaded.getOrDefault(days.get(i), List.of());
+                Bucket bucket = Bucket.of(serialize(appointments), appointments);
+                fragments[i] = bucket.json;
+                digests[i] = bucket.digest;
+                fresh.put(new DayKey(doctorId, days.get(i)), bucket);
+            }
+            if (enabled) {
+                store(fresh, generation);
+            }
+        }
+        return new View(join(fragments), etag(digests));
+    }
+
+    /**
+     * The entity tag the view would have, if every one of its days is cached
+     * once changes committed on any node have been applied; otherwise null,
+     * and only loading the view can tell.
+     */
+    public String currentEtag(LocalDate startDay, LocalDate endDay, UUID doctorId) {
+        if (!enabled) {
+            return null;
+        }
+        catchUp();
+        List<LocalDate> days = startDay.datesUntil(endDay).toList();
+        byte[][] digests = new byte[days.size()][];
+        synchronized (buckets) {
+            for (int i = 0; i < days.size(); i++) {
+                Bucket bucket = buckets.get(new DayKey(doctorId, days.get(i)));
+                if (bucket == null) {
+                    return null;
+                }
+                digests[i] = bucket.digest;
+            }
+        }
+        return etag(digests);
+    }
+
+    /** Drops one doctor's day, and the all-doctors view of it, now and after commit. */
+    public void invalidateDay(UUID doctorId, LocalDate day) {
+        invalidate(() -> {
+            removeBucket(new DayKey(doctorId, day));
+            removeBucket(new DayKey(null, day));
+        });
+    }
+
+    /**
+     * Drops the days an appointment is on: where it is now, and wherever the
+     * cache last saw it if it has since moved.
+     */
+    public void invalidateAppointment(Appointment appointment) {
+        UUID appointmentId = appointment.getId();
+        UUID doctorId = appointment.getDoctor().getId();
+        LocalDate day = appointment.getAppointmentTime().toLocalDate();
+        invalidate(() -> {
+            evictAppointment(appointmentId);
+            removeBucket(new DayKey(doctorId, day));
+            removeBucket(new DayKey(null, day));
+        });
+    }
+
+    /**
+     * Drops the cached days holding these appointments, for changes such as a
+     * reminder status that do not move the appointment. Appointments on no
+     * cached day cost nothing.
+     */
+    public void invalidateAppointments(Collection<UUID> appointmentIds) {
+        if (appointmentIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(appointmentIds);
+        invalidate(() -> ids.forEach(this::evictAppointment));
+    }
+
+    /** For doctor edits: the name and specialisation appear on every one of their entries. */
+    public void invalidateDoctor(UUID doctorId) {
+        invalidate(() -> removeBucketsWhere(bucket -> bucket.doctorIds.contains(doctorId)));
+    }
+
+    /** For client edits: the name appears on every one of their entries. */
+    public void invalidateClient(UUID clientId) {
+        invalidate(() -> removeBucketsWhere(bucket -> bucket.clientIds.contains(clientId)));
+    }
+
+    /** For bulk changes made without loading the rows. */
+    public void invalidateAll() {
+        invalidate(this::clear);
+    }
+
+    /**
+     * Evicts what other nodes changed since the last watermark seen. Costs one
+     * counter read when nothing changed; callers wait here only while another
+     * thread is catching up.
+     */
+    private void catchUp() {
+        long committed = changeLog.committedSequence();
+        if (committed <= syncedSequence) {
+            return;
+        }
+        synchronized (catchUpLock) {
+            long since = syncedSequence;
+            if (committed <= since) {
+                return;
+            }
+            List<Object[]> entries = since < 0 || committed - since > MAX_CATCH_UP_ENTRIES || changeLog.floor() > since
+                    ? null
+                    : changeLog.entriesBetween(since, committed);
+            if (entries == null || entries.size() > MAX_CATCH_UP_ENTRIES) {
+                evict(this::clear);
+            } else if (!entries.isEmpty()) {
+                Set<UUID> appointmentIds = new HashSet<>();
+                Set<UUID> changed = new HashSet<>();
+                for (Object[] entry : entries) {
+                    appointmentIds.add((UUID) entry[1]);
+                    if (!(Boolean) entry[2]) {
+                        changed.add((UUID) entry[1]);
+                    }
+                }
+                // Where changed appointments are now; the index knows where they were
+                List<Object[]> keys = changed.isEmpty() ? List.of() : appointmentRepository.findCalendarKeys(changed);
+                evict(() -> {
+                    appointmentIds.forEach(this::evictAppointment);
+                    for (Object[] key : keys) {
+                        LocalDate day = ((LocalDateTime) key[2]).toLocalDate();
+                        removeBucket(new DayKey((UUID) key[1], day));
+                        removeBucket(new DayKey(null, day));
+                    }
+                });
+            }
+            syncedSequence = committed;
+        }
+    }
+
+    private void clear() {
+        buckets.clear();
+        appointmentDays.clear();
+        cachedBytes = 0;
+    }
+
+    private void invalidate(Runnable eviction) {
+        evict(eviction);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(eviction);
+                }
+            });
+        }
+    }
+
+    private void evict(Runnable eviction) {
+        synchronized (buckets) {
+            invalidations.incrementAndGet();
+            eviction.run();
+        }
+    }
+
+    private void store(Map<DayKey, Bucket> fresh, long generation) {
+        synchronized (buckets) {
+            if (generation != invalidations.get()) {
+                return;
+            }
+            fresh.forEach((key, bucket) -> {
+                removeBucket(key);
+                if (bucket.size() > maxBytes) {
+                    return;
+                }
+                buckets.put(key, bucket);
+                cachedBytes += bucket.size();
+                bucket.doctorByAppointment.forEach((appointmentId, appointmentDoctorId) ->
+                        appointmentDays.put(appointmentId, new DayKey(appointmentDoctorId, key.day)));
+            });
+            Iterator<Map.Entry<DayKey, Bucket>> eldest = buckets.entrySet().iterator();
+            while (cachedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<DayKey, Bucket> entry = eldest.next();
+                eldest.remove();
+                forget(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void evictAppointment(UUID appointmentId) {
+        DayKey key = appointmentDays.remove(appointmentId);
+        if (key != null) {
+            removeBucket(key);
+            removeBucket(new DayKey(null, key.day));
+        }
+    }
+
+    private void removeBucketsWhere(Predicate<Bucket> condition) {
+        Iterator<Map.Entry<DayKey, Bucket>> entries = buckets.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<DayKey, Bucket> entry = entries.next();
+            if (condition.test(entry.getValue())) {
+                entries.remove();
+                forget(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private void removeBucket(DayKey key) {
+        Bucket bucket = buckets.remove(key);
+        if (bucket != null) {
+            forget(key, bucket);
+        }
+    }
+
+    // Index entries carry the appointment's own doctor; they stay while either view of the day is cached
+    private void forget(DayKey key, Bucket bucket) {
+        cachedBytes -= bucket.size();
+        for (UUID appointmentId : bucket.doctorByAppointment.keySet()) {
+            DayKey indexed = appointmentDays.get(appointmentId);
+            if (indexed != null && !buckets.containsKey(indexed) && !buckets.containsKey(new DayKey(null, key.day))) {
+                appointmentDays.remove(appointmentId);
+            }
+        }
+    }
+
+    private byte[] serialize(List<CalendarAppointmentResponse> appointments) {
+        try {
+            byte[] array = objectMapper.writeValueAsBytes(appointments);
+            // Keep the elements only; views add the brackets when joining days
+            return Arrays.copyOfRange(array, 1, array.length - 1);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise calendar appointments", e);
+        }
+    }
+
+    // The joined body is a function of the fragments alone, so theirs identify it
+    private static String etag(byte[][] digests) {
+        MessageDigest digest = sha256();
+        for (byte[] day : digests) {
+            digest.update(day);
+        }
+        return "\"" + HexFormat.of().formatHex(digest.digest(), 0, DIGEST_BYTES) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] join(byte[][] fragments) {
+        int size = 2;
+        for (byte[] fragment : fragments) {
+            size += fragment.length + 1;
+        }
+        ByteArrayOutputStream json = new ByteArrayOutputStream(size);
+        json.write('[');
+        boolean first = true;
+        for (byte[] fragment : fragments) {
+            if (fragment.length == 0) {
+                continue;
+            }
+            if (!first) {
+                json.write(',');
+            }
+            json.write(fragment, 0, fragment.length);
+            first = false;
+        }
+        json.write(']');
+        return json.toByteArray();
+    }
+
+    /** A calendar view as a JSON array, and its strong entity tag. */
+    public record View(byte[] json, String etag) {
+    }
+
+    /** A day for one doctor, or for all doctors when {@code doctorId} is null. */
+    private record DayKey(UUID doctorId, LocalDate day) {
+    }
+
+    private record Bucket(byte[] json, byte[] digest, Map<UUID, UUID> doctorByAppointment, Set<UUID> doctorIds,
+                          Set<UUID> clientIds) {
+
+        static Bucket of(byte[] json, List<CalendarAppointmentResponse> appointments) {
+            Map<UUID, UUID> doctorByAppointment = new HashMap<>();
+            List<UUID> clientIds = new ArrayList<>();
+            for (CalendarAppointmentResponse appointment : appointments) {
+                doctorByAppointment.put(appointment.getId(), appointment.getDoctorId());
+                clientIds.add(appointment.getClientId());
+            }
+            byte[] digest = Arrays.copyOf(sha256().digest(json), DIGEST_BYTES);
+            return new Bucket(json, digest, doctorByAppointment, Set.copyOf(doctorByAppointment.values()),
+                    Set.copyOf(clientIds));
+        }
+
+        long size() {
+            // Rough per-entry overhead on top of the JSON itself
+            return json.length + 64L * (doctorByAppointment.size() + 1);
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package org.example.getrem.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.CalendarEventProperties;
+import org.example.getrem.dto.appointment.CalendarChangeEvent;
+import org.example.getrem.enums.CalendarChangeType;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Reminder;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes calendar changes to open calendar views over Server-Sent Events, so
+ * they can update in place instead of polling. Each subscriber may narrow the
+ * stream to one doctor and a day range.
+ * <p>
+ * Publishing never blocks: an event is offered to the bounded queue of every
+ * matching subscriber and a virtual thread per busy subscriber does the
+ * writing, so a client that stops reading only ever holds up itself. A
+ * subscriber whose queue is full loses what was queued and is sent a single
+ * {@link CalendarChangeType#RESYNC} instead, telling it to refetch, so a slow
+ * connection costs at most its own buffer. One whose write has been stuck for
+ * longer than the write timeout is dropped at the next heartbeat.
+ * <p>
+ * Events are published on the node that made the change; changes committed on
+ * other nodes reach this node's subscribers through {@link CalendarEventRelay}.
+ */
+@Component
+@Slf4j
+public class CalendarEventBroadcaster {
+
+    private final CalendarEventProperties properties;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public CalendarEventBroadcaster(CalendarEventProperties properties) {
+        this.properties = properties;
+        // At most one drain per subscriber, so this is a thread per subscriber with something to send
+        this.senders = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Opens a stream of changes touching {@code doctorId}'s appointments, or
+     * everyone's when null, between {@code from} and {@code to} inclusive,
+     * either of which may be open.
+     */
+    public SseEmitter subscribe(UUID doctorId, LocalDate from, LocalDate to) {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new ValidationException("to must not be before from");
+        }
+        if (subscribers.size() >= properties.getMaxSubscribers()) {
+            throw new ValidationException("Too many open calendar event streams; try again later");
+        }
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeoutMs());
+        Subscriber subscriber = new Subscriber(emitter, doctorId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null,
+                Math.max(1, properties.getBufferSize()));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // An early comment gets the response headers out, so the client sees the stream open
+        subscriber.heartbeatDue = true;
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    /** Publishes once the current transaction commits, or at once outside a transaction. */
+    public void publishAfterCommit(CalendarChangeEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(event);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(event);
+            }
+        });
+    }
+
+    /**
+     * Publishes a booking, edit or deletion after commit. For edits, pass the
+     * doctor and time the appointment had before so views of either end see it.
+     */
+    public void publishAppointmentChange(CalendarChangeType type, Appointment appointment,
+                                         UUID previousDoctorId, LocalDateTime previousTime) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        UUID doctorId = appointment.getDoctor().getId();
+        boolean moved = previousDoctorId != null && !previousDoctorId.equals(doctorId)
+                || previousTime != null && !previousTime.equals(appointment.getAppointmentTime());
+        publishAfterCommit(CalendarChangeEvent.builder()
+                .type(type)
+                .appointmentId(appointment.getId())
+                .doctorId(doctorId)
+                .appointmentTime(appointment.getAppointmentTime())
+                .status(appointment.getStatus())
+                .previousDoctorId(moved ? previousDoctorId : null)
+                .previousAppointmentTime(moved ? previousTime : null)
+                .build());
+    }
+
+    public void publishReminderStatus(Reminder reminder) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Appointment appointment = reminder.getAppointment();
+        publishAfterCommit(CalendarChangeEvent.builder()
+                .type(CalendarChangeType.REMINDER_STATUS_CHANGED)
+                .appointmentId(appointment.getId())
+                .doctorId(appointment.getDoctor().getId())
+                .appointmentTime(appointment.getAppointmentTime())
+                .reminderId(reminder.getId())
+                .reminderStatus(reminder.getStatus())
+                .build());
+    }
+
+    /** Tells every subscriber to refetch, for changes too broad to describe one by one. */
+    public void publishResync() {
+        if (!subscribers.isEmpty()) {
+            publishAfterCommit(CalendarChangeEvent.builder().type(CalendarChangeType.RESYNC).build());
+        }
+    }
+
+    public void publish(CalendarChangeEvent event) {
+        long id = sequence.incrementAndGet();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.matches(event)) {
+                subscriber.offer(new Pending(id, event));
+                schedule(subscriber);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${getrem.calendar-events.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        long stalledSince = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(properties.getWriteTimeoutMs());
+        for (Subscriber subscriber : subscribers) {
+            long writeStarted = subscriber.writeStarted;
+            if (writeStarted != 0 && writeStarted - stalledSince < 0) {
+                log.debug("Dropping calendar event subscriber stuck writing for over {} ms", properties.getWriteTimeoutMs());
+                subscribers.remove(subscriber);
+                // Completing waits for the stuck write to give up, so it must not hold up this thread
+                closeQuietly(subscriber, new IOException("Write timed out"));
+                continue;
+            }
+            subscriber.heartbeatDue = true;
+            schedule(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    // At most one drain per subscriber is queued or running, so its events go out in order
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senders.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.draining.set(false);
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            do {
+                if (subscriber.heartbeatDue) {
+                    subscriber.heartbeatDue = false;
+                    send(subscriber, SseEmitter.event().comment("keep-alive"));
+                }
+                for (Pending pending : subscriber.takeAll()) {
+                    SseEmitter.SseEventBuilder event = SseEmitter.event()
+                            .name(pending.event.getType().name())
+                            .data(pending.event, MediaType.APPLICATION_JSON);
+                    send(subscriber, pending.id > 0 ? event.id(Long.toString(pending.id)) : event);
+                }
+                subscriber.draining.set(false);
+                // Anything offered after the last take but before the flag cleared is ours to send
+            } while (subscriber.hasWork() && subscriber.draining.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            // Closed by the client, timed out or completed; the emitter callbacks may not fire for a dead socket
+            log.debug("Dropping calendar event subscriber: {}", e.getMessage());
+            subscribers.remove(subscriber);
+            subscriber.draining.set(false);
+            subscriber.emitter.completeWithError(e);
+        }
+    }
+
+    // Timed so the heartbeat can tell a client that stopped reading from one that is merely idle
+    private static void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.writeStarted = Math.max(1, System.nanoTime());
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.writeStarted = 0;
+        }
+    }
+
+    private void closeQuietly(Subscriber subscriber, Exception cause) {
+        try {
+            senders.execute(() -> subscriber.emitter.completeWithError(cause));
+        } catch (RejectedExecutionException e) {
+            // Shutting down, which completes every emitter anyway
+        }
+    }
+
+    private record Pending(long id, CalendarChangeEvent event) {
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final UUID doctorId;
+        private final LocalDateTime from;
+        private final LocalDateTime until;
+        // Guarded by itself
+        private final Queue<Pending> queue;
+        private boolean overflowed;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+        // System.nanoTime() when the write in progress began, 0 when none is
+        private volatile long writeStarted;
+
+        Subscriber(SseEmitter emitter, UUID doctorId, LocalDateTime from, LocalDateTime until, int capacity) {
+            this.emitter = emitter;
+            this.doctorId = doctorId;
+            this.from = from;
+            this.until = until;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        // Moves match on either end, so a view showing only the old doctor or day still hears about them
+        boolean matches(CalendarChangeEvent event) {
+            if (event.getType() == CalendarChangeType.RESYNC) {
+                return true;
+            }
+            UUID previousDoctorId = event.getPreviousDoctorId() != null ? event.getPreviousDoctorId() : event.getDoctorId();
+            LocalDateTime previousTime = event.getPreviousAppointmentTime() != null
+                    ? event.getPreviousAppointmentTime()
+                    : event.getAppointmentTime();
+            return matches(event.getDoctorId(), event.getAppointmentTime()) || matches(previousDoctorId, previousTime);
+        }
+
+        private boolean matches(UUID eventDoctorId, LocalDateTime time) {
+            if (doctorId != null && !doctorId.equals(eventDoctorId)) {
+                return false;
+            }
+            if (time == null) {
+                return from == null && until == null;
+            }
+            return (from == null || !time.isBefore(from)) && (until == null || time.isBefore(until));
+        }
+
+        void offer(Pending pending) {
+            synchronized (queue) {
+                if (overflowed) {
+                    return;
+                }
+                if (!queue.offer(pending)) {
+                    queue.clear();
+                    overflowed = true;
+                }
+            }
+        }
+
+        List<Pending> takeAll() {
+            synchronized (queue) {
+                List<Pending> taken = new ArrayList<>(queue);
+                queue.clear();
+                if (overflowed) {
+                    overflowed = false;
+                    // Not numbered, as it stands for the events that were dropped
+                    taken.add(new Pending(0, CalendarChangeEvent.builder().type(CalendarChangeType.RESYNC).build()));
+                }
+                return taken;
+            }
+        }
+
+        boolean hasWork() {
+            synchronized (queue) {
+                return heartbeatDue || overflowed || !queue.isEmpty();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Carries changes committed on other nodes to this node's calendar event
+ * subscribers. The change log's counter is polled while anyone is
+ * subscribed; numbers this node did not take mean another node changed
+ * something, and subscribers are sent one {@code RESYNC} per poll telling
+ * them to refetch. The log does not say where a moved appointment came from,
+ * so finer events could leave a stale entry on a view of its old slot.
+ */
+@Component
+@Slf4j
+public class CalendarEventRelay {
+
+    // Ranges wider than this are not checked number by number
+    private static final long MAX_CHECKED = 10_000;
+
+    private final AppointmentChangeLog changeLog;
+    private final CalendarEventBroadcaster broadcaster;
+    // Highest sequence number already accounted for; negative while nobody is subscribed
+    private long relayedThrough = -1;
+
+    public CalendarEventRelay(AppointmentChangeLog changeLog, CalendarEventBroadcaster broadcaster) {
+        this.changeLog = changeLog;
+        this.broadcaster = broadcaster;
+    }
+
+    @Scheduled(fixedDelayString = "${getrem.calendar-events.relay-interval-ms:2000}")
+    public synchronized void relay() {
+        if (!broadcaster.hasSubscribers()) {
+            relayedThrough = -1;
+            changeLog.forgetLocalThrough(-1);
+            return;
+        }
+        long committed = changeLog.committedSequence();
+        // New subscribers have just fetched their calendars, so there is nothing to catch up on
+        if (relayedThrough >= 0 && committed > relayedThrough && hasForeignChanges(relayedThrough, committed)) {
+            log.debug("Changes up to {} were made on another node; asking calendar subscribers to refetch", committed);
+            broadcaster.publishResync();
+        }
+        relayedThrough = Math.max(relayedThrough, committed);
+        changeLog.forgetLocalThrough(relayedThrough);
+    }
+
+    private boolean hasForeignChanges(long since, long until) {
+        if (until - since > MAX_CHECKED) {
+            return true;
+        }
+        for (long seq = since + 1; seq <= until; seq++) {
+            if (!changeLog.isLocal(seq)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,207 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.DispatchProperties;
+import org.example.getrem.dto.reminder.DispatchStatus;
+import org.example.getrem.enums.DispatchState;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pause, resume and drain switch for the reminder dispatcher, plus the
+ * progress of the run in flight. A paused dispatcher claims nothing new, and
+ * a run in flight stops at its next chunk boundary and hands its unsent
+ * claims back. Shutdown drains with a deadline before the mail spool and
+ * log writer stop, so a rolling deploy finishes or releases its work
+ * instead of dying mid-batch.
+ * <p>
+ * Claims are tagged {@code <node id>/<instance>#<run>}, which lets a restarted
+ * node recognise and recover claims left by its previous instance.
+ */
+@Component
+@Slf4j
+public class DispatchControl implements SmartLifecycle {
+
+    private final DispatchProperties properties;
+    private final String instanceId;
+    private final AtomicLong runSequence = new AtomicLong();
+
+    private final Object lock = new Object();
+    private volatile boolean paused;
+    private volatile boolean running;
+    // Guarded by lock
+    private Run currentRun;
+    private LocalDateTime lastRunFinishedAt;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+
+    public DispatchControl(DispatchProperties properties) {
+        this.properties = properties;
+        this.instanceId = properties.getNodeId() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /** Starts a run and returns its claim token, or null while paused or another run is in flight. */
+    public String beginRun() {
+        synchronized (lock) {
+            if (paused || currentRun != null) {
+                return null;
+            }
+            currentRun = new Run(instanceId + "#" + runSequence.incrementAndGet(), LocalDateTime.now());
+            return currentRun.claim;
+        }
+    }
+
+    /** Checked by the run between chunks. */
+    public boolean shouldStop() {
+        return paused;
+    }
+
+    public void onClaimed(int count) {
+        synchronized (lock) {
+            if (currentRun != null) {
+                currentRun.claimed = count;
+            }
+        }
+    }
+
+    public void onChunkCompleted(int sentCount, int failedCount) {
+        sent.add(sentCount);
+        failed.add(failedCount);
+        synchronized (lock) {
+            if (currentRun != null) {
+                currentRun.completed += sentCount + failedCount;
+            }
+        }
+    }
+
+    public void onReleased(int count) {
+        released.add(count);
+    }
+
+    public void onRecovered(int count) {
+        recovered.add(count);
+    }
+
+    public void endRun() {
+        synchronized (lock) {
+            currentRun = null;
+            lastRunFinishedAt = LocalDateTime.now();
+            lock.notifyAll();
+        }
+    }
+
+    /** LIKE pattern for claims made by any instance of this node. */
+    public String nodeClaimPattern() {
+        return properties.getNodeId() + "/%";
+    }
+
+    /** LIKE pattern for claims made by this instance. */
+    public String instanceClaimPattern() {
+        return instanceId + "#%";
+    }
+
+    public DispatchStatus pause() {
+        paused = true;
+        log.info("Reminder dispatch paused");
+        return getStatus();
+    }
+
+    public DispatchStatus resume() {
+        paused = false;
+        log.info("Reminder dispatch resumed");
+        return getStatus();
+    }
+
+    /**
+     * Pauses and waits up to {@code timeout} for the run in flight to finish
+     * its current chunk. The returned state is PAUSED once drained and
+     * DRAINING if the deadline passed first.
+     */
+    public DispatchStatus drain(Duration timeout) {
+        pause();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (lock) {
+            while (currentRun != null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    log.warn("Reminder dispatch still draining after {} ms", timeout.toMillis());
+                    break;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        return getStatus();
+    }
+
+    public DispatchStatus getStatus() {
+        synchronized (lock) {
+            DispatchState state = !paused ? DispatchState.RUNNING
+                    : currentRun != null ? DispatchState.DRAINING
+                    : DispatchState.PAUSED;
+            return DispatchStatus.builder()
+                    .instanceId(instanceId)
+                    .state(state)
+                    .runInFlight(currentRun != null)
+                    .claimedInRun(currentRun == null ? 0 : currentRun.claimed)
+                    .completedInRun(currentRun == null ? 0 : currentRun.completed)
+                    .runStartedAt(currentRun == null ? null : currentRun.startedAt)
+                    .lastRunFinishedAt(lastRunFinishedAt)
+                    .totalSent(sent.sum())
+                    .totalFailed(failed.sum())
+                    .totalReleased(released.sum())
+                    .totalRecovered(recovered.sum())
+                    .build();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        DispatchStatus status = drain(Duration.ofMillis(properties.getShutdownDrainTimeoutMs()));
+        log.info("Reminder dispatch stopped ({}, {} of {} reminders in the last run done)",
+                status.getState(), status.getCompletedInRun(), status.getClaimedInRun());
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stops before the mail spool (1) and the NotificationLogWriter (0), which the last chunk still uses
+    @Override
+    public int getPhase() {
+        return 2;
+    }
+
+    private static final class Run {
+        private final String claim;
+        private final LocalDateTime startedAt;
+        private int claimed;
+        private int completed;
+
+        Run(String claim, LocalDateTime startedAt) {
+            this.claim = claim;
+            this.startedAt = startedAt;
+        }
+    }
+}
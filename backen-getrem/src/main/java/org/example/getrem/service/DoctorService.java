@@ -1,9 +1,13 @@
 package org.example.getrem.service;
 
+import org.example.getrem.dto.doctor.AvailabilityMatrixRequest;
+import org.example.getrem.dto.doctor.AvailabilityMatrixResponse;
 import org.example.getrem.dto.doctor.CreateDoctorRequest;
 import org.example.getrem.dto.doctor.DoctorResponse;
+import org.example.getrem.dto.doctor.FreeSlotResponse;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -17,5 +21,7 @@ public interface DoctorService {
     DoctorResponse updateDoctor(UUID id, CreateDoctorRequest request);
     void deleteDoctor(UUID id);
     boolean isTimeSlotAvailable(UUID doctorId, OffsetDateTime appointmentTime, UUID excludeAppointmentId);
+    AvailabilityMatrixResponse getAvailabilityMatrix(AvailabilityMatrixRequest request);
+    List<FreeSlotResponse> findFreeSlots(UUID doctorId, String specialization, LocalDate from, LocalDate to, Integer count);
 }
 
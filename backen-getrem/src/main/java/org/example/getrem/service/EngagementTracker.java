@@ -0,0 +1,215 @@
+package org.example.getrem.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.EngagementTrackingProperties;
+import org.example.getrem.dto.notification.ReminderEngagementDelta;
+import org.example.getrem.dto.notification.ReminderEngagementResponse;
+import org.example.getrem.repository.CustomReminderEngagementRepo;
+import org.example.getrem.repository.ReminderEngagementRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts email opens and link clicks per reminder in memory and writes the
+ * aggregated deltas to reminder_engagement on a timer, so a hit costs a map
+ * update rather than a database write. Counters live in a ConcurrentHashMap
+ * and are only touched inside its per-bin compute, so hits on different
+ * reminders never contend and a flush drains each counter atomically.
+ * <p>
+ * Counts not yet flushed are lost on a crash; they are flushed on shutdown.
+ */
+@Component
+@Slf4j
+public class EngagementTracker {
+
+    private static final String OPEN_PATH = "/api/v1/tracking/open/";
+    private static final String CLICK_PATH = "/api/v1/tracking/click/";
+
+    private final EngagementTrackingProperties properties;
+    private final ReminderRepository reminderRepository;
+    private final CustomReminderEngagementRepo engagementRepo;
+    private final ReminderEngagementRepository engagementRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<UUID, Counter> counters = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    public EngagementTracker(EngagementTrackingProperties properties,
+                             ReminderRepository reminderRepository,
+                             CustomReminderEngagementRepo engagementRepo,
+                             ReminderEngagementRepository engagementRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.reminderRepository = reminderRepository;
+        this.engagementRepo = engagementRepo;
+        this.engagementRepository = engagementRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /** URL of the 1x1 open-tracking image for the reminder, for HTML messages. */
+    public String openPixelUrl(UUID reminderId) {
+        return baseUrl() + OPEN_PATH + reminderId + ".gif";
+    }
+
+    /** Wraps a link so following it counts a click on the reminder before redirecting. */
+    public String clickUrl(UUID reminderId, String target) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl() + CLICK_PATH + reminderId)
+                .queryParam("url", target)
+                .encode()
+                .toUriString();
+    }
+
+    public boolean isAllowedRedirect(String target) {
+        if (target == null || target.isBlank() || target.startsWith("//")) {
+            return false;
+        }
+        if (target.startsWith(baseUrl() + "/")) {
+            return true;
+        }
+        return properties.getAllowedRedirectPrefixes().stream().anyMatch(target::startsWith);
+    }
+
+    public void recordOpen(UUID reminderId) {
+        record(reminderId, true);
+    }
+
+    public void recordClick(UUID reminderId) {
+        record(reminderId, false);
+    }
+
+    private void record(UUID reminderId, boolean open) {
+        // A single map lookup when the counter exists; new keys are refused once the map is full
+        if (!counters.containsKey(reminderId) && counters.size() >= properties.getMaxPendingReminders()) {
+            dropped.increment();
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        counters.compute(reminderId, (id, counter) -> {
+            Counter updated = counter != null ? counter : new Counter();
+            if (open) {
+                updated.opens++;
+                if (updated.firstOpenedAt == null) {
+                    updated.firstOpenedAt = now;
+                }
+                updated.lastOpenedAt = now;
+            } else {
+                updated.clicks++;
+                updated.lastClickedAt = now;
+            }
+            return updated;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${getrem.tracking.flush-interval-ms:10000}")
+    public void flush() {
+        List<ReminderEngagementDelta> deltas = new ArrayList<>();
+        for (UUID reminderId : counters.keySet()) {
+            counters.computeIfPresent(reminderId, (id, counter) -> {
+                deltas.add(counter.toDelta(id));
+                return null;
+            });
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        int written = 0;
+        for (int from = 0; from < deltas.size(); from += properties.getBatchSize()) {
+            List<ReminderEngagementDelta> chunk = deltas.subList(from, Math.min(from + properties.getBatchSize(), deltas.size()));
+            try {
+                written += transactionTemplate.execute(status -> upsertKnown(chunk));
+            } catch (Exception e) {
+                log.error("Failed to flush engagement for {} reminders; keeping it for the next flush", chunk.size(), e);
+                chunk.forEach(this::requeue);
+            }
+        }
+        log.debug("Flushed engagement for {} reminders ({} written)", deltas.size(), written);
+    }
+
+    /** Flushed totals; hits from the last few seconds may not be included yet. */
+    public ReminderEngagementResponse getEngagement(UUID reminderId) {
+        return engagementRepository.findById(reminderId)
+                .map(engagement -> ReminderEngagementResponse.builder()
+                        .reminderId(reminderId)
+                        .opens(engagement.getOpens())
+                        .clicks(engagement.getClicks())
+                        .firstOpenedAt(engagement.getFirstOpenedAt())
+                        .lastOpenedAt(engagement.getLastOpenedAt())
+                        .lastClickedAt(engagement.getLastClickedAt())
+                        .build())
+                .orElseGet(() -> ReminderEngagementResponse.builder().reminderId(reminderId).build());
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Ids come straight from URLs; hits for reminders that do not exist are discarded here
+    private int upsertKnown(List<ReminderEngagementDelta> chunk) {
+        Set<UUID> known = new HashSet<>(reminderRepository.findExistingIds(
+                chunk.stream().map(ReminderEngagementDelta::getReminderId).toList()));
+        List<ReminderEngagementDelta> valid = chunk.stream()
+                .filter(delta -> known.contains(delta.getReminderId()))
+                .toList();
+        engagementRepo.upsert(valid);
+        return valid.size();
+    }
+
+    private void requeue(ReminderEngagementDelta delta) {
+        counters.compute(delta.getReminderId(), (id, counter) -> {
+            Counter merged = counter != null ? counter : new Counter();
+            merged.add(delta);
+            return merged;
+        });
+    }
+
+    private String baseUrl() {
+        String url = properties.getBaseUrl();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    // Only read or written inside ConcurrentHashMap.compute, which serialises access per key
+    private static final class Counter {
+        private long opens;
+        private long clicks;
+        private LocalDateTime firstOpenedAt;
+        private LocalDateTime lastOpenedAt;
+        private LocalDateTime lastClickedAt;
+
+        ReminderEngagementDelta toDelta(UUID reminderId) {
+            return new ReminderEngagementDelta(reminderId, opens, clicks, firstOpenedAt, lastOpenedAt, lastClickedAt);
+        }
+
+        void add(ReminderEngagementDelta delta) {
+            ReminderEngagementDelta merged = toDelta(delta.getReminderId()).merge(delta);
+            opens = merged.getOpens();
+            clicks = merged.getClicks();
+            firstOpenedAt = merged.getFirstOpenedAt();
+            lastOpenedAt = merged.getLastOpenedAt();
+            lastClickedAt = merged.getLastClickedAt();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.FreeSlotProperties;
+import org.example.getrem.dto.doctor.FreeSlotResponse;
+import org.example.getrem.model.Doctor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Finds the earliest free slots across a set of doctors. Candidates are the
+ * opening-hours grid of the search range, and each doctor's booked start
+ * times come sorted from {@link AppointmentSlotIndex#bookedStarts}. Each
+ * doctor is a cursor walking the grid and their bookings together in one
+ * pass, and a priority queue on the cursors hands out slots in time order,
+ * so a search stops as soon as it has enough.
+ */
+@Component
+public class FreeSlotFinder {
+
+    private static final long APPOINTMENT_MINUTES = 30;
+
+    private final AppointmentSlotIndex slotIndex;
+    private final FreeSlotProperties properties;
+
+    public FreeSlotFinder(AppointmentSlotIndex slotIndex, FreeSlotProperties properties) {
+        this.slotIndex = slotIndex;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns up to {@code count} free slots between {@code firstDay} and
+     * {@code lastDay} inclusive that start no earlier than {@code notBefore},
+     * ordered by start time and then by doctor name.
+     */
+    public List<FreeSlotResponse> find(List<Doctor> doctors, LocalDate firstDay, LocalDate lastDay,
+                                       LocalDateTime notBefore, int count) {
+        List<LocalDateTime> grid = grid(firstDay, lastDay, notBefore);
+        if (grid.isEmpty() || doctors.isEmpty() || count <= 0) {
+            return List.of();
+        }
+        Map<UUID, List<LocalDateTime>> booked = slotIndex.bookedStarts(
+                doctors.stream().map(Doctor::getId).toList(),
+                grid.get(0).minusMinutes(AppointmentSlotIndex.CONFLICT_BEFORE_MINUTES),
+                grid.get(grid.size() - 1).plusMinutes(AppointmentSlotIndex.CONFLICT_AFTER_MINUTES));
+
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator
+                .comparing(Cursor::current)
+                .thenComparing(cursor -> cursor.doctor.getName())
+                .thenComparing(cursor -> cursor.doctor.getId()));
+        for (Doctor doctor : doctors) {
+            Cursor cursor = new Cursor(doctor, grid, booked.getOrDefault(doctor.getId(), List.of()));
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        List<FreeSlotResponse> free = new ArrayList<>(Math.min(count, grid.size() * doctors.size()));
+        while (free.size() < count && !cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            free.add(FreeSlotResponse.builder()
+                    .doctorId(cursor.doctor.getId())
+                    .doctorName(cursor.doctor.getName())
+                    .specialization(cursor.doctor.getSpecialization())
+                    .startTime(cursor.current())
+                    .endTime(cursor.current().plusMinutes(APPOINTMENT_MINUTES))
+                    .build());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        return free;
+    }
+
+    private List<LocalDateTime> grid(LocalDate firstDay, LocalDate lastDay, LocalDateTime notBefore) {
+        long step = Math.max(1, properties.getStepMinutes());
+        List<LocalDateTime> grid = new ArrayList<>();
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            LocalDateTime closing = day.atTime(properties.getClosingTime());
+            for (LocalDateTime start = day.atTime(properties.getOpeningTime());
+                 !start.plusMinutes(APPOINTMENT_MINUTES).isAfter(closing);
+                 start = start.plusMinutes(step)) {
+                if (!start.isBefore(notBefore)) {
+                    grid.add(start);
+                }
+            }
+        }
+        return grid;
+    }
+
+    /** One doctor's position in the grid, and in their bookings, which only ever move forward. */
+    private static final class Cursor {
+
+        private final Doctor doctor;
+        private final List<LocalDateTime> grid;
+        private final List<LocalDateTime> booked;
+        private int gridIndex = -1;
+        private int bookedIndex;
+
+        Cursor(Doctor doctor, List<LocalDateTime> grid, List<LocalDateTime> booked) {
+            this.doctor = doctor;
+            this.grid = grid;
+            this.booked = booked;
+        }
+
+        LocalDateTime current() {
+            return grid.get(gridIndex);
+        }
+
+        /** Moves to the doctor's next free grid slot; false when there is none left. */
+        boolean advance() {
+            while (++gridIndex < grid.size()) {
+                LocalDateTime start = grid.get(gridIndex);
+                LocalDateTime conflictsAfter = start.minusMinutes(AppointmentSlotIndex.CONFLICT_BEFORE_MINUTES);
+                LocalDateTime conflictsBefore = start.plusMinutes(AppointmentSlotIndex.CONFLICT_AFTER_MINUTES);
+                while (bookedIndex < booked.size() && !booked.get(bookedIndex).isAfter(conflictsAfter)) {
+                    bookedIndex++;
+                }
+                if (bookedIndex == booked.size() || !booked.get(bookedIndex).isBefore(conflictsBefore)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
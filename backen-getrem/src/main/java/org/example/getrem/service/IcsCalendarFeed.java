@@ -0,0 +1,239 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.IcsFeedProperties;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.exception.NotFoundException;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.CustomAppointmentFeedRepo;
+import org.example.getrem.repository.DoctorRepository;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * iCalendar (RFC 5545) feeds of appointments, for one doctor or the whole
+ * clinic, for calendar apps to subscribe to. Rows are read as a scalar
+ * projection through a forward-only cursor and written out one event at a
+ * time, so memory use does not grow with the range.
+ * <p>
+ * The entity tag is the number of appointments in the range and the latest
+ * {@code updatedAt} among them. Any booking, move, status change or deletion
+ * in the range changes one of the two, so a client polling with
+ * {@code If-None-Match} gets a 304 for the price of one aggregate query.
+ */
+@Component
+public class IcsCalendarFeed {
+
+    public static final MediaType TEXT_CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
+
+    private static final long APPOINTMENT_MINUTES = 30;
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final DateTimeFormatter UTC_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+
+    private final AppointmentRepository appointmentRepository;
+    private final CustomAppointmentFeedRepo feedRepo;
+    private final DoctorRepository doctorRepository;
+    private final IcsFeedProperties properties;
+    private final ZoneId zone;
+    private final TransactionTemplate readTransaction;
+
+    public IcsCalendarFeed(AppointmentRepository appointmentRepository,
+                           CustomAppointmentFeedRepo feedRepo,
+                           DoctorRepository doctorRepository,
+                           IcsFeedProperties properties,
+                           PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.feedRepo = feedRepo;
+        this.doctorRepository = doctorRepository;
+        this.properties = properties;
+        this.zone = properties.getTimeZone() == null || properties.getTimeZone().isBlank()
+                ? ZoneId.systemDefault()
+                : ZoneId.of(properties.getTimeZone());
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Resolves the range and computes the entity tag of a feed; nothing is
+     * streamed until {@link Feed#writeTo} is called.
+     *
+     * @param doctorId only this doctor's appointments, or null for the whole clinic
+     * @param from     first day, inclusive; defaults to the configured past window
+     * @param to       last day, inclusive; defaults to the configured future window
+     */
+    public Feed open(UUID doctorId, LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now(zone);
+        LocalDate firstDay = from != null ? from : today.minusDays(properties.getPastDays());
+        LocalDate lastDay = to != null ? to : today.plusDays(properties.getFutureDays());
+        if (lastDay.isBefore(firstDay)) {
+            throw new ValidationException("to must not be before from");
+        }
+        if (firstDay.plusDays(properties.getMaxRangeDays()).isBefore(lastDay)) {
+            throw new ValidationException("Calendar feeds cover at most " + properties.getMaxRangeDays() + " days");
+        }
+        if (doctorId != null && !doctorRepository.existsById(doctorId)) {
+            throw new NotFoundException("Doctor not found with id: " + doctorId);
+        }
+        LocalDateTime start = firstDay.atStartOfDay();
+        LocalDateTime end = lastDay.plusDays(1).atStartOfDay();
+
+        List<Object[]> summary = doctorId != null
+                ? appointmentRepository.summarizeDoctorRange(doctorId, start, end)
+                : appointmentRepository.summarizeRange(start, end);
+        Object[] row = summary.isEmpty() ? new Object[]{0L, null} : summary.get(0);
+        long count = row[0] != null ? ((Number) row[0]).longValue() : 0;
+        long lastChange = row[1] != null
+                ? ((LocalDateTime) row[1]).toInstant(ZoneOffset.UTC).toEpochMilli()
+                : 0;
+        // The range is part of the tag, since the default window moves along with the date
+        String etag = "\"" + Long.toHexString(firstDay.toEpochDay()) + "-" + Long.toHexString(lastDay.toEpochDay())
+                + "-" + Long.toHexString(count) + "-" + Long.toHexString(lastChange) + "\"";
+        return new Feed(doctorId, start, end, etag);
+    }
+
+    private void write(Feed feed, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        String now = UTC_STAMP.format(Instant.now().atOffset(ZoneOffset.UTC));
+        line(writer, "BEGIN:VCALENDAR");
+        line(writer, "VERSION:2.0");
+        line(writer, "PRODID:-//GetRem//Appointments//EN");
+        line(writer, "CALSCALE:GREGORIAN");
+        line(writer, "METHOD:PUBLISH");
+        line(writer, "X-WR-CALNAME:" + escape(properties.getCalendarName()));
+        try {
+            readTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = feedRepo.streamFeedRows(feed.doctorId, feed.start, feed.end,
+                        properties.getFetchSize())) {
+                    rows.forEach(row -> event(writer, row, now));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        line(writer, "END:VCALENDAR");
+        writer.flush();
+    }
+
+    // id, appointmentTime, status, notes, updatedAt, client name, doctor name, specialization
+    private void event(Writer writer, Object[] row, String now) {
+        LocalDateTime time = (LocalDateTime) row[1];
+        AppointmentStatus status = (AppointmentStatus) row[2];
+        String notes = (String) row[3];
+        // Stamped from the JVM clock, so in the JVM's zone rather than the configured one
+        LocalDateTime updatedAt = (LocalDateTime) row[4];
+        String doctor = row[7] != null ? row[6] + " (" + row[7] + ")" : (String) row[6];
+        try {
+            line(writer, "BEGIN:VEVENT");
+            line(writer, "UID:" + row[0] + "@getrem");
+            line(writer, "DTSTAMP:" + (updatedAt != null ? utc(updatedAt, ZoneId.systemDefault()) : now));
+            line(writer, "DTSTART:" + utc(time, zone));
+            line(writer, "DTEND:" + utc(time.plusMinutes(APPOINTMENT_MINUTES), zone));
+            line(writer, "SUMMARY:" + escape(row[5] + " - " + row[6]));
+            line(writer, "DESCRIPTION:" + escape(notes != null && !notes.isBlank()
+                    ? "Doctor: " + doctor + "\n" + notes
+                    : "Doctor: " + doctor));
+            line(writer, "STATUS:" + switch (status) {
+                case SCHEDULED -> "TENTATIVE";
+                case CONFIRMED, COMPLETED -> "CONFIRMED";
+                case CANCELLED -> "CANCELLED";
+            });
+            if (updatedAt != null) {
+                line(writer, "LAST-MODIFIED:" + utc(updatedAt, ZoneId.systemDefault()));
+            }
+            line(writer, "END:VEVENT");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String utc(LocalDateTime time, ZoneId zone) {
+        return UTC_STAMP.format(time.atZone(zone).withZoneSameInstant(ZoneOffset.UTC));
+    }
+
+    /** Escapes a TEXT value: backslash, semicolon, comma and line breaks. */
+    static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case ';' -> escaped.append("\\;");
+                case ',' -> escaped.append("\\,");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> {
+                    if (i + 1 >= text.length() || text.charAt(i + 1) != '\n') {
+                        escaped.append("\\n");
+                    }
+                }
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    /** Writes a content line, folded at 75 octets without splitting a UTF-8 sequence, ending in CRLF. */
+    static void line(Writer writer, String content) throws IOException {
+        int octets = 0;
+        int i = 0;
+        while (i < content.length()) {
+            int codePoint = content.codePointAt(i);
+            int width = codePoint < 0x80 ? 1 : codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+            if (octets + width > MAX_LINE_OCTETS) {
+                writer.write("\r\n ");
+                // The leading space of a continuation line counts towards its 75
+                octets = 1;
+            }
+            writer.write(content, i, Character.charCount(codePoint));
+            octets += width;
+            i += Character.charCount(codePoint);
+        }
+        writer.write("\r\n");
+    }
+
+    /** A feed whose range and entity tag are known, ready to be streamed. */
+    public final class Feed {
+
+        private final UUID doctorId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final String etag;
+
+        private Feed(UUID doctorId, LocalDateTime start, LocalDateTime end, String etag) {
+            this.doctorId = doctorId;
+            this.start = start;
+            this.end = end;
+            this.etag = etag;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /** Streams the feed; runs its own read-only transaction on the calling thread. */
+        public void writeTo(OutputStream out) throws IOException {
+            write(this, out);
+        }
+    }
+}
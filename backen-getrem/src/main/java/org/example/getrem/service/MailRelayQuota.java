@@ -0,0 +1,83 @@
+package org.example.getrem.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.model.MailRelayUsage;
+import org.example.getrem.repository.MailRelayUsageRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+/**
+ * Daily relay quotas shared by every node and surviving restarts. Nodes
+ * lease quota in small blocks, so the database is touched once per block
+ * rather than once per message. Leased units a node never uses, because it
+ * restarted or the day ended, are lost rather than handed back, so the
+ * provider's cap can be under-used by a block per node but never exceeded.
+ */
+@Component
+@Slf4j
+public class MailRelayQuota {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final MailRelayUsageRepository usageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public MailRelayQuota(MailRelayUsageRepository usageRepository, PlatformTransactionManager transactionManager) {
+        this.usageRepository = usageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Sends run inside dispatch transactions; the lease commits on its own so its row lock is held only briefly
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Leases up to {@code size} of the relay's quota for {@code day}.
+     * Returns how many were granted, 0 once the quota is used up, or empty
+     * when the usage row could not be read or updated.
+     */
+    public OptionalInt lease(String relay, LocalDate day, int dailyQuota, int size) {
+        String id = relay + "/" + day;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                Integer granted = transactionTemplate.execute(status -> tryLease(id, dailyQuota, size));
+                if (granted != null) {
+                    return OptionalInt.of(granted);
+                }
+            } catch (RuntimeException e) {
+                // Usually two nodes creating the day's row at once; the loser retries against the winner's row
+                log.debug("Quota lease for {} failed (attempt {}): {}", id, attempt, e.getMessage());
+            }
+        }
+        log.warn("Could not lease quota for relay {} after {} attempts; will try again shortly", id, MAX_ATTEMPTS);
+        return OptionalInt.empty();
+    }
+
+    // Null when another node changed the row first
+    private Integer tryLease(String id, int dailyQuota, int size) {
+        Optional<Integer> sent = usageRepository.findSent(id);
+        if (sent.isEmpty()) {
+            int count = Math.min(size, dailyQuota);
+            MailRelayUsage usage = new MailRelayUsage();
+            usage.setId(id);
+            usage.setSent(count);
+            entityManager.persist(usage);
+            entityManager.flush();
+            return count;
+        }
+        int count = Math.min(size, dailyQuota - sent.get());
+        if (count <= 0) {
+            return 0;
+        }
+        return usageRepository.compareAndAdd(id, sent.get(), count) == 1 ? count : null;
+    }
+}
@@ -0,0 +1,331 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.MailRelayProperties;
+import org.example.getrem.dto.notification.MailRelayStatus;
+import org.example.getrem.exception.MailRelaysUnavailableException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Properties;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Spreads outgoing mail over several SMTP relays or accounts. Relays are
+ * picked by smooth weighted round-robin among those that are healthy and
+ * under their daily quota. Quotas are counted in the database across all
+ * nodes and restarts; each node leases a small block at a time through
+ * {@link MailRelayQuota}. A relay that fails at the connection level is
+ * skipped for the rest of that send and, after repeated failures, taken out
+ * of rotation until a health check or its cooldown brings it back.
+ * <p>
+ * With no relays configured the auto-configured {@code spring.mail.*} sender
+ * is the only relay, so single-account setups behave as before.
+ */
+@Component
+@Slf4j
+public class MailRelayRouter {
+
+    private final MailRelayProperties properties;
+    private final MailRelayQuota quota;
+    private final List<Relay> relays;
+    // Not synchronized: a quota lease blocks on the database, which would pin a virtual thread's carrier
+    private final ReentrantLock selectionLock = new ReentrantLock();
+
+    public MailRelayRouter(MailRelayProperties properties, MailRelayQuota quota, JavaMailSender defaultSender) {
+        this.properties = properties;
+        this.quota = quota;
+        List<Relay> configured = new ArrayList<>();
+        for (MailRelayProperties.Relay relay : properties.getRelays()) {
+            configured.add(new Relay(relay.getName() != null ? relay.getName() : relay.getHost(),
+                    relay.getHost(), Math.max(1, relay.getWeight()), relay.getDailyQuota(), relay.getFrom(),
+                    createSender(relay)));
+        }
+        if (configured.isEmpty()) {
+            String host = defaultSender instanceof JavaMailSenderImpl impl ? impl.getHost() : null;
+            configured.add(new Relay("default", host, 1, 0, null, defaultSender));
+        }
+        this.relays = List.copyOf(configured);
+    }
+
+    /**
+     * Sends through the next eligible relay, failing over to the others when
+     * a relay cannot be reached. Failures caused by the message itself are
+     * rethrown straight away, since another relay would reject it too.
+     *
+     * @throws MailRelaysUnavailableException when every relay is down or over quota
+     */
+    public void send(SimpleMailMessage message) {
+        List<Relay> tried = new ArrayList<>(relays.size());
+        MailException lastFailure = null;
+        Relay relay;
+        while ((relay = select(tried)) != null) {
+            tried.add(relay);
+            try {
+                relay.sender.send(relay.prepare(message));
+                relay.recordSuccess();
+                return;
+            } catch (MailException e) {
+                if (!MailSpool.isProviderUnavailable(e)) {
+                    throw e;
+                }
+                lastFailure = e;
+                relay.recordFailure(e, properties.getFailureThreshold(), properties.getCooldownMs());
+                log.warn("SMTP relay {} failed ({}); trying the next one", relay.name, e.getMessage());
+            }
+        }
+        throw new MailRelaysUnavailableException(lastFailure == null
+                ? "All SMTP relays are down or over their daily quota"
+                : "All SMTP relays failed", lastFailure);
+    }
+
+    /**
+     * Looks up a relay's connection settings by name, or the first relay when
+     * the name is empty. Empty for relays whose sender is not SMTP-backed.
+     */
+    public Optional<RelayEndpoint> findRelay(String name) {
+        return relays.stream()
+                .filter(relay -> name == null || name.isBlank() || name.equals(relay.name))
+                .filter(relay -> relay.sender instanceof JavaMailSenderImpl)
+                .findFirst()
+                .map(relay -> new RelayEndpoint(relay.name, (JavaMailSenderImpl) relay.sender, relay.from));
+    }
+
+    public List<MailRelayStatus> getStatus() {
+        return relays.stream().map(Relay::status).toList();
+    }
+
+    // Puts recovered relays back in rotation before their cooldown runs out
+    @Scheduled(fixedDelayString = "${getrem.mail.health-check-interval-ms:60000}")
+    public void checkHealth() {
+        for (Relay relay : relays) {
+            if (!(relay.sender instanceof JavaMailSenderImpl impl) || relay.isHealthy()) {
+                continue;
+            }
+            try {
+                impl.testConnection();
+                relay.recordHealthy();
+                log.info("SMTP relay {} is reachable again", relay.name);
+            } catch (Exception e) {
+                relay.recordCheckFailure(e, properties.getCooldownMs());
+            }
+        }
+    }
+
+    /** Smooth weighted round-robin over relays not yet tried for this message. */
+    private Relay select(List<Relay> excluded) {
+        LocalDate today = LocalDate.now();
+        LocalDateTime now = LocalDateTime.now();
+        selectionLock.lock();
+        try {
+            Relay best = null;
+            int totalWeight = 0;
+            for (Relay relay : relays) {
+                if (excluded.contains(relay) || !relay.isAvailable(now) || !hasQuota(relay, today, now)) {
+                    continue;
+                }
+                relay.currentWeight += relay.weight;
+                totalWeight += relay.weight;
+                if (best == null || relay.currentWeight > best.currentWeight) {
+                    best = relay;
+                }
+            }
+            if (best != null) {
+                best.currentWeight -= totalWeight;
+                // Reserve quota up front so concurrent sends cannot overshoot it
+                best.reserve();
+            }
+            return best;
+        } finally {
+            selectionLock.unlock();
+        }
+    }
+
+    // Called under the selection lock, so only one lease per relay is ever in flight
+    private boolean hasQuota(Relay relay, LocalDate today, LocalDateTime now) {
+        if (relay.dailyQuota <= 0) {
+            return true;
+        }
+        Relay.Allowance allowance = relay.allowance(today, now);
+        if (allowance != Relay.Allowance.NEEDS_LEASE) {
+            return allowance == Relay.Allowance.AVAILABLE;
+        }
+        OptionalInt granted = quota.lease(relay.name, today, relay.dailyQuota,
+                Math.max(1, properties.getQuotaLeaseSize()));
+        if (granted.isEmpty()) {
+            // Not known to be used up, so ask again shortly rather than writing off the day
+            relay.leaseFailed(now.plus(Duration.ofMillis(properties.getQuotaRetryMs())));
+            return false;
+        }
+        relay.addLeased(today, granted.getAsInt());
+        return granted.getAsInt() > 0;
+    }
+
+    private static JavaMailSender createSender(MailRelayProperties.Relay relay) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(relay.getHost());
+        sender.setPort(relay.getPort());
+        sender.setUsername(relay.getUsername());
+        sender.setPassword(relay.getPassword());
+        Properties mailProperties = sender.getJavaMailProperties();
+        mailProperties.put("mail.smtp.auth", String.valueOf(relay.getUsername() != null));
+        mailProperties.put("mail.smtp.starttls.enable", String.valueOf(relay.isStarttls()));
+        mailProperties.put("mail.smtp.starttls.required", String.valueOf(relay.isStarttls()));
+        mailProperties.put("mail.smtp.connectiontimeout", "5000");
+        mailProperties.put("mail.smtp.timeout", "5000");
+        mailProperties.put("mail.smtp.writetimeout", "5000");
+        mailProperties.putAll(relay.getProperties());
+        return sender;
+    }
+
+    public record RelayEndpoint(String name, JavaMailSenderImpl sender, String from) {
+    }
+
+    // Mutable state is guarded by the router's lock (selection) or the relay's own
+    private static final class Relay {
+
+        private final String name;
+        private final String host;
+        private final int weight;
+        private final int dailyQuota;
+        private final String from;
+        private final JavaMailSender sender;
+
+        private int currentWeight;
+        private LocalDate quotaDay = LocalDate.now();
+        // Sent by this node today, and how much of its leased quota it has left
+        private int sentToday;
+        private int leasedLeft;
+        private boolean quotaExhausted;
+        private LocalDateTime leaseRetryAt;
+        private int consecutiveFailures;
+        private LocalDateTime downUntil;
+        private String lastError;
+        private LocalDateTime lastFailureAt;
+        private LocalDateTime lastCheckedAt;
+
+        Relay(String name, String host, int weight, int dailyQuota, String from, JavaMailSender sender) {
+            this.name = name;
+            this.host = host;
+            this.weight = weight;
+            this.dailyQuota = dailyQuota;
+            this.from = from;
+            this.sender = sender;
+        }
+
+        SimpleMailMessage prepare(SimpleMailMessage message) {
+            if (from == null) {
+                return message;
+            }
+            SimpleMailMessage copy = new SimpleMailMessage(message);
+            copy.setFrom(from);
+            return copy;
+        }
+
+        synchronized boolean isAvailable(LocalDateTime now) {
+            // Once the cooldown has passed the relay gets one trial send
+            return downUntil == null || !now.isBefore(downUntil);
+        }
+
+        synchronized Allowance allowance(LocalDate today, LocalDateTime now) {
+            if (!today.equals(quotaDay)) {
+                quotaDay = today;
+                sentToday = 0;
+                // Yesterday's unused lease is not valid today
+                leasedLeft = 0;
+                quotaExhausted = false;
+            }
+            if (leasedLeft > 0) {
+                return Allowance.AVAILABLE;
+            }
+            if (quotaExhausted) {
+                return Allowance.EXHAUSTED;
+            }
+            return leaseRetryAt != null && now.isBefore(leaseRetryAt) ? Allowance.RETRY_LATER : Allowance.NEEDS_LEASE;
+        }
+
+        synchronized void addLeased(LocalDate day, int granted) {
+            if (!day.equals(quotaDay)) {
+                return;
+            }
+            leasedLeft += granted;
+            leaseRetryAt = null;
+            // Every node's leases together have reached the quota, so there is nothing more to ask for today
+            quotaExhausted = granted == 0;
+        }
+
+        synchronized void leaseFailed(LocalDateTime retryAt) {
+            leaseRetryAt = retryAt;
+        }
+
+        synchronized void reserve() {
+            sentToday++;
+            if (dailyQuota > 0) {
+                leasedLeft--;
+            }
+        }
+
+        synchronized boolean isHealthy() {
+            return downUntil == null;
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            downUntil = null;
+        }
+
+        synchronized void recordFailure(Exception e, int threshold, long cooldownMs) {
+            // The send never went out, so hand back its quota
+            sentToday = Math.max(0, sentToday - 1);
+            if (dailyQuota > 0) {
+                leasedLeft++;
+            }
+            consecutiveFailures++;
+            lastError = e.getMessage();
+            lastFailureAt = LocalDateTime.now();
+            if (consecutiveFailures >= threshold) {
+                downUntil = lastFailureAt.plus(Duration.ofMillis(cooldownMs));
+            }
+        }
+
+        synchronized void recordHealthy() {
+            consecutiveFailures = 0;
+            downUntil = null;
+            lastCheckedAt = LocalDateTime.now();
+        }
+
+        synchronized void recordCheckFailure(Exception e, long cooldownMs) {
+            lastError = e.getMessage();
+            lastCheckedAt = LocalDateTime.now();
+            downUntil = lastCheckedAt.plus(Duration.ofMillis(cooldownMs));
+        }
+
+        enum Allowance { AVAILABLE, NEEDS_LEASE, RETRY_LATER, EXHAUSTED }
+
+        synchronized MailRelayStatus status() {
+            return MailRelayStatus.builder()
+                    .name(name)
+                    .host(host)
+                    .weight(weight)
+                    .healthy(downUntil == null)
+                    .sentToday(sentToday)
+                    .dailyQuota(dailyQuota)
+                    .consecutiveFailures(consecutiveFailures)
+                    .lastError(lastError)
+                    .lastFailureAt(lastFailureAt)
+                    .lastCheckedAt(lastCheckedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.MailSpoolProperties;
+import org.example.getrem.dto.notification.MailSpoolStats;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.NotificationStatus;
+import org.example.getrem.exception.MailRelaysUnavailableException;
+import org.example.getrem.model.NotificationLog;
+import org.example.getrem.model.Reminder;
+import org.example.getrem.repository.AppointmentRepository;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps rendered reminder emails on local disk while the SMTP provider is
+ * unreachable, and replays them at a fixed rate once it is back.
+ * <p>
+ * The dispatcher hands over a message when a send fails at the connection
+ * level, and keeps handing over new ones while anything is still spooled, so
+ * mail stays in order and a recovering provider is not flooded. Everything
+ * lives in a {@link MailSpoolJournal}, which survives restarts without
+ * touching the database; the only DB write is the NotificationLog recorded
+ * when a replay completes.
+ * <p>
+ * A record carries the appointment it reminds of and the time it was for.
+ * Before a replay the appointment is looked up, and the reminder is skipped
+ * if it has started, been cancelled or deleted, or moved to another time.
+ */
+@Component
+@Slf4j
+public class MailSpool implements SmartLifecycle {
+
+    // Version 1 records carry no appointment and are replayed unchecked
+    private static final byte LEGACY_RECORD_VERSION = 1;
+    private static final byte RECORD_VERSION = 2;
+
+    private final MailSpoolProperties properties;
+    private final MailRelayRouter mailRelayRouter;
+    private final NotificationExecutor notificationExecutor;
+    private final NotificationLogWriter notificationLogWriter;
+    private final AppointmentRepository appointmentRepository;
+
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private volatile MailSpoolJournal journal;
+    private volatile boolean providerAvailable = true;
+    private volatile String lastError;
+    private volatile LocalDateTime lastFailureAt;
+    private volatile boolean running;
+    private volatile Thread drainerThread;
+
+    public MailSpool(MailSpoolProperties properties,
+                     MailRelayRouter mailRelayRouter,
+                     NotificationExecutor notificationExecutor,
+                     NotificationLogWriter notificationLogWriter,
+                     AppointmentRepository appointmentRepository) {
+        this.properties = properties;
+        this.mailRelayRouter = mailRelayRouter;
+        this.notificationExecutor = notificationExecutor;
+        this.notificationLogWriter = notificationLogWriter;
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    /**
+     * True for failures that say nothing about the message itself: the
+     * provider could not be reached, timed out, refused our credentials or
+     * every relay is out of quota.
+     * Bad addresses and rejected content are not worth retrying.
+     */
+    public static boolean isProviderUnavailable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof MailAuthenticationException
+                    || cause instanceof MailRelaysUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** While a backlog exists new mail queues behind it instead of going direct. */
+    public boolean hasBacklog() {
+        MailSpoolJournal current = journal;
+        return current != null && !current.isEmpty();
+    }
+
+    /**
+     * Durably queues a message. Returns false if the spool is off or the
+     * message cannot be stored, in which case the caller should treat the
+     * send as failed.
+     *
+     * @param appointmentTime when the appointment the message reminds of starts; it is not sent after that
+     */
+    public boolean offer(UUID reminderId, UUID appointmentId, LocalDateTime appointmentTime,
+                         SimpleMailMessage message) {
+        MailSpoolJournal current = journal;
+        if (current == null) {
+            return false;
+        }
+        try {
+            current.append(encode(new SpooledMail(reminderId, appointmentId, appointmentTime, message)));
+            spooled.increment();
+            LockSupport.unpark(drainerThread);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Could not spool email for reminder {}", reminderId, e);
+            return false;
+        }
+    }
+
+    public void recordProviderFailure(Throwable failure) {
+        providerAvailable = false;
+        lastError = failure.getMessage();
+        lastFailureAt = LocalDateTime.now();
+    }
+
+    public MailSpoolStats getStats() {
+        MailSpoolJournal current = journal;
+        return MailSpoolStats.builder()
+                .enabled(current != null)
+                .providerAvailable(providerAvailable)
+                .pendingMessages(current == null ? 0 : current.size())
+                .spooled(spooled.sum())
+                .replayed(replayed.sum())
+                .dropped(dropped.sum())
+                .skipped(skipped.sum())
+                .lastError(lastError)
+                .lastFailureAt(lastFailureAt)
+                .build();
+    }
+
+    private void drainLoop() {
+        // stop() clears the field once it stops waiting for this thread, which may still be mid-send
+        MailSpoolJournal journal = this.journal;
+        try {
+            drain(journal);
+        } finally {
+            // Closing twice is harmless, so this covers a stop() that gave up waiting
+            if (!running) {
+                close(journal);
+            }
+        }
+    }
+
+    private void drain(MailSpoolJournal journal) {
+        long sendIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / properties.getRatePerSecond());
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getIdleIntervalMs());
+        long retryMillis = properties.getRetryIntervalMs();
+
+        while (running) {
+            byte[] payload;
+            try {
+                payload = journal.peek();
+            } catch (IOException e) {
+                log.error("Mail spool is unreadable; replay stopped", e);
+                return;
+            }
+            if (payload == null) {
+                LockSupport.parkNanos(idleNanos);
+                continue;
+            }
+
+            SpooledMail mail;
+            try {
+                mail = decode(payload);
+            } catch (RuntimeException e) {
+                log.error("Skipping unreadable mail spool record", e);
+                dropped.increment();
+                complete(journal, null, null, null);
+                continue;
+            }
+            String staleReason = staleReason(mail);
+            if (staleReason != null) {
+                log.info("Not replaying spooled email to {}: {}", mail.message().getTo()[0], staleReason);
+                skipped.increment();
+                complete(journal, mail, NotificationStatus.FAILED, "Not sent: " + staleReason);
+                continue;
+            }
+            try {
+                notificationExecutor.withPermit(NotificationChannel.EMAIL, () -> {
+                    mailRelayRouter.send(mail.message());
+                    return null;
+                });
+                providerAvailable = true;
+                retryMillis = properties.getRetryIntervalMs();
+                replayed.increment();
+                complete(journal, mail, NotificationStatus.SENT, null);
+            } catch (Exception e) {
+                if (isProviderUnavailable(e)) {
+                    recordProviderFailure(e);
+                    log.warn("SMTP still unavailable ({}), {} emails spooled; retrying in {} ms",
+                            e.getMessage(), journal.size(), retryMillis);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryMillis));
+                    retryMillis = Math.min(retryMillis * 2, properties.getMaxRetryIntervalMs());
+                    continue;
+                }
+                log.error("Provider rejected spooled email to {}; dropping it", mail.message().getTo()[0], e);
+                dropped.increment();
+                complete(journal, mail, NotificationStatus.FAILED, e.getMessage());
+            }
+            LockSupport.parkNanos(sendIntervalNanos);
+        }
+    }
+
+    // Null when the reminder is still worth sending
+    private String staleReason(SpooledMail mail) {
+        if (mail.appointmentId() == null) {
+            return null;
+        }
+        if (!LocalDateTime.now().isBefore(mail.appointmentTime())) {
+            return "the appointment has already started";
+        }
+        List<Object[]> keys;
+        try {
+            keys = appointmentRepository.findCalendarKeys(List.of(mail.appointmentId()));
+        } catch (RuntimeException e) {
+            // Better a reminder for a cancelled appointment than none for a live one
+            log.warn("Could not look up appointment {} before replay; sending anyway", mail.appointmentId(), e);
+            return null;
+        }
+        if (keys.isEmpty()) {
+            return "the appointment was deleted";
+        }
+        Object[] key = keys.get(0);
+        if (key[3] == AppointmentStatus.CANCELLED) {
+            return "the appointment was cancelled";
+        }
+        if (!mail.appointmentTime().equals(key[2])) {
+            return "the appointment was moved";
+        }
+        return null;
+    }
+
+    private void complete(MailSpoolJournal journal, SpooledMail mail, NotificationStatus status, String errorMessage) {
+        try {
+            journal.commit();
+        } catch (IOException e) {
+            // The message will be replayed again after a restart; better twice than never
+            log.error("Failed to checkpoint the mail spool", e);
+        }
+        if (mail == null || mail.reminderId() == null) {
+            return;
+        }
+        Reminder reminder = new Reminder();
+        reminder.setId(mail.reminderId());
+        NotificationLog notificationLog = new NotificationLog();
+        notificationLog.setReminder(reminder);
+        notificationLog.setChannel(NotificationChannel.EMAIL);
+        notificationLog.setRecipient(mail.message().getTo()[0]);
+        notificationLog.setStatus(status);
+        notificationLog.setErrorMessage(errorMessage);
+        notificationLog.setTimestamp(LocalDateTime.now());
+        notificationLogWriter.publish(notificationLog);
+    }
+
+    static byte[] encode(SpooledMail mail) throws IOException {
+        SimpleMailMessage message = mail.message();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(RECORD_VERSION);
+            writeId(out, mail.reminderId());
+            writeId(out, mail.appointmentId());
+            if (mail.appointmentId() != null) {
+                LocalDateTime time = mail.appointmentTime();
+                out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(time.getNano());
+            }
+            out.writeUTF(message.getTo()[0]);
+            out.writeUTF(message.getSubject() == null ? "" : message.getSubject());
+            byte[] text = (message.getText() == null ? "" : message.getText()).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(text.length);
+            out.write(text);
+        }
+        return bytes.toByteArray();
+    }
+
+    static SpooledMail decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version != RECORD_VERSION && version != LEGACY_RECORD_VERSION) {
+                throw new IllegalStateException("Unknown mail spool record version " + version);
+            }
+            UUID reminderId = readId(in);
+            UUID appointmentId = version == RECORD_VERSION ? readId(in) : null;
+            LocalDateTime appointmentTime = appointmentId != null
+                    ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC)
+                    : null;
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(in.readUTF());
+            message.setSubject(in.readUTF());
+            byte[] text = new byte[in.readInt()];
+            in.readFully(text);
+            message.setText(new String(text, StandardCharsets.UTF_8));
+            return new SpooledMail(reminderId, appointmentId, appointmentTime, message);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeId(DataOutputStream out, UUID id) throws IOException {
+        out.writeBoolean(id != null);
+        if (id != null) {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readId(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        try {
+            journal = MailSpoolJournal.open(Paths.get(properties.getDirectory()), properties.getSegmentBytes());
+        } catch (IOException e) {
+            log.error("Could not open the mail spool at {}; emails will not be spooled", properties.getDirectory(), e);
+            return;
+        }
+        if (!journal.isEmpty()) {
+            log.info("Mail spool has {} emails from a previous run to replay", journal.size());
+        }
+        running = true;
+        drainerThread = new Thread(this::drainLoop, "mail-spool-drainer");
+        drainerThread.setDaemon(true);
+        drainerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = drainerThread;
+        if (!running || thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        MailSpoolJournal current = journal;
+        journal = null;
+        if (thread.isAlive()) {
+            // Still mid-send; the drainer closes the journal itself once that returns
+            log.warn("Mail spool drainer did not stop within 10 s; leaving it to finish its current email");
+        } else {
+            close(current);
+        }
+        log.info("Mail spool stopped with {} emails pending", current.size());
+    }
+
+    private void close(MailSpoolJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the mail spool", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stops before the NotificationLogWriter (phase 0) so replay logs still get written
+    @Override
+    public int getPhase() {
+        return 1;
+    }
+
+    record SpooledMail(UUID reminderId, UUID appointmentId, LocalDateTime appointmentTime,
+                       SimpleMailMessage message) {
+    }
+}
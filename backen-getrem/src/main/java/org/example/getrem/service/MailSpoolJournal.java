@@ -0,0 +1,284 @@
+package org.example.getrem.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of opaque records kept in fixed-size, memory-mapped
+ * segment files, plus a small checkpoint file recording how far the reader
+ * has consumed. Records are framed as {@code [length][crc32][payload]}; a
+ * record is only visible once its length is written, and a torn tail left by
+ * a crash fails its checksum and is discarded on the next open.
+ * <p>
+ * One writer and one reader are supported; all methods synchronise on the
+ * journal, and each append or commit is forced to disk before it returns.
+ */
+public class MailSpoolJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int END_OF_SEGMENT = -1;
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    // Two alternating slots of [sequence][segment id][position][crc], so a torn write never loses both
+    private static final int CHECKPOINT_SLOT_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpoint;
+
+    private long checkpointSequence;
+    private long writeSegmentId;
+    private int writePosition;
+    private long readSegmentId;
+    private int readPosition;
+    private int peekedLength = -1;
+    private long pendingRecords;
+
+    private MailSpoolJournal(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, 2L * CHECKPOINT_SLOT_BYTES);
+    }
+
+    public static MailSpoolJournal open(Path directory, int segmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        MailSpoolJournal journal = new MailSpoolJournal(directory, segmentBytes);
+        try {
+            journal.recover();
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the record cannot fit in a segment
+     */
+    public synchronized void append(byte[] payload) throws IOException {
+        int recordBytes = HEADER_BYTES + payload.length;
+        if (recordBytes > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the spool segment size");
+        }
+        if (writePosition + recordBytes > segmentBytes) {
+            Segment full = segments.get(writeSegmentId);
+            if (writePosition + Integer.BYTES <= segmentBytes) {
+                full.buffer.putInt(writePosition, END_OF_SEGMENT);
+                full.buffer.force(writePosition, Integer.BYTES);
+            }
+            writeSegmentId++;
+            writePosition = 0;
+            segments.put(writeSegmentId, mapSegment(writeSegmentId));
+        }
+
+        MappedByteBuffer buffer = segments.get(writeSegmentId).buffer;
+        buffer.putInt(writePosition + Integer.BYTES, checksum(payload));
+        buffer.put(writePosition + HEADER_BYTES, payload);
+        // Length last: until it is non-zero the reader and recovery treat this slot as the tail
+        buffer.putInt(writePosition, payload.length);
+        buffer.force(writePosition, recordBytes);
+        writePosition += recordBytes;
+        pendingRecords++;
+    }
+
+    /**
+     * Returns the oldest unconsumed record without consuming it, or null when
+     * the journal is empty. Repeated calls return the same record until
+     * {@link #commit()}.
+     */
+    public synchronized byte[] peek() throws IOException {
+        while (true) {
+            if (readSegmentId == writeSegmentId && readPosition == writePosition) {
+                return null;
+            }
+            MappedByteBuffer buffer = segments.get(readSegmentId).buffer;
+            if (readPosition + Integer.BYTES > segmentBytes || buffer.getInt(readPosition) == END_OF_SEGMENT) {
+                retireReadSegment();
+                continue;
+            }
+            int length = buffer.getInt(readPosition);
+            byte[] payload = new byte[length];
+            buffer.get(readPosition + HEADER_BYTES, payload);
+            if (checksum(payload) != buffer.getInt(readPosition + Integer.BYTES)) {
+                throw new IOException("Corrupt spool record in segment " + readSegmentId + " at " + readPosition);
+            }
+            peekedLength = length;
+            return payload;
+        }
+    }
+
+    /** Consumes the record returned by the last {@link #peek()}. */
+    public synchronized void commit() throws IOException {
+        if (peekedLength < 0) {
+            throw new IllegalStateException("Nothing peeked to commit");
+        }
+        readPosition += HEADER_BYTES + peekedLength;
+        peekedLength = -1;
+        pendingRecords--;
+        writeCheckpoint();
+    }
+
+    public synchronized long size() {
+        return pendingRecords;
+    }
+
+    public synchronized boolean isEmpty() {
+        return pendingRecords == 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        segments.clear();
+        checkpointChannel.close();
+    }
+
+    private void recover() throws IOException {
+        readCheckpoint();
+
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(ids::add);
+        }
+        for (long id : ids) {
+            if (id < readSegmentId) {
+                Files.deleteIfExists(segmentPath(id));
+            } else {
+                segments.put(id, mapSegment(id));
+            }
+        }
+        if (segments.isEmpty()) {
+            readSegmentId = Math.max(readSegmentId, 1);
+            readPosition = 0;
+            segments.put(readSegmentId, mapSegment(readSegmentId));
+        } else if (segments.firstKey() > readSegmentId) {
+            // The checkpointed segment is gone; resume from the oldest one left
+            readSegmentId = segments.firstKey();
+            readPosition = 0;
+        }
+
+        // Walk from the checkpoint to the first empty or torn record to find the tail
+        long id = readSegmentId;
+        int position = readPosition;
+        pendingRecords = 0;
+        while (true) {
+            MappedByteBuffer buffer = segments.get(id).buffer;
+            boolean last = id == segments.lastKey();
+            int length = position + Integer.BYTES <= segmentBytes ? buffer.getInt(position) : END_OF_SEGMENT;
+            if (length == END_OF_SEGMENT && !last) {
+                id = segments.higherKey(id);
+                position = 0;
+                continue;
+            }
+            if (length > 0 && position + HEADER_BYTES + length <= segmentBytes) {
+                byte[] payload = new byte[length];
+                buffer.get(position + HEADER_BYTES, payload);
+                if (checksum(payload) == buffer.getInt(position + Integer.BYTES)) {
+                    position += HEADER_BYTES + length;
+                    pendingRecords++;
+                    continue;
+                }
+            }
+            if (!last) {
+                // A gap before the final segment can only be corruption; skip the rest of this one
+                id = segments.higherKey(id);
+                position = 0;
+                continue;
+            }
+            // Clear any torn bytes so they are never mistaken for a record
+            for (int i = position; i < segmentBytes; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+            writeSegmentId = id;
+            writePosition = position;
+            return;
+        }
+    }
+
+    private void retireReadSegment() throws IOException {
+        Segment retired = segments.remove(readSegmentId);
+        readSegmentId = segments.higherKey(readSegmentId);
+        readPosition = 0;
+        writeCheckpoint();
+        retired.channel.close();
+        Files.deleteIfExists(segmentPath(retired.id));
+    }
+
+    private void readCheckpoint() {
+        long bestSequence = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            int base = slot * CHECKPOINT_SLOT_BYTES;
+            long sequence = checkpoint.getLong(base);
+            long segmentId = checkpoint.getLong(base + Long.BYTES);
+            int position = checkpoint.getInt(base + 2 * Long.BYTES);
+            int crc = checkpoint.getInt(base + 2 * Long.BYTES + Integer.BYTES);
+            if (sequence > bestSequence && crc == checkpointChecksum(sequence, segmentId, position)) {
+                bestSequence = sequence;
+                readSegmentId = segmentId;
+                readPosition = position;
+            }
+        }
+        checkpointSequence = Math.max(bestSequence, 0);
+    }
+
+    private void writeCheckpoint() {
+        checkpointSequence++;
+        int base = (int) (checkpointSequence % 2) * CHECKPOINT_SLOT_BYTES;
+        checkpoint.putLong(base, checkpointSequence);
+        checkpoint.putLong(base + Long.BYTES, readSegmentId);
+        checkpoint.putInt(base + 2 * Long.BYTES, readPosition);
+        checkpoint.putInt(base + 2 * Long.BYTES + Integer.BYTES,
+                checkpointChecksum(checkpointSequence, readSegmentId, readPosition));
+        checkpoint.force(base, CHECKPOINT_SLOT_BYTES);
+    }
+
+    private Segment mapSegment(long id) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(id),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static int checkpointChecksum(long sequence, long segmentId, int position) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(CHECKPOINT_SLOT_BYTES - Integer.BYTES)
+                .putLong(sequence).putLong(segmentId).putInt(position).array());
+        return (int) crc.getValue();
+    }
+
+    private record Segment(long id, FileChannel channel, MappedByteBuffer buffer) {
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.getrem.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.NotificationExecutionProperties;
+import org.example.getrem.enums.NotificationChannel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs blocking notification work. In the default mode tasks run inline on
+ * the caller's thread, exactly as before. With virtual threads enabled each
+ * task gets its own virtual thread, and per-provider semaphores cap how many
+ * sends are in flight so thousands of tasks need no pool sizing.
+ */
+@Component
+@Slf4j
+public class NotificationExecutor {
+
+    private final ExecutorService executor;
+    private final Map<NotificationChannel, Semaphore> permits = new EnumMap<>(NotificationChannel.class);
+
+    @Autowired
+    public NotificationExecutor(NotificationExecutionProperties properties) {
+        this(properties, properties.isVirtualThreads() ? Executors.newVirtualThreadPerTaskExecutor() : null);
+    }
+
+    public NotificationExecutor(NotificationExecutionProperties properties, ExecutorService executor) {
+        this.executor = executor;
+        for (NotificationChannel channel : NotificationChannel.values()) {
+            int limit = properties.getMaxConcurrent().getOrDefault(channel, Integer.MAX_VALUE);
+            permits.put(channel, new Semaphore(Math.max(1, limit), true));
+        }
+        log.info("Notification execution mode: {}", executor == null ? "inline" : "concurrent");
+    }
+
+    public boolean isConcurrent() {
+        return executor != null;
+    }
+
+    /**
+     * Applies {@code task} to every item and waits for all of them. Returns
+     * the failure for each item (or {@code null}) in input order; a failing
+     * item never stops the others.
+     */
+    public <T> List<Throwable> runAll(List<T> items, Consumer<T> task) {
+        List<Throwable> failures = new ArrayList<>(items.size());
+        if (executor == null || items.size() < 2) {
+            for (T item : items) {
+                try {
+                    task.accept(item);
+                    failures.add(null);
+                } catch (Exception e) {
+                    failures.add(e);
+                }
+            }
+            return failures;
+        }
+
+        List<Future<?>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(executor.submit(() -> task.accept(item)));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+                failures.add(null);
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.add(e);
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Runs a provider call while holding one of the channel's permits.
+     */
+    public <V> V withPermit(NotificationChannel channel, Callable<V> call) throws Exception {
+        Semaphore semaphore = permits.get(channel);
+        semaphore.acquire();
+        try {
+            return call.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public int availablePermits(NotificationChannel channel) {
+        return permits.get(channel).availablePermits();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Notification executor did not finish in-flight sends before shutdown");
+                executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package org.example.getrem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.DispatchProperties;
+import org.example.getrem.config.NotificationLogArchiveProperties;
+import org.example.getrem.dto.notification.NotificationLogArchiveResult;
+import org.example.getrem.dto.notification.NotificationLogArchiveSegment;
+import org.example.getrem.dto.notification.NotificationLogResponse;
+import org.example.getrem.exception.NotFoundException;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.repository.ChangeSequenceRepository;
+import org.example.getrem.repository.NotificationLogRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves notification logs past the retention age out of the hot table into
+ * one gzip NDJSON segment per month. Each chunk is appended to its segment
+ * as a new gzip member and fsynced before its rows are deleted, so a crash
+ * between the two can only duplicate lines in the archive (readers can
+ * dedupe on id), never lose them.
+ *
+ * <p>Every node shares the table, so a run first takes a lease kept in the
+ * change_sequence table and renews it with each chunk it deletes. The
+ * segments live on one node's disk: with {@code nodeId} set, only that node
+ * runs the nightly archive and its directory is the archive; left blank, the
+ * directory has to be storage every node mounts.
+ */
+@Component
+@Slf4j
+public class NotificationLogArchiver {
+
+    private static final String SEGMENT_PREFIX = "notification-log-";
+    private static final String SEGMENT_SUFFIX = ".ndjson.gz";
+    private static final String LEASE = "notification-log-archive";
+
+    private final NotificationLogRepository notificationLogRepository;
+    private final ChangeSequenceRepository sequenceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final NotificationLogArchiveProperties properties;
+    private final DispatchProperties dispatchProperties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    // Appends hold the write lock, so readers only ever see whole gzip members
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+    public NotificationLogArchiver(NotificationLogRepository notificationLogRepository,
+                                   ChangeSequenceRepository sequenceRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper,
+                                   NotificationLogArchiveProperties properties,
+                                   DispatchProperties dispatchProperties) {
+        this.notificationLogRepository = notificationLogRepository;
+        this.sequenceRepository = sequenceRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.dispatchProperties = dispatchProperties;
+    }
+
+    @Scheduled(cron = "${getrem.notification-log.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!isArchiveNode()) {
+            return;
+        }
+        try {
+            NotificationLogArchiveResult result = archive();
+            if (result.getArchivedRows() > 0) {
+                log.info("Archived {} notification logs older than {} into {}",
+                        result.getArchivedRows(), result.getCutoff(), result.getSegments());
+            }
+        } catch (Exception e) {
+            log.error("Notification log archive run failed", e);
+        }
+    }
+
+    public NotificationLogArchiveResult archive() {
+        if (!isArchiveNode()) {
+            throw new ValidationException("Notification logs are archived on node " + properties.getNodeId());
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ValidationException("A notification log archive run is already in progress");
+        }
+        long lease = acquireLease();
+        if (lease < 0) {
+            running.set(false);
+            throw new ValidationException("A notification log archive run is already in progress on another node");
+        }
+        try {
+            long start = System.nanoTime();
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(properties.getRetentionDays());
+            Path directory = Files.createDirectories(archiveDirectory());
+            Set<String> segments = new TreeSet<>();
+            long archived = 0;
+            int chunks = 0;
+
+            while (true) {
+                List<NotificationLogResponse> chunk = notificationLogRepository.findArchivableBefore(
+                        cutoff, PageRequest.of(0, properties.getChunkSize()));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+
+                // Rows come oldest first, so a chunk spans at most a couple of months
+                Map<YearMonth, List<NotificationLogResponse>> byMonth = new TreeMap<>();
+                for (NotificationLogResponse row : chunk) {
+                    byMonth.computeIfAbsent(YearMonth.from(row.getTimestamp()), m -> new ArrayList<>()).add(row);
+                }
+                for (Map.Entry<YearMonth, List<NotificationLogResponse>> entry : byMonth.entrySet()) {
+                    appendToSegment(directory.resolve(segmentFileName(entry.getKey())), entry.getValue());
+                    segments.add(entry.getKey().toString());
+                }
+
+                List<UUID> ids = chunk.stream().map(NotificationLogResponse::getId).toList();
+                long held = lease;
+                long renewed = System.currentTimeMillis() + properties.getLeaseMs();
+                transactionTemplate.executeWithoutResult(status -> {
+                    // Another node took over after our lease ran out; its run deletes these rows instead
+                    if (sequenceRepository.replaceIfHeld(LEASE, held, renewed) == 0) {
+                        throw new IllegalStateException("Notification log archive lease was lost");
+                    }
+                    notificationLogRepository.deleteByIdIn(ids);
+                });
+                lease = renewed;
+                archived += chunk.size();
+                chunks++;
+
+                if (chunk.size() < properties.getChunkSize()) {
+                    break;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(properties.getChunkPauseMs()));
+            }
+
+            return NotificationLogArchiveResult.builder()
+                    .cutoff(cutoff)
+                    .archivedRows(archived)
+                    .chunks(chunks)
+                    .segments(List.copyOf(segments))
+                    .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write notification log archive", e);
+        } finally {
+            releaseLease(lease);
+            running.set(false);
+        }
+    }
+
+    public List<NotificationLogArchiveSegment> listSegments() {
+        Path directory = archiveDirectory();
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        List<NotificationLogArchiveSegment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                YearMonth month = monthOf(file.getFileName().toString());
+                if (month == null) {
+                    continue;
+                }
+                segments.add(NotificationLogArchiveSegment.builder()
+                        .month(month.toString())
+                        .fileName(file.getFileName().toString())
+                        .compressedBytes(Files.size(file))
+                        .lastModified(LocalDateTime.ofInstant(
+                                Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault()))
+                        .build());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list notification log archive", e);
+        }
+        segments.sort(Comparator.comparing(NotificationLogArchiveSegment::getMonth));
+        return segments;
+    }
+
+    /**
+     * Opens a month's segment as it stood when this is called. Rows appended
+     * while the caller is still reading are not included.
+     *
+     * @param decompress NDJSON lines when true, the raw gzip bytes otherwise
+     */
+    public InputStream openSegment(String month, boolean decompress) {
+        YearMonth yearMonth = parseMonth(month);
+        Path file = archiveDirectory().resolve(segmentFileName(yearMonth));
+        segmentLock.readLock().lock();
+        try {
+            if (!Files.exists(file)) {
+                throw new NotFoundException("No archived notification logs for " + yearMonth);
+            }
+            long committedLength = Files.size(file);
+            InputStream raw = new BufferedInputStream(
+                    new LimitedInputStream(Files.newInputStream(file), committedLength), 64 * 1024);
+            return decompress ? new GZIPInputStream(raw, 64 * 1024) : raw;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open notification log archive for " + yearMonth, e);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private boolean isArchiveNode() {
+        String owner = properties.getNodeId();
+        return owner == null || owner.isBlank() || owner.equals(dispatchProperties.getNodeId());
+    }
+
+    // Returns the lease's expiry, or -1 while another node holds it
+    private long acquireLease() {
+        long now = System.currentTimeMillis();
+        long until = now + properties.getLeaseMs();
+        Boolean taken = transactionTemplate.execute(status ->
+                sequenceRepository.takeIfExpired(LEASE, now, until) == 1);
+        if (Boolean.TRUE.equals(taken)) {
+            return until;
+        }
+        try {
+            Boolean created = transactionTemplate.execute(status ->
+                    sequenceRepository.findValue(LEASE).isEmpty() && sequenceRepository.create(LEASE, until) == 1);
+            return Boolean.TRUE.equals(created) ? until : -1;
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the row first and holds the lease
+            return -1;
+        }
+    }
+
+    private void releaseLease(long held) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> sequenceRepository.replaceIfHeld(LEASE, held, 0));
+        } catch (RuntimeException e) {
+            // It runs out on its own after leaseMs
+            log.warn("Failed to release notification log archive lease", e);
+        }
+    }
+
+    private void appendToSegment(Path file, List<NotificationLogResponse> rows) throws IOException {
+        segmentLock.writeLock().lock();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long committedLength = channel.size();
+            try {
+                GZIPOutputStream gzip = new GZIPOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+                for (NotificationLogResponse row : rows) {
+                    writer.write(objectMapper.writeValueAsString(row));
+                    writer.write('\n');
+                }
+                writer.flush();
+                gzip.finish();
+                channel.force(true);
+            } catch (IOException | RuntimeException e) {
+                // Drop the partial member so earlier ones stay readable
+                channel.truncate(committedLength);
+                throw e;
+            }
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    private Path archiveDirectory() {
+        return Paths.get(properties.getDirectory());
+    }
+
+    private static String segmentFileName(YearMonth month) {
+        return SEGMENT_PREFIX + month + SEGMENT_SUFFIX;
+    }
+
+    private static YearMonth monthOf(String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(fileName.substring(SEGMENT_PREFIX.length(),
+                    fileName.length() - SEGMENT_SUFFIX.length()));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static YearMonth parseMonth(String month) {
+        try {
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Month must be in yyyy-MM format");
+        }
+    }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
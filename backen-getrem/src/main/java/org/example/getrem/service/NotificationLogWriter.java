@@ -0,0 +1,214 @@
+package org.example.getrem.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.NotificationLogWriterProperties;
+import org.example.getrem.dto.notification.NotificationLogWriterStats;
+import org.example.getrem.model.NotificationLog;
+import org.example.getrem.model.Reminder;
+import org.example.getrem.repository.NotificationLogRepository;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Takes NotificationLog writes off the send path. Dispatch threads publish
+ * into a {@link BoundedRingBuffer} once their transaction commits, and a
+ * single writer thread drains it in multi-row batches. Publishers only block
+ * when the buffer is full; on shutdown the buffer is drained to the database
+ * before the context closes.
+ */
+@Component
+@Slf4j
+public class NotificationLogWriter implements SmartLifecycle {
+
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final NotificationLogRepository notificationLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final NotificationLogWriterProperties properties;
+    private final BoundedRingBuffer<NotificationLog> buffer;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder blockedPublishes = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    public NotificationLogWriter(NotificationLogRepository notificationLogRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 NotificationLogWriterProperties properties) {
+        this.notificationLogRepository = notificationLogRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The fallback write can run in afterCommit, where joining the finished transaction would never commit
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.properties = properties;
+        this.buffer = new BoundedRingBuffer<>(properties.getCapacity());
+    }
+
+    /**
+     * Queues logs for writing once the current transaction (if any) commits,
+     * so the writer never inserts a log whose reminder row is not yet visible.
+     */
+    public void publishAll(Collection<NotificationLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        if (!properties.isEnabled()) {
+            notificationLogRepository.saveAll(logs);
+            return;
+        }
+        List<NotificationLog> pending = List.copyOf(logs);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pending.forEach(NotificationLogWriter.this::enqueue);
+                }
+            });
+        } else {
+            pending.forEach(this::enqueue);
+        }
+    }
+
+    public void publish(NotificationLog notificationLog) {
+        publishAll(List.of(notificationLog));
+    }
+
+    public NotificationLogWriterStats getStats() {
+        return NotificationLogWriterStats.builder()
+                .running(running)
+                .capacity(buffer.capacity())
+                .depth(buffer.size())
+                .published(published.sum())
+                .written(written.sum())
+                .batches(batches.sum())
+                .blockedPublishes(blockedPublishes.sum())
+                .blockedMillis(TimeUnit.NANOSECONDS.toMillis(blockedNanos.sum()))
+                .failedWrites(failedWrites.sum())
+                .build();
+    }
+
+    private void enqueue(NotificationLog notificationLog) {
+        if (!running) {
+            write(List.of(notificationLog));
+            return;
+        }
+        if (!buffer.offer(notificationLog)) {
+            blockedPublishes.increment();
+            long start = System.nanoTime();
+            do {
+                LockSupport.unpark(writerThread);
+                LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+                if (!running) {
+                    blockedNanos.add(System.nanoTime() - start);
+                    write(List.of(notificationLog));
+                    return;
+                }
+            } while (!buffer.offer(notificationLog));
+            blockedNanos.add(System.nanoTime() - start);
+        }
+        published.increment();
+    }
+
+    private void drainLoop() {
+        List<NotificationLog> batch = new ArrayList<>(properties.getBatchSize());
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        while (running || !buffer.isEmpty()) {
+            batch.clear();
+            buffer.drainTo(batch, properties.getBatchSize());
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(idleNanos);
+                continue;
+            }
+            write(batch);
+        }
+    }
+
+    private void write(List<NotificationLog> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    for (NotificationLog notificationLog : batch) {
+                        // Logs come from other sessions; a reference avoids touching the reminder row
+                        notificationLog.setReminder(entityManager.getReference(Reminder.class,
+                                notificationLog.getReminder().getId()));
+                    }
+                    notificationLogRepository.saveAll(batch);
+                });
+                written.add(batch.size());
+                batches.increment();
+                return;
+            } catch (Exception e) {
+                if (attempt >= properties.getMaxRetries()) {
+                    log.error("Dropping {} notification logs after {} attempts", batch.size(), attempt, e);
+                    failedWrites.add(batch.size());
+                    return;
+                }
+                log.warn("Failed to write {} notification logs (attempt {}), retrying", batch.size(), attempt, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L << Math.min(attempt, 6)));
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::drainLoop, "notification-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = writerThread;
+        if (!running || thread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("Notification log writer did not drain within 30s; {} logs left", buffer.size());
+        } else {
+            log.info("Notification log writer stopped after writing {} logs", written.sum());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stop late so the web server and scheduler have stopped publishing first
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
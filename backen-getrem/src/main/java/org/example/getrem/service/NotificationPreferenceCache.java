@@ -0,0 +1,108 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.NotificationPreferenceProperties;
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
+import org.example.getrem.model.NotificationPreference;
+import org.example.getrem.repository.NotificationPreferenceRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU cache of client notification preferences. Misses for a
+ * whole dispatch batch are resolved with a single IN query, and clients
+ * without a stored preference are cached as defaults so they never cost a
+ * round trip again until evicted.
+ */
+@Component
+public class NotificationPreferenceCache {
+
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final Map<UUID, NotificationPreferenceSnapshot> entries;
+    // Bumped on every invalidation so a load racing with an update is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public NotificationPreferenceCache(NotificationPreferenceRepository preferenceRepository,
+                                       NotificationPreferenceProperties properties) {
+        this.preferenceRepository = preferenceRepository;
+        int maxSize = Math.max(1, properties.getCacheSize());
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, NotificationPreferenceSnapshot> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public NotificationPreferenceSnapshot get(UUID clientId) {
+        return getAll(List.of(clientId)).get(clientId);
+    }
+
+    public Map<UUID, NotificationPreferenceSnapshot> getAll(Collection<UUID> clientIds) {
+        Map<UUID, NotificationPreferenceSnapshot> result = new HashMap<>();
+        List<UUID> misses;
+        synchronized (entries) {
+            for (UUID clientId : clientIds) {
+                NotificationPreferenceSnapshot cached = entries.get(clientId);
+                if (cached != null) {
+                    result.put(clientId, cached);
+                }
+            }
+        }
+        misses = clientIds.stream()
+                .filter(id -> !result.containsKey(id))
+                .distinct()
+                .toList();
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        long generation = invalidations.get();
+        Map<UUID, NotificationPreferenceSnapshot> loaded = new HashMap<>();
+        for (NotificationPreference preference : preferenceRepository.findByClientIdIn(misses)) {
+            loaded.put(preference.getClient().getId(), NotificationPreferenceSnapshot.of(preference));
+        }
+        for (UUID clientId : misses) {
+            loaded.computeIfAbsent(clientId, NotificationPreferenceSnapshot::defaults);
+        }
+
+        synchronized (entries) {
+            if (generation == invalidations.get()) {
+                entries.putAll(loaded);
+            }
+        }
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * Evicts a client's entry now and, when called inside a transaction,
+     * again after commit so readers cannot re-cache the pre-update row.
+     */
+    public void invalidate(UUID clientId) {
+        evict(clientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(clientId);
+                }
+            });
+        }
+    }
+
+    private void evict(UUID clientId) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(clientId);
+        }
+    }
+}
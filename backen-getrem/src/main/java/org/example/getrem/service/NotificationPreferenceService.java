@@ -0,0 +1,13 @@
+package org.example.getrem.service;
+
+import org.example.getrem.dto.preference.NotificationPreferenceRequest;
+import org.example.getrem.dto.preference.NotificationPreferenceResponse;
+
+import java.util.UUID;
+
+public interface NotificationPreferenceService {
+
+    NotificationPreferenceResponse getPreferences(UUID clientId);
+
+    NotificationPreferenceResponse updatePreferences(UUID clientId, NotificationPreferenceRequest request);
+}
@@ -1,14 +1,23 @@
 package org.example.getrem.service;
 
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
 import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.model.NotificationLog;
 import org.example.getrem.model.Reminder;
 
+import java.util.List;
+
 public interface NotificationService {
 
     void sendNotification(Reminder reminder, NotificationChannel channel, String recipient);
 
     void sendAllChannelNotifications(Reminder reminder, String phoneNumber, String email);
 
+    // Honours opt-outs, the preferred channel and locale; quiet hours are the caller's concern
+    void sendAllChannelNotifications(Reminder reminder, String phoneNumber, String email, NotificationPreferenceSnapshot preferences);
+
+    // The same sends without touching the database, for fanning out across threads; the caller publishes the logs
+    List<NotificationLog> deliverAllChannels(Reminder reminder, String phoneNumber, String email, NotificationPreferenceSnapshot preferences);
+
     void sendTestEmail(String to, String subject, String body);
 }
-
@@ -0,0 +1,490 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.ReminderForecastProperties;
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
+import org.example.getrem.dto.reminder.ReminderForecastResponse;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.Reminder;
+import org.example.getrem.model.ReminderPlan;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory histogram of PENDING reminders per minute, broken down by
+ * reminder type and expected channel. Reminders still waiting in an
+ * appointment's plan count too, under the same key their row will have, so
+ * materialising them does not change the forecast. It is kept up to date as
+ * reminders are scheduled, cancelled and sent, so forecasts never touch the table.
+ * The full rebuild only runs on startup and on a slow cron to correct drift;
+ * changes committed while it reads the tables are replayed onto its result.
+ * <p>
+ * This node's writes are applied as they commit. Before each forecast the
+ * index catches up on the shared {@link AppointmentChangeLog}, as
+ * {@link CalendarCache} does, reloading the appointments other nodes changed,
+ * so every node forecasts the whole load.
+ */
+@Component
+@Slf4j
+public class ReminderLoadIndex {
+
+    private static final ReminderType[] TYPES = ReminderType.values();
+    private static final NotificationChannel[] CHANNELS = NotificationChannel.values();
+    // Further behind than this, a full rebuild is cheaper than reloading appointment by appointment
+    private static final int MAX_CATCH_UP_ENTRIES = 1000;
+
+    private final ReminderRepository reminderRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final NotificationPreferenceCache preferenceCache;
+    private final ReminderForecastProperties properties;
+    private final AppointmentChangeLog changeLog;
+
+    private final Object deltaLock = new Object();
+    private volatile State state = new State();
+    // Deltas applied while a rebuild is running, replayed onto the rebuilt state; null otherwise
+    private List<Consumer<State>> rebuildDeltas;
+    // Change log watermark the index reflects; -1 until the first rebuild
+    private final Object catchUpLock = new Object();
+    private volatile long syncedSequence = -1;
+
+    public ReminderLoadIndex(ReminderRepository reminderRepository,
+                             AppointmentRepository appointmentRepository,
+                             NotificationPreferenceCache preferenceCache,
+                             ReminderForecastProperties properties,
+                             AppointmentChangeLog changeLog) {
+        this.reminderRepository = reminderRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.preferenceCache = preferenceCache;
+        this.properties = properties;
+        this.changeLog = changeLog;
+    }
+
+    public void onScheduled(Reminder reminder) {
+        onScheduled(reminder.getAppointment(), reminder.getType(), reminder.getScheduledTime());
+    }
+
+    public void onScheduled(Appointment appointment, ReminderType type, LocalDateTime scheduledTime) {
+        Clients client = appointment.getClient();
+        applyOnCommit(new Add(new Key(appointment.getId(), type, scheduledTime), client.getId(), client.getEmail(),
+                client.getPhone()));
+    }
+
+    public void onRemoved(Reminder reminder) {
+        onRemoved(reminder.getAppointment(), reminder.getType(), reminder.getScheduledTime());
+    }
+
+    public void onRemoved(Appointment appointment, ReminderType type, LocalDateTime scheduledTime) {
+        Key key = new Key(appointment.getId(), type, scheduledTime);
+        applyOnCommit((index, preferences) -> index.remove(key));
+    }
+
+    /** For set-wise cancellations that never load the affected reminders. */
+    public void onAppointmentsCancelled(Set<UUID> appointmentIds) {
+        applyOnCommit((index, preferences) -> index.removeAppointments(appointmentIds));
+    }
+
+    public void onRescheduled(Reminder reminder, LocalDateTime previousTime) {
+        onRemoved(reminder.getAppointment(), reminder.getType(), previousTime);
+        onScheduled(reminder);
+    }
+
+    public ReminderForecastResponse forecast(int hours, ChronoUnit granularity) {
+        if (granularity != ChronoUnit.MINUTES && granularity != ChronoUnit.HOURS) {
+            throw new ValidationException("Granularity must be MINUTES or HOURS");
+        }
+        if (hours < 1 || hours > properties.getMaxHours()) {
+            throw new ValidationException("Hours must be between 1 and " + properties.getMaxHours());
+        }
+
+        catchUp();
+        LocalDateTime from = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime to = from.plusHours(hours);
+        long fromMinute = toMinute(from);
+        long toMinute = toMinute(to);
+        long bucketMinutes = granularity.getDuration().toMinutes();
+
+        State current = state;
+        long overdue = 0;
+        for (Bucket bucket : current.buckets.headMap(fromMinute, false).values()) {
+            overdue += bucket.total();
+        }
+
+        List<ReminderForecastResponse.Bucket> buckets = new ArrayList<>();
+        long total = 0;
+        long[] byType = new long[TYPES.length];
+        long[] byChannel = new long[CHANNELS.length];
+        long openBucket = Long.MIN_VALUE;
+        for (Map.Entry<Long, Bucket> entry : current.buckets.subMap(fromMinute, true, toMinute, false).entrySet()) {
+            Bucket bucket = entry.getValue();
+            long bucketTotal = bucket.total();
+            if (bucketTotal == 0) {
+                continue;
+            }
+            long bucketStart = Math.floorDiv(entry.getKey(), bucketMinutes) * bucketMinutes;
+            if (bucketStart != openBucket && openBucket != Long.MIN_VALUE) {
+                buckets.add(toResponseBucket(openBucket, byType, byChannel));
+                byType = new long[TYPES.length];
+                byChannel = new long[CHANNELS.length];
+            }
+            openBucket = bucketStart;
+            bucket.addTo(byType, byChannel);
+            total += bucketTotal;
+        }
+        if (openBucket != Long.MIN_VALUE) {
+            buckets.add(toResponseBucket(openBucket, byType, byChannel));
+        }
+
+        return ReminderForecastResponse.builder()
+                .from(from)
+                .to(to)
+                .granularity(granularity)
+                .total(total)
+                .overdue(overdue)
+                .buckets(buckets)
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${getrem.reminder-forecast.rebuild-cron:0 0 */6 * * *}")
+    public synchronized void rebuild() {
+        // Read first, so changes committed during the rebuild are caught up on again
+        long committed = changeLog.committedSequence();
+        synchronized (deltaLock) {
+            rebuildDeltas = new ArrayList<>();
+        }
+        try {
+            rebuildFromTables();
+        } finally {
+            synchronized (deltaLock) {
+                rebuildDeltas = null;
+            }
+        }
+        synchronized (catchUpLock) {
+            syncedSequence = Math.max(syncedSequence, committed);
+        }
+    }
+
+    private void rebuildFromTables() {
+        List<Object[]> rows = reminderRepository.findPendingForecastRows();
+        State rebuilt = new State();
+        int planned = load(rebuilt, rows, appointmentRepository.findPlannedForecastRows());
+        synchronized (deltaLock) {
+            // Adds and removes are idempotent, so deltas the tables already reflect replay harmlessly
+            rebuildDeltas.forEach(delta -> delta.accept(rebuilt));
+            state = rebuilt;
+        }
+        log.info("Rebuilt reminder forecast index with {} pending and {} planned reminders", rows.size(), planned);
+    }
+
+    /**
+     * Reloads the appointments other nodes changed since the last watermark
+     * seen. Costs one counter read when nothing changed; callers wait here
+     * only while another thread is catching up.
+     */
+    private void catchUp() {
+        long committed = changeLog.committedSequence();
+        if (committed <= syncedSequence) {
+            return;
+        }
+        synchronized (catchUpLock) {
+            long since = syncedSequence;
+            // Before the startup rebuild there is nothing to catch up onto
+            if (since < 0 || committed <= since) {
+                return;
+            }
+            List<Object[]> entries = committed - since > MAX_CATCH_UP_ENTRIES || changeLog.floor() > since
+                    ? null
+                    : changeLog.entriesBetween(since, committed);
+            if (entries != null && entries.size() <= MAX_CATCH_UP_ENTRIES) {
+                Set<UUID> appointmentIds = new HashSet<>();
+                for (Object[] entry : entries) {
+                    // This node's own changes were applied as they committed
+                    if (!changeLog.isLocal((Long) entry[0])) {
+                        appointmentIds.add((UUID) entry[1]);
+                    }
+                }
+                if (!appointmentIds.isEmpty()) {
+                    reload(appointmentIds);
+                }
+                syncedSequence = committed;
+                return;
+            }
+        }
+        // Outside catchUpLock, which rebuild() takes after the index's own monitor
+        rebuild();
+    }
+
+    // Replaces what the index holds for these appointments with what the tables hold now
+    private void reload(Set<UUID> appointmentIds) {
+        State loaded = new State();
+        load(loaded, reminderRepository.findPendingForecastRows(appointmentIds),
+                appointmentRepository.findPlannedForecastRows(appointmentIds));
+        apply(index -> {
+            index.removeAppointments(appointmentIds);
+            loaded.entries.forEach((key, entry) -> index.add(key, entry.channelMask()));
+        });
+    }
+
+    // Adds pending reminder rows and planned entries to the state; returns how many planned entries it added
+    private int load(State target, List<Object[]> rows, List<Object[]> plannedRows) {
+        Map<UUID, NotificationPreferenceSnapshot> preferences = preferenceCache.getAll(rows.stream()
+                .map(row -> (UUID) row[3])
+                .collect(Collectors.toSet()));
+        for (Object[] row : rows) {
+            Key key = new Key((UUID) row[0], (ReminderType) row[1], (LocalDateTime) row[2]);
+            NotificationPreferenceSnapshot clientPreferences = preferences.get((UUID) row[3]);
+            target.add(key, channelMask(clientPreferences.expectedChannels((String) row[4], (String) row[5])));
+        }
+
+        Map<UUID, NotificationPreferenceSnapshot> plannedPreferences = preferenceCache.getAll(plannedRows.stream()
+                .map(row -> (UUID) row[4])
+                .collect(Collectors.toSet()));
+        int planned = 0;
+        for (Object[] row : plannedRows) {
+            LocalDateTime appointmentTime = (LocalDateTime) row[1];
+            LocalDateTime nextDueAt = (LocalDateTime) row[3];
+            int channelMask = channelMask(plannedPreferences.get((UUID) row[4])
+                    .expectedChannels((String) row[5], (String) row[6]));
+            for (ReminderPlan.Entry entry : ((ReminderPlan) row[2]).entries()) {
+                LocalDateTime time = entry.timeFor(appointmentTime);
+                // Entries before the next due time already have rows, counted above
+                if (!time.isBefore(nextDueAt)) {
+                    target.add(new Key((UUID) row[0], entry.type(), time), channelMask);
+                    planned++;
+                }
+            }
+        }
+        return planned;
+    }
+
+    private void apply(Consumer<State> delta) {
+        synchronized (deltaLock) {
+            delta.accept(state);
+            if (rebuildDeltas != null) {
+                rebuildDeltas.add(delta);
+            }
+        }
+    }
+
+    /**
+     * Applies a change once the current transaction commits. Changes made in
+     * one transaction are applied together, in order, with a single
+     * preference lookup for every client they add reminders for.
+     */
+    private void applyOnCommit(Change change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyAll(List.of(change));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(change);
+    }
+
+    private void applyAll(List<Change> changes) {
+        Set<UUID> clientIds = changes.stream()
+                .filter(Add.class::isInstance)
+                .map(change -> ((Add) change).clientId())
+                .collect(Collectors.toSet());
+        Map<UUID, NotificationPreferenceSnapshot> preferences = clientIds.isEmpty()
+                ? Map.of()
+                : preferenceCache.getAll(clientIds);
+        apply(index -> changes.forEach(change -> change.applyTo(index, preferences)));
+    }
+
+    private static int channelMask(List<NotificationChannel> channels) {
+        int mask = 0;
+        for (NotificationChannel channel : channels) {
+            mask |= 1 << channel.ordinal();
+        }
+        return mask;
+    }
+
+    private static ReminderForecastResponse.Bucket toResponseBucket(long startMinute, long[] byType, long[] byChannel) {
+        Map<ReminderType, Long> types = new EnumMap<>(ReminderType.class);
+        long total = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            if (byType[i] > 0) {
+                types.put(TYPES[i], byType[i]);
+                total += byType[i];
+            }
+        }
+        Map<NotificationChannel, Long> channels = new EnumMap<>(NotificationChannel.class);
+        for (int i = 0; i < CHANNELS.length; i++) {
+            if (byChannel[i] > 0) {
+                channels.put(CHANNELS[i], byChannel[i]);
+            }
+        }
+        return ReminderForecastResponse.Bucket.builder()
+                .start(LocalDateTime.ofEpochSecond(startMinute * 60, 0, ZoneOffset.UTC))
+                .total(total)
+                .byType(types)
+                .byChannel(channels)
+                .build();
+    }
+
+    private static long toMinute(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    // The changes one transaction made to the index, held until it commits
+    private final class PendingChanges implements TransactionSynchronization {
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(ReminderLoadIndex.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ReminderLoadIndex.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            applyAll(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ReminderLoadIndex.this);
+        }
+    }
+
+    private interface Change {
+        void applyTo(State index, Map<UUID, NotificationPreferenceSnapshot> preferences);
+    }
+
+    // Client details are captured while the entity is attached; channels are resolved with the rest of the batch
+    private record Add(Key key, UUID clientId, String email, String phone) implements Change {
+        @Override
+        public void applyTo(State index, Map<UUID, NotificationPreferenceSnapshot> preferences) {
+            index.add(key, channelMask(preferences.get(clientId).expectedChannels(email, phone)));
+        }
+    }
+
+    // A reminder is identified by what it fires for, so adds and removes are idempotent
+    private record Key(UUID appointmentId, ReminderType type, LocalDateTime scheduledTime) {
+    }
+
+    private record Entry(long minute, ReminderType type, int channelMask) {
+    }
+
+    private static final class State {
+        private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+        private final NavigableMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+        // Only read by writers, which hold deltaLock once the state is published
+        private final Map<UUID, Set<Key>> keysByAppointment = new HashMap<>();
+
+        void add(Key key, int channelMask) {
+            Entry entry = new Entry(toMinute(key.scheduledTime()), key.type(), channelMask);
+            if (entries.putIfAbsent(key, entry) == null) {
+                buckets.computeIfAbsent(entry.minute(), minute -> new Bucket()).apply(entry, 1);
+                keysByAppointment.computeIfAbsent(key.appointmentId(), id -> new HashSet<>()).add(key);
+            }
+        }
+
+        void remove(Key key) {
+            if (removeEntry(key)) {
+                Set<Key> keys = keysByAppointment.get(key.appointmentId());
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    keysByAppointment.remove(key.appointmentId());
+                }
+            }
+        }
+
+        void removeAppointments(Set<UUID> appointmentIds) {
+            for (UUID appointmentId : appointmentIds) {
+                Set<Key> keys = keysByAppointment.remove(appointmentId);
+                if (keys != null) {
+                    keys.forEach(this::removeEntry);
+                }
+            }
+        }
+
+        // Buckets that fall to zero are dropped so the map only holds minutes with something due
+        private boolean removeEntry(Key key) {
+            Entry entry = entries.remove(key);
+            if (entry == null) {
+                return false;
+            }
+            Bucket bucket = buckets.get(entry.minute());
+            if (bucket != null) {
+                bucket.apply(entry, -1);
+                if (bucket.total() == 0) {
+                    buckets.remove(entry.minute(), bucket);
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Bucket {
+        private final AtomicLongArray byType = new AtomicLongArray(TYPES.length);
+        private final AtomicLongArray byChannel = new AtomicLongArray(CHANNELS.length);
+
+        void apply(Entry entry, int delta) {
+            byType.addAndGet(entry.type().ordinal(), delta);
+            for (int i = 0; i < CHANNELS.length; i++) {
+                if ((entry.channelMask() & (1 << i)) != 0) {
+                    byChannel.addAndGet(i, delta);
+                }
+            }
+        }
+
+        long total() {
+            long total = 0;
+            for (int i = 0; i < byType.length(); i++) {
+                total += byType.get(i);
+            }
+            return total;
+        }
+
+        void addTo(long[] types, long[] channels) {
+            for (int i = 0; i < types.length; i++) {
+                types[i] += byType.get(i);
+            }
+            for (int i = 0; i < channels.length; i++) {
+                channels[i] += byChannel.get(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.ReminderPlanProperties;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.repository.AppointmentRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves the reminder horizon forward. Appointments keep their reminders as a
+ * compact plan, and only reminders due within the horizon exist as rows, so
+ * the PENDING set, its index and the cost of a reschedule stay proportional
+ * to what is actually imminent rather than to everything ever booked.
+ */
+@Component
+@Slf4j
+public class ReminderMaterializer {
+
+    private final AppointmentRepository appointmentRepository;
+    private final ReminderService reminderService;
+    private final ReminderPlanProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public ReminderMaterializer(AppointmentRepository appointmentRepository,
+                                ReminderService reminderService,
+                                ReminderPlanProperties properties,
+                                PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.reminderService = reminderService;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /** Creates rows for planned reminders due within the horizon. Returns the number created. */
+    @Scheduled(fixedDelayString = "${getrem.reminder-plan.materialize-interval-ms:600000}")
+    public int materializeDue() {
+        LocalDateTime until = LocalDateTime.now().plusHours(properties.getHorizonHours());
+        int created = 0;
+        while (true) {
+            Batch batch = transactionTemplate.execute(status -> {
+                List<Appointment> appointments = appointmentRepository.findWithPlannedRemindersDueBy(
+                        until, PageRequest.of(0, properties.getBatchSize()));
+                int reminders = 0;
+                for (Appointment appointment : appointments) {
+                    reminders += reminderService.materializePlannedReminders(appointment, until);
+                }
+                return new Batch(appointments.size(), reminders);
+            });
+            created += batch.reminders();
+            // Each processed appointment moves past the horizon, so the next page is fresh work
+            if (batch.appointments() < properties.getBatchSize()) {
+                break;
+            }
+        }
+        if (created > 0) {
+            log.info("Materialised {} planned reminders due by {}", created, until);
+        }
+        return created;
+    }
+
+    private record Batch(int appointments, int reminders) {
+    }
+}
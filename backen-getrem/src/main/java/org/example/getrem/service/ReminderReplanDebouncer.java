@@ -0,0 +1,129 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.ReminderReplanProperties;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.ReminderPlan;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Collapses bursts of appointment time changes into a single reminder
+ * re-plan. The first time-only edit records a deadline on the appointment
+ * row, later edits inside the window reuse it, and a sweep re-plans once the
+ * deadline passes. The deadline never lands after the appointment's earliest
+ * pending or planned reminder, at either its old or its new time, and the
+ * dispatcher re-plans any appointment that still has one pending before
+ * sending its reminders, so a stale reminder is never delivered. Because the
+ * deadline is stored on the row, pending re-plans survive restarts.
+ */
+@Component
+@Slf4j
+public class ReminderReplanDebouncer {
+
+    private final AppointmentRepository appointmentRepository;
+    private final ReminderRepository reminderRepository;
+    private final ReminderService reminderService;
+    private final ReminderReplanProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public ReminderReplanDebouncer(AppointmentRepository appointmentRepository,
+                                   ReminderRepository reminderRepository,
+                                   ReminderService reminderService,
+                                   ReminderReplanProperties properties,
+                                   PlatformTransactionManager transactionManager) {
+        this.appointmentRepository = appointmentRepository;
+        this.reminderRepository = reminderRepository;
+        this.reminderService = reminderService;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Requests a re-plan for an appointment whose time just changed. Must be
+     * called in the transaction that saves the appointment.
+     */
+    public void requestReplan(Appointment appointment) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime deadline = appointment.getRemindersReplanAt() != null
+                ? appointment.getRemindersReplanAt()
+                : now.plus(Duration.ofMillis(properties.getDebounceMs()));
+        Set<ReminderType> offsets = EnumSet.noneOf(ReminderType.class);
+        for (Object[] row : reminderRepository.findPendingTypesAndTimes(appointment.getId())) {
+            deadline = earliest(deadline, (LocalDateTime) row[1]);
+            offsets.add((ReminderType) row[0]);
+        }
+        deadline = earliest(deadline, appointment.getPlanNextDueAt());
+        if (appointment.getReminderPlan() != null) {
+            appointment.getReminderPlan().entries().forEach(entry -> offsets.add(entry.type()));
+        }
+        // Offset reminders follow the appointment, so one moved close can fall due at its new time before the old
+        for (ReminderType type : offsets) {
+            if (type == ReminderType.TEN_MINUTES_BEFORE || type == ReminderType.ONE_DAY_BEFORE) {
+                deadline = earliest(deadline, ReminderPlan.Entry.offset(type).timeFor(appointment.getAppointmentTime()));
+            }
+        }
+        // Whole seconds survive the column round trip exactly, which the conditional clear relies on
+        deadline = deadline.truncatedTo(ChronoUnit.SECONDS);
+
+        if (!deadline.isAfter(now)) {
+            appointment.setRemindersReplanAt(null);
+            reminderService.moveRemindersWithAppointment(appointment);
+            return;
+        }
+        appointment.setRemindersReplanAt(deadline);
+    }
+
+    private static LocalDateTime earliest(LocalDateTime deadline, LocalDateTime time) {
+        return time != null && time.isBefore(deadline) ? time : deadline;
+    }
+
+    /**
+     * Drops a pending re-plan because the caller is re-planning the
+     * appointment explicitly in the same transaction.
+     */
+    public void cancelReplan(Appointment appointment) {
+        appointment.setRemindersReplanAt(null);
+    }
+
+    /** Re-plans the given appointments now if they still have a re-plan pending. */
+    public void replanNow(Collection<UUID> appointmentIds) {
+        appointmentIds.forEach(this::replan);
+    }
+
+    @Scheduled(fixedDelayString = "${getrem.reminder-replan.sweep-interval-ms:5000}")
+    public void replanDue() {
+        for (UUID appointmentId : appointmentRepository.findIdsWithRemindersReplanDue(LocalDateTime.now())) {
+            try {
+                replan(appointmentId);
+            } catch (Exception e) {
+                log.error("Failed to re-plan reminders for appointment {}", appointmentId, e);
+            }
+        }
+    }
+
+    private void replan(UUID appointmentId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Appointment appointment = appointmentRepository.findById(appointmentId).orElse(null);
+            if (appointment == null || appointment.getRemindersReplanAt() == null) {
+                return;
+            }
+            reminderService.moveRemindersWithAppointment(appointment);
+            appointmentRepository.clearRemindersReplan(appointmentId, appointment.getRemindersReplanAt());
+            log.debug("Re-planned reminders for appointment {} after debounced edits", appointmentId);
+        });
+    }
+}
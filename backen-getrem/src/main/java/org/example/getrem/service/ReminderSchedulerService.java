@@ -1,53 +1,243 @@
 package org.example.getrem.service;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.DispatchProperties;
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
 import org.example.getrem.enums.ReminderStatus;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.NotificationLog;
 import org.example.getrem.model.Reminder;
 import org.example.getrem.repository.ReminderRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
+/**
+ * Sends due reminders. A run first claims them (PENDING to SENDING, tagged
+ * with the run) in one short transaction, then sends and records them a
+ * chunk per transaction, renewing the claim on each chunk just before it is
+ * sent and only sending rows that still carry it. Work is therefore either
+ * claimed by exactly one run, committed as done, or handed back. A run
+ * killed outright leaves its claims in SENDING until
+ * {@link #recoverAbandonedClaims()} returns them to PENDING; the chunk that
+ * was mid-send at the time is sent again.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ReminderSchedulerService {
 
     private final ReminderRepository reminderRepository;
     private final NotificationService notificationService;
+    private final NotificationLogWriter notificationLogWriter;
+    private final NotificationPreferenceCache preferenceCache;
+    private final ReminderLoadIndex reminderLoadIndex;
+    private final NotificationExecutor notificationExecutor;
+    private final ReminderReplanDebouncer reminderReplanDebouncer;
+    private final DispatchControl dispatchControl;
+    private final DispatchProperties dispatchProperties;
+    private final CalendarCache calendarCache;
+    private final CalendarEventBroadcaster calendarEvents;
+    private final AppointmentChangeLog changeLog;
+    private final TransactionTemplate transactionTemplate;
+
+    public ReminderSchedulerService(ReminderRepository reminderRepository,
+                                    NotificationService notificationService,
+                                    NotificationLogWriter notificationLogWriter,
+                                    NotificationPreferenceCache preferenceCache,
+                                    ReminderLoadIndex reminderLoadIndex,
+                                    NotificationExecutor notificationExecutor,
+                                    ReminderReplanDebouncer reminderReplanDebouncer,
+                                    DispatchControl dispatchControl,
+                                    DispatchProperties dispatchProperties,
+                                    CalendarCache calendarCache,
+                                    CalendarEventBroadcaster calendarEvents,
+                                    AppointmentChangeLog changeLog,
+                                    PlatformTransactionManager transactionManager) {
+        this.reminderRepository = reminderRepository;
+        this.notificationService = notificationService;
+        this.notificationLogWriter = notificationLogWriter;
+        this.preferenceCache = preferenceCache;
+        this.reminderLoadIndex = reminderLoadIndex;
+        this.notificationExecutor = notificationExecutor;
+        this.reminderReplanDebouncer = reminderReplanDebouncer;
+        this.dispatchControl = dispatchControl;
+        this.dispatchProperties = dispatchProperties;
+        this.calendarCache = calendarCache;
+        this.calendarEvents = calendarEvents;
+        this.changeLog = changeLog;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
 
     /**
      * Runs every minute to check for pending reminders that need to be sent
      */
     @Scheduled(fixedRate = 60000) // Run every 60 seconds
-    @Transactional
     public void processPendingReminders() {
+        String claim = dispatchControl.beginRun();
+        if (claim == null) {
+            log.debug("Reminder dispatch is paused; skipping this run");
+            return;
+        }
+        try {
+            List<UUID> claimed = transactionTemplate.execute(status -> claimDueReminders(claim));
+            dispatchControl.onClaimed(claimed.size());
+
+            int chunkSize = dispatchProperties.getChunkSize();
+            for (int from = 0; from < claimed.size(); from += chunkSize) {
+                if (dispatchControl.shouldStop()) {
+                    int released = transactionTemplate.execute(status -> reminderRepository.releaseClaim(claim));
+                    dispatchControl.onReleased(released);
+                    // Released rows were not loaded, so their days cannot be told apart; pausing is rare
+                    calendarCache.invalidateAll();
+                    log.info("Dispatch paused mid-run; released {} claimed reminders", released);
+                    break;
+                }
+                List<UUID> chunk = claimed.subList(from, Math.min(from + chunkSize, claimed.size()));
+                // Committed on its own so recovery on another node sees the fresh lease while the chunk sends
+                transactionTemplate.execute(status -> reminderRepository.renewClaim(chunk, claim, LocalDateTime.now()));
+                transactionTemplate.executeWithoutResult(status -> sendChunk(chunk, claim));
+            }
+        } finally {
+            dispatchControl.endRun();
+        }
+    }
+
+    // Claims abandoned by a node that died, or by this node's previous instance, go back into circulation
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${getrem.dispatch.recovery-interval-ms:60000}")
+    public void recoverAbandonedClaims() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(dispatchProperties.getClaimLeaseMs()));
+        String previousRuns = dispatchControl.nodeClaimPattern();
+        String currentRuns = dispatchControl.instanceClaimPattern();
+        int recovered = transactionTemplate.execute(status -> {
+            int released = reminderRepository.releaseAbandoned(cutoff, previousRuns, currentRuns);
+            // Released without loading the rows, so there are no appointment ids to list
+            if (released > 0) {
+                changeLog.requireResync();
+            }
+            return released;
+        });
+        if (recovered > 0) {
+            dispatchControl.onRecovered(recovered);
+            calendarCache.invalidateAll();
+            log.warn("Returned {} abandoned reminder claims to pending", recovered);
+        }
+    }
+
+    private List<UUID> claimDueReminders(String claim) {
         LocalDateTime now = LocalDateTime.now();
         List<Reminder> pendingReminders = reminderRepository.findPendingRemindersToSend(now);
-        
+
+        // Appointments edited moments ago may still owe a debounced re-plan; settle it before sending
+        Set<UUID> awaitingReplan = pendingReminders.stream()
+                .map(Reminder::getAppointment)
+                .filter(appointment -> appointment.getRemindersReplanAt() != null)
+                .map(Appointment::getId)
+                .collect(Collectors.toSet());
+        if (!awaitingReplan.isEmpty()) {
+            reminderReplanDebouncer.replanNow(awaitingReplan);
+            pendingReminders = reminderRepository.findPendingRemindersToSend(now);
+        }
+
+        // One lookup for the whole batch; cached clients cost no round trip
+        Map<UUID, NotificationPreferenceSnapshot> preferences = preferenceCache.getAll(pendingReminders.stream()
+                .map(reminder -> reminder.getAppointment().getClient().getId())
+                .collect(Collectors.toSet()));
+
+        List<UUID> dueIds = new ArrayList<>();
+        Set<UUID> changedAppointments = new HashSet<>();
         for (Reminder reminder : pendingReminders) {
-            try {
-                String phoneNumber = reminder.getAppointment().getClient().getPhone();
-                String email = reminder.getAppointment().getClient().getEmail();
-                
-                notificationService.sendAllChannelNotifications(reminder, phoneNumber, email);
-                
+            changedAppointments.add(reminder.getAppointment().getId());
+            NotificationPreferenceSnapshot clientPreferences = preferences.get(reminder.getAppointment().getClient().getId());
+            if (clientPreferences.isQuietAt(now.toLocalTime())) {
+                LocalDateTime allowedTime = clientPreferences.nextAllowedTime(now);
+                if (!allowedTime.isBefore(reminder.getAppointment().getAppointmentTime())) {
+                    // Quiet hours run past the appointment, so the reminder could only arrive too late
+                    reminder.setStatus(ReminderStatus.CANCELLED);
+                    reminderRepository.save(reminder);
+                    reminderLoadIndex.onRemoved(reminder);
+                    calendarEvents.publishReminderStatus(reminder);
+                    log.info("Cancelled reminder {}: client quiet hours last until {}, after the appointment",
+                            reminder.getId(), allowedTime);
+                    continue;
+                }
+                LocalDateTime previousTime = reminder.getScheduledTime();
+                reminder.setScheduledTime(allowedTime);
+                reminderRepository.save(reminder);
+                reminderLoadIndex.onRescheduled(reminder, previousTime);
+                log.info("Deferred reminder {} to {} (client quiet hours)", reminder.getId(), reminder.getScheduledTime());
+            } else {
+                dueIds.add(reminder.getId());
+            }
+        }
+        // Deferred, cancelled or about to show as SENDING
+        calendarCache.invalidateAppointments(changedAppointments);
+        changeLog.recordChanged(changedAppointments);
+        if (dueIds.isEmpty()) {
+            return List.of();
+        }
+
+        // Another node may have claimed some of these first; only the rows tagged with our claim are ours
+        reminderRepository.claim(dueIds, claim, now);
+        return reminderRepository.findIdsClaimedBy(claim);
+    }
+
+    private void sendChunk(List<UUID> reminderIds, String claim) {
+        List<Reminder> dueReminders = reminderRepository.findAllForDispatch(reminderIds, claim);
+        if (dueReminders.size() < reminderIds.size()) {
+            log.warn("Skipping {} reminders whose claim {} was recovered before they were sent",
+                    reminderIds.size() - dueReminders.size(), claim);
+        }
+        Map<UUID, NotificationPreferenceSnapshot> preferences = preferenceCache.getAll(dueReminders.stream()
+                .map(reminder -> reminder.getAppointment().getClient().getId())
+                .collect(Collectors.toSet()));
+
+        // Sends run inline or on virtual threads; entity updates and log writes stay on this thread and transaction
+        List<NotificationLog> logs = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> failures = notificationExecutor.runAll(dueReminders, reminder -> {
+            Clients client = reminder.getAppointment().getClient();
+            logs.addAll(notificationService.deliverAllChannels(reminder, client.getPhone(), client.getEmail(),
+                    preferences.get(client.getId())));
+        });
+
+        int sent = 0;
+        Set<UUID> appointmentIds = new HashSet<>();
+        for (int i = 0; i < dueReminders.size(); i++) {
+            Reminder reminder = dueReminders.get(i);
+            Throwable failure = failures.get(i);
+            if (failure == null) {
                 reminder.setStatus(ReminderStatus.SENT);
                 reminder.setSentAt(LocalDateTime.now());
-                reminderRepository.save(reminder);
-                
-                log.info("Successfully sent reminder {} for appointment {}", 
+                sent++;
+                log.info("Successfully sent reminder {} for appointment {}",
                     reminder.getId(), reminder.getAppointment().getId());
-            } catch (Exception e) {
-                log.error("Failed to process reminder {}", reminder.getId(), e);
+            } else {
+                log.error("Failed to process reminder {}", reminder.getId(), failure);
                 reminder.setStatus(ReminderStatus.FAILED);
-                reminderRepository.save(reminder);
             }
+            reminderRepository.save(reminder);
+            reminderLoadIndex.onRemoved(reminder);
+            calendarEvents.publishReminderStatus(reminder);
+            appointmentIds.add(reminder.getAppointment().getId());
         }
+        notificationLogWriter.publishAll(logs);
+        calendarCache.invalidateAppointments(appointmentIds);
+        changeLog.recordChanged(appointmentIds);
+        dispatchControl.onChunkCompleted(sent, dueReminders.size() - sent);
     }
 }
-
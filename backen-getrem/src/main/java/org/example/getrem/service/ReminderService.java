@@ -16,5 +16,17 @@ public interface ReminderService {
 
     void rescheduleRemindersForAppointment(Appointment appointment, List<String> reminderOptions, List<LocalDateTime> customReminderTimes);
 
-    void rescheduleRemindersForAppointment(Appointment appointment);
+    /**
+     * Moves the appointment's reminders to its current time, keeping its
+     * plan: offset reminders follow the appointment, custom reminders keep
+     * their time unless it no longer falls before the appointment, and no
+     * new confirmation is sent.
+     */
+    void moveRemindersWithAppointment(Appointment appointment);
+
+    /**
+     * Creates reminder rows for the appointment's planned reminders due by
+     * {@code until}. Returns the number of rows created.
+     */
+    int materializePlannedReminders(Appointment appointment, LocalDateTime until);
 }
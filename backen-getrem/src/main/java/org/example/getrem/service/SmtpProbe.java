@@ -0,0 +1,400 @@
+package org.example.getrem.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.MailRelayProperties;
+import org.example.getrem.dto.notification.LatencySummary;
+import org.example.getrem.dto.notification.SmtpProbeRequest;
+import org.example.getrem.dto.notification.SmtpProbeResult;
+import org.example.getrem.exception.ValidationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Times an SMTP relay phase by phase: name resolution, TCP connect, server
+ * greeting, EHLO, TLS handshake, AUTH and each message of a short burst over
+ * one connection. It speaks SMTP directly because JavaMail folds all of the
+ * session setup into a single connect call. Optionally the same burst is
+ * then sent through the relay's JavaMail sender, which is what dispatch
+ * uses, so the cost of a fresh session per message shows up next to the raw
+ * numbers.
+ * <p>
+ * Probe messages bypass the router, so they do not count towards a relay's
+ * daily quota. Only one probe runs at a time.
+ */
+@Component
+@Slf4j
+public class SmtpProbe {
+
+    private static final String BODY = "Diagnostic message from the GetRem SMTP probe. It can be deleted.";
+
+    private final MailRelayRouter mailRelayRouter;
+    private final MailRelayProperties properties;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public SmtpProbe(MailRelayRouter mailRelayRouter, MailRelayProperties properties) {
+        this.mailRelayRouter = mailRelayRouter;
+        this.properties = properties;
+    }
+
+    public SmtpProbeResult probe(SmtpProbeRequest request) {
+        MailRelayRouter.RelayEndpoint relay = mailRelayRouter.findRelay(request.getRelay())
+                .orElseThrow(() -> new ValidationException("No SMTP relay named " + request.getRelay()));
+        int maxMessages = properties.getProbe().getMaxMessages();
+        if (request.getMessages() > maxMessages) {
+            throw new ValidationException("A probe sends at most " + maxMessages + " messages");
+        }
+        JavaMailSenderImpl sender = relay.sender();
+        String from = firstNonBlank(request.getFrom(), relay.from(), sender.getUsername());
+        if (from == null) {
+            throw new ValidationException("The relay has no sender address; set from in the request");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new ValidationException("Another SMTP probe is already running");
+        }
+
+        try {
+            Properties mailProperties = sender.getJavaMailProperties();
+            boolean implicitTls = "smtps".equals(sender.getProtocol())
+                    || Boolean.parseBoolean(mailProperties.getProperty("mail.smtp.ssl.enable"));
+            boolean starttls = !implicitTls
+                    && Boolean.parseBoolean(mailProperties.getProperty("mail.smtp.starttls.enable"));
+            SmtpProbeResult result = SmtpProbeResult.builder()
+                    .relay(relay.name())
+                    .host(sender.getHost())
+                    .port(sender.getPort())
+                    .security(implicitTls ? "TLS" : starttls ? "STARTTLS" : "NONE")
+                    .messagesRequested(request.getMessages())
+                    .build();
+
+            String runId = UUID.randomUUID().toString().substring(0, 8);
+            Session session = new Session(sender, implicitTls, starttls,
+                    !"false".equals(mailProperties.getProperty("mail.smtp.ssl.checkserveridentity")), result);
+            try {
+                session.run(from, request.getTo(), runId, request.getMessages());
+            } finally {
+                session.close();
+            }
+            if (request.isCompareWithSender() && result.getError() == null) {
+                sendThroughSender(sender, from, request.getTo(), runId, request.getMessages(), result);
+            }
+            log.info("SMTP probe {} of relay {}: connect {} ms, TLS {} ms, AUTH {} ms, {} of {} messages sent, p50 {} ms",
+                    runId, relay.name(), result.getConnectMs(), result.getTlsHandshakeMs(), result.getAuthMs(),
+                    result.getMessagesSent(), result.getMessagesRequested(),
+                    result.getMessageSend() != null ? result.getMessageSend().getP50Ms() : null);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void sendThroughSender(JavaMailSenderImpl sender, String from, String to, String runId, int messages,
+                                   SmtpProbeResult result) {
+        List<Long> latencies = new ArrayList<>(messages);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < messages; i++) {
+                SimpleMailMessage message = new SimpleMailMessage();
+                message.setFrom(from);
+                message.setTo(to);
+                message.setSubject(subject(runId, "sender", i, messages));
+                message.setText(BODY);
+                long sendStart = System.nanoTime();
+                sender.send(message);
+                latencies.add(System.nanoTime() - sendStart);
+            }
+        } catch (MailException e) {
+            result.setFailedStage("sender");
+            result.setError(e.getMessage());
+        }
+        result.setSenderSend(LatencySummary.ofNanos(latencies));
+        result.setSenderMessagesPerSecond(perSecond(latencies.size(), System.nanoTime() - start));
+    }
+
+    private static String subject(String runId, String path, int index, int total) {
+        return "GetRem SMTP probe " + runId + " " + path + " " + (index + 1) + "/" + total;
+    }
+
+    private static Double perSecond(int count, long nanos) {
+        return nanos > 0 ? Math.round(count * 1_000_000_000_000.0 / nanos) / 1_000.0 : null;
+    }
+
+    private static double elapsedMs(long start) {
+        return LatencySummary.millis(System.nanoTime() - start);
+    }
+
+    private static String base64(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String firstNonBlank(String... values) {
+        return Arrays.stream(values).filter(value -> value != null && !value.isBlank()).findFirst().orElse(null);
+    }
+
+    /** A reply code the probe did not expect; the connection itself is still usable. */
+    private static final class UnexpectedReplyException extends IOException {
+
+        UnexpectedReplyException(String command, Reply reply) {
+            super(command + " rejected: " + reply.code + " " + reply.text);
+        }
+    }
+
+    private record Reply(int code, String text) {
+    }
+
+    /** One SMTP connection, recording each phase's timing into the result as it goes. */
+    private final class Session {
+
+        private final JavaMailSenderImpl sender;
+        private final boolean implicitTls;
+        private final boolean starttls;
+        private final boolean checkServerIdentity;
+        private final SmtpProbeResult result;
+        private final int timeoutMs = properties.getProbe().getTimeoutMs();
+
+        private Socket socket;
+        private BufferedReader reader;
+        private Writer writer;
+        private String stage;
+
+        Session(JavaMailSenderImpl sender, boolean implicitTls, boolean starttls, boolean checkServerIdentity,
+                SmtpProbeResult result) {
+            this.sender = sender;
+            this.implicitTls = implicitTls;
+            this.starttls = starttls;
+            this.checkServerIdentity = checkServerIdentity;
+            this.result = result;
+        }
+
+        void run(String from, String to, String runId, int messages) {
+            try {
+                stage = "resolve";
+                long start = System.nanoTime();
+                InetAddress address = InetAddress.getByName(sender.getHost());
+                result.setResolveMs(elapsedMs(start));
+
+                stage = "connect";
+                start = System.nanoTime();
+                socket = new Socket();
+                socket.connect(new InetSocketAddress(address, sender.getPort()), timeoutMs);
+                socket.setSoTimeout(timeoutMs);
+                result.setConnectMs(elapsedMs(start));
+                openStreams();
+
+                if (implicitTls) {
+                    stage = "tls";
+                    start = System.nanoTime();
+                    upgradeToTls();
+                    result.setTlsHandshakeMs(elapsedMs(start));
+                }
+
+                stage = "greeting";
+                start = System.nanoTime();
+                Reply greeting = expect("greeting", read(), 220);
+                result.setGreetingMs(elapsedMs(start));
+                result.setGreeting(greeting.text.lines().findFirst().orElse(""));
+
+                stage = "ehlo";
+                start = System.nanoTime();
+                Reply ehlo = command("EHLO " + clientName(), 250);
+                result.setEhloMs(elapsedMs(start));
+
+                if (starttls) {
+                    stage = "tls";
+                    start = System.nanoTime();
+                    command("STARTTLS", 220);
+                    upgradeToTls();
+                    result.setTlsHandshakeMs(elapsedMs(start));
+                    ehlo = command("EHLO " + clientName(), 250);
+                }
+
+                if (sender.getUsername() != null && !sender.getUsername().isBlank()) {
+                    stage = "auth";
+                    start = System.nanoTime();
+                    authenticate(ehlo);
+                    result.setAuthMs(elapsedMs(start));
+                }
+
+                stage = "send";
+                burst(from, to, runId, messages);
+
+                stage = "quit";
+                command("QUIT", 221);
+            } catch (IOException | RuntimeException e) {
+                // Failing to say goodbye does not make the timings any less valid
+                if (!"quit".equals(stage)) {
+                    result.setFailedStage(stage);
+                    result.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                    log.warn("SMTP probe of {} failed during {}: {}", sender.getHost(), stage, e.toString());
+                }
+            }
+        }
+
+        private void burst(String from, String to, String runId, int messages) throws IOException {
+            List<Long> latencies = new ArrayList<>(messages);
+            String lastError = null;
+            long burstStart = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                long start = System.nanoTime();
+                try {
+                    sendMessage(from, to, subject(runId, "direct", i, messages), runId + "." + i);
+                    latencies.add(System.nanoTime() - start);
+                } catch (UnexpectedReplyException e) {
+                    lastError = e.getMessage();
+                    command("RSET", 250);
+                }
+            }
+            long burstNanos = System.nanoTime() - burstStart;
+            result.setMessagesSent(latencies.size());
+            result.setMessagesFailed(messages - latencies.size());
+            result.setMessageSend(LatencySummary.ofNanos(latencies));
+            result.setBurstMs(LatencySummary.millis(burstNanos));
+            result.setMessagesPerSecond(perSecond(latencies.size(), burstNanos));
+            if (lastError != null) {
+                result.setFailedStage("send");
+                result.setError(lastError);
+            }
+        }
+
+        private void sendMessage(String from, String to, String subject, String messageId) throws IOException {
+            command("MAIL FROM:<" + from + ">", 250);
+            command("RCPT TO:<" + to + ">", 250, 251);
+            command("DATA", 354);
+            write("Date: " + ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME) + "\r\n"
+                    + "From: <" + from + ">\r\n"
+                    + "To: <" + to + ">\r\n"
+                    + "Subject: " + subject + "\r\n"
+                    + "Message-ID: <" + messageId + "@getrem-probe>\r\n"
+                    + "MIME-Version: 1.0\r\n"
+                    + "Content-Type: text/plain; charset=US-ASCII\r\n"
+                    + "\r\n"
+                    + BODY + "\r\n"
+                    + ".");
+            expect("DATA", read(), 250);
+        }
+
+        private void authenticate(Reply ehlo) throws IOException {
+            String mechanisms = ehlo.text.lines()
+                    .filter(line -> line.toUpperCase().startsWith("AUTH"))
+                    .map(line -> line.substring(4).replace('=', ' ').toUpperCase())
+                    .findFirst()
+                    .orElse("");
+            List<String> offered = Arrays.asList(mechanisms.trim().split("\\s+"));
+            String username = sender.getUsername();
+            String password = sender.getPassword() != null ? sender.getPassword() : "";
+            if (offered.contains("PLAIN")) {
+                command("AUTH PLAIN " + base64("\0" + username + "\0" + password), 235);
+            } else if (offered.contains("LOGIN")) {
+                command("AUTH LOGIN", 334);
+                command(base64(username), 334);
+                command(base64(password), 235);
+            } else {
+                throw new IOException("Server offers neither PLAIN nor LOGIN authentication: " + mechanisms.trim());
+            }
+        }
+
+        private void upgradeToTls() throws IOException {
+            SSLSocketFactory factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+            SSLSocket tlsSocket = (SSLSocket) factory.createSocket(socket, sender.getHost(), sender.getPort(), true);
+            if (checkServerIdentity) {
+                SSLParameters parameters = tlsSocket.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                tlsSocket.setSSLParameters(parameters);
+            }
+            tlsSocket.startHandshake();
+            socket = tlsSocket;
+            openStreams();
+            result.setTlsProtocol(tlsSocket.getSession().getProtocol());
+            result.setTlsCipher(tlsSocket.getSession().getCipherSuite());
+        }
+
+        private Reply command(String line, int... expected) throws IOException {
+            write(line);
+            // Never echo credentials back in an error
+            String name = line.startsWith("AUTH") || stage.equals("auth") ? "AUTH" : line.split(" ", 2)[0];
+            return expect(name, read(), expected);
+        }
+
+        private Reply expect(String command, Reply reply, int... expected) throws IOException {
+            for (int code : expected) {
+                if (reply.code == code) {
+                    return reply;
+                }
+            }
+            throw new UnexpectedReplyException(command, reply);
+        }
+
+        private void write(String line) throws IOException {
+            writer.write(line);
+            writer.write("\r\n");
+            writer.flush();
+        }
+
+        private Reply read() throws IOException {
+            StringBuilder text = new StringBuilder();
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    throw new EOFException("Connection closed by the server");
+                }
+                if (line.length() < 3 || !Character.isDigit(line.charAt(0))) {
+                    throw new IOException("Malformed SMTP reply: " + line);
+                }
+                if (!text.isEmpty()) {
+                    text.append('\n');
+                }
+                text.append(line.length() > 4 ? line.substring(4) : "");
+            } while (line.length() > 3 && line.charAt(3) == '-');
+            return new Reply(Integer.parseInt(line.substring(0, 3)), text.toString());
+        }
+
+        private void openStreams() throws IOException {
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+        }
+
+        private String clientName() {
+            InetAddress local = socket.getLocalAddress();
+            return local instanceof Inet6Address
+                    ? "[IPv6:" + local.getHostAddress().replaceFirst("%.*$", "") + "]"
+                    : "[" + local.getHostAddress() + "]";
+        }
+
+        void close() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close SMTP probe connection", e);
+                }
+            }
+        }
+    }
+}
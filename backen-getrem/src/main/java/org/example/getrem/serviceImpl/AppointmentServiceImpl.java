@@ -1,12 +1,17 @@
     package org.example.getrem.serviceImpl;
 
     import lombok.RequiredArgsConstructor;
+    import lombok.extern.slf4j.Slf4j;
+    import org.example.getrem.dto.appointment.AppointmentChangesResponse;
     import org.example.getrem.dto.appointment.AppointmentResponse;
     import org.example.getrem.dto.appointment.CalendarAppointmentResponse;
     import org.example.getrem.dto.appointment.CreateAppointmentRequest;
     import org.example.getrem.dto.appointment.UpdateAppointmentRequest;
+    import org.example.getrem.enums.AppointmentStatus;
+    import org.example.getrem.enums.CalendarChangeType;
     import org.example.getrem.exception.NotFoundException;
     import org.example.getrem.exception.ValidationException;
+    import org.example.getrem.config.DeltaSyncProperties;
     import org.example.getrem.mapper.AppointmentMapper;
     import org.example.getrem.mapper.ReminderMapper;
     import org.example.getrem.model.Appointment;
@@ -17,22 +22,34 @@
     import org.example.getrem.repository.ClientsRepository;
     import org.example.getrem.repository.DoctorRepository;
     import org.example.getrem.repository.ReminderRepository;
+    import org.example.getrem.service.AppointmentChangeLog;
     import org.example.getrem.service.AppointmentService;
+    import org.example.getrem.service.AppointmentSlotIndex;
+    import org.example.getrem.service.CalendarCache;
+    import org.example.getrem.service.CalendarEventBroadcaster;
+    import org.example.getrem.service.ReminderReplanDebouncer;
     import org.example.getrem.service.ReminderService;
     import org.springframework.data.domain.Page;
     import org.springframework.data.domain.Pageable;
     import org.springframework.stereotype.Service;
     import org.springframework.transaction.annotation.Transactional;
 
+    import java.nio.charset.StandardCharsets;
     import java.time.LocalDate;
     import java.time.LocalDateTime;
     import java.util.ArrayList;
+    import java.util.HashMap;
+    import java.util.HashSet;
+    import java.util.LinkedHashSet;
     import java.util.List;
+    import java.util.Map;
+    import java.util.Set;
     import java.util.UUID;
     import java.util.stream.Collectors;
 
     @Service
     @RequiredArgsConstructor
+    @Slf4j
     public class AppointmentServiceImpl implements AppointmentService {
 
         private final AppointmentRepository appointmentRepository;
@@ -42,6 +59,12 @@
         private final ReminderRepository reminderRepository;
         private final ReminderMapper reminderMapper;
         private final ReminderService reminderService;
+        private final ReminderReplanDebouncer reminderReplanDebouncer;
+        private final CalendarCache calendarCache;
+        private final AppointmentSlotIndex slotIndex;
+        private final CalendarEventBroadcaster calendarEvents;
+        private final AppointmentChangeLog changeLog;
+        private final DeltaSyncProperties deltaSyncProperties;
 
         @Override
         @Transactional
@@ -53,13 +76,16 @@
                     .orElseThrow(() -> new NotFoundException("Doctor not found with id: " + request.getDoctorId()));
 
             // Validate no overlapping appointments for the same doctor
-            Long overlappingCount = doctorRepository.countOverlappingAppointments(request.getDoctorId(), request.getAppointmentTime(), null);
-            if (overlappingCount != null && overlappingCount > 0) {
+            if (slotIndex.countOverlapping(request.getDoctorId(), request.getAppointmentTime(), null) > 0) {
                 throw new ValidationException("This time slot is already booked for Dr. " + doctor.getName());
             }
 
             Appointment appointment = appointmentMapper.toEntity(request, client, doctor);
             Appointment savedAppointment = appointmentRepository.save(appointment);
+            // Re-checked atomically now that the appointment has an id, in case a concurrent booking got in first
+            if (!slotIndex.tryReserve(request.getDoctorId(), request.getAppointmentTime(), savedAppointment.getId())) {
+                throw new ValidationException("This time slot is already booked for Dr. " + doctor.getName());
+            }
 
             // Schedule reminders for the new appointment
             if (request.getReminderOptions() != null || request.getCustomReminderTimes() != null) {
@@ -72,6 +98,9 @@
                 reminderService.scheduleRemindersForAppointment(savedAppointment);
             }
 
+            calendarCache.invalidateAppointment(savedAppointment);
+            changeLog.recordChanged(List.of(savedAppointment.getId()));
+            calendarEvents.publishAppointmentChange(CalendarChangeType.APPOINTMENT_CREATED, savedAppointment, null, null);
             return appointmentMapper.toResponse(savedAppointment);
         }
 
@@ -122,41 +151,58 @@
                 && !appointment.getDoctor().getId().equals(request.getDoctorId());
 
             // Validate no overlapping appointments for the same doctor (excluding current appointment)
-            if (timeChanged || doctorChanged) {
-                Long overlappingCount = doctorRepository.countOverlappingAppointments(doctorId, newAppointmentTime, id);
-                if (overlappingCount != null && overlappingCount > 0) {
-                    throw new ValidationException("This time slot is already booked for Dr. " + doctor.getName());
-                }
+            if ((timeChanged || doctorChanged) && slotIndex.countOverlapping(doctorId, newAppointmentTime, id) > 0) {
+                throw new ValidationException("This time slot is already booked for Dr. " + doctor.getName());
             }
 
+            UUID previousDoctorId = appointment.getDoctor().getId();
+            LocalDateTime previousTime = appointment.getAppointmentTime();
             appointmentMapper.updateEntity(appointment, request, doctor);
             Appointment updatedAppointment = appointmentRepository.save(appointment);
+            if (updatedAppointment.getStatus() == AppointmentStatus.CANCELLED) {
+                slotIndex.release(List.of(id));
+            } else if (timeChanged || doctorChanged) {
+                if (!slotIndex.tryReserve(doctorId, newAppointmentTime, id)) {
+                    throw new ValidationException("This time slot is already booked for Dr. " + doctor.getName());
+                }
+            } else {
+                slotIndex.occupy(doctorId, newAppointmentTime, id);
+            }
 
             // Reschedule reminders if appointment time changed or reminder options changed
-            if (timeChanged || request.getReminderOptions() != null || request.getCustomReminderTimes() != null) {
-                if (request.getReminderOptions() != null || request.getCustomReminderTimes() != null) {
-                    reminderService.rescheduleRemindersForAppointment(
-                        updatedAppointment,
-                        request.getReminderOptions(),
-                        request.getCustomReminderTimes()
-                    );
-                } else {
-                    reminderService.rescheduleRemindersForAppointment(updatedAppointment);
-                }
+            if (request.getReminderOptions() != null || request.getCustomReminderTimes() != null) {
+                // Explicit reminder choices apply at once and supersede any debounced re-plan
+                reminderReplanDebouncer.cancelReplan(updatedAppointment);
+                reminderService.rescheduleRemindersForAppointment(
+                    updatedAppointment,
+                    request.getReminderOptions(),
+                    request.getCustomReminderTimes()
+                );
+            } else if (timeChanged) {
+                // Calendar drags arrive in bursts; re-plan once after they settle
+                reminderReplanDebouncer.requestReplan(updatedAppointment);
             }
 
+            // Covers the day it was on as well as the one it moved to
+            calendarCache.invalidateAppointment(updatedAppointment);
+            changeLog.recordChanged(List.of(id));
+            calendarEvents.publishAppointmentChange(CalendarChangeType.APPOINTMENT_UPDATED, updatedAppointment,
+                    previousDoctorId, previousTime);
             return appointmentMapper.toResponse(updatedAppointment);
         }
 
         @Override
         @Transactional
         public void deleteAppointment(UUID id) {
-            if (!appointmentRepository.existsById(id)) {
-                throw new NotFoundException("Appointment not found with id: " + id);
-            }
+            Appointment appointment = appointmentRepository.findById(id)
+                    .orElseThrow(() -> new NotFoundException("Appointment not found with id: " + id));
 
             // Cancel all reminders before deleting appointment
             reminderService.cancelRemindersForAppointment(id);
+            calendarCache.invalidateAppointment(appointment);
+            slotIndex.release(List.of(id));
+            changeLog.recordDeleted(id);
+            calendarEvents.publishAppointmentChange(CalendarChangeType.APPOINTMENT_DELETED, appointment, null, null);
 
             appointmentRepository.deleteById(id);
         }
@@ -170,7 +216,7 @@
                 return getAppointmentsForDateRange(startDate, endDate);
             } catch (Exception e) {
                 // Log error and return empty list to prevent UI errors
-                e.printStackTrace();
+                log.error("Failed to load appointments for {}-{}", year, month, e);
                 return new ArrayList<>();
             }
         }
@@ -183,7 +229,7 @@
                 LocalDateTime end = start.plusWeeks(1);
                 return getAppointmentsForDateRange(start, end);
             } catch (Exception e) {
-                e.printStackTrace();
+                log.error("Failed to load appointments for the week of {}", startDate, e);
                 return new ArrayList<>();
             }
         }
@@ -196,7 +242,7 @@
                 LocalDateTime end = start.plusDays(1);
                 return getAppointmentsForDateRange(start, end);
             } catch (Exception e) {
-                e.printStackTrace();
+                log.error("Failed to load appointments for {}", date, e);
                 return new ArrayList<>();
             }
         }
@@ -205,12 +251,9 @@
         @Transactional(readOnly = true)
         public List<CalendarAppointmentResponse> getAppointmentsForDateRange(LocalDateTime startDate, LocalDateTime endDate) {
             try {
-                List<Appointment> appointments = appointmentRepository.findByDateRange(startDate, endDate);
-                return appointments.stream()
-                        .map(this::toCalendarResponse)
-                        .collect(Collectors.toList());
+                return toCalendarResponses(appointmentRepository.findByDateRange(startDate, endDate));
             } catch (Exception e) {
-                e.printStackTrace();
+                log.error("Failed to load appointments from {} to {}", startDate, endDate, e);
                 return new ArrayList<>();
             }
         }
@@ -221,25 +264,144 @@
             try {
                 LocalDateTime now = LocalDateTime.now();
                 LocalDateTime endDate = now.plusMonths(3); // Next 3 months
-                List<Appointment> appointments = appointmentRepository.findUpcomingAppointments(now, endDate);
-                return appointments.stream()
-                        .map(this::toCalendarResponse)
-                        .collect(Collectors.toList());
+                return toCalendarResponses(appointmentRepository.findUpcomingAppointments(now, endDate));
             } catch (Exception e) {
-                e.printStackTrace();
+                log.error("Failed to load upcoming appointments", e);
                 return new ArrayList<>();
             }
         }
 
-        private CalendarAppointmentResponse toCalendarResponse(Appointment appointment) {
-            List<Reminder> reminders = new ArrayList<>();
+        @Override
+        public CalendarCache.View getCalendarMonthView(int year, int month, UUID doctorId) {
+            try {
+                LocalDate start = LocalDate.of(year, month, 1);
+                return getCalendarView(start, start.plusMonths(1), doctorId);
+            } catch (Exception e) {
+                log.error("Failed to load the calendar for {}-{}", year, month, e);
+                return emptyView();
+            }
+        }
+
+        // Not transactional: a view served from the cache costs one watermark read, not a connection held throughout
+        @Override
+        public CalendarCache.View getCalendarView(LocalDate startDay, LocalDate endDay, UUID doctorId) {
+            try {
+                return calendarCache.getView(startDay, endDay, doctorId, (from, to) -> toCalendarResponses(doctorId == null
+                        ? appointmentRepository.findByDateRange(from.atStartOfDay(), to.atStartOfDay())
+                        : appointmentRepository.findByDoctorIdAndDateRange(doctorId, from.atStartOfDay(), to.atStartOfDay())));
+            } catch (Exception e) {
+                log.error("Failed to load the calendar from {} to {}", startDay, endDay, e);
+                return emptyView();
+            }
+        }
+
+        @Override
+        public String getCalendarMonthEtag(int year, int month, UUID doctorId) {
             try {
-                reminders = reminderRepository.findByAppointmentId(appointment.getId());
+                LocalDate start = LocalDate.of(year, month, 1);
+                return getCalendarEtag(start, start.plusMonths(1), doctorId);
             } catch (Exception e) {
-                e.printStackTrace();
-                // fallback: return appointment with empty reminderSchedules
+                return null;
             }
+        }
+
+        @Override
+        public String getCalendarEtag(LocalDate startDay, LocalDate endDay, UUID doctorId) {
+            return calendarCache.currentEtag(startDay, endDay, doctorId);
+        }
+
+        @Override
+        @Transactional(readOnly = true)
+        public AppointmentChangesResponse getChanges(Long since, Integer limit) {
+            // Read first: every change numbered up to it has committed, so nothing below it can still appear
+            long watermark = changeLog.committedSequence();
+            if (since == null) {
+                return emptyChanges(watermark, false);
+            }
+            if (since < 0) {
+                throw new ValidationException("since must not be negative");
+            }
+            // Behind the floor the log is incomplete; ahead of the counter the log was reset
+            if (since < changeLog.floor() || since > watermark) {
+                return emptyChanges(watermark, true);
+            }
+            int pageSize = limit != null ? limit : deltaSyncProperties.getDefaultLimit();
+            if (pageSize < 1 || pageSize > deltaSyncProperties.getMaxLimit()) {
+                throw new ValidationException("limit must be between 1 and " + deltaSyncProperties.getMaxLimit());
+            }
+
+            // A page ends on a whole transaction, so a watermark never splits one
+            List<Long> sequences = changeLog.sequencesAfter(since, watermark, pageSize + 1);
+            boolean hasMore = sequences.size() > pageSize;
+            long until = hasMore ? sequences.get(pageSize - 1) : watermark;
+
+            Set<UUID> changed = new LinkedHashSet<>();
+            Set<UUID> deleted = new LinkedHashSet<>();
+            for (Object[] entry : changeLog.entriesBetween(since, until)) {
+                UUID appointmentId = (UUID) entry[1];
+                if ((Boolean) entry[2]) {
+                    deleted.add(appointmentId);
+                } else {
+                    changed.add(appointmentId);
+                }
+            }
+            // Deleted is final; one changed and then deleted within the page is only a tombstone
+            changed.removeAll(deleted);
+
+            List<Appointment> appointments = changed.isEmpty()
+                    ? List.of()
+                    : appointmentRepository.findAllWithClientAndDoctorByIdIn(changed);
+            Set<UUID> found = new HashSet<>();
+            appointments.forEach(appointment -> found.add(appointment.getId()));
+            for (UUID appointmentId : changed) {
+                // Gone without a tombstone, e.g. removed along with its client
+                if (!found.contains(appointmentId)) {
+                    deleted.add(appointmentId);
+                }
+            }
+            return AppointmentChangesResponse.builder()
+                    .watermark(until)
+                    .hasMore(hasMore)
+                    .resyncRequired(false)
+                    .upserts(toCalendarResponses(appointments))
+                    .deletedIds(new ArrayList<>(deleted))
+                    .build();
+        }
+
+        // Served when a view fails to load; untagged, so it is never revalidated
+        private static CalendarCache.View emptyView() {
+            return new CalendarCache.View("[]".getBytes(StandardCharsets.UTF_8), null);
+        }
+
+        private static AppointmentChangesResponse emptyChanges(long watermark, boolean resyncRequired) {
+            return AppointmentChangesResponse.builder()
+                    .watermark(watermark)
+                    .hasMore(false)
+                    .resyncRequired(resyncRequired)
+                    .upserts(List.of())
+                    .deletedIds(List.of())
+                    .build();
+        }
+
+        // Client and doctor come fetch-joined with the appointments; reminders for all of them take one more query.
+        // A failed reminder query propagates, so a partial result is never served as complete or cached
+        private List<CalendarAppointmentResponse> toCalendarResponses(List<Appointment> appointments) {
+            if (appointments.isEmpty()) {
+                return new ArrayList<>();
+            }
+            Map<UUID, List<Reminder>> remindersByAppointment = new HashMap<>();
+            List<UUID> appointmentIds = appointments.stream().map(Appointment::getId).toList();
+            for (Reminder reminder : reminderRepository.findByAppointmentIdIn(appointmentIds)) {
+                remindersByAppointment.computeIfAbsent(reminder.getAppointment().getId(), id -> new ArrayList<>())
+                        .add(reminder);
+            }
+            return appointments.stream()
+                    .map(appointment -> toCalendarResponse(appointment,
+                            remindersByAppointment.getOrDefault(appointment.getId(), List.of())))
+                    .collect(Collectors.toList());
+        }
 
+        private CalendarAppointmentResponse toCalendarResponse(Appointment appointment, List<Reminder> reminders) {
             String doctorSpecialization = "";
             try {
                 doctorSpecialization = appointment.getDoctor().getSpecialization();
@@ -257,7 +419,7 @@
                     .appointmentTime(appointment.getAppointmentTime())
                     .notes(appointment.getNotes())
                     .status(appointment.getStatus())
-                    .reminderSchedules(reminderMapper.toScheduleInfoList(reminders))
+                    .reminderSchedules(reminderMapper.toScheduleInfoList(appointment, reminders))
                     .build();
         }
     }
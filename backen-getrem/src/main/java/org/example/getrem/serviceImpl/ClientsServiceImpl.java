@@ -7,13 +7,20 @@ import org.example.getrem.dto.client.CreateClientRequest;
 import org.example.getrem.dto.client.UpdateClientRequest;
 import org.example.getrem.exception.NotFoundException;
 import org.example.getrem.model.Clients;
+import org.example.getrem.repository.AppointmentRepository;
 import org.example.getrem.repository.ClientsRepository;
+import org.example.getrem.repository.NotificationPreferenceRepository;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.CalendarCache;
 import org.example.getrem.service.ClientsService;
+import org.example.getrem.service.NotificationPreferenceCache;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
@@ -22,6 +29,11 @@ public class ClientsServiceImpl implements ClientsService {
 
     private final ClientsRepository clientsRepository;
     private final ClientsMapper clientsMapper;
+    private final NotificationPreferenceRepository notificationPreferenceRepository;
+    private final NotificationPreferenceCache notificationPreferenceCache;
+    private final CalendarCache calendarCache;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentChangeLog changeLog;
 
     @Override
     @Transactional
@@ -51,8 +63,14 @@ public class ClientsServiceImpl implements ClientsService {
     public ClientResponse updateClient(UUID id, UpdateClientRequest request) {
         Clients client = clientsRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Client not found with id: " + id));
+        String previousName = client.getName();
         clientsMapper.updateEntity(request, client);
         Clients updatedClient = clientsRepository.save(client);
+        if (!Objects.equals(previousName, updatedClient.getName())) {
+            appointmentRepository.touchByClientId(id, LocalDateTime.now());
+            changeLog.recordChanged(appointmentRepository.findIdsByClientId(id));
+        }
+        calendarCache.invalidateClient(id);
         return clientsMapper.toResponse(updatedClient);
     }
 
@@ -62,6 +80,9 @@ public class ClientsServiceImpl implements ClientsService {
         if (!clientsRepository.existsById(id)) {
             throw new NotFoundException("Client not found with id: " + id);
         }
+        notificationPreferenceRepository.deleteByClientId(id);
+        notificationPreferenceCache.invalidate(id);
+        calendarCache.invalidateClient(id);
         clientsRepository.deleteById(id);
     }
 }
@@ -1,17 +1,40 @@
 package org.example.getrem.serviceImpl;
 
 import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.doctor.AvailabilityMatrixRequest;
+import org.example.getrem.dto.doctor.AvailabilityMatrixResponse;
 import org.example.getrem.dto.doctor.CreateDoctorRequest;
+import org.example.getrem.config.FreeSlotProperties;
 import org.example.getrem.dto.doctor.DoctorResponse;
+import org.example.getrem.dto.doctor.FreeSlotResponse;
 import org.example.getrem.exception.NotFoundException;
+import org.example.getrem.exception.ValidationException;
 import org.example.getrem.model.Doctor;
+import org.example.getrem.repository.AppointmentRepository;
 import org.example.getrem.repository.DoctorRepository;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentSlotIndex;
+import org.example.getrem.service.CalendarCache;
 import org.example.getrem.service.DoctorService;
+import org.example.getrem.service.FreeSlotFinder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -20,6 +43,12 @@ import java.util.stream.Collectors;
 public class DoctorServiceImpl implements DoctorService {
 
     private final DoctorRepository doctorRepository;
+    private final CalendarCache calendarCache;
+    private final AppointmentSlotIndex slotIndex;
+    private final FreeSlotFinder freeSlotFinder;
+    private final FreeSlotProperties freeSlotProperties;
+    private final AppointmentRepository appointmentRepository;
+    private final AppointmentChangeLog changeLog;
 
     @Override
     @Transactional
@@ -64,6 +93,9 @@ public class DoctorServiceImpl implements DoctorService {
     public DoctorResponse updateDoctor(UUID id, CreateDoctorRequest request) {
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new NotFoundException("Doctor not found with id: " + id));
+        // Calendar feeds show the doctor's name and specialization on every appointment
+        boolean feedsChange = !Objects.equals(doctor.getName(), request.getName())
+                || !Objects.equals(doctor.getSpecialization(), request.getSpecialization());
         
         doctor.setName(request.getName());
         doctor.setSpecialization(request.getSpecialization());
@@ -74,6 +106,11 @@ public class DoctorServiceImpl implements DoctorService {
         }
         
         Doctor updated = doctorRepository.save(doctor);
+        if (feedsChange) {
+            appointmentRepository.touchByDoctorId(id, LocalDateTime.now());
+            changeLog.recordChanged(appointmentRepository.findIdsByDoctorId(id));
+        }
+        calendarCache.invalidateDoctor(id);
         return mapToResponse(updated);
     }
 
@@ -84,13 +121,130 @@ public class DoctorServiceImpl implements DoctorService {
             throw new NotFoundException("Doctor not found with id: " + id);
         }
         doctorRepository.deleteById(id);
+        calendarCache.invalidateDoctor(id);
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean isTimeSlotAvailable(UUID doctorId, OffsetDateTime appointmentTime, UUID excludeAppointmentId) {
-        Long overlappingCount = doctorRepository.countOverlappingAppointments(doctorId, appointmentTime.toLocalDateTime(), excludeAppointmentId);
-        return overlappingCount == null || overlappingCount == 0;
+        return slotIndex.countOverlapping(doctorId, appointmentTime.toLocalDateTime(), excludeAppointmentId) == 0;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AvailabilityMatrixResponse getAvailabilityMatrix(AvailabilityMatrixRequest request) {
+        List<UUID> doctorIds = List.copyOf(new LinkedHashSet<>(request.getDoctorIds()));
+        if (doctorIds.size() > freeSlotProperties.getMaxMatrixDoctors()) {
+            throw new ValidationException("At most " + freeSlotProperties.getMaxMatrixDoctors() + " doctors per request");
+        }
+        Set<UUID> missing = new HashSet<>(doctorIds);
+        doctorRepository.findAllById(doctorIds).forEach(doctor -> missing.remove(doctor.getId()));
+        if (!missing.isEmpty()) {
+            throw new NotFoundException("Doctors not found with ids: " + missing);
+        }
+
+        Integer stepMinutes = request.getSlots() != null && !request.getSlots().isEmpty() ? null
+                : request.getStepMinutes() != null ? request.getStepMinutes() : freeSlotProperties.getStepMinutes();
+        List<LocalDateTime> slots = matrixSlots(request, stepMinutes);
+
+        // Walk slots in time order so each doctor's bookings are passed over once
+        Integer[] byTime = new Integer[slots.size()];
+        for (int i = 0; i < byTime.length; i++) {
+            byTime[i] = i;
+        }
+        Arrays.sort(byTime, Comparator.comparing(slots::get));
+        LocalDateTime earliest = slots.get(byTime[0]);
+        LocalDateTime latest = slots.get(byTime[byTime.length - 1]);
+        Map<UUID, List<LocalDateTime>> booked = slotIndex.bookedStarts(doctorIds,
+                earliest.minusMinutes(AppointmentSlotIndex.CONFLICT_BEFORE_MINUTES),
+                latest.plusMinutes(AppointmentSlotIndex.CONFLICT_AFTER_MINUTES));
+
+        Map<UUID, String> availability = new LinkedHashMap<>();
+        for (UUID doctorId : doctorIds) {
+            byte[] row = availabilityRow(slots, byTime, booked.getOrDefault(doctorId, List.of()));
+            availability.put(doctorId, Base64.getEncoder().encodeToString(row));
+        }
+
+        return AvailabilityMatrixResponse.builder()
+                .encoding(AvailabilityMatrixResponse.ENCODING)
+                .slotCount(slots.size())
+                .from(stepMinutes != null ? request.getFrom() : null)
+                .stepMinutes(stepMinutes)
+                .availability(availability)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FreeSlotResponse> findFreeSlots(UUID doctorId, String specialization, LocalDate from, LocalDate to,
+                                                Integer count) {
+        int limit = count != null ? count : freeSlotProperties.getDefaultCount();
+        if (limit < 1 || limit > freeSlotProperties.getMaxCount()) {
+            throw new ValidationException("count must be between 1 and " + freeSlotProperties.getMaxCount());
+        }
+        LocalDate firstDay = from != null ? from : LocalDate.now();
+        LocalDate lastDay = to != null ? to : firstDay.plusDays(freeSlotProperties.getDefaultRangeDays() - 1L);
+        if (lastDay.isBefore(firstDay)) {
+            throw new ValidationException("to must not be before from");
+        }
+        if (ChronoUnit.DAYS.between(firstDay, lastDay) >= freeSlotProperties.getMaxRangeDays()) {
+            throw new ValidationException("A search may span at most " + freeSlotProperties.getMaxRangeDays() + " days");
+        }
+
+        // A specific doctor wins over a specialization; neither means every active doctor
+        List<Doctor> doctors;
+        if (doctorId != null) {
+            doctors = List.of(doctorRepository.findById(doctorId)
+                    .orElseThrow(() -> new NotFoundException("Doctor not found with id: " + doctorId)));
+        } else if (specialization != null && !specialization.isBlank()) {
+            doctors = doctorRepository.findByActiveTrueAndSpecializationIgnoreCase(specialization.trim());
+        } else {
+            doctors = doctorRepository.findByActiveTrue();
+        }
+        return freeSlotFinder.find(doctors, firstDay, lastDay, LocalDateTime.now(), limit);
+    }
+
+    private List<LocalDateTime> matrixSlots(AvailabilityMatrixRequest request, Integer stepMinutes) {
+        int maxSlots = freeSlotProperties.getMaxMatrixSlots();
+        if (stepMinutes == null) {
+            if (request.getSlots().size() > maxSlots) {
+                throw new ValidationException("At most " + maxSlots + " slots per request");
+            }
+            return request.getSlots();
+        }
+        if (request.getFrom() == null || request.getTo() == null) {
+            throw new ValidationException("Either slots or from and to are required");
+        }
+        if (stepMinutes < 1 || !request.getTo().isAfter(request.getFrom())) {
+            throw new ValidationException("stepMinutes must be positive and to must be after from");
+        }
+        long slotCount = (ChronoUnit.MINUTES.between(request.getFrom(), request.getTo()) + stepMinutes - 1) / stepMinutes;
+        if (slotCount > maxSlots) {
+            throw new ValidationException("At most " + maxSlots + " slots per request");
+        }
+        List<LocalDateTime> slots = new ArrayList<>((int) slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(request.getFrom().plusMinutes((long) stepMinutes * i));
+        }
+        return slots;
+    }
+
+    // Bit i is set when slot i is free; byTime lists slot indexes in time order, and starts is sorted
+    private static byte[] availabilityRow(List<LocalDateTime> slots, Integer[] byTime, List<LocalDateTime> starts) {
+        byte[] row = new byte[(slots.size() + 7) / 8];
+        int next = 0;
+        for (int index : byTime) {
+            LocalDateTime slot = slots.get(index);
+            LocalDateTime conflictsAfter = slot.minusMinutes(AppointmentSlotIndex.CONFLICT_BEFORE_MINUTES);
+            LocalDateTime conflictsBefore = slot.plusMinutes(AppointmentSlotIndex.CONFLICT_AFTER_MINUTES);
+            while (next < starts.size() && !starts.get(next).isAfter(conflictsAfter)) {
+                next++;
+            }
+            if (next == starts.size() || !starts.get(next).isBefore(conflictsBefore)) {
+                row[index >> 3] |= (byte) (1 << (index & 7));
+            }
+        }
+        return row;
     }
 
     private DoctorResponse mapToResponse(Doctor doctor) {
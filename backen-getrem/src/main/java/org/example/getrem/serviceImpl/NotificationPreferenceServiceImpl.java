@@ -0,0 +1,91 @@
+package org.example.getrem.serviceImpl;
+
+import lombok.RequiredArgsConstructor;
+import org.example.getrem.dto.preference.NotificationPreferenceRequest;
+import org.example.getrem.dto.preference.NotificationPreferenceResponse;
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
+import org.example.getrem.exception.NotFoundException;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.NotificationPreference;
+import org.example.getrem.repository.ClientsRepository;
+import org.example.getrem.repository.NotificationPreferenceRepository;
+import org.example.getrem.service.NotificationPreferenceCache;
+import org.example.getrem.service.NotificationPreferenceService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class NotificationPreferenceServiceImpl implements NotificationPreferenceService {
+
+    private final NotificationPreferenceRepository preferenceRepository;
+    private final ClientsRepository clientsRepository;
+    private final NotificationPreferenceCache preferenceCache;
+
+    @Override
+    @Transactional(readOnly = true)
+    public NotificationPreferenceResponse getPreferences(UUID clientId) {
+        if (!clientsRepository.existsById(clientId)) {
+            throw new NotFoundException("Client not found with id: " + clientId);
+        }
+        NotificationPreferenceSnapshot preferences = preferenceCache.get(clientId);
+        return NotificationPreferenceResponse.builder()
+                .clientId(clientId)
+                .emailEnabled(preferences.isEmailEnabled())
+                .smsEnabled(preferences.isSmsEnabled())
+                .whatsappEnabled(preferences.isWhatsappEnabled())
+                .preferredChannel(preferences.getPreferredChannel())
+                .quietHoursStart(preferences.getQuietHoursStart())
+                .quietHoursEnd(preferences.getQuietHoursEnd())
+                .locale(preferences.getLocale() != null ? preferences.getLocale().toLanguageTag() : null)
+                .build();
+    }
+
+    @Override
+    @Transactional
+    public NotificationPreferenceResponse updatePreferences(UUID clientId, NotificationPreferenceRequest request) {
+        Clients client = clientsRepository.findById(clientId)
+                .orElseThrow(() -> new NotFoundException("Client not found with id: " + clientId));
+
+        if ((request.getQuietHoursStart() == null) != (request.getQuietHoursEnd() == null)) {
+            throw new ValidationException("Quiet hours need both a start and an end time");
+        }
+
+        NotificationPreference preference = preferenceRepository.findByClientId(clientId)
+                .orElseGet(() -> {
+                    NotificationPreference created = new NotificationPreference();
+                    created.setClient(client);
+                    return created;
+                });
+
+        // A PUT replaces every field; omitted channels fall back to enabled, as for a client with no row yet
+        preference.setEmailEnabled(!Boolean.FALSE.equals(request.getEmailEnabled()));
+        preference.setSmsEnabled(!Boolean.FALSE.equals(request.getSmsEnabled()));
+        preference.setWhatsappEnabled(!Boolean.FALSE.equals(request.getWhatsappEnabled()));
+        preference.setPreferredChannel(request.getPreferredChannel());
+        preference.setQuietHoursStart(request.getQuietHoursStart());
+        preference.setQuietHoursEnd(request.getQuietHoursEnd());
+        preference.setLocale(request.getLocale());
+
+        NotificationPreference saved = preferenceRepository.save(preference);
+        preferenceCache.invalidate(clientId);
+        return toResponse(saved);
+    }
+
+    private NotificationPreferenceResponse toResponse(NotificationPreference preference) {
+        return NotificationPreferenceResponse.builder()
+                .clientId(preference.getClient().getId())
+                .emailEnabled(preference.getEmailEnabled())
+                .smsEnabled(preference.getSmsEnabled())
+                .whatsappEnabled(preference.getWhatsappEnabled())
+                .preferredChannel(preference.getPreferredChannel())
+                .quietHoursStart(preference.getQuietHoursStart())
+                .quietHoursEnd(preference.getQuietHoursEnd())
+                .locale(preference.getLocale())
+                .updatedAt(preference.getUpdatedAt())
+                .build();
+    }
+}
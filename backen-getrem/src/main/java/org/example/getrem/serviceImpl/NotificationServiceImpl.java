@@ -2,32 +2,106 @@ package org.example.getrem.serviceImpl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
+import org.example.getrem.enums.AppointmentAction;
 import org.example.getrem.enums.NotificationChannel;
 import org.example.getrem.enums.NotificationStatus;
 import org.example.getrem.model.Appointment;
 import org.example.getrem.model.NotificationLog;
 import org.example.getrem.model.Reminder;
-import org.example.getrem.repository.NotificationLogRepository;
+import org.example.getrem.service.AppointmentLinkSigner;
+import org.example.getrem.service.EngagementTracker;
+import org.example.getrem.service.MailRelayRouter;
+import org.example.getrem.service.MailSpool;
+import org.example.getrem.service.NotificationExecutor;
+import org.example.getrem.service.NotificationLogWriter;
 import org.example.getrem.service.NotificationService;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationServiceImpl implements NotificationService {
 
-    private final NotificationLogRepository notificationLogRepository;
-    private final JavaMailSender mailSender;
+    private final MailRelayRouter mailRelayRouter;
+    private final NotificationExecutor notificationExecutor;
+    private final NotificationLogWriter notificationLogWriter;
+    private final MailSpool mailSpool;
+    private final AppointmentLinkSigner appointmentLinkSigner;
+    private final EngagementTracker engagementTracker;
+
+    private enum EmailOutcome { SENT, SPOOLED, FAILED }
 
     @Override
     @Transactional
     public void sendNotification(Reminder reminder, NotificationChannel channel, String recipient) {
+        notificationLogWriter.publish(deliver(reminder, channel, recipient, Locale.getDefault()));
+    }
+
+    @Override
+    @Transactional
+    public void sendAllChannelNotifications(Reminder reminder, String phoneNumber, String email) {
+        sendAllChannelNotifications(reminder, phoneNumber, email,
+                NotificationPreferenceSnapshot.defaults(reminder.getAppointment().getClient().getId()));
+    }
+
+    @Override
+    @Transactional
+    public void sendAllChannelNotifications(Reminder reminder, String phoneNumber, String email,
+                                            NotificationPreferenceSnapshot preferences) {
+        // Audit rows are written off the send path once this transaction commits
+        notificationLogWriter.publishAll(deliverAllChannels(reminder, phoneNumber, email, preferences));
+    }
+
+    // Not transactional: run on a virtual thread, a transaction would hold a pooled connection for the whole send
+    @Override
+    public List<NotificationLog> deliverAllChannels(Reminder reminder, String phoneNumber, String email,
+                                                    NotificationPreferenceSnapshot preferences) {
+        Locale locale = preferences.localeOrDefault();
+        List<NotificationChannel> channels = new ArrayList<>();
+        for (NotificationChannel channel : preferences.orderedChannels()) {
+            String recipient = channel == NotificationChannel.EMAIL ? email : phoneNumber;
+            if (recipient == null || recipient.isEmpty()) {
+                continue;
+            }
+
+            // WhatsApp and SMS can be added later
+            if (!NotificationPreferenceSnapshot.DELIVERED_CHANNELS.contains(channel)) {
+                log.info("{} notifications not yet implemented for {}", channel, recipient);
+                continue;
+            }
+            channels.add(channel);
+        }
+
+        List<NotificationLog> logs = Collections.synchronizedList(new ArrayList<>());
+        if (preferences.getPreferredChannel() != null) {
+            // With a preferred channel the others are only fallbacks, so try them in turn
+            for (NotificationChannel channel : channels) {
+                String recipient = channel == NotificationChannel.EMAIL ? email : phoneNumber;
+                NotificationLog notificationLog = deliver(reminder, channel, recipient, locale);
+                logs.add(notificationLog);
+                // A spooled email will still go out, so it does not warrant a fallback either
+                if (notificationLog.getStatus() != NotificationStatus.FAILED) {
+                    break;
+                }
+            }
+        } else {
+            notificationExecutor.runAll(channels, channel -> logs.add(deliver(reminder, channel,
+                    channel == NotificationChannel.EMAIL ? email : phoneNumber, locale)));
+        }
+        return logs;
+    }
+
+    private NotificationLog deliver(Reminder reminder, NotificationChannel channel, String recipient, Locale locale) {
         NotificationLog notificationLog = new NotificationLog();
         notificationLog.setReminder(reminder);
         notificationLog.setChannel(channel);
@@ -38,7 +112,13 @@ public class NotificationServiceImpl implements NotificationService {
             boolean success = false;
             
             if (channel == NotificationChannel.EMAIL) {
-                success = sendEmail(recipient, reminder);
+                EmailOutcome outcome = sendEmail(recipient, reminder, locale);
+                if (outcome == EmailOutcome.SPOOLED) {
+                    notificationLog.setStatus(NotificationStatus.PENDING);
+                    notificationLog.setErrorMessage("SMTP unavailable; queued in the mail spool");
+                    return notificationLog;
+                }
+                success = outcome == EmailOutcome.SENT;
             } else {
                 // For WhatsApp and SMS, keep placeholder for now
                 log.info("Sending {} notification to {} for reminder {}", channel, recipient, reminder.getId());
@@ -57,20 +137,7 @@ public class NotificationServiceImpl implements NotificationService {
             notificationLog.setErrorMessage(e.getMessage());
         }
 
-        notificationLogRepository.save(notificationLog);
-    }
-
-    @Override
-    @Transactional
-    public void sendAllChannelNotifications(Reminder reminder, String phoneNumber, String email) {
-        if (email != null && !email.isEmpty()) {
-            sendNotification(reminder, NotificationChannel.EMAIL, email);
-        }
-        
-        // WhatsApp and SMS can be added later
-        if (phoneNumber != null && !phoneNumber.isEmpty()) {
-            log.info("SMS/WhatsApp notifications not yet implemented for {}", phoneNumber);
-        }
+        return notificationLog;
     }
 
     @Override
@@ -81,7 +148,7 @@ public class NotificationServiceImpl implements NotificationService {
             message.setTo(to);
             message.setSubject(subject);
             message.setText(body);
-            mailSender.send(message);
+            mailRelayRouter.send(message);
             log.info("Test email sent successfully to {}", to);
         } catch (Exception e) {
             log.error("Failed to send test email to {}", to, e);
@@ -89,31 +156,55 @@ public class NotificationServiceImpl implements NotificationService {
         }
     }
 
-    private boolean sendEmail(String recipient, Reminder reminder) {
+    private EmailOutcome sendEmail(String recipient, Reminder reminder, Locale locale) {
+        SimpleMailMessage message;
+        Appointment appointment = reminder.getAppointment();
         try {
-            Appointment appointment = reminder.getAppointment();
             String clientName = appointment.getClient().getName();
             String appointmentTime = appointment.getAppointmentTime()
-                    .format(DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm"));
+                    .format(DateTimeFormatter.ofPattern("MMMM dd, yyyy 'at' HH:mm", locale));
             
             String subject = "Appointment Reminder - " + clientName;
-            String body = buildEmailBody(clientName, appointmentTime, appointment.getNotes(), reminder);
+            String body = buildEmailBody(clientName, appointmentTime, appointment, reminder);
             
-            SimpleMailMessage message = new SimpleMailMessage();
+            message = new SimpleMailMessage();
             message.setTo(recipient);
             message.setSubject(subject);
             message.setText(body);
-            
-            mailSender.send(message);
+        } catch (Exception e) {
+            log.error("Failed to build email to {}", recipient, e);
+            return EmailOutcome.FAILED;
+        }
+
+        // Queue behind an existing backlog so mail stays in order and the provider is not flooded on recovery
+        if (mailSpool.hasBacklog()) {
+            return mailSpool.offer(reminder.getId(), appointment.getId(), appointment.getAppointmentTime(), message)
+                    ? EmailOutcome.SPOOLED
+                    : EmailOutcome.FAILED;
+        }
+
+        try {
+            notificationExecutor.withPermit(NotificationChannel.EMAIL, () -> {
+                mailRelayRouter.send(message);
+                return null;
+            });
             log.info("Email sent successfully to {} for appointment {}", recipient, appointment.getId());
-            return true;
+            return EmailOutcome.SENT;
         } catch (Exception e) {
+            if (MailSpool.isProviderUnavailable(e)
+                    && mailSpool.offer(reminder.getId(), appointment.getId(), appointment.getAppointmentTime(), message)) {
+                mailSpool.recordProviderFailure(e);
+                log.warn("SMTP unavailable, spooled email to {} for appointment {}: {}",
+                        recipient, appointment.getId(), e.getMessage());
+                return EmailOutcome.SPOOLED;
+            }
             log.error("Failed to send email to {}", recipient, e);
-            return false;
+            return EmailOutcome.FAILED;
         }
     }
 
-    private String buildEmailBody(String clientName, String appointmentTime, String notes, Reminder reminder) {
+    private String buildEmailBody(String clientName, String appointmentTime, Appointment appointment, Reminder reminder) {
+        String notes = appointment.getNotes();
         StringBuilder body = new StringBuilder();
         body.append("Dear ").append(clientName).append(",\n\n");
         body.append("This is a reminder for your upcoming appointment.\n\n");
@@ -126,9 +217,26 @@ public class NotificationServiceImpl implements NotificationService {
         
         body.append("\nReminder Type: ").append(reminder.getType()).append("\n");
         body.append("\nPlease arrive on time for your appointment.\n\n");
+
+        // Signed links stay valid until the appointment starts
+        if (appointmentLinkSigner.isEnabled() && appointment.getAppointmentTime().isAfter(LocalDateTime.now())) {
+            body.append("Confirm your appointment: ")
+                    .append(tracked(reminder, appointmentLinkSigner.link(appointment.getId(),
+                            AppointmentAction.CONFIRM, appointment.getAppointmentTime())))
+                    .append("\n");
+            body.append("Cancel your appointment: ")
+                    .append(tracked(reminder, appointmentLinkSigner.link(appointment.getId(),
+                            AppointmentAction.CANCEL, appointment.getAppointmentTime())))
+                    .append("\n\n");
+        }
         body.append("Thank you,\n");
         body.append("GetRem Dental Clinic");
         
         return body.toString();
     }
+
+    // Plain-text mail cannot load an open pixel, so clicks are what tells us a reminder was read
+    private String tracked(Reminder reminder, String url) {
+        return engagementTracker.isEnabled() ? engagementTracker.clickUrl(reminder.getId(), url) : url;
+    }
 }
@@ -2,18 +2,31 @@ package org.example.getrem.serviceImpl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.getrem.config.ReminderPlanProperties;
 import org.example.getrem.enums.ReminderStatus;
 import org.example.getrem.enums.ReminderType;
 import org.example.getrem.model.Appointment;
 import org.example.getrem.model.Reminder;
+import org.example.getrem.model.ReminderPlan;
+import org.example.getrem.repository.AppointmentRepository;
 import org.example.getrem.repository.ReminderRepository;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.NotificationPreferenceCache;
 import org.example.getrem.service.NotificationService;
+import org.example.getrem.service.ReminderLoadIndex;
 import org.example.getrem.service.ReminderService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -22,7 +35,14 @@ import java.util.UUID;
 public class ReminderServiceImpl implements ReminderService {
 
     private final ReminderRepository reminderRepository;
+    private final AppointmentRepository appointmentRepository;
     private final NotificationService notificationService;
+    private final NotificationPreferenceCache preferenceCache;
+    private final ReminderLoadIndex reminderLoadIndex;
+    private final ReminderPlanProperties reminderPlanProperties;
+    private final CalendarCache calendarCache;
+    private final CalendarEventBroadcaster calendarEvents;
+    private final AppointmentChangeLog changeLog;
 
     @Override
     @Transactional
@@ -33,38 +53,22 @@ public class ReminderServiceImpl implements ReminderService {
 
         LocalDateTime appointmentTime = appointment.getAppointmentTime();
         LocalDateTime now = LocalDateTime.now();
-        ReminderType type = null;
+        List<Reminder> reminders = new ArrayList<>();
+        List<ReminderPlan.Entry> planned = new ArrayList<>();
         // Schedule reminders based on selected options
         if (reminderOptions != null && !reminderOptions.isEmpty()) {
             for (String option : reminderOptions) {
-                LocalDateTime scheduledTime = null;
-
-
                 switch (option) {
                     case "IMMEDIATE":
-                        scheduledTime = now;
-                        type = ReminderType.IMMEDIATE;
+                        reminders.add(createReminder(appointment, ReminderType.IMMEDIATE, now));
                         break;
                     case "TEN_MINUTES_BEFORE":
-                        scheduledTime = appointmentTime.minusMinutes(10);
-                        type = ReminderType.TEN_MINUTES_BEFORE;
-                        break;
                     case "ONE_DAY_BEFORE":
-                        scheduledTime = appointmentTime.minusDays(1);
-                        type = ReminderType.ONE_DAY_BEFORE;
-                        break;
-                }
-
-                if (scheduledTime != null && type != null) {
-                    if (scheduledTime.isAfter(now) || option.equals("IMMEDIATE")) {
-                        Reminder reminder = createReminder(appointment, type, scheduledTime);
-                        reminderRepository.save(reminder);
-                        
-                        // Send immediately if instant
-                        if (option.equals("IMMEDIATE")) {
-                            sendImmediateConfirmation(reminder, appointment);
+                        ReminderPlan.Entry entry = ReminderPlan.Entry.offset(ReminderType.valueOf(option));
+                        if (entry.timeFor(appointmentTime).isAfter(now)) {
+                            planned.add(entry);
                         }
-                    }
+                        break;
                 }
             }
         }
@@ -73,11 +77,35 @@ public class ReminderServiceImpl implements ReminderService {
         if (customReminderTimes != null && !customReminderTimes.isEmpty()) {
             for (LocalDateTime customTime : customReminderTimes) {
                 if (customTime.isAfter(now) && customTime.isBefore(appointmentTime)) {
-                    Reminder reminder = createReminder(appointment, ReminderType.CUSTOM, customTime);
-                    reminderRepository.save(reminder);
+                    planned.add(ReminderPlan.Entry.custom(customTime));
                 }
             }
         }
+
+        // Only reminders inside the horizon get rows now; the rest wait in the plan for ReminderMaterializer
+        if (!planned.isEmpty()) {
+            appointment.setReminderPlan(new ReminderPlan(planned));
+            appointment.setPlanNextDueAt(planned.stream()
+                    .map(entry -> entry.timeFor(appointmentTime))
+                    .min(LocalDateTime::compareTo)
+                    .orElseThrow());
+            reminders.addAll(takeDueFromPlan(appointment, now.plusHours(reminderPlanProperties.getHorizonHours())));
+            ReminderPlan.forEachPlanned(appointment, (type, time) -> reminderLoadIndex.onScheduled(appointment, type, time));
+        }
+
+        // One batched INSERT for all of the appointment's reminders
+        reminderRepository.saveAll(reminders);
+
+        for (Reminder reminder : reminders) {
+            // Send immediately if instant
+            if (reminder.getType() == ReminderType.IMMEDIATE) {
+                sendImmediateConfirmation(reminder, appointment);
+            } else {
+                reminderLoadIndex.onScheduled(reminder);
+            }
+        }
+        calendarCache.invalidateAppointments(List.of(appointment.getId()));
+        changeLog.recordChanged(List.of(appointment.getId()));
     }
 
     @Override
@@ -94,18 +122,32 @@ public class ReminderServiceImpl implements ReminderService {
         Reminder immediateReminder = createReminder(appointment, ReminderType.IMMEDIATE, now);
         reminderRepository.save(immediateReminder);
         sendImmediateConfirmation(immediateReminder, appointment);
+        calendarCache.invalidateAppointments(List.of(appointment.getId()));
+        changeLog.recordChanged(List.of(appointment.getId()));
     }
 
     @Override
     @Transactional
     public void cancelRemindersForAppointment(UUID appointmentId) {
         List<Reminder> reminders = reminderRepository.findByAppointmentId(appointmentId);
+        // Dirty-checked updates are flushed together as one batch
         reminders.forEach(reminder -> {
             if (reminder.getStatus() == ReminderStatus.PENDING) {
                 reminder.setStatus(ReminderStatus.CANCELLED);
-                reminderRepository.save(reminder);
+                reminderLoadIndex.onRemoved(reminder);
+                calendarEvents.publishReminderStatus(reminder);
             }
         });
+
+        // Planned reminders have no rows to cancel; dropping the plan is enough. Their forecast keys are
+        // dropped by appointment, since the appointment time may already be the new one on a reschedule
+        reminderLoadIndex.onAppointmentsCancelled(Set.of(appointmentId));
+        appointmentRepository.findById(appointmentId).ifPresent(appointment -> {
+            appointment.setReminderPlan(null);
+            appointment.setPlanNextDueAt(null);
+        });
+        calendarCache.invalidateAppointments(List.of(appointmentId));
+        changeLog.recordChanged(List.of(appointmentId));
     }
 
     @Override
@@ -117,11 +159,149 @@ public class ReminderServiceImpl implements ReminderService {
 
     @Override
     @Transactional
-    public void rescheduleRemindersForAppointment(Appointment appointment) {
-        cancelRemindersForAppointment(appointment.getId());
-        scheduleRemindersForAppointment(appointment);
+    public void moveRemindersWithAppointment(Appointment appointment) {
+        LocalDateTime appointmentTime = appointment.getAppointmentTime();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime horizon = now.plusHours(reminderPlanProperties.getHorizonHours());
+        List<Reminder> rows = reminderRepository.findByAppointmentId(appointment.getId());
+
+        Map<ReminderType, Reminder> pendingOffsets = new EnumMap<>(ReminderType.class);
+        Set<ReminderType> deliveredOffsets = EnumSet.noneOf(ReminderType.class);
+        List<Reminder> pending = new ArrayList<>();
+        for (Reminder reminder : rows) {
+            boolean offset = isOffset(reminder.getType());
+            if (reminder.getStatus() == ReminderStatus.PENDING) {
+                if (offset) {
+                    pendingOffsets.put(reminder.getType(), reminder);
+                } else if (reminder.getType() == ReminderType.CUSTOM
+                        && !reminder.getScheduledTime().isBefore(appointmentTime)) {
+                    cancel(reminder);
+                } else {
+                    pending.add(reminder);
+                }
+            } else if (offset && reminder.getStatus() != ReminderStatus.CANCELLED) {
+                deliveredOffsets.add(reminder.getType());
+            }
+        }
+
+        // Offsets come from the plan, or from rows booked before plans existed
+        Set<ReminderType> offsets = EnumSet.noneOf(ReminderType.class);
+        offsets.addAll(pendingOffsets.keySet());
+        List<ReminderPlan.Entry> kept = new ArrayList<>();
+        List<ReminderPlan.Entry> unrowed = new ArrayList<>();
+        ReminderPlan plan = appointment.getReminderPlan();
+        LocalDateTime nextDueAt = appointment.getPlanNextDueAt();
+        if (plan != null) {
+            for (ReminderPlan.Entry entry : plan.entries()) {
+                if (isOffset(entry.type())) {
+                    offsets.add(entry.type());
+                } else if (entry.time().isBefore(appointmentTime)) {
+                    kept.add(entry);
+                    // Custom times do not move, so the old next due time still tells which have rows
+                    if (nextDueAt != null && !entry.time().isBefore(nextDueAt)) {
+                        unrowed.add(entry);
+                    }
+                }
+            }
+        }
+        for (ReminderType type : offsets) {
+            ReminderPlan.Entry entry = ReminderPlan.Entry.offset(type);
+            LocalDateTime time = entry.timeFor(appointmentTime);
+            Reminder row = pendingOffsets.get(type);
+            if (!time.isAfter(now) || (row == null && deliveredOffsets.contains(type))) {
+                // Too late to be useful, or already delivered for an earlier time
+                if (row != null) {
+                    cancel(row);
+                }
+                continue;
+            }
+            kept.add(entry);
+            if (row != null && !time.isAfter(horizon)) {
+                row.setScheduledTime(time);
+                pending.add(row);
+            } else {
+                // Moved beyond the horizon; the row goes and the plan creates it again when it is near
+                if (row != null) {
+                    cancel(row);
+                }
+                unrowed.add(entry);
+            }
+        }
+
+        List<Reminder> created = new ArrayList<>();
+        LocalDateTime stillPlanned = null;
+        for (ReminderPlan.Entry entry : unrowed) {
+            LocalDateTime time = entry.timeFor(appointmentTime);
+            if (!time.isAfter(horizon)) {
+                created.add(createReminder(appointment, entry.type(), time));
+            } else if (stillPlanned == null || time.isBefore(stillPlanned)) {
+                stillPlanned = time;
+            }
+        }
+        appointment.setReminderPlan(kept.isEmpty() ? null : new ReminderPlan(kept));
+        appointment.setPlanNextDueAt(stillPlanned);
+        reminderRepository.saveAll(created);
+        pending.addAll(created);
+
+        // The forecast keys of the old time are not known here, so the appointment is counted afresh
+        reminderLoadIndex.onAppointmentsCancelled(Set.of(appointment.getId()));
+        pending.forEach(reminderLoadIndex::onScheduled);
+        ReminderPlan.forEachPlanned(appointment, (type, time) -> reminderLoadIndex.onScheduled(appointment, type, time));
+        calendarCache.invalidateAppointments(List.of(appointment.getId()));
+        changeLog.recordChanged(List.of(appointment.getId()));
+    }
+
+    @Override
+    @Transactional
+    public int materializePlannedReminders(Appointment appointment, LocalDateTime until) {
+        List<Reminder> reminders = takeDueFromPlan(appointment, until);
+        reminderRepository.saveAll(reminders);
+        // Already counted in the forecast while planned; re-adding the same key is a no-op
+        reminders.forEach(reminderLoadIndex::onScheduled);
+        if (!reminders.isEmpty()) {
+            calendarCache.invalidateAppointments(List.of(appointment.getId()));
+            changeLog.recordChanged(List.of(appointment.getId()));
+        }
+        return reminders.size();
     }
 
+    /**
+     * Builds reminders for plan entries due by {@code until} that have no row
+     * yet, and moves the appointment's next due time past them.
+     */
+    private List<Reminder> takeDueFromPlan(Appointment appointment, LocalDateTime until) {
+        ReminderPlan plan = appointment.getReminderPlan();
+        LocalDateTime nextDueAt = appointment.getPlanNextDueAt();
+        if (plan == null || nextDueAt == null || nextDueAt.isAfter(until)) {
+            return List.of();
+        }
+
+        List<Reminder> reminders = new ArrayList<>();
+        LocalDateTime stillPlanned = null;
+        for (ReminderPlan.Entry entry : plan.entries()) {
+            LocalDateTime time = entry.timeFor(appointment.getAppointmentTime());
+            if (time.isBefore(nextDueAt)) {
+                continue;
+            }
+            if (!time.isAfter(until)) {
+                reminders.add(createReminder(appointment, entry.type(), time));
+            } else if (stillPlanned == null || time.isBefore(stillPlanned)) {
+                stillPlanned = time;
+            }
+        }
+        appointment.setPlanNextDueAt(stillPlanned);
+        return reminders;
+    }
+
+    private static boolean isOffset(ReminderType type) {
+        return type == ReminderType.TEN_MINUTES_BEFORE || type == ReminderType.ONE_DAY_BEFORE;
+    }
+
+    // Dirty-checked, so the update joins the rest of the transaction's batch
+    private void cancel(Reminder reminder) {
+        reminder.setStatus(ReminderStatus.CANCELLED);
+        calendarEvents.publishReminderStatus(reminder);
+    }
 
     private Reminder createReminder(Appointment appointment, ReminderType type, LocalDateTime scheduledTime) {
         Reminder reminder = new Reminder();
@@ -138,14 +318,18 @@ public class ReminderServiceImpl implements ReminderService {
             String phoneNumber = appointment.getClient().getPhone();
             String email = appointment.getClient().getEmail();
             
-            notificationService.sendAllChannelNotifications(reminder, phoneNumber, email);
+            // Confirmations go out right away; only channel opt-outs apply, not quiet hours
+            notificationService.sendAllChannelNotifications(reminder, phoneNumber, email,
+                    preferenceCache.get(appointment.getClient().getId()));
             reminder.setStatus(ReminderStatus.SENT);
             reminder.setSentAt(LocalDateTime.now());
             reminderRepository.save(reminder);
+            calendarEvents.publishReminderStatus(reminder);
         } catch (Exception e) {
             log.error("Failed to send immediate confirmation for reminder {}", reminder.getId(), e);
             reminder.setStatus(ReminderStatus.FAILED);
             reminderRepository.save(reminder);
+            calendarEvents.publishReminderStatus(reminder);
         }
     }
 }
@@ -0,0 +1,161 @@
+package org.example.getrem.benchmark;
+
+import jakarta.persistence.EntityManager;
+import org.example.getrem.config.AppointmentLinkProperties;
+import org.example.getrem.config.CalendarCacheProperties;
+import org.example.getrem.config.CalendarEventProperties;
+import org.example.getrem.config.DeltaSyncProperties;
+import org.example.getrem.config.EngagementTrackingProperties;
+import org.example.getrem.config.MailRelayProperties;
+import org.example.getrem.config.MailSpoolProperties;
+import org.example.getrem.config.NotificationExecutionProperties;
+import org.example.getrem.config.NotificationLogWriterProperties;
+import org.example.getrem.config.NotificationPreferenceProperties;
+import org.example.getrem.config.ReminderForecastProperties;
+import org.example.getrem.config.ReminderPlanProperties;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.Gender;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.Doctor;
+import org.example.getrem.repository.CustomReminderEngagementRepo;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentLinkSigner;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.EngagementTracker;
+import org.example.getrem.service.MailRelayRouter;
+import org.example.getrem.service.MailSpool;
+import org.example.getrem.service.NotificationExecutor;
+import org.example.getrem.service.NotificationLogWriter;
+import org.example.getrem.service.NotificationPreferenceCache;
+import org.example.getrem.service.ReminderLoadIndex;
+import org.example.getrem.service.ReminderService;
+import org.example.getrem.serviceImpl.NotificationServiceImpl;
+import org.example.getrem.serviceImpl.ReminderServiceImpl;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk booking throughput (appointment + three reminders each) with JDBC
+ * batching off and on. Run with
+ * {@code mvn test -Dbenchmarks=true -Dtest=BulkBookingBenchmark}; the gap
+ * widens further against a networked MySQL with rewriteBatchedStatements.
+ */
+@DataJpaTest
+@AutoConfigureJson
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        // Synchronous log writes so they are counted inside the dispatch transaction
+        "getrem.notification-log.writer.enabled=false",
+        "getrem.mail-spool.enabled=false",
+        // Materialise every reminder at booking time so all of them go through the batched insert
+        "getrem.reminder-plan.horizon-hours=100000"
+})
+@EnableConfigurationProperties({
+        AppointmentLinkProperties.class,
+        CalendarCacheProperties.class,
+        CalendarEventProperties.class,
+        DeltaSyncProperties.class,
+        EngagementTrackingProperties.class,
+        NotificationPreferenceProperties.class,
+        ReminderForecastProperties.class,
+        ReminderPlanProperties.class,
+        NotificationExecutionProperties.class,
+        NotificationLogWriterProperties.class,
+        MailSpoolProperties.class,
+        MailRelayProperties.class
+})
+@Import({
+        AppointmentLinkSigner.class,
+        CalendarCache.class,
+        CalendarEventBroadcaster.class,
+        AppointmentChangeLog.class,
+        EngagementTracker.class,
+        CustomReminderEngagementRepo.class,
+        ReminderServiceImpl.class,
+        NotificationServiceImpl.class,
+        NotificationPreferenceCache.class,
+        ReminderLoadIndex.class,
+        NotificationExecutor.class,
+        NotificationLogWriter.class,
+        MailSpool.class,
+        MailRelayRouter.class
+})
+class BulkBookingBenchmark {
+
+    private static final int BOOKINGS = 5_000;
+    private static final int FLUSH_EVERY = 250;
+    private static final List<String> REMINDER_OPTIONS = List.of("TEN_MINUTES_BEFORE", "ONE_DAY_BEFORE");
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ReminderService reminderService;
+
+    @MockBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void compareBatchSizes() {
+        book("warm-up", 50, 1_000);
+        book("batch size 1", 1, BOOKINGS);
+        book("batch size 50", 50, BOOKINGS);
+    }
+
+    private void book(String label, int batchSize, int bookings) {
+        Session session = entityManager.unwrap(Session.class);
+        session.setJdbcBatchSize(batchSize);
+
+        Clients client = new Clients();
+        client.setName("Bulk client");
+        client.setAge(40);
+        client.setGender(Gender.OTHER);
+        client.setEmail("bulk@example.com");
+        entityManager.persist(client);
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Bulk");
+        entityManager.persist(doctor);
+        entityManager.flush();
+
+        LocalDateTime firstSlot = LocalDateTime.now().plusDays(3);
+        long start = System.nanoTime();
+        for (int i = 0; i < bookings; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setClient(client);
+            appointment.setDoctor(doctor);
+            appointment.setAppointmentTime(firstSlot.plusMinutes(30L * i));
+            appointment.setStatus(AppointmentStatus.SCHEDULED);
+            entityManager.persist(appointment);
+            reminderService.scheduleRemindersForAppointment(appointment, REMINDER_OPTIONS,
+                    List.of(appointment.getAppointmentTime().minusHours(2)));
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                entityManager.flush();
+                entityManager.clear();
+                client = entityManager.getReference(Clients.class, client.getId());
+                doctor = entityManager.getReference(Doctor.class, doctor.getId());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-14s %6d bookings (%d rows) in %6.2fs -> %8.0f bookings/s%n",
+                label, bookings, bookings * 4, seconds, bookings / seconds);
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.getrem.benchmark;
+
+import org.example.getrem.config.NotificationExecutionProperties;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.service.NotificationExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares virtual threads with platform-thread pools for blocking sends.
+ * Each simulated send sleeps like an SMTP round trip while holding a
+ * provider permit. Run with {@code mvn test -Dbenchmarks=true -Dtest=NotificationExecutorBenchmark}.
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class NotificationExecutorBenchmark {
+
+    private static final int SENDS = 5_000;
+    private static final int SEND_LATENCY_MS = 20;
+    private static final int PROVIDER_LIMIT = 1_000;
+
+    @Test
+    void compareThreadModels() throws Exception {
+        List<Integer> sends = IntStream.range(0, SENDS).boxed().toList();
+
+        // Warm-up so JIT and thread creation costs do not skew the first run
+        run("warm-up", Executors.newVirtualThreadPerTaskExecutor(), sends.subList(0, 500));
+
+        double virtual = run("virtual threads", Executors.newVirtualThreadPerTaskExecutor(), sends);
+        double pool50 = run("platform pool (50)", Executors.newFixedThreadPool(50), sends);
+        double pool200 = run("platform pool (200)", Executors.newFixedThreadPool(200), sends);
+
+        assertTrue(virtual > pool50, "virtual threads should out-run a 50-thread pool on blocking sends");
+        assertTrue(pool200 > 0);
+    }
+
+    private double run(String label, ExecutorService executorService, List<Integer> sends) throws Exception {
+        NotificationExecutionProperties properties = new NotificationExecutionProperties();
+        properties.setMaxConcurrent(Map.of(NotificationChannel.EMAIL, PROVIDER_LIMIT));
+        NotificationExecutor executor = new NotificationExecutor(properties, executorService);
+        try {
+            long start = System.nanoTime();
+            List<Throwable> failures = executor.runAll(sends, send -> {
+                try {
+                    executor.withPermit(NotificationChannel.EMAIL, () -> {
+                        Thread.sleep(SEND_LATENCY_MS);
+                        return null;
+                    });
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            double throughput = sends.size() / seconds;
+            System.out.printf("%-22s %6d sends in %6.2fs -> %8.0f sends/s, %d failures%n",
+                    label, sends.size(), seconds, throughput, failures.stream().filter(f -> f != null).count());
+            return throughput;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
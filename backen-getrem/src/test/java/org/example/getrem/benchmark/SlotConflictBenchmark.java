@@ -0,0 +1,158 @@
+package org.example.getrem.benchmark;
+
+import org.example.getrem.config.SlotIndexProperties;
+import org.example.getrem.repository.DoctorRepository;
+import org.example.getrem.service.AppointmentSlotIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Booking conflict checks against 1M appointments: the old query that wraps
+ * appointment_time in DATEADD, the range query on (doctor_id,
+ * appointment_time), and the in-memory slot index. Run with
+ * {@code mvn test -Dbenchmarks=true -Dtest=SlotConflictBenchmark}.
+ */
+@DataJpaTest
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties(SlotIndexProperties.class)
+@Import(AppointmentSlotIndex.class)
+// Rows are committed so the index loads them in its own transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SlotConflictBenchmark {
+
+    private static final int DOCTORS = 100;
+    private static final int APPOINTMENTS_PER_DOCTOR = 10_000;
+    private static final int INSERT_BATCH = 5_000;
+    private static final int SQL_CHECKS = 2_000;
+    private static final int INDEX_CHECKS = 200_000;
+
+    // As the native MySQL query had it, with H2's spelling of DATE_ADD
+    private static final String LEGACY_SQL = """
+            SELECT COUNT(*) FROM appointment a
+            WHERE a.doctor_id = ?
+              AND a.status <> 'CANCELLED'
+              AND ? < DATEADD(MINUTE, 30, a.appointment_time)
+              AND DATEADD(MINUTE, 1, CAST(? AS TIMESTAMP)) > a.appointment_time
+            """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Test
+    void compareConflictChecks() {
+        // Most of each doctor's history lies in the past, as it would after a few years of bookings
+        LocalDateTime firstSlot = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS)
+                .minusMinutes(30L * APPOINTMENTS_PER_DOCTOR * 9 / 10);
+        List<UUID> doctorIds = insertAppointments(firstSlot);
+        List<Probe> probes = probes(doctorIds, firstSlot.plusMinutes(30L * APPOINTMENTS_PER_DOCTOR * 9 / 10));
+
+        long legacy = run("legacy DATEADD SQL", probes, SQL_CHECKS, probe -> jdbcTemplate.queryForObject(LEGACY_SQL,
+                Long.class, probe.doctorId, Timestamp.valueOf(probe.time), Timestamp.valueOf(probe.time)));
+        long range = run("indexed range SQL", probes, SQL_CHECKS, probe ->
+                doctorRepository.countOverlappingAppointments(probe.doctorId, probe.time, null));
+
+        long start = System.nanoTime();
+        doctorIds.forEach(doctorId -> slotIndex.countOverlapping(doctorId, probes.get(0).time, null));
+        System.out.printf("%-20s %6d doctors in %8.2fms%n", "slot index load", doctorIds.size(),
+                (System.nanoTime() - start) / 1e6);
+        long index = run("slot index", probes, INDEX_CHECKS, probe ->
+                slotIndex.countOverlapping(probe.doctorId, probe.time, null));
+
+        assertEquals(legacy, range, "the range query must count the same conflicts");
+        assertEquals(range * (INDEX_CHECKS / SQL_CHECKS), index, "the index must count the same conflicts");
+    }
+
+    private long run(String label, List<Probe> probes, int checks, ToLongFunction<Probe> check) {
+        // Warm-up over the same probes so the timed pass is not paying for JIT or a cold cache
+        for (int i = 0; i < Math.min(checks, 500); i++) {
+            check.applyAsLong(probes.get(i % probes.size()));
+        }
+        long conflicts = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < checks; i++) {
+            conflicts += check.applyAsLong(probes.get(i % probes.size()));
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-20s %7d checks in %8.2fms -> %8.2fus/check (%d conflicts)%n",
+                label, checks, nanos / 1e6, nanos / 1e3 / checks, conflicts);
+        assertTrue(conflicts > 0);
+        return conflicts;
+    }
+
+    private List<UUID> insertAppointments(LocalDateTime firstSlot) {
+        UUID clientId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO clients (id, name, email) VALUES (?, ?, ?)",
+                clientId, "Benchmark client", "benchmark@example.com");
+
+        List<UUID> doctorIds = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+        long start = System.nanoTime();
+        for (int d = 0; d < DOCTORS; d++) {
+            UUID doctorId = UUID.randomUUID();
+            jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, ?, TRUE)", doctorId, "Dr. " + d);
+            doctorIds.add(doctorId);
+            for (int i = 0; i < APPOINTMENTS_PER_DOCTOR; i++) {
+                // Every tenth booking was cancelled and no longer holds its slot
+                rows.add(new Object[]{UUID.randomUUID(), clientId, doctorId,
+                        Timestamp.valueOf(firstSlot.plusMinutes(30L * i)), i % 10 == 0 ? "CANCELLED" : "SCHEDULED"});
+                if (rows.size() == INSERT_BATCH) {
+                    flush(rows);
+                }
+            }
+        }
+        flush(rows);
+        System.out.printf("%-20s %7d appointments in %8.2fs%n", "insert",
+                DOCTORS * APPOINTMENTS_PER_DOCTOR, (System.nanoTime() - start) / 1e9);
+        return doctorIds;
+    }
+
+    private void flush(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                + "VALUES (?, ?, ?, ?, ?)", rows);
+        rows.clear();
+    }
+
+    // Upcoming times, on and between existing slots, spread over every doctor
+    private static List<Probe> probes(List<UUID> doctorIds, LocalDateTime now) {
+        Random random = new Random(43);
+        List<Probe> probes = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            UUID doctorId = doctorIds.get(random.nextInt(doctorIds.size()));
+            probes.add(new Probe(doctorId, now.plusMinutes(15L * random.nextInt(APPOINTMENTS_PER_DOCTOR / 5))));
+        }
+        return probes;
+    }
+
+    private record Probe(UUID doctorId, LocalDateTime time) {
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.getrem.controller;
+
+import org.example.getrem.dto.appointment.AppointmentResponse;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentImporter;
+import org.example.getrem.service.AppointmentService;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.IcsCalendarFeed;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts a client holding the current tag gets a 304 without the view being
+ * loaded, that lists are tagged with the change watermark and go stale when
+ * it moves, and that a node without a current calendar tag serves the view.
+ */
+class AppointmentControllerEtagTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 5, 14);
+
+    private final AppointmentService appointmentService = mock(AppointmentService.class);
+    private final AppointmentChangeLog changeLog = mock(AppointmentChangeLog.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new AppointmentController(appointmentService,
+                        mock(AppointmentImporter.class), mock(IcsCalendarFeed.class),
+                        mock(CalendarEventBroadcaster.class), changeLog))
+                .build();
+    }
+
+    @Test
+    void listsAreTaggedWithTheChangeWatermark() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(appointmentService.getAppointmentById(id)).thenReturn(AppointmentResponse.builder().id(id).build());
+        when(changeLog.committedSequence()).thenReturn(42L);
+
+        mockMvc.perform(get("/api/v1/appointments/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"w2a\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+        mockMvc.perform(get("/api/v1/appointments/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"w2a\""))
+                .andExpect(status().isNotModified());
+        verify(appointmentService, times(1)).getAppointmentById(id);
+
+        when(changeLog.committedSequence()).thenReturn(43L);
+        mockMvc.perform(get("/api/v1/appointments/{id}", id).header(HttpHeaders.IF_NONE_MATCH, "\"w2a\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"w2b\""));
+    }
+
+    @Test
+    void currentCalendarTagIsAnsweredWithoutLoadingTheView() throws Exception {
+        when(appointmentService.getCalendarEtag(DAY, DAY.plusDays(1), null)).thenReturn("\"abc\"");
+
+        mockMvc.perform(get("/api/v1/appointments/calendar/day")
+                        .param("date", DAY.toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"old\", W/\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+
+        verify(appointmentService, never()).getCalendarView(any(), any(), any());
+    }
+
+    @Test
+    void calendarIsServedWhenTheTagIsStaleOrUnknown() throws Exception {
+        byte[] json = "{\"days\":[]}".getBytes(StandardCharsets.UTF_8);
+        when(appointmentService.getCalendarView(DAY, DAY.plusDays(1), null))
+                .thenReturn(new CalendarCache.View(json, "\"def\""));
+
+        when(appointmentService.getCalendarEtag(DAY, DAY.plusDays(1), null)).thenReturn("\"def\"");
+        mockMvc.perform(get("/api/v1/appointments/calendar/day")
+                        .param("date", DAY.toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"def\""))
+                .andExpect(content().bytes(json));
+
+        // A node that has not caught up with the others has no current tag and must not answer 304 itself
+        when(appointmentService.getCalendarEtag(DAY, DAY.plusDays(1), null)).thenReturn(null);
+        when(appointmentService.getCalendarView(DAY, DAY.plusDays(1), null))
+                .thenReturn(new CalendarCache.View(json, "\"abc\""));
+        mockMvc.perform(get("/api/v1/appointments/calendar/day")
+                        .param("date", DAY.toString())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+
+        when(appointmentService.getUpcomingAppointments()).thenReturn(List.of());
+        mockMvc.perform(get("/api/v1/appointments/calendar/upcoming"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.getrem.controller;
+
+import org.example.getrem.config.AppointmentLinkProperties;
+import org.example.getrem.dto.appointment.AppointmentLinkToken;
+import org.example.getrem.enums.AppointmentAction;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.service.AppointmentActionBatcher;
+import org.example.getrem.service.AppointmentLinkSigner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts following a link only shows a confirmation page, and that the POST
+ * from that page reports the outcome only once the batcher has applied it.
+ */
+class AppointmentLinkControllerTest {
+
+    private final UUID appointmentId = UUID.randomUUID();
+    private final AppointmentActionBatcher batcher = mock(AppointmentActionBatcher.class);
+
+    private AppointmentLinkSigner signer;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        AppointmentLinkProperties properties = new AppointmentLinkProperties();
+        properties.setSecret("0123456789abcdef0123456789abcdef");
+        properties.setResultTimeoutMs(200);
+        signer = new AppointmentLinkSigner(properties);
+        mockMvc = MockMvcBuilders.standaloneSetup(new AppointmentLinkController(signer, batcher, properties))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void followingTheLinkChangesNothing() throws Exception {
+        mockMvc.perform(get("/api/v1/appointment-links/{token}", token(AppointmentAction.CANCEL)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("<form method=\"post\">")));
+
+        verify(batcher, never()).submit(any());
+    }
+
+    @Test
+    void postReportsTheAppliedStatus() throws Exception {
+        when(batcher.submit(any())).thenReturn(CompletableFuture.completedFuture(AppointmentStatus.CANCELLED));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/appointment-links/{token}", token(AppointmentAction.CANCEL)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string("Your appointment has been cancelled."));
+    }
+
+    @Test
+    void postReportsWhenTheActionCouldNotBeApplied() throws Exception {
+        when(batcher.submit(any())).thenReturn(CompletableFuture.completedFuture(AppointmentStatus.COMPLETED));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/appointment-links/{token}", token(AppointmentAction.CONFIRM)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void postClaimsNothingBeforeTheFlush() throws Exception {
+        CompletableFuture<AppointmentStatus> pending = new CompletableFuture<>();
+        when(batcher.submit(any())).thenReturn(pending);
+
+        MvcResult result = mockMvc.perform(post("/api/v1/appointment-links/{token}", token(AppointmentAction.CANCEL)))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isAccepted());
+        assertFalse(pending.isDone());
+    }
+
+    @Test
+    void tamperedLinkIsRejectedOnBothMethods() throws Exception {
+        String token = token(AppointmentAction.CONFIRM);
+        String tampered = token.substring(0, token.length() - 1) + (token.endsWith("A") ? "B" : "A");
+
+        mockMvc.perform(get("/api/v1/appointment-links/{token}", tampered)).andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/v1/appointment-links/{token}", tampered)).andExpect(status().isBadRequest());
+        verify(batcher, never()).submit(any(AppointmentLinkToken.class));
+    }
+
+    private String token(AppointmentAction action) {
+        return signer.sign(appointmentId, action, LocalDateTime.now().plusDays(1));
+    }
+}
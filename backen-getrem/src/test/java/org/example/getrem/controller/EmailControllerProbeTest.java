@@ -0,0 +1,89 @@
+package org.example.getrem.controller;
+
+import org.example.getrem.dto.notification.SmtpProbeResult;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.service.MailRelayRouter;
+import org.example.getrem.service.MailSpool;
+import org.example.getrem.service.NotificationService;
+import org.example.getrem.service.SmtpProbe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts the probe endpoint refuses malformed and oversized requests with
+ * 400, and reports a probe the relay failed as 502 with its timings.
+ */
+class EmailControllerProbeTest {
+
+    private final SmtpProbe smtpProbe = mock(SmtpProbe.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new EmailController(mock(NotificationService.class),
+                        mock(MailSpool.class), mock(MailRelayRouter.class), smtpProbe))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void malformedRequestsNeverReachTheProbe() throws Exception {
+        for (String body : new String[]{
+                "{\"to\":\"sink@example.com\",\"messages\":0}",
+                "{\"messages\":1}",
+                "{\"to\":\"not an address\"}"}) {
+            probe(body).andExpect(status().isBadRequest());
+        }
+        verify(smtpProbe, never()).probe(any());
+    }
+
+    @Test
+    void probeLimitsAreABadRequest() throws Exception {
+        when(smtpProbe.probe(any())).thenThrow(new ValidationException("A probe sends at most 50 messages"));
+
+        probe("{\"to\":\"sink@example.com\",\"messages\":51}").andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void failedProbeIsABadGatewayWithItsTimings() throws Exception {
+        when(smtpProbe.probe(any())).thenReturn(SmtpProbeResult.builder()
+                .relay("primary")
+                .connectMs(12.5)
+                .failedStage("auth")
+                .error("AUTH rejected: 535 bad credentials")
+                .build());
+
+        probe("{\"to\":\"sink@example.com\"}")
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.failedStage").value("auth"))
+                .andExpect(jsonPath("$.connectMs").value(12.5));
+    }
+
+    @Test
+    void successfulProbeIsOk() throws Exception {
+        when(smtpProbe.probe(any())).thenReturn(SmtpProbeResult.builder().relay("primary").messagesSent(1).build());
+
+        probe("{\"to\":\"sink@example.com\"}")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messagesSent").value(1));
+    }
+
+    private ResultActions probe(String body) throws Exception {
+        return mockMvc.perform(post("/api/v1/email/test/probe")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+}
@@ -0,0 +1,203 @@
+package org.example.getrem.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.example.getrem.dto.notification.NotificationLogCursor;
+import org.example.getrem.dto.notification.NotificationLogFilter;
+import org.example.getrem.dto.notification.NotificationLogResponse;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.NotificationStatus;
+import org.example.getrem.repository.CustomNotificationLogRepo;
+import org.example.getrem.repository.NotificationLogRepository;
+import org.example.getrem.service.NotificationLogArchiver;
+import org.example.getrem.service.NotificationLogWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Asserts keyset paging over notification logs visits every row exactly once,
+ * including rows that share a timestamp, that each filter narrows the search,
+ * and that a cursor the server did not hand out is rejected.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import(CustomNotificationLogRepo.class)
+class NotificationLogSearchTest {
+
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 3, 1, 12, 0);
+
+    @Autowired
+    private CustomNotificationLogRepo customNotificationLogRepo;
+
+    @Autowired
+    private NotificationLogRepository notificationLogRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private MockMvc mockMvc;
+    private UUID appointmentA;
+    private UUID appointmentB;
+    private UUID reminderA;
+    private UUID reminderB;
+    private long nextId;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new NotificationLogController(notificationLogRepository,
+                        customNotificationLogRepo, mock(NotificationLogWriter.class), mock(NotificationLogArchiver.class)))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        UUID clientId = UUID.randomUUID();
+        UUID doctorId = UUID.randomUUID();
+        appointmentA = UUID.randomUUID();
+        appointmentB = UUID.randomUUID();
+        reminderA = UUID.randomUUID();
+        reminderB = UUID.randomUUID();
+        Timestamp time = Timestamp.valueOf(NOON);
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Search', TRUE)", doctorId);
+        for (UUID[] pair : List.of(new UUID[]{appointmentA, reminderA}, new UUID[]{appointmentB, reminderB})) {
+            jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                    + "VALUES (?, ?, ?, ?, 'SCHEDULED')", pair[0], clientId, doctorId, time);
+            jdbcTemplate.update("INSERT INTO reminder (id, appointment_id, scheduled_time, created_at, status, type) "
+                    + "VALUES (?, ?, ?, ?, 'SENT', 'ONE_DAY_BEFORE')", pair[1], pair[0], time, time);
+        }
+    }
+
+    @Test
+    void pagingVisitsRowsSharingATimestampExactlyOnce() throws Exception {
+        UUID newest = log(reminderA, NOON.plusMinutes(1), "a@example.com", NotificationStatus.SENT, NotificationChannel.EMAIL);
+        List<UUID> tied = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tied.add(log(reminderA, NOON, "a@example.com", NotificationStatus.SENT, NotificationChannel.EMAIL));
+        }
+        UUID oldest = log(reminderA, NOON.minusMinutes(1), "a@example.com", NotificationStatus.SENT, NotificationChannel.EMAIL);
+
+        // Ids were handed out in ascending order, so ties come back in reverse
+        List<UUID> expected = new ArrayList<>();
+        expected.add(newest);
+        for (int i = tied.size() - 1; i >= 0; i--) {
+            expected.add(tied.get(i));
+        }
+        expected.add(oldest);
+
+        List<UUID> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String body = search("limit=2" + (cursor == null ? "" : "&cursor=" + cursor));
+            List<String> ids = JsonPath.read(body, "$.items[*].id");
+            ids.forEach(id -> seen.add(UUID.fromString(id)));
+            cursor = JsonPath.read(body, "$.nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(expected, seen);
+        assertEquals(4, pages);
+    }
+
+    @Test
+    void eachFilterNarrowsTheSearch() {
+        UUID emailSent = log(reminderA, NOON, "a@example.com", NotificationStatus.SENT, NotificationChannel.EMAIL);
+        UUID smsFailed = log(reminderA, NOON.plusHours(1), "a@example.com", NotificationStatus.FAILED, NotificationChannel.SMS);
+        UUID otherRecipient = log(reminderB, NOON.plusHours(2), "b@example.com", NotificationStatus.SENT, NotificationChannel.SMS);
+
+        assertEquals(List.of(otherRecipient), search(NotificationLogFilter.builder().recipient("b@example.com").build()));
+        assertEquals(List.of(smsFailed), search(NotificationLogFilter.builder().status(NotificationStatus.FAILED).build()));
+        assertEquals(List.of(otherRecipient, smsFailed),
+                search(NotificationLogFilter.builder().channel(NotificationChannel.SMS).build()));
+        // from is inclusive and to exclusive
+        assertEquals(List.of(smsFailed, emailSent),
+                search(NotificationLogFilter.builder().from(NOON).to(NOON.plusHours(2)).build()));
+        assertEquals(List.of(smsFailed, emailSent), search(NotificationLogFilter.builder().reminderId(reminderA).build()));
+        assertEquals(List.of(otherRecipient), search(NotificationLogFilter.builder().appointmentId(appointmentB).build()));
+        assertEquals(List.of(emailSent), search(NotificationLogFilter.builder()
+                .channel(NotificationChannel.EMAIL).status(NotificationStatus.SENT).appointmentId(appointmentA).build()));
+
+        // A cursor resumes strictly after its own row
+        NotificationLogCursor after = new NotificationLogCursor(NOON.plusHours(1), smsFailed);
+        assertEquals(List.of(emailSent), customNotificationLogRepo.search(NotificationLogFilter.builder().build(), after, 10)
+                .stream().map(NotificationLogResponse::getId).toList());
+    }
+
+    @Test
+    void hasMoreOnlyWhenAnotherRowExists() throws Exception {
+        log(reminderA, NOON, "a@example.com", NotificationStatus.SENT, NotificationChannel.EMAIL);
+        log(reminderA, NOON.plusMinutes(1), "a@example.com", NotificationStatus.SENT, NotificationChannel.EMAIL);
+
+        String exact = search("limit=2");
+        assertEquals(2, JsonPath.<List<String>>read(exact, "$.items[*].id").size());
+        assertFalse(JsonPath.<Boolean>read(exact, "$.hasMore"));
+        assertNull(JsonPath.read(exact, "$.nextCursor"));
+
+        String short1 = search("limit=1");
+        assertEquals(1, JsonPath.<List<String>>read(short1, "$.items[*].id").size());
+        assertTrue(JsonPath.<Boolean>read(short1, "$.hasMore"));
+        String cursor = JsonPath.read(short1, "$.nextCursor");
+
+        String last = search("limit=1&cursor=" + cursor);
+        assertEquals(1, JsonPath.<List<String>>read(last, "$.items[*].id").size());
+        assertFalse(JsonPath.<Boolean>read(last, "$.hasMore"));
+    }
+
+    @Test
+    void malformedCursorIsABadRequest() throws Exception {
+        String noSeparator = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2024-03-01T12:00".getBytes(StandardCharsets.UTF_8));
+        String badId = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("2024-03-01T12:00|not-a-uuid".getBytes(StandardCharsets.UTF_8));
+
+        for (String cursor : List.of("not base64!", noSeparator, badId)) {
+            mockMvc.perform(get("/api/v1/notification-logs/search").param("cursor", cursor))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    private String search(String query) throws Exception {
+        return mockMvc.perform(get("/api/v1/notification-logs/search?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private List<UUID> search(NotificationLogFilter filter) {
+        return customNotificationLogRepo.search(filter, null, 10).stream().map(NotificationLogResponse::getId).toList();
+    }
+
+    private UUID log(UUID reminderId, LocalDateTime timestamp, String recipient,
+                     NotificationStatus status, NotificationChannel channel) {
+        // Small sequential ids sort the same way in Java and in the database
+        UUID id = new UUID(0, ++nextId);
+        jdbcTemplate.update("INSERT INTO notification_log (id, reminder_id, channel, status, timestamp, recipient) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", id, reminderId, channel.name(), status.name(),
+                Timestamp.valueOf(timestamp), recipient);
+        return id;
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.getrem.repository;
+
+import org.example.getrem.model.Reminder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts a reminder can only be claimed by one run, that a run only loads
+ * rows it still holds, and that abandoned claims are handed back without
+ * touching claims that are still live.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class ReminderRepositoryTest {
+
+    private static final String PREVIOUS_RUNS = "node-a/%";
+    private static final String CURRENT_RUNS = "node-a/new#%";
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID appointmentId;
+
+    @BeforeEach
+    void setUp() {
+        UUID clientId = UUID.randomUUID();
+        UUID doctorId = UUID.randomUUID();
+        appointmentId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Claim', TRUE)", doctorId);
+        jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                + "VALUES (?, ?, ?, ?, 'SCHEDULED')", appointmentId, clientId, doctorId,
+                Timestamp.valueOf(LocalDateTime.now().plusDays(1)));
+    }
+
+    @Test
+    void onlyTheFirstRunWinsAClaim() {
+        UUID first = reminder("PENDING", null, null);
+        UUID second = reminder("PENDING", null, null);
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(2, reminderRepository.claim(List.of(first, second), "node-a/x#1", now));
+        assertEquals(0, reminderRepository.claim(List.of(first, second), "node-b/y#1", now));
+
+        assertEquals(2, reminderRepository.findIdsClaimedBy("node-a/x#1").size());
+        assertEquals(List.of(), reminderRepository.findIdsClaimedBy("node-b/y#1"));
+    }
+
+    @Test
+    void releasedClaimsGoBackToPending() {
+        UUID id = reminder("PENDING", null, null);
+        reminderRepository.claim(List.of(id), "node-a/x#1", LocalDateTime.now());
+
+        assertEquals(1, reminderRepository.releaseClaim("node-a/x#1"));
+
+        assertEquals("PENDING", status(id));
+        assertNull(jdbcTemplate.queryForObject("SELECT claimed_by FROM reminder WHERE id = ?", String.class, id));
+        assertEquals(1, reminderRepository.claim(List.of(id), "node-b/y#1", LocalDateTime.now()));
+    }
+
+    @Test
+    void dispatchOnlyLoadsRowsStillHeldByTheClaim() {
+        LocalDateTime leaseStart = LocalDateTime.now().minusMinutes(20);
+        UUID held = reminder("SENDING", "node-a/x#1", leaseStart);
+        UUID reclaimed = reminder("SENDING", "node-b/y#1", leaseStart);
+        UUID released = reminder("PENDING", null, null);
+        List<UUID> chunk = List.of(held, reclaimed, released);
+
+        assertEquals(1, reminderRepository.renewClaim(chunk, "node-a/x#1", LocalDateTime.now()));
+
+        assertEquals(List.of(held), reminderRepository.findAllForDispatch(chunk, "node-a/x#1").stream()
+                .map(Reminder::getId)
+                .toList());
+        assertTrue(claimedAt(held).isAfter(leaseStart.plusMinutes(10)));
+        assertTrue(claimedAt(reclaimed).isBefore(leaseStart.plusMinutes(10)), "another run's lease is left alone");
+    }
+
+    @Test
+    void abandonedClaimsAreReleased() {
+        LocalDateTime recent = LocalDateTime.now().minusMinutes(1);
+        LocalDateTime expired = LocalDateTime.now().minusHours(1);
+        UUID leftByPreviousInstance = reminder("SENDING", "node-a/old#3", recent);
+        UUID expiredOnOtherNode = reminder("SENDING", "node-b/y#9", expired);
+        UUID liveOnOtherNode = reminder("SENDING", "node-b/y#9", recent);
+        UUID liveOnThisInstance = reminder("SENDING", "node-a/new#1", recent);
+
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(15);
+        assertEquals(2, reminderRepository.releaseAbandoned(cutoff, PREVIOUS_RUNS, CURRENT_RUNS));
+
+        assertEquals("PENDING", status(leftByPreviousInstance));
+        assertEquals("PENDING", status(expiredOnOtherNode));
+        assertEquals("SENDING", status(liveOnOtherNode));
+        assertEquals("SENDING", status(liveOnThisInstance));
+    }
+
+    private UUID reminder(String status, String claimedBy, LocalDateTime claimedAt) {
+        UUID id = UUID.randomUUID();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO reminder (id, appointment_id, scheduled_time, created_at, status, type, "
+                        + "claimed_by, claimed_at) VALUES (?, ?, ?, ?, ?, 'CUSTOM', ?, ?)",
+                id, appointmentId, now, now, status, claimedBy, claimedAt == null ? null : Timestamp.valueOf(claimedAt));
+        return id;
+    }
+
+    private LocalDateTime claimedAt(UUID reminderId) {
+        return jdbcTemplate.queryForObject("SELECT claimed_at FROM reminder WHERE id = ?", Timestamp.class, reminderId)
+                .toLocalDateTime();
+    }
+
+    private String status(UUID reminderId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM reminder WHERE id = ?", String.class, reminderId);
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.AppointmentLinkProperties;
+import org.example.getrem.dto.appointment.AppointmentLinkToken;
+import org.example.getrem.enums.AppointmentAction;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts a cancel link only releases the reminders and slot of an
+ * appointment it actually cancels, leaving completed or already cancelled
+ * ones as they were.
+ */
+class AppointmentActionBatcherTest {
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final ReminderRepository reminderRepository = mock(ReminderRepository.class);
+    private final ReminderLoadIndex reminderLoadIndex = mock(ReminderLoadIndex.class);
+    private final CalendarCache calendarCache = mock(CalendarCache.class);
+    private final AppointmentSlotIndex slotIndex = mock(AppointmentSlotIndex.class);
+    private final AppointmentChangeLog changeLog = mock(AppointmentChangeLog.class);
+
+    private final AppointmentActionBatcher batcher = new AppointmentActionBatcher(appointmentRepository,
+            reminderRepository, reminderLoadIndex, calendarCache, slotIndex, mock(CalendarEventBroadcaster.class),
+            changeLog, new AppointmentLinkProperties(), mock(PlatformTransactionManager.class));
+
+    @Test
+    void onlyAppointmentsTheCancelChangesLoseTheirRemindersAndSlot() {
+        UUID active = UUID.randomUUID();
+        UUID completed = UUID.randomUUID();
+        UUID doctorId = UUID.randomUUID();
+        LocalDateTime time = LocalDateTime.now().plusDays(1);
+        when(appointmentRepository.lockActiveIds(anyCollection())).thenReturn(List.of(active));
+        when(appointmentRepository.cancelActive(anyCollection(), any())).thenReturn(1);
+        when(appointmentRepository.findCalendarKeys(anyCollection())).thenReturn(List.of(
+                new Object[]{active, doctorId, time, AppointmentStatus.CANCELLED},
+                new Object[]{completed, doctorId, time, AppointmentStatus.COMPLETED}));
+
+        CompletableFuture<AppointmentStatus> cancelled = batcher.submit(cancel(active));
+        CompletableFuture<AppointmentStatus> untouched = batcher.submit(cancel(completed));
+        batcher.flush();
+
+        verify(reminderRepository).cancelPendingForAppointments(List.of(active));
+        verify(reminderLoadIndex).onAppointmentsCancelled(Set.of(active));
+        verify(slotIndex).release(List.of(active));
+        verify(calendarCache).invalidateAppointments(List.of(active));
+        verify(appointmentRepository).cancelActive(eq(List.of(active)), any(LocalDateTime.class));
+        verify(changeLog).recordChanged(List.of(active));
+        assertEquals(AppointmentStatus.CANCELLED, cancelled.join());
+        assertEquals(AppointmentStatus.COMPLETED, untouched.join());
+    }
+
+    private static AppointmentLinkToken cancel(UUID appointmentId) {
+        return new AppointmentLinkToken(appointmentId, AppointmentAction.CANCEL, LocalDateTime.now().plusDays(1));
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.getrem.service;
+
+import jakarta.persistence.EntityManager;
+import org.example.getrem.config.DeltaSyncProperties;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts the change log only touches the shared counter just before commit,
+ * that each committed transaction gets exactly one number, and that nothing
+ * of a rolled back one is left behind.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties(DeltaSyncProperties.class)
+@Import(AppointmentChangeLog.class)
+class AppointmentChangeLogTest {
+
+    @Autowired
+    private AppointmentChangeLog changeLog;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transaction;
+    private Statistics statistics;
+    private long start;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        start = changeLog.committedSequence();
+    }
+
+    @Test
+    void counterIsOnlyTouchedJustBeforeCommit() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        transaction.executeWithoutResult(status -> {
+            statistics.clear();
+            changeLog.recordChanged(List.of(first, second));
+            changeLog.recordChanged(List.of(first));
+            // Stands in for work such as sending mail; the counter's row lock must not be held yet
+            assertEquals(0, statistics.getPrepareStatementCount());
+        });
+
+        assertEquals(start + 1, changeLog.committedSequence());
+        List<Object[]> entries = changeLog.entriesBetween(start, start + 1);
+        assertEquals(2, entries.size());
+        assertArrayEquals(new Object[]{start + 1, first, false}, entries.get(0));
+        assertArrayEquals(new Object[]{start + 1, second, false}, entries.get(1));
+    }
+
+    @Test
+    void deletionWinsOverAChangeInTheSameTransaction() {
+        UUID appointmentId = UUID.randomUUID();
+        transaction.executeWithoutResult(status -> {
+            changeLog.recordChanged(List.of(appointmentId));
+            changeLog.recordDeleted(appointmentId);
+            changeLog.recordChanged(List.of(appointmentId));
+        });
+
+        List<Object[]> entries = changeLog.entriesBetween(start, start + 1);
+        assertEquals(1, entries.size());
+        assertEquals(true, entries.get(0)[2]);
+    }
+
+    @Test
+    void rolledBackTransactionLeavesNoTrace() {
+        transaction.executeWithoutResult(status -> {
+            changeLog.recordChanged(List.of(UUID.randomUUID()));
+            changeLog.requireResync();
+            status.setRollbackOnly();
+        });
+
+        assertEquals(start, changeLog.committedSequence());
+        assertEquals(0, changeLog.entriesBetween(start, Long.MAX_VALUE).size());
+        assertFalse(changeLog.isLocal(start + 1));
+    }
+
+    @Test
+    void innerNewTransactionGetsItsOwnNumber() {
+        UUID outer = UUID.randomUUID();
+        UUID inner = UUID.randomUUID();
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        transaction.executeWithoutResult(status -> {
+            changeLog.recordChanged(List.of(outer));
+            requiresNew.executeWithoutResult(innerStatus -> changeLog.recordChanged(List.of(inner)));
+        });
+
+        List<Object[]> entries = changeLog.entriesBetween(start, start + 2);
+        assertEquals(2, entries.size());
+        assertArrayEquals(new Object[]{start + 1, inner, false}, entries.get(0));
+        assertArrayEquals(new Object[]{start + 2, outer, false}, entries.get(1));
+    }
+
+    @Test
+    void resyncRaisesTheFloorToTheTransactionsNumber() {
+        transaction.executeWithoutResult(status -> changeLog.requireResync());
+
+        assertEquals(start + 1, changeLog.committedSequence());
+        assertEquals(start + 1, changeLog.floor());
+        // Taken by this node, so the calendar event relay will not echo it back as another node's change
+        assertTrue(changeLog.isLocal(start + 1));
+    }
+
+    @Test
+    void recordingOutsideATransactionFails() {
+        assertThrows(IllegalStateException.class, () -> changeLog.recordChanged(List.of(UUID.randomUUID())));
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.AppointmentImportProperties;
+import org.example.getrem.config.SlotIndexProperties;
+import org.example.getrem.dto.appointment.AppointmentImportResult;
+import org.example.getrem.exception.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Asserts each line that cannot be imported is reported by its number while
+ * the rest of the file goes in, including lines that clash with an existing
+ * booking or with an earlier line for the same doctor, and that client and
+ * doctor lookups stay correct once the cache starts dropping them.
+ */
+@DataJpaTest
+@AutoConfigureJson
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties({AppointmentImportProperties.class, SlotIndexProperties.class})
+@Import({AppointmentImporter.class, AppointmentSlotIndex.class})
+class AppointmentImporterTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.now().plusDays(5).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+    @Autowired
+    private AppointmentImporter importer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AppointmentImportProperties properties;
+
+    @MockBean
+    private CalendarCache calendarCache;
+
+    @MockBean
+    private CalendarEventBroadcaster calendarEvents;
+
+    @MockBean
+    private AppointmentChangeLog changeLog;
+
+    @MockBean
+    private ReminderLoadIndex reminderLoadIndex;
+
+    private UUID clientId;
+    private UUID doctorId;
+
+    @BeforeEach
+    void setUp() {
+        clientId = UUID.randomUUID();
+        doctorId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Import', TRUE)", doctorId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM appointment WHERE doctor_id = ?", doctorId);
+    }
+
+    @Test
+    void invalidLinesAreReportedAndTheRestImported() throws IOException {
+        UUID unknownClient = UUID.randomUUID();
+        String ndjson = String.join("\n",
+                row(clientId, doctorId, TEN),
+                "{\"doctorId\":\"" + doctorId + "\",\"appointmentTime\":\"" + TEN.plusHours(1) + "\"}",
+                "",
+                "{not json",
+                row(unknownClient, doctorId, TEN.plusHours(2)),
+                row(clientId, UUID.randomUUID(), TEN.plusHours(3)),
+                "{\"clientId\":\"" + clientId + "\",\"doctorId\":\"" + doctorId + "\",\"appointmentTime\":\""
+                        + TEN.plusHours(4) + "\",\"reminderOptions\":[\"NEXT_WEEK\"]}",
+                "{\"clientId\":\"" + clientId + "\",\"doctorId\":\"" + doctorId + "\",\"appointmentTime\":\""
+                        + TEN.plusHours(5) + "\",\"reminderOptions\":[\"ONE_DAY_BEFORE\"]}");
+
+        AppointmentImportResult result = importer.importAppointments(stream(ndjson), AppointmentImporter.Format.NDJSON);
+
+        assertEquals(7, result.getLines());
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getWithReminders());
+        Map<Long, String> errors = errors(result);
+        assertEquals(List.of(2L, 4L, 5L, 6L, 7L), errors.keySet().stream().sorted().toList());
+        assertEquals("Client ID is required", errors.get(2L));
+        assertEquals("Client not found with id: " + unknownClient, errors.get(5L));
+        assertEquals("Unknown reminder option: NEXT_WEEK", errors.get(7L));
+        assertEquals(2, appointments());
+    }
+
+    @Test
+    void linesClashingWithABookingOrAnEarlierLineAreRejected() throws IOException {
+        jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                + "VALUES (?, ?, ?, ?, 'SCHEDULED')", UUID.randomUUID(), clientId, doctorId, Timestamp.valueOf(TEN));
+        String ndjson = String.join("\n",
+                row(clientId, doctorId, TEN.plusHours(2).plusMinutes(10)),
+                row(clientId, doctorId, TEN.plusMinutes(10)),
+                row(clientId, doctorId, TEN.plusHours(2)),
+                "{\"clientId\":\"" + clientId + "\",\"doctorId\":\"" + doctorId + "\",\"appointmentTime\":\""
+                        + TEN.plusMinutes(10) + "\",\"status\":\"CANCELLED\"}");
+
+        AppointmentImportResult result = importer.importAppointments(stream(ndjson), AppointmentImporter.Format.NDJSON);
+
+        // Rows are walked in time order, so the earlier line 3 holds the slot and line 1 clashes with it
+        assertEquals(2, result.getImported());
+        Map<Long, String> errors = errors(result);
+        assertEquals("Conflicts with line 3 for the same doctor", errors.get(1L));
+        assertEquals("This time slot is already booked for the doctor", errors.get(2L));
+        assertEquals(2, errors.size());
+        assertEquals(3, appointments());
+    }
+
+    @Test
+    void csvColumnsAreMatchedByHeaderAndQuotedFieldsKept() throws IOException {
+        String csv = String.join("\n",
+                "DoctorId,clientId,appointmentTime,notes,reminderOptions,exportedBy",
+                doctorId + "," + clientId + "," + TEN + ",\"Bring x-rays, \"\"old\"\" ones\",ONE_DAY_BEFORE|TEN_MINUTES_BEFORE,admin",
+                doctorId + "," + clientId + "," + TEN.plusHours(1) + ",,,,extra",
+                doctorId + "," + clientId + ",yesterday");
+
+        AppointmentImportResult result = importer.importAppointments(stream(csv), AppointmentImporter.Format.CSV);
+
+        assertEquals(3, result.getLines());
+        assertEquals(1, result.getImported());
+        Map<Long, String> errors = errors(result);
+        assertEquals(List.of(3L, 4L), errors.keySet().stream().sorted().toList());
+        assertEquals("Bring x-rays, \"old\" ones", jdbcTemplate.queryForObject(
+                "SELECT notes FROM appointment WHERE doctor_id = ?", String.class, doctorId));
+    }
+
+    @Test
+    void lookupsEvictedFromTheCacheAreAskedAgain() throws IOException {
+        UUID unknownClient = UUID.randomUUID();
+        String ndjson = String.join("\n",
+                row(clientId, doctorId, TEN),
+                row(unknownClient, doctorId, TEN.plusHours(1)),
+                row(clientId, doctorId, TEN.plusHours(2)),
+                row(unknownClient, doctorId, TEN.plusHours(3)));
+        int chunkSize = properties.getChunkSize();
+        int lookupCacheSize = properties.getLookupCacheSize();
+        properties.setChunkSize(1);
+        properties.setLookupCacheSize(1);
+        try {
+            AppointmentImportResult result = importer.importAppointments(stream(ndjson), AppointmentImporter.Format.NDJSON);
+
+            assertEquals(2, result.getImported());
+            assertEquals(List.of(2L, 4L), errors(result).keySet().stream().sorted().toList());
+        } finally {
+            properties.setChunkSize(chunkSize);
+            properties.setLookupCacheSize(lookupCacheSize);
+        }
+    }
+
+    @Test
+    void csvWithoutTheRequiredColumnsIsRejected() {
+        assertThrows(ValidationException.class, () -> importer.importAppointments(
+                stream("clientId,appointmentTime\n" + clientId + "," + TEN), AppointmentImporter.Format.CSV));
+    }
+
+    private int appointments() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointment WHERE doctor_id = ?", Integer.class, doctorId);
+    }
+
+    private static String row(UUID clientId, UUID doctorId, LocalDateTime time) {
+        return "{\"clientId\":\"" + clientId + "\",\"doctorId\":\"" + doctorId + "\",\"appointmentTime\":\"" + time + "\"}";
+    }
+
+    private static Map<Long, String> errors(AppointmentImportResult result) {
+        return result.getErrors().stream()
+                .collect(Collectors.toMap(AppointmentImportResult.LineError::getLine,
+                        AppointmentImportResult.LineError::getError));
+    }
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
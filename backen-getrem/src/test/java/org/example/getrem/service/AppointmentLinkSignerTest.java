@@ -0,0 +1,88 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.AppointmentLinkProperties;
+import org.example.getrem.dto.appointment.AppointmentLinkToken;
+import org.example.getrem.enums.AppointmentAction;
+import org.example.getrem.exception.ValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Asserts a link only verifies with the secret it was signed with, unaltered
+ * and before it expires.
+ */
+class AppointmentLinkSignerTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final UUID appointmentId = UUID.randomUUID();
+    private final LocalDateTime tomorrow = LocalDateTime.now().plusDays(1).withNano(0);
+    private final AppointmentLinkSigner signer = signer(SECRET);
+
+    @Test
+    void signedTokenVerifiesToWhatWasSigned() {
+        AppointmentLinkToken token = signer.verify(signer.sign(appointmentId, AppointmentAction.CANCEL, tomorrow));
+
+        assertEquals(appointmentId, token.getAppointmentId());
+        assertEquals(AppointmentAction.CANCEL, token.getAction());
+        assertEquals(tomorrow, token.getExpiresAt());
+    }
+
+    @Test
+    void alteringAnyByteIsRejected() {
+        byte[] token = Base64.getUrlDecoder().decode(signer.sign(appointmentId, AppointmentAction.CONFIRM, tomorrow));
+        for (int i = 0; i < token.length; i++) {
+            byte[] tampered = token.clone();
+            tampered[i] ^= 1;
+            String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(tampered);
+            assertThrows(ValidationException.class, () -> signer.verify(encoded), "byte " + i);
+        }
+    }
+
+    @Test
+    void tokenFromAnotherSecretIsRejected() {
+        String token = signer("fedcba9876543210fedcba9876543210").sign(appointmentId, AppointmentAction.CANCEL, tomorrow);
+
+        assertThrows(ValidationException.class, () -> signer.verify(token));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        String token = signer.sign(appointmentId, AppointmentAction.CONFIRM, LocalDateTime.now().minusSeconds(1));
+
+        ValidationException e = assertThrows(ValidationException.class, () -> signer.verify(token));
+        assertEquals("This link has expired", e.getMessage());
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        String token = signer.sign(appointmentId, AppointmentAction.CONFIRM, tomorrow);
+
+        assertThrows(ValidationException.class, () -> signer.verify("not base64!"));
+        assertThrows(ValidationException.class, () -> signer.verify(token.substring(0, token.length() - 2)));
+        assertThrows(ValidationException.class, () -> signer.verify(token + "AAAA"));
+    }
+
+    @Test
+    void withoutASecretLinksAreDisabled() {
+        AppointmentLinkSigner disabled = signer("");
+
+        assertFalse(disabled.isEnabled());
+        assertThrows(IllegalStateException.class, () -> disabled.sign(appointmentId, AppointmentAction.CANCEL, tomorrow));
+        String token = signer.sign(appointmentId, AppointmentAction.CANCEL, tomorrow);
+        assertThrows(ValidationException.class, () -> disabled.verify(token));
+    }
+
+    private static AppointmentLinkSigner signer(String secret) {
+        AppointmentLinkProperties properties = new AppointmentLinkProperties();
+        properties.setSecret(secret);
+        return new AppointmentLinkSigner(properties);
+    }
+}
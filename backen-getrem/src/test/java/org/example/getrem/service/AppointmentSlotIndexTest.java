@@ -0,0 +1,99 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.SlotIndexProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts a reservation is refused when another backend booked the slot,
+ * even though this node's index has not seen that booking.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties(SlotIndexProperties.class)
+@Import(AppointmentSlotIndex.class)
+class AppointmentSlotIndexTest {
+
+    private static final LocalDateTime TEN = LocalDateTime.now().plusDays(3).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+    @Autowired
+    private AppointmentSlotIndex slotIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID clientId;
+    private UUID doctorId;
+
+    @BeforeEach
+    void setUp() {
+        clientId = UUID.randomUUID();
+        doctorId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Index', TRUE)", doctorId);
+    }
+
+    @Test
+    void bookingMadeOnAnotherNodeBlocksTheReservation() {
+        // Loads the doctor's slots while the day is still empty
+        assertEquals(0, slotIndex.countOverlapping(doctorId, TEN, null));
+        insertAppointment(TEN);
+
+        assertEquals(0, slotIndex.countOverlapping(doctorId, TEN, null), "the index has not seen the other node's booking");
+        assertFalse(reserve(TEN.plusMinutes(10)));
+        // The refused slot was given back, so a later free slot is still bookable
+        assertTrue(reserve(TEN.plusHours(2)));
+    }
+
+    @Test
+    void reservationOnThisNodeBlocksTheNextOne() {
+        assertTrue(reserve(TEN));
+        assertFalse(reserve(TEN.plusMinutes(5)));
+        assertEquals(1, slotIndex.countOverlapping(doctorId, TEN.plusMinutes(5), null));
+    }
+
+    private boolean reserve(LocalDateTime time) {
+        Boolean reserved = new TransactionTemplate(transactionManager).execute(status -> {
+            UUID appointmentId = insertAppointment(time);
+            boolean taken = slotIndex.tryReserve(doctorId, time, appointmentId);
+            if (!taken) {
+                status.setRollbackOnly();
+            }
+            return taken;
+        });
+        return Boolean.TRUE.equals(reserved);
+    }
+
+    private UUID insertAppointment(LocalDateTime time) {
+        UUID appointmentId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                + "VALUES (?, ?, ?, ?, 'SCHEDULED')", appointmentId, clientId, doctorId, Timestamp.valueOf(time));
+        return appointmentId;
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.getrem.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts the buffer rejects offers once full, hands elements out in order
+ * across wrap-around, and loses nothing under concurrent producers.
+ */
+class BoundedRingBufferTest {
+
+    @Test
+    void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(4, new BoundedRingBuffer<Integer>(4).capacity());
+        assertEquals(8, new BoundedRingBuffer<Integer>(5).capacity());
+        assertEquals(4, new BoundedRingBuffer<Integer>(1).capacity());
+    }
+
+    @Test
+    void offerFailsWhenFullAndSucceedsOnceDrained() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        List<Integer> sink = new ArrayList<>();
+        assertEquals(1, buffer.drainTo(sink, 1));
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+    }
+
+    @Test
+    void drainsInOrderAcrossWrapAround() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        List<Integer> sink = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.offer(i + 100));
+            assertEquals(2, buffer.drainTo(sink, 8));
+        }
+        assertTrue(buffer.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, sink.get(2 * i));
+            assertEquals(i + 100, sink.get(2 * i + 1));
+        }
+    }
+
+    @Test
+    void drainStopsAtMax() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(i);
+        }
+        List<Integer> sink = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(sink, 3));
+        assertEquals(List.of(0, 1, 2), sink);
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 2_000;
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+
+            List<Integer> sink = new ArrayList<>();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sink.size() < producers * perProducer && System.nanoTime() < deadline) {
+                buffer.drainTo(sink, 32);
+            }
+
+            Set<Integer> seen = new HashSet<>(sink);
+            assertEquals(producers * perProducer, sink.size());
+            assertEquals(producers * perProducer, seen.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.getrem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.getrem.config.CalendarCacheProperties;
+import org.example.getrem.config.DeltaSyncProperties;
+import org.example.getrem.dto.appointment.CalendarAppointmentResponse;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts a node's cached days follow writes committed on another node,
+ * through the change log, both for the views it serves and the tags it
+ * revalidates against, and that a failed load leaves nothing cached.
+ */
+@DataJpaTest
+@AutoConfigureJson
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties({CalendarCacheProperties.class, DeltaSyncProperties.class})
+@Import(AppointmentChangeLog.class)
+class CalendarCacheTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(20);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CalendarCacheProperties properties;
+
+    @Autowired
+    private AppointmentChangeLog changeLog;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private CalendarCache thisNode;
+    private CalendarCache otherNode;
+    private UUID clientId;
+    private UUID doctorId;
+
+    @BeforeEach
+    void setUp() {
+        thisNode = new CalendarCache(objectMapper, properties, changeLog, appointmentRepository);
+        otherNode = new CalendarCache(objectMapper, properties, changeLog, appointmentRepository);
+        clientId = UUID.randomUUID();
+        doctorId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Cache', TRUE)", doctorId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM appointment WHERE client_id = ?", clientId);
+    }
+
+    @Test
+    void bookingOnAnotherNodeReachesThisNodesView() {
+        assertEquals("[]", json(thisNode));
+        String emptyTag = thisNode.currentEtag(DAY, DAY.plusDays(1), doctorId);
+        assertEquals(1, loads.get());
+
+        UUID appointmentId = book(DAY.atTime(9, 0));
+
+        // The other node's own invalidation never reaches this one; the watermark does
+        assertNotEquals(emptyTag, thisNode.currentEtag(DAY, DAY.plusDays(1), doctorId));
+        assertTrue(json(thisNode).contains(appointmentId.toString()));
+        assertEquals(2, loads.get());
+        // Both nodes now derive the same tag from the same content
+        json(otherNode);
+        assertEquals(thisNode.currentEtag(DAY, DAY.plusDays(1), doctorId),
+                otherNode.currentEtag(DAY, DAY.plusDays(1), doctorId));
+    }
+
+    @Test
+    void nodeThatMissedAWriteNoLongerVouchesForTheOldTag() {
+        book(DAY.atTime(9, 0));
+        json(thisNode);
+        json(otherNode);
+        String before = thisNode.currentEtag(DAY, DAY.plusDays(1), doctorId);
+        assertEquals(before, otherNode.currentEtag(DAY, DAY.plusDays(1), doctorId));
+
+        // Cancelled through the other node, which only evicts its own copy
+        inTransaction(() -> {
+            jdbcTemplate.update("UPDATE appointment SET status = 'CANCELLED' WHERE client_id = ?", clientId);
+            changeLog.recordChanged(jdbcTemplate.queryForList("SELECT id FROM appointment WHERE client_id = ?",
+                    UUID.class, clientId));
+            otherNode.invalidateDay(doctorId, DAY);
+        });
+
+        String after = thisNode.currentEtag(DAY, DAY.plusDays(1), doctorId);
+        assertNotEquals(before, after);
+        assertNull(after, "the day must be reloaded before it can be tagged again");
+    }
+
+    @Test
+    void movingOrDeletingOnAnotherNodeEvictsTheDayItLeft() {
+        UUID appointmentId = book(DAY.atTime(9, 0));
+        assertTrue(json(thisNode).contains(appointmentId.toString()));
+
+        inTransaction(() -> {
+            jdbcTemplate.update("UPDATE appointment SET appointment_time = ? WHERE id = ?",
+                    Timestamp.valueOf(DAY.plusDays(2).atTime(9, 0)), appointmentId);
+            changeLog.recordChanged(List.of(appointmentId));
+        });
+        assertFalse(json(thisNode).contains(appointmentId.toString()));
+
+        UUID other = book(DAY.atTime(11, 0));
+        assertTrue(json(thisNode).contains(other.toString()));
+        inTransaction(() -> {
+            jdbcTemplate.update("DELETE FROM appointment WHERE id = ?", other);
+            changeLog.recordDeleted(other);
+        });
+        assertEquals("[]", json(thisNode));
+    }
+
+    @Test
+    void unchangedWatermarkServesFromTheCache() {
+        json(thisNode);
+        json(thisNode);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> thisNode.getView(DAY, DAY.plusDays(1), doctorId,
+                (from, to) -> {
+                    throw new IllegalStateException("reminder query failed");
+                }));
+        assertNull(thisNode.currentEtag(DAY, DAY.plusDays(1), doctorId));
+
+        json(thisNode);
+        assertEquals(1, loads.get());
+    }
+
+    private UUID book(LocalDateTime time) {
+        UUID appointmentId = UUID.randomUUID();
+        inTransaction(() -> {
+            jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                    + "VALUES (?, ?, ?, ?, 'SCHEDULED')", appointmentId, clientId, doctorId, Timestamp.valueOf(time));
+            changeLog.recordChanged(List.of(appointmentId));
+            otherNode.invalidateDay(doctorId, time.toLocalDate());
+        });
+        return appointmentId;
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> work.run());
+    }
+
+    private String json(CalendarCache cache) {
+        return new String(cache.getView(DAY, DAY.plusDays(1), doctorId, this::load).json(), StandardCharsets.UTF_8);
+    }
+
+    private List<CalendarAppointmentResponse> load(LocalDate from, LocalDate to) {
+        loads.incrementAndGet();
+        return jdbcTemplate.query("SELECT id, appointment_time FROM appointment WHERE doctor_id = ? "
+                        + "AND appointment_time >= ? AND appointment_time < ? ORDER BY appointment_time",
+                (row, i) -> CalendarAppointmentResponse.builder()
+                        .id(row.getObject("id", UUID.class))
+                        .clientId(clientId)
+                        .doctorId(doctorId)
+                        .appointmentTime(row.getTimestamp("appointment_time").toLocalDateTime())
+                        .status(AppointmentStatus.SCHEDULED)
+                        .build(),
+                doctorId, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+    }
+}
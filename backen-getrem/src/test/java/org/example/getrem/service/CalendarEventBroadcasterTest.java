@@ -0,0 +1,215 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.CalendarEventProperties;
+import org.example.getrem.dto.appointment.CalendarChangeEvent;
+import org.example.getrem.enums.CalendarChangeType;
+import org.example.getrem.exception.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Asserts subscribers only hear about their doctor and days, including moves
+ * out of them, that a subscriber that falls behind gets one RESYNC in place
+ * of the events it could not buffer, and that one stuck writing is dropped.
+ */
+class CalendarEventBroadcasterTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(7);
+
+    private final UUID doctorId = UUID.randomUUID();
+    private final CountDownLatch sending = new CountDownLatch(1);
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+
+    private CalendarEventBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void subscriberOnlyHearsAboutItsDoctorAndDays() throws Exception {
+        broadcaster = new CalendarEventBroadcaster(new CalendarEventProperties());
+        MockHttpServletResponse stream = subscribe();
+
+        UUID booked = publish(CalendarChangeType.APPOINTMENT_CREATED, doctorId, DAY.atTime(10, 0));
+        UUID otherDoctor = publish(CalendarChangeType.APPOINTMENT_CREATED, UUID.randomUUID(), DAY.atTime(10, 0));
+        UUID otherDay = publish(CalendarChangeType.APPOINTMENT_CREATED, doctorId, DAY.plusDays(2).atTime(10, 0));
+        UUID movedAway = UUID.randomUUID();
+        broadcaster.publish(CalendarChangeEvent.builder()
+                .type(CalendarChangeType.APPOINTMENT_UPDATED)
+                .appointmentId(movedAway)
+                .doctorId(UUID.randomUUID())
+                .appointmentTime(DAY.plusDays(3).atTime(9, 0))
+                .previousDoctorId(doctorId)
+                .previousAppointmentTime(DAY.atTime(11, 0))
+                .build());
+        broadcaster.publishResync();
+
+        String body = awaitContent(stream, "event:RESYNC");
+        assertTrue(body.contains(booked.toString()));
+        assertTrue(body.contains(movedAway.toString()));
+        assertFalse(body.contains(otherDoctor.toString()));
+        assertFalse(body.contains(otherDay.toString()));
+    }
+
+    @Test
+    void subscriberThatFallsBehindGetsOneResync() throws Exception {
+        CalendarEventProperties properties = new CalendarEventProperties();
+        properties.setBufferSize(2);
+        broadcaster = new CalendarEventBroadcaster(properties);
+        MockHttpServletResponse stream = subscribe();
+        awaitContent(stream, ":keep-alive");
+
+        // The subscriber's sender stalls writing the first event, as on a slow connection
+        gate = new CountDownLatch(1);
+        UUID first = publish(CalendarChangeType.APPOINTMENT_CREATED, doctorId, DAY.atTime(9, 0));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        UUID dropped = null;
+        for (int i = 0; i < 5; i++) {
+            dropped = publish(CalendarChangeType.APPOINTMENT_CREATED, doctorId, DAY.atTime(10 + i, 0));
+        }
+        gate.countDown();
+
+        String body = awaitContent(stream, "event:RESYNC");
+        assertTrue(body.contains(first.toString()));
+        assertFalse(body.contains(dropped.toString()));
+        // The stand-in for the dropped events carries no id, so a reconnect does not skip past them
+        String resync = Arrays.stream(body.split("\n\n"))
+                .filter(event -> event.contains("event:RESYNC"))
+                .findFirst()
+                .orElseThrow();
+        assertFalse(resync.contains("id:"));
+    }
+
+    @Test
+    void subscriberStuckWritingIsDroppedAfterTheWriteTimeout() throws Exception {
+        CalendarEventProperties properties = new CalendarEventProperties();
+        properties.setWriteTimeoutMs(50);
+        broadcaster = new CalendarEventBroadcaster(properties);
+        MockHttpServletResponse stream = subscribe();
+        awaitContent(stream, ":keep-alive");
+
+        gate = new CountDownLatch(1);
+        publish(CalendarChangeType.APPOINTMENT_CREATED, doctorId, DAY.atTime(9, 0));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        broadcaster.heartbeat();
+        assertTrue(broadcaster.hasSubscribers(), "a write that just started is not stuck yet");
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        broadcaster.heartbeat();
+        assertFalse(broadcaster.hasSubscribers());
+    }
+
+    @Test
+    void invalidRangesAndTooManySubscribersAreRefused() {
+        CalendarEventProperties properties = new CalendarEventProperties();
+        properties.setMaxSubscribers(1);
+        broadcaster = new CalendarEventBroadcaster(properties);
+
+        assertThrows(ValidationException.class, () -> broadcaster.subscribe(doctorId, DAY, DAY.minusDays(1)));
+        broadcaster.subscribe(null, null, null);
+        assertThrows(ValidationException.class, () -> broadcaster.subscribe(doctorId, DAY, DAY));
+    }
+
+    private MockHttpServletResponse subscribe() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new EventsController(broadcaster))
+                .setMessageConverters(new StringHttpMessageConverter(), new GatedJsonConverter())
+                .build();
+        return mockMvc.perform(get("/events")
+                        .param("doctorId", doctorId.toString())
+                        .param("from", DAY.toString())
+                        .param("to", DAY.toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private UUID publish(CalendarChangeType type, UUID doctorId, LocalDateTime time) {
+        UUID appointmentId = UUID.randomUUID();
+        broadcaster.publish(CalendarChangeEvent.builder()
+                .type(type)
+                .appointmentId(appointmentId)
+                .doctorId(doctorId)
+                .appointmentTime(time)
+                .build());
+        return appointmentId;
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            String body = response.getContentAsString();
+            if (body.contains(expected)) {
+                return body;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        return fail("Stream never contained " + expected + ": " + response.getContentAsString());
+    }
+
+    // Holds event writes while the gate is closed, standing in for a client that reads slowly
+    private class GatedJsonConverter extends MappingJackson2HttpMessageConverter {
+
+        GatedJsonConverter() {
+            super(Jackson2ObjectMapperBuilder.json().build());
+        }
+
+        @Override
+        protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+            sending.countDown();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+
+    @RestController
+    private static class EventsController {
+
+        private final CalendarEventBroadcaster broadcaster;
+
+        EventsController(CalendarEventBroadcaster broadcaster) {
+            this.broadcaster = broadcaster;
+        }
+
+        @GetMapping("/events")
+        SseEmitter events(@RequestParam UUID doctorId,
+                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+            return broadcaster.subscribe(doctorId, from, to);
+        }
+    }
+}
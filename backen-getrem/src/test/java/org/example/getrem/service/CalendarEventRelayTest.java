@@ -0,0 +1,48 @@
+package org.example.getrem.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts subscribers are only told to refetch for changes another node
+ * committed, and at most once per poll.
+ */
+class CalendarEventRelayTest {
+
+    private final AppointmentChangeLog changeLog = mock(AppointmentChangeLog.class);
+    private final CalendarEventBroadcaster broadcaster = mock(CalendarEventBroadcaster.class);
+    private final CalendarEventRelay relay = new CalendarEventRelay(changeLog, broadcaster);
+
+    @Test
+    void onlyOtherNodesChangesAreRelayed() {
+        when(broadcaster.hasSubscribers()).thenReturn(true);
+        when(changeLog.committedSequence()).thenReturn(10L, 12L, 15L);
+        when(changeLog.isLocal(11)).thenReturn(true);
+        when(changeLog.isLocal(12)).thenReturn(true);
+        when(changeLog.isLocal(14)).thenReturn(true);
+
+        // The first poll only notes where the log stands
+        relay.relay();
+        // 11 and 12 were this node's own, already published as they committed
+        relay.relay();
+        verify(broadcaster, never()).publishResync();
+
+        // 13 and 15 came from elsewhere; one refetch covers both
+        relay.relay();
+        verify(broadcaster, times(1)).publishResync();
+        verify(changeLog).forgetLocalThrough(15);
+    }
+
+    @Test
+    void nothingIsPolledWithoutSubscribers() {
+        relay.relay();
+
+        verify(changeLog, never()).committedSequence();
+        verify(changeLog).forgetLocalThrough(-1);
+    }
+}
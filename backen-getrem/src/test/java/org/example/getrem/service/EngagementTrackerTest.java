@@ -0,0 +1,146 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.EngagementTrackingProperties;
+import org.example.getrem.dto.notification.ReminderEngagementDelta;
+import org.example.getrem.repository.CustomReminderEngagementRepo;
+import org.example.getrem.repository.ReminderEngagementRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts hits are summed per reminder between flushes, written in batches
+ * for reminders that exist, and kept for the next flush when a write fails.
+ */
+class EngagementTrackerTest {
+
+    private final ReminderRepository reminderRepository = mock(ReminderRepository.class);
+    private final CustomReminderEngagementRepo engagementRepo = mock(CustomReminderEngagementRepo.class);
+    private final List<UUID> existing = new ArrayList<>();
+
+    private EngagementTrackingProperties properties;
+    private EngagementTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        properties = new EngagementTrackingProperties();
+        properties.setAllowedRedirectPrefixes(List.of("https://clinic.example.com/"));
+        when(reminderRepository.findExistingIds(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<UUID>>getArgument(0).stream().filter(existing::contains).toList());
+        tracker = new EngagementTracker(properties, reminderRepository, engagementRepo,
+                mock(ReminderEngagementRepository.class), mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void hitsAreSummedPerReminderAndUnknownRemindersDiscarded() {
+        UUID first = reminder();
+        UUID second = reminder();
+        tracker.recordOpen(first);
+        tracker.recordOpen(first);
+        tracker.recordClick(first);
+        tracker.recordClick(second);
+        tracker.recordOpen(UUID.randomUUID());
+
+        tracker.flush();
+
+        Map<UUID, ReminderEngagementDelta> written = upserted(1);
+        assertEquals(2, written.size());
+        assertEquals(2, written.get(first).getOpens());
+        assertEquals(1, written.get(first).getClicks());
+        assertEquals(0, written.get(second).getOpens());
+        assertEquals(1, written.get(second).getClicks());
+
+        // Drained, so an idle flush writes nothing
+        tracker.flush();
+        verify(engagementRepo, times(1)).upsert(anyList());
+    }
+
+    @Test
+    void failedWriteIsMergedIntoTheNextFlush() {
+        UUID id = reminder();
+        tracker.recordOpen(id);
+        when(engagementRepo.upsert(anyList())).thenThrow(new IllegalStateException("database down")).thenReturn(1);
+        tracker.flush();
+
+        tracker.recordOpen(id);
+        tracker.recordClick(id);
+        tracker.flush();
+
+        ReminderEngagementDelta delta = upserted(2).get(id);
+        assertEquals(2, delta.getOpens());
+        assertEquals(1, delta.getClicks());
+    }
+
+    @Test
+    void flushWritesOneStatementPerBatch() {
+        properties.setBatchSize(2);
+        for (int i = 0; i < 5; i++) {
+            tracker.recordClick(reminder());
+        }
+
+        tracker.flush();
+
+        assertEquals(5, upserted(3).size());
+    }
+
+    @Test
+    void newRemindersAreDroppedOncePendingIsFull() {
+        properties.setMaxPendingReminders(1);
+        UUID first = reminder();
+        tracker.recordOpen(first);
+        tracker.recordOpen(reminder());
+        tracker.recordOpen(first);
+
+        tracker.flush();
+
+        assertEquals(1, tracker.getDropped());
+        Map<UUID, ReminderEngagementDelta> written = upserted(1);
+        assertEquals(1, written.size());
+        assertEquals(2, written.get(first).getOpens());
+    }
+
+    @Test
+    void redirectsOnlyGoToTheTrackerOrAllowedPrefixes() {
+        assertTrue(tracker.isAllowedRedirect("http://localhost:8080/api/v1/appointment-links/abc"));
+        assertTrue(tracker.isAllowedRedirect("https://clinic.example.com/visit"));
+        assertFalse(tracker.isAllowedRedirect("https://evil.example.com/"));
+        assertFalse(tracker.isAllowedRedirect("http://localhost:8080.evil.example.com/"));
+        assertFalse(tracker.isAllowedRedirect("//evil.example.com/"));
+        assertFalse(tracker.isAllowedRedirect(null));
+    }
+
+    private UUID reminder() {
+        UUID id = UUID.randomUUID();
+        existing.add(id);
+        return id;
+    }
+
+    // Latest delta written for each reminder across the expected number of upsert calls
+    @SuppressWarnings("unchecked")
+    private Map<UUID, ReminderEngagementDelta> upserted(int calls) {
+        ArgumentCaptor<List<ReminderEngagementDelta>> captor = ArgumentCaptor.forClass(List.class);
+        verify(engagementRepo, times(calls)).upsert(captor.capture());
+        return captor.getAllValues().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(ReminderEngagementDelta::getReminderId, delta -> delta, (earlier, later) -> later));
+    }
+}
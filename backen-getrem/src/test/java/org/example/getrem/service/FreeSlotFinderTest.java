@@ -0,0 +1,129 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.FreeSlotProperties;
+import org.example.getrem.dto.doctor.FreeSlotResponse;
+import org.example.getrem.model.Doctor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts free slots follow the opening-hours grid, skip exactly the slots a
+ * booking conflicts with, and come back in time then doctor-name order up to
+ * the requested count.
+ */
+class FreeSlotFinderTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 6, 3);
+
+    private final AppointmentSlotIndex slotIndex = mock(AppointmentSlotIndex.class);
+    private final FreeSlotProperties properties = new FreeSlotProperties();
+    private final Map<UUID, List<LocalDateTime>> booked = new HashMap<>();
+    private final FreeSlotFinder finder = new FreeSlotFinder(slotIndex, properties);
+
+    private final Doctor adams = doctor("Dr. Adams");
+    private final Doctor baker = doctor("Dr. Baker");
+
+    @BeforeEach
+    void setUp() {
+        // 09:00, 09:30, 10:00 and 10:30 each day
+        properties.setOpeningTime(LocalTime.of(9, 0));
+        properties.setClosingTime(LocalTime.of(11, 0));
+        properties.setStepMinutes(30);
+        when(slotIndex.bookedStarts(anyCollection(), any(), any())).thenReturn(booked);
+    }
+
+    @Test
+    void slotsFillOpeningHoursAndEndByClosingTime() {
+        assertEquals(List.of(at(9, 0), at(9, 30), at(10, 0), at(10, 30)), starts(find(List.of(adams), 10)));
+        assertEquals(at(11, 0), find(List.of(adams), 10).get(3).getEndTime());
+
+        // A slot that would run past closing is left out
+        properties.setClosingTime(LocalTime.of(10, 59));
+        assertEquals(List.of(at(9, 0), at(9, 30), at(10, 0)), starts(find(List.of(adams), 10)));
+    }
+
+    @Test
+    void bookingsAreAskedForAcrossTheConflictWindowOfTheWholeGrid() {
+        find(List.of(adams), 10);
+
+        verify(slotIndex).bookedStarts(eq(List.of(adams.getId())), eq(at(8, 30)), eq(at(10, 31)));
+    }
+
+    @Test
+    void bookingBlocksOnlyTheSlotsItConflictsWith() {
+        // Conflicts are bookings starting within (t - 30 min, t + 1 min)
+        booked.put(adams.getId(), List.of(at(10, 0)));
+        assertEquals(List.of(at(9, 0), at(9, 30), at(10, 30)), starts(find(List.of(adams), 10)));
+
+        booked.put(adams.getId(), List.of(at(9, 31)));
+        assertEquals(List.of(at(9, 0), at(9, 30), at(10, 30)), starts(find(List.of(adams), 10)));
+
+        booked.put(adams.getId(), List.of(at(8, 30), at(10, 1)));
+        assertEquals(List.of(at(9, 0), at(9, 30), at(10, 0)), starts(find(List.of(adams), 10)));
+    }
+
+    @Test
+    void slotsBeforeNotBeforeAreSkipped() {
+        assertEquals(List.of(at(10, 0), at(10, 30)),
+                starts(finder.find(List.of(adams), DAY, DAY, at(9, 45), 10)));
+        // A start exactly at notBefore still counts
+        assertEquals(List.of(at(9, 30), at(10, 0), at(10, 30)),
+                starts(finder.find(List.of(adams), DAY, DAY, at(9, 30), 10)));
+        assertEquals(List.of(), finder.find(List.of(adams), DAY, DAY, at(10, 31), 10));
+        assertEquals(DAY.plusDays(1).atTime(9, 0),
+                finder.find(List.of(adams), DAY, DAY.plusDays(1), at(10, 31), 10).get(0).getStartTime());
+    }
+
+    @Test
+    void slotsComeInTimeThenDoctorNameOrder() {
+        booked.put(adams.getId(), List.of(at(9, 0)));
+
+        List<FreeSlotResponse> slots = find(List.of(baker, adams), 10);
+
+        assertEquals(List.of(at(9, 0), at(9, 30), at(9, 30), at(10, 0), at(10, 0), at(10, 30), at(10, 30)), starts(slots));
+        assertEquals(List.of("Dr. Baker", "Dr. Adams", "Dr. Baker", "Dr. Adams", "Dr. Baker", "Dr. Adams", "Dr. Baker"),
+                slots.stream().map(FreeSlotResponse::getDoctorName).toList());
+    }
+
+    @Test
+    void searchStopsAtTheRequestedCount() {
+        assertEquals(List.of(at(9, 0), at(9, 0), at(9, 30)), starts(find(List.of(adams, baker), 3)));
+        assertEquals(8, find(List.of(adams, baker), 100).size());
+        assertEquals(List.of(), find(List.of(adams, baker), 0));
+    }
+
+    private List<FreeSlotResponse> find(List<Doctor> doctors, int count) {
+        return finder.find(doctors, DAY, DAY, DAY.atStartOfDay(), count);
+    }
+
+    private static List<LocalDateTime> starts(List<FreeSlotResponse> slots) {
+        return slots.stream().map(FreeSlotResponse::getStartTime).toList();
+    }
+
+    private static LocalDateTime at(int hour, int minute) {
+        return DAY.atTime(hour, minute);
+    }
+
+    private static Doctor doctor(String name) {
+        Doctor doctor = new Doctor();
+        doctor.setId(UUID.randomUUID());
+        doctor.setName(name);
+        return doctor;
+    }
+}
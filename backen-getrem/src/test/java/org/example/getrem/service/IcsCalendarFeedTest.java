@@ -0,0 +1,169 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.IcsFeedProperties;
+import org.example.getrem.exception.NotFoundException;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.repository.CustomAppointmentFeedRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts the iCalendar output: which appointments a feed holds, how text is
+ * escaped and lines folded, and that the entity tag moves with the data.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "getrem.ics-feed.time-zone=UTC",
+        // H2 rejects MySQL's streaming fetch size
+        "getrem.ics-feed.fetch-size=100"
+})
+@EnableConfigurationProperties(IcsFeedProperties.class)
+@Import({IcsCalendarFeed.class, CustomAppointmentFeedRepo.class})
+class IcsCalendarFeedTest {
+
+    private static final LocalDate DAY = LocalDate.now().plusDays(10);
+
+    @Autowired
+    private IcsCalendarFeed feed;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UUID clientId;
+    private UUID doctorId;
+    private UUID otherDoctorId;
+
+    @BeforeEach
+    void setUp() {
+        clientId = UUID.randomUUID();
+        doctorId = UUID.randomUUID();
+        otherDoctorId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Smith, Jo; Jr', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, specialization, active) VALUES (?, 'Dr. Feed', 'Ortho', TRUE)",
+                doctorId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Other', TRUE)", otherDoctorId);
+    }
+
+    // Rows are committed, so they are cleared for the clinic-wide feed of the next test
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM appointment WHERE client_id = ?", clientId);
+        jdbcTemplate.update("DELETE FROM doctor WHERE id IN (?, ?)", doctorId, otherDoctorId);
+        jdbcTemplate.update("DELETE FROM clients WHERE id = ?", clientId);
+    }
+
+    @Test
+    void doctorFeedHoldsOnlyTheirAppointmentsAsEscapedEvents() throws IOException {
+        UUID cancelled = insertAppointment(doctorId, DAY.atTime(9, 30), "CANCELLED", "Bring x-rays\nand forms");
+        insertAppointment(otherDoctorId, DAY.atTime(10, 0), "SCHEDULED", null);
+
+        String ics = write(feed.open(doctorId, DAY, DAY));
+
+        assertTrue(ics.startsWith("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"));
+        assertTrue(ics.endsWith("END:VCALENDAR\r\n"));
+        assertEquals(1, count(ics, "BEGIN:VEVENT"));
+        String unfolded = ics.replace("\r\n ", "");
+        assertTrue(unfolded.contains("UID:" + cancelled + "@getrem\r\n"));
+        assertTrue(unfolded.contains("DTSTART:" + DAY.toString().replace("-", "") + "T093000Z\r\n"));
+        assertTrue(unfolded.contains("DTEND:" + DAY.toString().replace("-", "") + "T100000Z\r\n"));
+        assertTrue(unfolded.contains("SUMMARY:Smith\\, Jo\\; Jr - Dr. Feed\r\n"));
+        assertTrue(unfolded.contains("DESCRIPTION:Doctor: Dr. Feed (Ortho)\\nBring x-rays\\nand forms\r\n"));
+        assertTrue(unfolded.contains("STATUS:CANCELLED\r\n"));
+
+        assertEquals(2, count(write(feed.open(null, DAY, DAY)), "BEGIN:VEVENT"));
+    }
+
+    @Test
+    void longLinesAreFoldedWithoutSplittingCharacters() throws IOException {
+        StringWriter writer = new StringWriter();
+        String content = "DESCRIPTION:" + "é".repeat(100);
+        IcsCalendarFeed.line(writer, content);
+
+        String folded = writer.toString();
+        assertTrue(folded.endsWith("\r\n"));
+        for (String line : folded.substring(0, folded.length() - 2).split("\r\n")) {
+            assertTrue(line.getBytes(StandardCharsets.UTF_8).length <= 75, line);
+        }
+        assertEquals(content, folded.substring(0, folded.length() - 2).replace("\r\n ", ""));
+    }
+
+    @Test
+    void entityTagMovesWithTheData() {
+        String empty = feed.open(doctorId, DAY, DAY).getEtag();
+        assertEquals(empty, feed.open(doctorId, DAY, DAY).getEtag());
+
+        insertAppointment(doctorId, DAY.atTime(11, 0), "SCHEDULED", null);
+        String booked = feed.open(doctorId, DAY, DAY).getEtag();
+        assertNotEquals(empty, booked);
+
+        // Another doctor's booking leaves this doctor's feed as it was
+        insertAppointment(otherDoctorId, DAY.atTime(12, 0), "SCHEDULED", null);
+        assertEquals(booked, feed.open(doctorId, DAY, DAY).getEtag());
+        // The range is part of the tag
+        assertNotEquals(booked, feed.open(doctorId, DAY, DAY.plusDays(1)).getEtag());
+    }
+
+    @Test
+    void invalidRequestsAreRejected() {
+        assertThrows(ValidationException.class, () -> feed.open(doctorId, DAY, DAY.minusDays(1)));
+        assertThrows(ValidationException.class, () -> feed.open(doctorId, DAY, DAY.plusYears(3)));
+        assertThrows(NotFoundException.class, () -> feed.open(UUID.randomUUID(), DAY, DAY));
+    }
+
+    @Test
+    void escapeHandlesEveryReservedCharacter() {
+        assertEquals("a\\\\b\\;c\\,d\\ne\\nf", IcsCalendarFeed.escape("a\\b;c,d\r\ne\rf"));
+        assertEquals("", IcsCalendarFeed.escape(null));
+        assertFalse(IcsCalendarFeed.escape("plain text").contains("\\"));
+    }
+
+    private UUID insertAppointment(UUID doctor, LocalDateTime time, String status, String notes) {
+        UUID appointmentId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status, notes, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)", appointmentId, clientId, doctor, Timestamp.valueOf(time), status,
+                notes, Timestamp.valueOf(LocalDateTime.now()));
+        return appointmentId;
+    }
+
+    private static String write(IcsCalendarFeed.Feed feed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        feed.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
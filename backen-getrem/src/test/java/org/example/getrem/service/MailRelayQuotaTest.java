@@ -0,0 +1,71 @@
+package org.example.getrem.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Asserts relay quota is leased from one shared count, so leases never add
+ * up to more than the daily quota however many nodes ask at once.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@Import(MailRelayQuota.class)
+class MailRelayQuotaTest {
+
+    @Autowired
+    private MailRelayQuota quota;
+
+    @Test
+    void leasesStopAtTheDailyQuota() {
+        LocalDate day = LocalDate.of(2026, 1, 5);
+
+        assertEquals(4, quota.lease("capped", day, 10, 4).getAsInt());
+        assertEquals(4, quota.lease("capped", day, 10, 4).getAsInt());
+        assertEquals(2, quota.lease("capped", day, 10, 4).getAsInt());
+        assertEquals(0, quota.lease("capped", day, 10, 4).getAsInt());
+        // A new day starts a new count
+        assertEquals(4, quota.lease("capped", day.plusDays(1), 10, 4).getAsInt());
+    }
+
+    @Test
+    void concurrentLeasesNeverOvershoot() throws Exception {
+        LocalDate day = LocalDate.of(2026, 1, 6);
+        ExecutorService nodes = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> leases = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                leases.add(nodes.submit(() -> quota.lease("shared", day, 25, 3).orElse(0)));
+            }
+            int granted = 0;
+            for (Future<Integer> lease : leases) {
+                granted += lease.get();
+            }
+            // Lost races retry a bounded number of times, so a few leases may come back short
+            int lease;
+            while ((lease = quota.lease("shared", day, 25, 3).getAsInt()) > 0) {
+                granted += lease;
+            }
+            assertEquals(25, granted);
+        } finally {
+            nodes.shutdown();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.MailRelayProperties;
+import org.example.getrem.dto.notification.MailRelayStatus;
+import org.example.getrem.exception.MailRelaysUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts mail is shared between relays by weight, that a relay which cannot
+ * be reached is skipped and then taken out of rotation, and that neither
+ * quota nor a message the relay rejects sends mail to another relay. Quota is
+ * shared with every other node through the leased count, and a lease that
+ * fails is retried rather than taken for a used-up quota.
+ */
+class MailRelayRouterTest {
+
+    private final MailRelayProperties properties = new MailRelayProperties();
+    private final List<FakeRelay> servers = new ArrayList<>();
+    // Stands in for the shared count in the database
+    private final Map<String, Integer> usage = new HashMap<>();
+    private final MailRelayQuota quota = mock(MailRelayQuota.class);
+
+    @BeforeEach
+    void setUp() {
+        when(quota.lease(anyString(), any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0) + "/" + invocation.getArgument(1);
+            int dailyQuota = invocation.getArgument(2);
+            int granted = Math.min(invocation.<Integer>getArgument(3), dailyQuota - usage.getOrDefault(key, 0));
+            usage.merge(key, granted, Integer::sum);
+            return OptionalInt.of(granted);
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (FakeRelay server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void mailIsSharedByWeight() {
+        FakeRelay heavy = relay("heavy", 2, 0, false);
+        FakeRelay light = relay("light", 1, 0, false);
+        MailRelayRouter router = router();
+
+        for (int i = 0; i < 6; i++) {
+            router.send(message());
+        }
+
+        assertEquals(4, heavy.received());
+        assertEquals(2, light.received());
+    }
+
+    @Test
+    void unreachableRelayIsSkippedThenTakenOutOfRotation() throws IOException {
+        properties.getRelays().add(relayProperties("down", unusedPort(), 10, 0));
+        FakeRelay up = relay("up", 1, 0, false);
+        MailRelayRouter router = router();
+
+        for (int i = 0; i < 3; i++) {
+            router.send(message());
+        }
+
+        assertEquals(3, up.received());
+        MailRelayStatus down = status(router, "down");
+        assertFalse(down.isHealthy());
+        // Out of rotation after the threshold, so the third send went straight to the healthy relay
+        assertEquals(2, down.getConsecutiveFailures());
+        assertEquals(0, down.getSentToday());
+    }
+
+    @Test
+    void exhaustedQuotaAndRejectedMessagesDoNotFailOver() {
+        FakeRelay limited = relay("limited", 1, 1, false);
+        MailRelayRouter router = router();
+
+        router.send(message());
+        assertThrows(MailRelaysUnavailableException.class, () -> router.send(message()));
+        assertEquals(1, limited.received());
+        assertEquals(1, status(router, "limited").getSentToday());
+
+        properties.getRelays().clear();
+        relay("rejecting", 10, 0, true);
+        FakeRelay other = relay("other", 1, 0, false);
+        MailRelayRouter rejecting = router();
+
+        MailException failure = assertThrows(MailException.class, () -> rejecting.send(message()));
+        assertFalse(failure instanceof MailRelaysUnavailableException);
+        assertEquals(0, other.received());
+        assertTrue(status(rejecting, "rejecting").isHealthy());
+    }
+
+    @Test
+    void quotaIsSharedBetweenNodes() {
+        properties.setQuotaLeaseSize(2);
+        FakeRelay limited = relay("limited", 1, 3, false);
+        MailRelayRouter first = router();
+        MailRelayRouter second = router();
+
+        first.send(message());
+        // The first node leased two units, so only one is left for the second
+        second.send(message());
+        assertThrows(MailRelaysUnavailableException.class, () -> second.send(message()));
+
+        first.send(message());
+        assertThrows(MailRelaysUnavailableException.class, () -> first.send(message()));
+        assertEquals(3, limited.received());
+    }
+
+    @Test
+    void failedLeaseIsRetriedInsteadOfEndingTheDay() throws Exception {
+        properties.setQuotaRetryMs(100);
+        FakeRelay limited = relay("limited", 1, 5, false);
+        MailRelayRouter router = router();
+        when(quota.lease(anyString(), any(), anyInt(), anyInt()))
+                .thenReturn(OptionalInt.empty())
+                .thenReturn(OptionalInt.of(5));
+
+        // The database could not be asked, and the relay waits out the retry interval
+        assertThrows(MailRelaysUnavailableException.class, () -> router.send(message()));
+        assertThrows(MailRelaysUnavailableException.class, () -> router.send(message()));
+        verify(quota, times(1)).lease(anyString(), any(), anyInt(), anyInt());
+
+        TimeUnit.MILLISECONDS.sleep(150);
+        router.send(message());
+        assertEquals(1, limited.received());
+    }
+
+    private FakeRelay relay(String name, int weight, int dailyQuota, boolean rejectRecipients) {
+        try {
+            FakeRelay server = new FakeRelay(rejectRecipients);
+            servers.add(server);
+            properties.getRelays().add(relayProperties(name, server.port(), weight, dailyQuota));
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MailRelayRouter router() {
+        return new MailRelayRouter(properties, quota, mock(JavaMailSender.class));
+    }
+
+    private static MailRelayProperties.Relay relayProperties(String name, int port, int weight, int dailyQuota) {
+        MailRelayProperties.Relay relay = new MailRelayProperties.Relay();
+        relay.setName(name);
+        relay.setHost("127.0.0.1");
+        relay.setPort(port);
+        relay.setWeight(weight);
+        relay.setDailyQuota(dailyQuota);
+        relay.setStarttls(false);
+        return relay;
+    }
+
+    private static MailRelayStatus status(MailRelayRouter router, String name) {
+        return router.getStatus().stream()
+                .filter(status -> status.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static SimpleMailMessage message() {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("getrem@example.com");
+        message.setTo("client@example.com");
+        message.setSubject("Appointment Reminder");
+        message.setText("See you tomorrow");
+        return message;
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    // Just enough SMTP for JavaMail to hand over a message, one connection at a time
+    private static final class FakeRelay implements AutoCloseable {
+
+        private final ServerSocket socket;
+        private final boolean rejectRecipients;
+        private final AtomicInteger received = new AtomicInteger();
+
+        FakeRelay(boolean rejectRecipients) throws IOException {
+            this.socket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+            this.rejectRecipients = rejectRecipients;
+            Thread thread = new Thread(this::serve, "fake-smtp-" + socket.getLocalPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        int received() {
+            return received.get();
+        }
+
+        private void serve() {
+            while (!socket.isClosed()) {
+                try (Socket connection = socket.accept();
+                     BufferedReader in = new BufferedReader(new InputStreamReader(
+                             connection.getInputStream(), StandardCharsets.US_ASCII));
+                     PrintWriter out = new PrintWriter(connection.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+                    reply(out, "220 fake ESMTP");
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        String command = line.toUpperCase();
+                        if (command.startsWith("QUIT")) {
+                            reply(out, "221 bye");
+                            break;
+                        } else if (command.startsWith("RCPT") && rejectRecipients) {
+                            reply(out, "550 mailbox unavailable");
+                        } else if (command.startsWith("DATA")) {
+                            reply(out, "354 go ahead");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // message body
+                            }
+                            received.incrementAndGet();
+                            reply(out, "250 queued");
+                        } else {
+                            reply(out, "250 ok");
+                        }
+                    }
+                } catch (IOException e) {
+                    // closed by the test, or the client hung up
+                }
+            }
+        }
+
+        private static void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
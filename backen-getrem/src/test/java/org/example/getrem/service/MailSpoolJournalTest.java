@@ -0,0 +1,129 @@
+package org.example.getrem.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts records survive a reopen until they are committed, in order and
+ * across segment boundaries, and that a torn tail is discarded rather than
+ * replayed.
+ */
+class MailSpoolJournalTest {
+
+    private static final int SEGMENT_BYTES = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void uncommittedRecordsAreReplayedAfterReopen() throws IOException {
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            journal.append(bytes("one"));
+            journal.append(bytes("two"));
+            journal.append(bytes("three"));
+            assertArrayEquals(bytes("one"), journal.peek());
+            journal.commit();
+            // Peeked but never committed, as when the process dies mid-send
+            assertArrayEquals(bytes("two"), journal.peek());
+        }
+
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            assertEquals(2, journal.size());
+            assertArrayEquals(bytes("two"), journal.peek());
+            assertArrayEquals(bytes("two"), journal.peek());
+            journal.commit();
+            assertArrayEquals(bytes("three"), journal.peek());
+            journal.commit();
+            assertNull(journal.peek());
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    @Test
+    void recordsRollOverSegmentsAndConsumedSegmentsAreDeleted() throws IOException {
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            // 8 header bytes + 20 payload bytes: two records per segment
+            for (int i = 0; i < 6; i++) {
+                journal.append(bytes(String.format("record-%013d", i)));
+            }
+            assertEquals(3, segmentFiles());
+            for (int i = 0; i < 3; i++) {
+                assertArrayEquals(bytes(String.format("record-%013d", i)), journal.peek());
+                journal.commit();
+            }
+        }
+
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            assertEquals(3, journal.size());
+            for (int i = 3; i < 6; i++) {
+                assertArrayEquals(bytes(String.format("record-%013d", i)), journal.peek());
+                journal.commit();
+            }
+            assertNull(journal.peek());
+            assertEquals(1, segmentFiles());
+        }
+    }
+
+    @Test
+    void tornTailIsDiscardedAndOverwritten() throws IOException {
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            journal.append(bytes("kept"));
+        }
+        // A crash after the length but before the payload reached disk
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(12).putInt(4).putInt(0xBAD).put(bytes("torn")).flip(), 8 + 4);
+        }
+
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            assertEquals(1, journal.size());
+            journal.append(bytes("next"));
+        }
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            assertArrayEquals(bytes("kept"), journal.peek());
+            journal.commit();
+            assertArrayEquals(bytes("next"), journal.peek());
+            journal.commit();
+            assertNull(journal.peek());
+        }
+    }
+
+    @Test
+    void rejectsRecordsLargerThanASegmentAndCommitsWithoutAPeek() throws IOException {
+        try (MailSpoolJournal journal = MailSpoolJournal.open(directory, SEGMENT_BYTES)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append(new byte[SEGMENT_BYTES]));
+            assertThrows(IllegalStateException.class, journal::commit);
+            assertTrue(journal.isEmpty());
+        }
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).findFirst().orElseThrow();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.MailSpoolProperties;
+import org.example.getrem.config.NotificationExecutionProperties;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.NotificationStatus;
+import org.example.getrem.model.NotificationLog;
+import org.example.getrem.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.SimpleMailMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts a replay only sends reminders whose appointment is still on at the
+ * time the mail was written for, and that records written before
+ * appointments were stored still decode.
+ */
+class MailSpoolTest {
+
+    private static final LocalDateTime TOMORROW = LocalDateTime.now().plusDays(1).withNano(0);
+
+    @TempDir
+    Path directory;
+
+    private final MailRelayRouter mailRelayRouter = mock(MailRelayRouter.class);
+    private final NotificationLogWriter notificationLogWriter = mock(NotificationLogWriter.class);
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final List<Object[]> appointments = new ArrayList<>();
+
+    private MailSpool spool;
+
+    @BeforeEach
+    void setUp() {
+        MailSpoolProperties properties = new MailSpoolProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentBytes(64 * 1024);
+        properties.setRatePerSecond(1000);
+        properties.setIdleIntervalMs(10);
+        when(appointmentRepository.findCalendarKeys(anyCollection())).thenAnswer(invocation -> appointments.stream()
+                .filter(row -> invocation.<Collection<?>>getArgument(0).contains(row[0]))
+                .toList());
+        spool = new MailSpool(properties, mailRelayRouter,
+                new NotificationExecutor(new NotificationExecutionProperties(), null),
+                notificationLogWriter, appointmentRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        spool.stop();
+    }
+
+    @Test
+    void staleRemindersAreSkippedAndLiveOnesSent() {
+        UUID live = appointment(TOMORROW, AppointmentStatus.SCHEDULED);
+        UUID cancelled = appointment(TOMORROW, AppointmentStatus.CANCELLED);
+        UUID moved = appointment(TOMORROW.plusHours(2), AppointmentStatus.SCHEDULED);
+
+        spool.start();
+        assertTrue(spool.offer(UUID.randomUUID(), cancelled, TOMORROW, message("cancelled@example.com")));
+        assertTrue(spool.offer(UUID.randomUUID(), moved, TOMORROW, message("moved@example.com")));
+        assertTrue(spool.offer(UUID.randomUUID(), UUID.randomUUID(), TOMORROW, message("deleted@example.com")));
+        assertTrue(spool.offer(UUID.randomUUID(), live, LocalDateTime.now().minusMinutes(1), message("started@example.com")));
+        assertTrue(spool.offer(UUID.randomUUID(), live, TOMORROW, message("live@example.com")));
+
+        ArgumentCaptor<SimpleMailMessage> sent = ArgumentCaptor.forClass(SimpleMailMessage.class);
+        verify(mailRelayRouter, timeout(5000)).send(sent.capture());
+        assertEquals("live@example.com", sent.getValue().getTo()[0]);
+
+        ArgumentCaptor<NotificationLog> logs = ArgumentCaptor.forClass(NotificationLog.class);
+        verify(notificationLogWriter, timeout(5000).times(5)).publish(logs.capture());
+        assertEquals(4, logs.getAllValues().stream().filter(log -> log.getStatus() == NotificationStatus.FAILED).count());
+        assertEquals(4, spool.getStats().getSkipped());
+        assertEquals(1, spool.getStats().getReplayed());
+        assertEquals(0, spool.getStats().getPendingMessages());
+    }
+
+    @Test
+    void recordsCarryTheAppointmentAndLegacyRecordsStillDecode() throws Exception {
+        UUID reminderId = UUID.randomUUID();
+        UUID appointmentId = UUID.randomUUID();
+        LocalDateTime time = TOMORROW.withNano(500);
+        MailSpool.SpooledMail mail = MailSpool.decode(MailSpool.encode(
+                new MailSpool.SpooledMail(reminderId, appointmentId, time, message("a@example.com"))));
+        assertEquals(reminderId, mail.reminderId());
+        assertEquals(appointmentId, mail.appointmentId());
+        assertEquals(time, mail.appointmentTime());
+        assertEquals("a@example.com", mail.message().getTo()[0]);
+
+        // Version 1: [version][has reminder][reminder id][to][subject][text length][text]
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(1);
+            out.writeBoolean(true);
+            out.writeLong(reminderId.getMostSignificantBits());
+            out.writeLong(reminderId.getLeastSignificantBits());
+            out.writeUTF("old@example.com");
+            out.writeUTF("Subject");
+            out.writeInt(4);
+            out.write("Body".getBytes(StandardCharsets.UTF_8));
+        }
+        MailSpool.SpooledMail legacy = MailSpool.decode(bytes.toByteArray());
+        assertEquals(reminderId, legacy.reminderId());
+        assertNull(legacy.appointmentId());
+        assertEquals("Body", legacy.message().getText());
+    }
+
+    private UUID appointment(LocalDateTime time, AppointmentStatus status) {
+        UUID id = UUID.randomUUID();
+        appointments.add(new Object[]{id, UUID.randomUUID(), time, status});
+        return id;
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Appointment Reminder");
+        message.setText("See you soon");
+        return message;
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.getrem.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.getrem.config.DispatchProperties;
+import org.example.getrem.config.NotificationLogArchiveProperties;
+import org.example.getrem.dto.notification.NotificationLogArchiveResult;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.repository.ChangeSequenceRepository;
+import org.example.getrem.repository.NotificationLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Asserts old logs move chunk by chunk into monthly gzip segments before
+ * they are deleted, that a failed chunk leaves the segment readable and its
+ * rows in place, and that only one node at a time runs the archive.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+class NotificationLogArchiverTest {
+
+    @Autowired
+    private NotificationLogRepository notificationLogRepository;
+
+    @Autowired
+    private ChangeSequenceRepository sequenceRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private final FailingObjectMapper objectMapper = new FailingObjectMapper();
+    private final NotificationLogArchiveProperties properties = new NotificationLogArchiveProperties();
+    private final DispatchProperties dispatchProperties = new DispatchProperties();
+    private NotificationLogArchiver archiver;
+    private UUID reminderId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM notification_log");
+        jdbcTemplate.update("DELETE FROM change_sequence");
+        properties.setDirectory(directory.toString());
+        properties.setChunkSize(2);
+        properties.setChunkPauseMs(0);
+        dispatchProperties.setNodeId("node-a");
+        archiver = new NotificationLogArchiver(notificationLogRepository, sequenceRepository,
+                transactionManager, objectMapper, properties, dispatchProperties);
+
+        UUID clientId = UUID.randomUUID();
+        UUID doctorId = UUID.randomUUID();
+        UUID appointmentId = UUID.randomUUID();
+        reminderId = UUID.randomUUID();
+        Timestamp longAgo = Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 9, 0));
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Archive', TRUE)", doctorId);
+        jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                + "VALUES (?, ?, ?, ?, 'SCHEDULED')", appointmentId, clientId, doctorId, longAgo);
+        jdbcTemplate.update("INSERT INTO reminder (id, appointment_id, scheduled_time, created_at, status, type) "
+                + "VALUES (?, ?, ?, ?, 'SENT', 'ONE_DAY_BEFORE')", reminderId, appointmentId, longAgo, longAgo);
+    }
+
+    @Test
+    void oldLogsAreArchivedChunkByChunkIntoMonthlySegments() throws IOException {
+        UUID january1 = insertLog(LocalDateTime.of(2020, 1, 5, 10, 0));
+        UUID january2 = insertLog(LocalDateTime.of(2020, 1, 20, 10, 0));
+        UUID january3 = insertLog(LocalDateTime.of(2020, 1, 31, 23, 59));
+        UUID february1 = insertLog(LocalDateTime.of(2020, 2, 1, 0, 0));
+        UUID february2 = insertLog(LocalDateTime.of(2020, 2, 14, 10, 0));
+        UUID recent = insertLog(LocalDateTime.now().minusDays(1));
+
+        NotificationLogArchiveResult result = archiver.archive();
+
+        assertEquals(5, result.getArchivedRows());
+        assertEquals(3, result.getChunks());
+        assertEquals(List.of("2020-01", "2020-02"), result.getSegments());
+        assertEquals(List.of(recent), remainingIds());
+        assertEquals(List.of("2020-01", "2020-02"),
+                archiver.listSegments().stream().map(segment -> segment.getMonth()).toList());
+        // The second chunk straddles the month boundary, so January's segment holds two gzip members
+        assertEquals(List.of(january1, january2, january3), archivedIds("2020-01"));
+        assertEquals(List.of(february1, february2), archivedIds("2020-02"));
+
+        try (InputStream raw = archiver.openSegment("2020-01", false)) {
+            byte[] header = raw.readNBytes(2);
+            assertArrayEquals(new byte[]{(byte) 0x1f, (byte) 0x8b}, header);
+        }
+    }
+
+    @Test
+    void failedChunkIsTruncatedAndItsRowsKept() throws IOException {
+        UUID first = insertLog(LocalDateTime.of(2020, 1, 5, 10, 0));
+        UUID second = insertLog(LocalDateTime.of(2020, 1, 6, 10, 0));
+        UUID third = insertLog(LocalDateTime.of(2020, 1, 7, 10, 0));
+        objectMapper.failAt = 3;
+
+        assertThrows(UncheckedIOException.class, () -> archiver.archive());
+
+        // The partial member was cut off, so the first chunk still reads back cleanly
+        assertEquals(List.of(first, second), archivedIds("2020-01"));
+        assertEquals(List.of(third), remainingIds());
+
+        objectMapper.failAt = 0;
+        archiver.archive();
+
+        assertEquals(List.of(first, second, third), archivedIds("2020-01"));
+        assertEquals(List.of(), remainingIds());
+    }
+
+    @Test
+    void runIsRefusedWhileAnotherNodeHoldsTheLease() {
+        insertLog(LocalDateTime.of(2020, 1, 5, 10, 0));
+        jdbcTemplate.update("INSERT INTO change_sequence (name, current_value) VALUES ('notification-log-archive', ?)",
+                System.currentTimeMillis() + 60_000);
+
+        assertThrows(ValidationException.class, () -> archiver.archive());
+        assertEquals(1, remainingIds().size());
+
+        // Once it runs out another node can take over
+        jdbcTemplate.update("UPDATE change_sequence SET current_value = ? WHERE name = 'notification-log-archive'",
+                System.currentTimeMillis() - 1);
+        assertEquals(1, archiver.archive().getArchivedRows());
+        assertEquals(0L, sequenceRepository.findValue("notification-log-archive").orElseThrow());
+    }
+
+    @Test
+    void onlyTheArchiveNodeRunsTheArchive() {
+        insertLog(LocalDateTime.of(2020, 1, 5, 10, 0));
+        properties.setNodeId("node-b");
+
+        archiver.scheduledArchive();
+        assertEquals(1, remainingIds().size());
+        assertThrows(ValidationException.class, () -> archiver.archive());
+
+        dispatchProperties.setNodeId("node-b");
+        archiver.scheduledArchive();
+        assertEquals(0, remainingIds().size());
+    }
+
+    private UUID insertLog(LocalDateTime timestamp) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO notification_log (id, reminder_id, channel, status, timestamp, recipient) "
+                + "VALUES (?, ?, 'EMAIL', 'SENT', ?, 'c@example.com')", id, reminderId, Timestamp.valueOf(timestamp));
+        return id;
+    }
+
+    private List<UUID> remainingIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM notification_log ORDER BY timestamp", UUID.class);
+    }
+
+    private List<UUID> archivedIds(String month) throws IOException {
+        List<UUID> ids = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(archiver.openSegment(month, true), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ids.add(UUID.fromString(objectMapper.readTree(line).get("id").asText()));
+            }
+        }
+        return ids;
+    }
+
+    // Fails the n-th row written, standing in for a disk or serialisation error mid-chunk
+    private static class FailingObjectMapper extends ObjectMapper {
+
+        private int failAt;
+        private int written;
+
+        FailingObjectMapper() {
+            super(Jackson2ObjectMapperBuilder.json().build());
+        }
+
+        @Override
+        public String writeValueAsString(Object value) throws JsonProcessingException {
+            if (++written == failAt) {
+                throw new JsonMappingException(null, "Simulated write failure");
+            }
+            return super.writeValueAsString(value);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.NotificationLogWriterProperties;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.NotificationStatus;
+import org.example.getrem.model.NotificationLog;
+import org.example.getrem.model.Reminder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Asserts logs published while the writer thread is stopped are still
+ * committed, including when they are handed over after a transaction commits.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties(NotificationLogWriterProperties.class)
+@Import(NotificationLogWriter.class)
+class NotificationLogWriterTest {
+
+    @Autowired
+    private NotificationLogWriter writer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UUID reminderId;
+
+    @BeforeEach
+    void setUp() {
+        // As during shutdown, once the writer thread has drained and stopped
+        writer.stop();
+        UUID clientId = UUID.randomUUID();
+        UUID doctorId = UUID.randomUUID();
+        UUID appointmentId = UUID.randomUUID();
+        reminderId = UUID.randomUUID();
+        Timestamp tomorrow = Timestamp.valueOf(LocalDateTime.now().plusDays(1));
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Log', TRUE)", doctorId);
+        jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                + "VALUES (?, ?, ?, ?, 'SCHEDULED')", appointmentId, clientId, doctorId, tomorrow);
+        jdbcTemplate.update("INSERT INTO reminder (id, appointment_id, scheduled_time, created_at, status, type) "
+                + "VALUES (?, ?, ?, ?, 'SENT', 'ONE_DAY_BEFORE')", reminderId, appointmentId, tomorrow, tomorrow);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.start();
+    }
+
+    @Test
+    void logsHandedOverAfterCommitAreWrittenInTheirOwnTransaction() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> writer.publishAll(List.of(log())));
+
+        assertEquals(1, countLogs());
+        assertEquals(1, writer.getStats().getWritten());
+    }
+
+    @Test
+    void logsPublishedOutsideATransactionAreWritten() {
+        writer.publish(log());
+
+        assertEquals(1, countLogs());
+    }
+
+    private NotificationLog log() {
+        Reminder reminder = new Reminder();
+        reminder.setId(reminderId);
+        NotificationLog notificationLog = new NotificationLog();
+        notificationLog.setReminder(reminder);
+        notificationLog.setChannel(NotificationChannel.EMAIL);
+        notificationLog.setRecipient("c@example.com");
+        notificationLog.setStatus(NotificationStatus.SENT);
+        notificationLog.setTimestamp(LocalDateTime.now());
+        return notificationLog;
+    }
+
+    private int countLogs() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM notification_log WHERE reminder_id = ?", Integer.class,
+                reminderId);
+    }
+}
@@ -0,0 +1,216 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.ReminderForecastProperties;
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
+import org.example.getrem.dto.reminder.ReminderForecastResponse;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts changes committed while the index is being rebuilt survive the
+ * swap, that only channels reminders actually go out on are forecast, that a
+ * transaction's changes land on commit with one preference lookup, that
+ * cancelling appointments drops exactly their reminders, and that changes
+ * other nodes committed are caught up on before a forecast.
+ */
+class ReminderLoadIndexTest {
+
+    private static final LocalDateTime SOON = LocalDateTime.now().plusHours(2).truncatedTo(ChronoUnit.MINUTES);
+
+    private final ReminderRepository reminderRepository = mock(ReminderRepository.class);
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final NotificationPreferenceCache preferenceCache = mock(NotificationPreferenceCache.class);
+    private final AppointmentChangeLog changeLog = mock(AppointmentChangeLog.class);
+
+    private ReminderLoadIndex index;
+    private Clients client;
+
+    @BeforeEach
+    void setUp() {
+        client = new Clients();
+        client.setId(UUID.randomUUID());
+        client.setEmail("client@example.com");
+        client.setPhone("+15550100");
+        when(preferenceCache.getAll(anyCollection())).thenAnswer(invocation -> invocation.<Collection<UUID>>getArgument(0)
+                .stream()
+                .collect(Collectors.toMap(Function.identity(), NotificationPreferenceSnapshot::defaults)));
+        when(appointmentRepository.findPlannedForecastRows()).thenReturn(List.of());
+        index = new ReminderLoadIndex(reminderRepository, appointmentRepository, preferenceCache,
+                new ReminderForecastProperties(), changeLog);
+    }
+
+    @Test
+    void changesCommittedDuringARebuildSurviveTheSwap() {
+        Appointment read = appointment();
+        Appointment booked = appointment();
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{read.getId(), ReminderType.ONE_DAY_BEFORE, SOON, client.getId(),
+                client.getEmail(), client.getPhone()});
+        // Both land after the rebuild's read, so only the replay can account for them
+        when(reminderRepository.findPendingForecastRows()).thenAnswer(invocation -> {
+            index.onScheduled(booked, ReminderType.ONE_DAY_BEFORE, SOON.plusMinutes(30));
+            index.onRemoved(read, ReminderType.ONE_DAY_BEFORE, SOON);
+            return rows;
+        });
+
+        index.rebuild();
+
+        ReminderForecastResponse forecast = index.forecast(4, ChronoUnit.MINUTES);
+        assertEquals(1, forecast.getTotal());
+        assertEquals(1, forecast.getBuckets().size());
+        assertEquals(SOON.plusMinutes(30), forecast.getBuckets().get(0).getStart());
+    }
+
+    @Test
+    void onlyDeliveredChannelsAreForecast() {
+        index.onScheduled(appointment(), ReminderType.ONE_DAY_BEFORE, SOON);
+
+        ReminderForecastResponse forecast = index.forecast(4, ChronoUnit.HOURS);
+        assertEquals(1, forecast.getTotal());
+        Map<NotificationChannel, Long> byChannel = forecast.getBuckets().get(0).getByChannel();
+        assertEquals(Map.of(NotificationChannel.EMAIL, 1L), byChannel);
+    }
+
+    @Test
+    void aTransactionsChangesApplyOnCommitWithOnePreferenceLookup() {
+        Appointment first = appointment();
+        Appointment second = appointment(otherClient());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.onScheduled(first, ReminderType.ONE_DAY_BEFORE, SOON);
+            index.onScheduled(first, ReminderType.TEN_MINUTES_BEFORE, SOON.plusMinutes(5));
+            index.onScheduled(second, ReminderType.ONE_DAY_BEFORE, SOON);
+            index.onRemoved(first, ReminderType.TEN_MINUTES_BEFORE, SOON.plusMinutes(5));
+            assertEquals(0, index.forecast(4, ChronoUnit.HOURS).getTotal(), "nothing applies before commit");
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(2, index.forecast(4, ChronoUnit.HOURS).getTotal());
+        verify(preferenceCache, times(1)).getAll(Set.of(client.getId(), second.getClient().getId()));
+        verify(preferenceCache, never()).get(any());
+        assertNull(TransactionSynchronizationManager.getResource(index));
+    }
+
+    @Test
+    void cancellingAppointmentsDropsOnlyTheirReminders() {
+        Appointment cancelled = appointment();
+        Appointment kept = appointment();
+        index.onScheduled(cancelled, ReminderType.ONE_DAY_BEFORE, SOON);
+        index.onScheduled(cancelled, ReminderType.TEN_MINUTES_BEFORE, SOON.plusHours(1));
+        index.onScheduled(kept, ReminderType.ONE_DAY_BEFORE, SOON);
+
+        index.onAppointmentsCancelled(Set.of(cancelled.getId()));
+
+        ReminderForecastResponse forecast = index.forecast(4, ChronoUnit.HOURS);
+        assertEquals(1, forecast.getTotal());
+        assertEquals(1, forecast.getBuckets().size());
+
+        // Scheduling again after the cancel counts afresh
+        index.onScheduled(cancelled, ReminderType.ONE_DAY_BEFORE, SOON);
+        assertEquals(2, index.forecast(4, ChronoUnit.HOURS).getTotal());
+    }
+
+    @Test
+    void changesOtherNodesCommittedAreReloadedBeforeAForecast() {
+        Appointment local = appointment();
+        Appointment moved = appointment();
+        Appointment booked = appointment();
+        when(reminderRepository.findPendingForecastRows()).thenReturn(List.of());
+        when(changeLog.committedSequence()).thenReturn(5L);
+        index.rebuild();
+        index.onScheduled(local, ReminderType.ONE_DAY_BEFORE, SOON);
+        index.onScheduled(moved, ReminderType.ONE_DAY_BEFORE, SOON);
+
+        // Another node moved one appointment's reminder and booked a new one; seq 8 is this node's own
+        when(changeLog.committedSequence()).thenReturn(8L);
+        when(changeLog.entriesBetween(5L, 8L)).thenReturn(List.of(
+                new Object[]{6L, moved.getId(), false},
+                new Object[]{7L, booked.getId(), false},
+                new Object[]{8L, local.getId(), false}));
+        when(changeLog.isLocal(8L)).thenReturn(true);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{moved.getId(), ReminderType.ONE_DAY_BEFORE, SOON.plusHours(1), client.getId(),
+                client.getEmail(), client.getPhone()});
+        rows.add(new Object[]{booked.getId(), ReminderType.ONE_DAY_BEFORE, SOON.plusMinutes(30), client.getId(),
+                client.getEmail(), client.getPhone()});
+        when(reminderRepository.findPendingForecastRows(Set.of(moved.getId(), booked.getId()))).thenReturn(rows);
+        when(appointmentRepository.findPlannedForecastRows(anyCollection())).thenReturn(List.of());
+
+        ReminderForecastResponse forecast = index.forecast(4, ChronoUnit.MINUTES);
+        assertEquals(3, forecast.getTotal());
+        assertEquals(List.of(SOON, SOON.plusMinutes(30), SOON.plusHours(1)),
+                forecast.getBuckets().stream().map(ReminderForecastResponse.Bucket::getStart).toList());
+
+        // Caught up, so the next forecast reads nothing more
+        index.forecast(4, ChronoUnit.MINUTES);
+        verify(changeLog, times(1)).entriesBetween(anyLong(), anyLong());
+    }
+
+    @Test
+    void fallingTooFarBehindRebuildsTheIndex() {
+        when(reminderRepository.findPendingForecastRows()).thenReturn(List.of());
+        when(changeLog.committedSequence()).thenReturn(5L);
+        index.rebuild();
+
+        when(changeLog.committedSequence()).thenReturn(5_000L);
+        index.forecast(4, ChronoUnit.HOURS);
+
+        verify(reminderRepository, times(2)).findPendingForecastRows();
+        verify(changeLog, never()).entriesBetween(anyLong(), anyLong());
+    }
+
+    private Clients otherClient() {
+        Clients other = new Clients();
+        other.setId(UUID.randomUUID());
+        other.setEmail("other@example.com");
+        return other;
+    }
+
+    private Appointment appointment() {
+        return appointment(client);
+    }
+
+    private Appointment appointment(Clients owner) {
+        Appointment appointment = new Appointment();
+        appointment.setId(UUID.randomUUID());
+        appointment.setClient(owner);
+        appointment.setAppointmentTime(SOON.plusDays(1));
+        return appointment;
+    }
+}
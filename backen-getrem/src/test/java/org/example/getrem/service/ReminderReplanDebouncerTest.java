@@ -0,0 +1,151 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.ReminderReplanProperties;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.ReminderPlan;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts a burst of time edits shares one deadline that never falls after
+ * the appointment's next reminder, at its old or its new time, and that the
+ * sweep re-plans each due appointment once without undoing a newer deadline.
+ */
+class ReminderReplanDebouncerTest {
+
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final ReminderRepository reminderRepository = mock(ReminderRepository.class);
+    private final ReminderService reminderService = mock(ReminderService.class);
+
+    private ReminderReplanDebouncer debouncer;
+
+    @BeforeEach
+    void setUp() {
+        ReminderReplanProperties properties = new ReminderReplanProperties();
+        properties.setDebounceMs(60_000);
+        debouncer = new ReminderReplanDebouncer(appointmentRepository, reminderRepository, reminderService,
+                properties, mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void editsInsideTheWindowShareTheFirstDeadline() {
+        Appointment appointment = appointment();
+        LocalDateTime before = LocalDateTime.now();
+
+        debouncer.requestReplan(appointment);
+        LocalDateTime deadline = appointment.getRemindersReplanAt();
+        debouncer.requestReplan(appointment);
+
+        assertEquals(deadline, appointment.getRemindersReplanAt());
+        assertEquals(0, deadline.getNano());
+        assertTrue(deadline.isAfter(before.plusSeconds(58)));
+        assertTrue(deadline.isBefore(before.plusSeconds(62)));
+        verify(reminderService, never()).moveRemindersWithAppointment(any());
+    }
+
+    @Test
+    void deadlineNeverFallsAfterTheNextReminder() {
+        Appointment pending = appointment();
+        LocalDateTime soon = LocalDateTime.now().plusSeconds(20);
+        when(reminderRepository.findPendingTypesAndTimes(pending.getId()))
+                .thenReturn(List.<Object[]>of(new Object[]{ReminderType.CUSTOM, soon}));
+        debouncer.requestReplan(pending);
+        assertEquals(soon.truncatedTo(ChronoUnit.SECONDS), pending.getRemindersReplanAt());
+
+        Appointment planned = appointment();
+        planned.setPlanNextDueAt(LocalDateTime.now().plusSeconds(10));
+        debouncer.requestReplan(planned);
+        assertEquals(planned.getPlanNextDueAt().truncatedTo(ChronoUnit.SECONDS), planned.getRemindersReplanAt());
+
+        // A reminder already due leaves no room to wait, so the re-plan happens in the caller's transaction
+        Appointment due = appointment();
+        when(reminderRepository.findPendingTypesAndTimes(due.getId()))
+                .thenReturn(List.<Object[]>of(new Object[]{ReminderType.CUSTOM, LocalDateTime.now().minusMinutes(1)}));
+        debouncer.requestReplan(due);
+        assertNull(due.getRemindersReplanAt());
+        verify(reminderService).moveRemindersWithAppointment(due);
+    }
+
+    @Test
+    void movingIntoTheNearFutureReplansBeforeTheNewOffsetTime() {
+        // Ten minutes before the new time is half a minute away, well inside the debounce window
+        Appointment planned = appointment();
+        planned.setAppointmentTime(LocalDateTime.now().plusMinutes(10).plusSeconds(30));
+        planned.setReminderPlan(new ReminderPlan(List.of(ReminderPlan.Entry.offset(ReminderType.TEN_MINUTES_BEFORE))));
+        planned.setPlanNextDueAt(LocalDateTime.now().plusDays(1));
+        debouncer.requestReplan(planned);
+        assertEquals(ReminderPlan.Entry.offset(ReminderType.TEN_MINUTES_BEFORE).timeFor(planned.getAppointmentTime()),
+                planned.getRemindersReplanAt());
+
+        // A pending row moves the same way
+        Appointment rowed = appointment();
+        rowed.setAppointmentTime(LocalDateTime.now().plusDays(1).plusSeconds(30));
+        when(reminderRepository.findPendingTypesAndTimes(rowed.getId())).thenReturn(
+                List.<Object[]>of(new Object[]{ReminderType.ONE_DAY_BEFORE, LocalDateTime.now().plusDays(2)}));
+        debouncer.requestReplan(rowed);
+        assertEquals(rowed.getAppointmentTime().minusDays(1).truncatedTo(ChronoUnit.SECONDS),
+                rowed.getRemindersReplanAt());
+
+        // Already past at the new time, so there is nothing to wait for
+        Appointment imminent = appointment();
+        imminent.setAppointmentTime(LocalDateTime.now().plusMinutes(5));
+        imminent.setReminderPlan(planned.getReminderPlan());
+        imminent.setPlanNextDueAt(LocalDateTime.now().plusDays(1));
+        debouncer.requestReplan(imminent);
+        assertNull(imminent.getRemindersReplanAt());
+        verify(reminderService).moveRemindersWithAppointment(imminent);
+        verify(reminderService, never()).moveRemindersWithAppointment(planned);
+    }
+
+    @Test
+    void sweepReplansDueAppointmentsOnce() {
+        Appointment due = appointment();
+        due.setRemindersReplanAt(LocalDateTime.now().minusSeconds(1).truncatedTo(ChronoUnit.SECONDS));
+        Appointment failing = appointment();
+        failing.setRemindersReplanAt(due.getRemindersReplanAt());
+        Appointment cancelled = appointment();
+        debouncer.cancelReplan(cancelled);
+        UUID removed = UUID.randomUUID();
+        when(appointmentRepository.findIdsWithRemindersReplanDue(any()))
+                .thenReturn(List.of(failing.getId(), removed, cancelled.getId(), due.getId()));
+        for (Appointment appointment : List.of(due, failing, cancelled)) {
+            when(appointmentRepository.findById(appointment.getId())).thenReturn(Optional.of(appointment));
+        }
+        doThrow(new IllegalStateException("boom")).when(reminderService).moveRemindersWithAppointment(failing);
+
+        debouncer.replanDue();
+
+        verify(reminderService).moveRemindersWithAppointment(due);
+        verify(reminderService, never()).moveRemindersWithAppointment(cancelled);
+        // Cleared only if unchanged, so an edit that arrived meanwhile keeps its own deadline
+        verify(appointmentRepository).clearRemindersReplan(due.getId(), due.getRemindersReplanAt());
+        verify(appointmentRepository, never()).clearRemindersReplan(failing.getId(), failing.getRemindersReplanAt());
+    }
+
+    private static Appointment appointment() {
+        Appointment appointment = new Appointment();
+        appointment.setId(UUID.randomUUID());
+        appointment.setAppointmentTime(LocalDateTime.now().plusDays(2));
+        return appointment;
+    }
+}
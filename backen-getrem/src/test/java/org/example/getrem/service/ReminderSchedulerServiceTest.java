@@ -0,0 +1,203 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.DispatchProperties;
+import org.example.getrem.config.NotificationExecutionProperties;
+import org.example.getrem.dto.preference.NotificationPreferenceSnapshot;
+import org.example.getrem.dto.reminder.DispatchStatus;
+import org.example.getrem.enums.DispatchState;
+import org.example.getrem.enums.ReminderStatus;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.Reminder;
+import org.example.getrem.repository.ReminderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts a dispatch run only sends what it claimed and still holds, renews
+ * its claim before each chunk, defers reminders out of quiet hours but not
+ * past the appointment, stops between chunks when paused and hands the rest
+ * of its claim back, and that a drain waits for the run in flight.
+ */
+class ReminderSchedulerServiceTest {
+
+    private final ReminderRepository reminderRepository = mock(ReminderRepository.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final NotificationPreferenceCache preferenceCache = mock(NotificationPreferenceCache.class);
+
+    private DispatchControl dispatchControl;
+    private ReminderSchedulerService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        DispatchProperties properties = new DispatchProperties();
+        properties.setNodeId("node-a");
+        properties.setChunkSize(1);
+        dispatchControl = new DispatchControl(properties);
+        when(preferenceCache.getAll(anyCollection())).thenAnswer(invocation -> invocation.<Collection<UUID>>getArgument(0)
+                .stream()
+                .collect(Collectors.toMap(Function.identity(), NotificationPreferenceSnapshot::defaults)));
+        when(notificationService.deliverAllChannels(any(), any(), any(), any())).thenReturn(List.of());
+        scheduler = new ReminderSchedulerService(reminderRepository, notificationService,
+                mock(NotificationLogWriter.class), preferenceCache, mock(ReminderLoadIndex.class),
+                new NotificationExecutor(new NotificationExecutionProperties(), null),
+                mock(ReminderReplanDebouncer.class), dispatchControl, properties, mock(CalendarCache.class),
+                mock(CalendarEventBroadcaster.class), mock(AppointmentChangeLog.class),
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void onlyRemindersWonByTheClaimAreSent() {
+        Reminder won = reminder();
+        Reminder lost = reminder();
+        when(reminderRepository.findPendingRemindersToSend(any())).thenReturn(List.of(won, lost));
+        when(reminderRepository.findIdsClaimedBy(anyString())).thenReturn(List.of(won.getId()));
+        when(reminderRepository.findAllForDispatch(eq(List.of(won.getId())), anyString())).thenReturn(List.of(won));
+
+        scheduler.processPendingReminders();
+
+        verify(reminderRepository).claim(eq(List.of(won.getId(), lost.getId())), anyString(), any());
+        verify(notificationService, times(1)).deliverAllChannels(eq(won), any(), any(), any());
+        assertEquals(ReminderStatus.SENT, won.getStatus());
+        assertEquals(ReminderStatus.PENDING, lost.getStatus());
+        assertEquals(1, dispatchControl.getStatus().getTotalSent());
+    }
+
+    @Test
+    void eachChunkRenewsTheClaimAndSkipsRowsItNoLongerHolds() {
+        Reminder kept = reminder();
+        Reminder recovered = reminder();
+        when(reminderRepository.findPendingRemindersToSend(any())).thenReturn(List.of(kept, recovered));
+        when(reminderRepository.findIdsClaimedBy(anyString())).thenReturn(List.of(kept.getId(), recovered.getId()));
+        when(reminderRepository.findAllForDispatch(eq(List.of(kept.getId())), anyString())).thenReturn(List.of(kept));
+        // Released by recovery and claimed elsewhere before this run reached it
+        when(reminderRepository.findAllForDispatch(eq(List.of(recovered.getId())), anyString())).thenReturn(List.of());
+
+        scheduler.processPendingReminders();
+
+        String claim = dispatchControl.getStatus().getInstanceId() + "#1";
+        verify(reminderRepository).renewClaim(eq(List.of(kept.getId())), eq(claim), any());
+        verify(reminderRepository).renewClaim(eq(List.of(recovered.getId())), eq(claim), any());
+        verify(reminderRepository).findAllForDispatch(List.of(recovered.getId()), claim);
+        verify(notificationService, times(1)).deliverAllChannels(eq(kept), any(), any(), any());
+        verify(notificationService, never()).deliverAllChannels(eq(recovered), any(), any(), any());
+        assertEquals(ReminderStatus.PENDING, recovered.getStatus());
+        assertEquals(1, dispatchControl.getStatus().getTotalSent());
+    }
+
+    @Test
+    void quietHoursDeferRemindersButNeverPastTheAppointment() {
+        Reminder deferred = reminder();
+        deferred.getAppointment().setAppointmentTime(LocalDateTime.now().plusDays(1));
+        Reminder tooLate = reminder();
+        LocalDateTime now = LocalDateTime.now();
+        // Quiet from an hour ago until two hours from now, past tooLate's appointment
+        when(preferenceCache.getAll(anyCollection())).thenAnswer(invocation -> invocation.<Collection<UUID>>getArgument(0)
+                .stream()
+                .collect(Collectors.toMap(Function.identity(), clientId -> NotificationPreferenceSnapshot.builder()
+                        .clientId(clientId)
+                        .emailEnabled(true)
+                        .quietHoursStart(now.minusHours(1).toLocalTime())
+                        .quietHoursEnd(now.plusHours(2).toLocalTime())
+                        .build())));
+        when(reminderRepository.findPendingRemindersToSend(any())).thenReturn(List.of(deferred, tooLate));
+
+        scheduler.processPendingReminders();
+
+        assertEquals(ReminderStatus.PENDING, deferred.getStatus());
+        assertTrue(deferred.getScheduledTime().isAfter(now.plusMinutes(119)));
+        assertTrue(deferred.getScheduledTime().isBefore(deferred.getAppointment().getAppointmentTime()));
+        assertEquals(ReminderStatus.CANCELLED, tooLate.getStatus());
+        verify(reminderRepository, never()).claim(anyCollection(), anyString(), any());
+    }
+
+    @Test
+    void pauseMidRunFinishesTheChunkAndReleasesTheRest() {
+        Reminder first = reminder();
+        Reminder second = reminder();
+        when(reminderRepository.findPendingRemindersToSend(any())).thenReturn(List.of(first, second));
+        when(reminderRepository.findIdsClaimedBy(anyString())).thenReturn(List.of(first.getId(), second.getId()));
+        when(reminderRepository.findAllForDispatch(eq(List.of(first.getId())), anyString())).thenAnswer(invocation -> {
+            dispatchControl.pause();
+            return List.of(first);
+        });
+        when(reminderRepository.releaseClaim(anyString())).thenReturn(1);
+
+        scheduler.processPendingReminders();
+
+        assertEquals(ReminderStatus.SENT, first.getStatus());
+        verify(reminderRepository, never()).findAllForDispatch(eq(List.of(second.getId())), anyString());
+        verify(reminderRepository).releaseClaim(dispatchControl.getStatus().getInstanceId() + "#1");
+        DispatchStatus status = dispatchControl.getStatus();
+        assertEquals(DispatchState.PAUSED, status.getState());
+        assertEquals(1, status.getTotalReleased());
+
+        // Paused, so the next tick claims nothing
+        scheduler.processPendingReminders();
+        verify(reminderRepository, times(1)).findPendingRemindersToSend(any());
+    }
+
+    @Test
+    void drainWaitsForTheRunInFlight() throws Exception {
+        String claim = dispatchControl.beginRun();
+        assertNotNull(claim);
+        assertTrue(claim.startsWith("node-a/"));
+        assertNull(dispatchControl.beginRun(), "only one run at a time");
+
+        CompletableFuture<DispatchStatus> drained = CompletableFuture.supplyAsync(
+                () -> dispatchControl.drain(Duration.ofSeconds(10)));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(drained.isDone());
+        assertEquals(DispatchState.DRAINING, dispatchControl.getStatus().getState());
+
+        dispatchControl.endRun();
+        assertEquals(DispatchState.PAUSED, drained.get(5, TimeUnit.SECONDS).getState());
+        assertNull(dispatchControl.beginRun());
+        dispatchControl.resume();
+        assertNotNull(dispatchControl.beginRun());
+    }
+
+    private static Reminder reminder() {
+        Clients client = new Clients();
+        client.setId(UUID.randomUUID());
+        client.setEmail("client@example.com");
+        Appointment appointment = new Appointment();
+        appointment.setId(UUID.randomUUID());
+        appointment.setClient(client);
+        appointment.setAppointmentTime(LocalDateTime.now().plusHours(1));
+        Reminder reminder = new Reminder();
+        reminder.setId(UUID.randomUUID());
+        reminder.setAppointment(appointment);
+        reminder.setType(ReminderType.CUSTOM);
+        reminder.setScheduledTime(LocalDateTime.now().minusMinutes(1));
+        reminder.setStatus(ReminderStatus.PENDING);
+        return reminder;
+    }
+}
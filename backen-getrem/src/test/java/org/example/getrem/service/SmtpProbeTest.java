@@ -0,0 +1,254 @@
+package org.example.getrem.service;
+
+import org.example.getrem.config.MailRelayProperties;
+import org.example.getrem.dto.notification.LatencySummary;
+import org.example.getrem.dto.notification.SmtpProbeRequest;
+import org.example.getrem.dto.notification.SmtpProbeResult;
+import org.example.getrem.exception.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts a probe times each message of its burst against a stub SMTP server
+ * and summarises them as percentiles, that a rejected message is counted
+ * without ending the burst, and that oversized, misdirected or overlapping
+ * probes are refused before anything is sent.
+ */
+class SmtpProbeTest {
+
+    private final MailRelayProperties properties = new MailRelayProperties();
+    private final MailRelayRouter router = mock(MailRelayRouter.class);
+    private final SmtpProbe probe = new SmtpProbe(router, properties);
+    private StubSmtpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new StubSmtpServer();
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost(InetAddress.getLoopbackAddress().getHostAddress());
+        sender.setPort(server.port());
+        sender.setUsername("probe-user");
+        sender.setPassword("secret");
+        properties.getProbe().setMaxMessages(10);
+        properties.getProbe().setTimeoutMs(5000);
+        when(router.findRelay(any())).thenReturn(Optional.empty());
+        when(router.findRelay("primary")).thenReturn(Optional.of(
+                new MailRelayRouter.RelayEndpoint("primary", sender, "noreply@example.com")));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void burstTimingsAreSummarisedAsPercentiles() {
+        // The fifth message is held far longer than the rest, so only the top percentiles see it
+        server.dataDelaysMs = List.of(20L, 20L, 20L, 20L, 200L);
+
+        SmtpProbeResult result = probe.probe(request(5));
+
+        assertNull(result.getError());
+        assertEquals("primary", result.getRelay());
+        assertEquals("NONE", result.getSecurity());
+        assertEquals("stub ESMTP", result.getGreeting());
+        assertNotNull(result.getConnectMs());
+        assertNotNull(result.getAuthMs());
+        assertTrue(server.authCommands.get(0).startsWith("AUTH PLAIN "));
+        assertEquals(5, result.getMessagesSent());
+        assertEquals(0, result.getMessagesFailed());
+        assertEquals(5, server.received());
+
+        LatencySummary send = result.getMessageSend();
+        assertEquals(5, send.getCount());
+        assertTrue(send.getMinMs() >= 20, "min " + send.getMinMs());
+        assertTrue(send.getP50Ms() >= 20 && send.getP50Ms() < 200, "p50 " + send.getP50Ms());
+        assertTrue(send.getP90Ms() >= 200, "p90 " + send.getP90Ms());
+        assertEquals(send.getMaxMs(), send.getP99Ms());
+        assertTrue(result.getBurstMs() >= 280, "burst " + result.getBurstMs());
+        assertNotNull(result.getMessagesPerSecond());
+        assertNull(result.getSenderSend());
+    }
+
+    @Test
+    void rejectedMessageIsCountedAndTheBurstGoesOn() {
+        server.rejectMessages = Set.of(2);
+
+        SmtpProbeResult result = probe.probe(request(3));
+
+        assertEquals(2, result.getMessagesSent());
+        assertEquals(1, result.getMessagesFailed());
+        assertEquals(2, result.getMessageSend().getCount());
+        assertEquals("send", result.getFailedStage());
+        assertEquals("MAIL rejected: 550 sender refused", result.getError());
+        assertEquals(2, server.received());
+    }
+
+    @Test
+    void senderComparisonSendsTheSameBurstAgain() {
+        SmtpProbeRequest request = request(2);
+        request.setCompareWithSender(true);
+
+        SmtpProbeResult result = probe.probe(request);
+
+        assertNull(result.getError());
+        assertEquals(2, result.getMessageSend().getCount());
+        assertEquals(2, result.getSenderSend().getCount());
+        assertNotNull(result.getSenderMessagesPerSecond());
+        assertEquals(4, server.received());
+    }
+
+    @Test
+    void oversizedOrUnknownProbesAreRefusedBeforeConnecting() {
+        assertThrows(ValidationException.class, () -> probe.probe(request(11)));
+
+        SmtpProbeRequest unknown = request(1);
+        unknown.setRelay("backup");
+        assertThrows(ValidationException.class, () -> probe.probe(unknown));
+
+        assertEquals(0, server.connections.get());
+        // Exactly the limit is allowed
+        assertEquals(10, probe.probe(request(10)).getMessagesSent());
+    }
+
+    @Test
+    void onlyOneProbeRunsAtATime() throws Exception {
+        server.greetingGate = new CountDownLatch(1);
+        CompletableFuture<SmtpProbeResult> first = CompletableFuture.supplyAsync(() -> probe.probe(request(1)));
+        assertTrue(server.connected.await(5, TimeUnit.SECONDS));
+
+        assertThrows(ValidationException.class, () -> probe.probe(request(1)));
+
+        server.greetingGate.countDown();
+        assertEquals(1, first.get(5, TimeUnit.SECONDS).getMessagesSent());
+        // Free again once the first has finished
+        assertEquals(1, probe.probe(request(1)).getMessagesSent());
+    }
+
+    private static SmtpProbeRequest request(int messages) {
+        return SmtpProbeRequest.builder()
+                .to("sink@example.com")
+                .relay("primary")
+                .messages(messages)
+                .build();
+    }
+
+    // Answers just enough SMTP for the probe and JavaMail, one connection at a time
+    private static final class StubSmtpServer implements AutoCloseable {
+
+        private final ServerSocket socket;
+        private final AtomicInteger received = new AtomicInteger();
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger mailCommands = new AtomicInteger();
+        private final List<String> authCommands = new CopyOnWriteArrayList<>();
+        private final CountDownLatch connected = new CountDownLatch(1);
+        private volatile List<Long> dataDelaysMs = List.of();
+        // 1-based MAIL commands to refuse
+        private volatile Set<Integer> rejectMessages = Set.of();
+        private volatile CountDownLatch greetingGate;
+
+        StubSmtpServer() throws IOException {
+            this.socket = new ServerSocket(0, 10, InetAddress.getLoopbackAddress());
+            Thread thread = new Thread(this::serve, "stub-smtp-" + socket.getLocalPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        int received() {
+            return received.get();
+        }
+
+        private void serve() {
+            while (!socket.isClosed()) {
+                try (Socket connection = socket.accept();
+                     BufferedReader in = new BufferedReader(new InputStreamReader(
+                             connection.getInputStream(), StandardCharsets.US_ASCII));
+                     PrintWriter out = new PrintWriter(connection.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+                    connections.incrementAndGet();
+                    connected.countDown();
+                    CountDownLatch gate = greetingGate;
+                    if (gate != null) {
+                        gate.await(5, TimeUnit.SECONDS);
+                    }
+                    reply(out, "220 stub ESMTP");
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        String command = line.toUpperCase();
+                        if (command.startsWith("QUIT")) {
+                            reply(out, "221 bye");
+                            break;
+                        } else if (command.startsWith("EHLO")) {
+                            reply(out, "250-stub\r\n250-AUTH PLAIN LOGIN\r\n250 OK");
+                        } else if (command.startsWith("AUTH")) {
+                            authCommands.add(line);
+                            reply(out, "235 authenticated");
+                        } else if (command.startsWith("MAIL")) {
+                            boolean rejected = rejectMessages.contains(mailCommands.incrementAndGet());
+                            reply(out, rejected ? "550 sender refused" : "250 ok");
+                        } else if (command.startsWith("DATA")) {
+                            reply(out, "354 go ahead");
+                            while ((line = in.readLine()) != null && !line.equals(".")) {
+                                // message body
+                            }
+                            int index = received.getAndIncrement();
+                            List<Long> delays = dataDelaysMs;
+                            if (index < delays.size()) {
+                                Thread.sleep(delays.get(index));
+                            }
+                            reply(out, "250 queued");
+                        } else {
+                            reply(out, "250 ok");
+                        }
+                    }
+                } catch (IOException e) {
+                    // closed by the test, or the client hung up
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private static void reply(PrintWriter out, String line) {
+            out.print(line + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.example.getrem.serviceImpl;
+
+import org.example.getrem.config.DeltaSyncProperties;
+import org.example.getrem.dto.appointment.AppointmentChangesResponse;
+import org.example.getrem.dto.appointment.CalendarAppointmentResponse;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.mapper.AppointmentMapper;
+import org.example.getrem.mapper.ReminderMapper;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentService;
+import org.example.getrem.service.AppointmentSlotIndex;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.ReminderReplanDebouncer;
+import org.example.getrem.service.ReminderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts delta sync pages end on whole transactions and chain through their
+ * watermarks, that deletions come back as tombstones rather than upserts,
+ * and that clients the log can no longer serve are told to resync.
+ */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties(DeltaSyncProperties.class)
+@Import({
+        AppointmentServiceImpl.class,
+        AppointmentChangeLog.class,
+        AppointmentMapper.class,
+        ReminderMapper.class
+})
+class AppointmentServiceImplDeltaSyncTest {
+
+    private static final LocalDateTime NEXT_WEEK = LocalDateTime.now().plusWeeks(1).withNano(0);
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private AppointmentChangeLog changeLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private CalendarCache calendarCache;
+
+    @MockBean
+    private CalendarEventBroadcaster calendarEvents;
+
+    @MockBean
+    private AppointmentSlotIndex slotIndex;
+
+    @MockBean
+    private ReminderService reminderService;
+
+    @MockBean
+    private ReminderReplanDebouncer reminderReplanDebouncer;
+
+    private UUID clientId;
+    private UUID doctorId;
+
+    @BeforeEach
+    void setUp() {
+        clientId = UUID.randomUUID();
+        doctorId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO clients (id, name, age, gender, email) VALUES (?, 'Client', 30, 2, 'c@example.com')",
+                clientId);
+        jdbcTemplate.update("INSERT INTO doctor (id, name, active) VALUES (?, 'Dr. Sync', TRUE)", doctorId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM appointment WHERE client_id = ?", clientId);
+    }
+
+    @Test
+    void firstCallOnlyHandsOutTheWatermark() {
+        book(NEXT_WEEK);
+
+        AppointmentChangesResponse response = appointmentService.getChanges(null, null);
+
+        assertEquals(changeLog.committedSequence(), response.getWatermark());
+        assertFalse(response.isResyncRequired());
+        assertTrue(response.getUpserts().isEmpty());
+    }
+
+    @Test
+    void pagesEndOnWholeTransactionsAndChainThroughWatermarks() {
+        long start = changeLog.committedSequence();
+        UUID[] pair = inTransaction(() -> new UUID[]{insert(NEXT_WEEK), insert(NEXT_WEEK.plusHours(1))});
+        UUID single = book(NEXT_WEEK.plusHours(2));
+        inTransaction(() -> {
+            jdbcTemplate.update("UPDATE appointment SET notes = 'moved' WHERE id = ?", pair[0]);
+            changeLog.recordChanged(List.of(pair[0]));
+            return null;
+        });
+
+        // A limit of one still returns both appointments written by the first transaction
+        AppointmentChangesResponse first = appointmentService.getChanges(start, 1);
+        assertEquals(Set.of(pair[0], pair[1]), ids(first));
+        assertTrue(first.isHasMore());
+
+        AppointmentChangesResponse second = appointmentService.getChanges(first.getWatermark(), 1);
+        assertEquals(Set.of(single), ids(second));
+        assertTrue(second.isHasMore());
+
+        AppointmentChangesResponse third = appointmentService.getChanges(second.getWatermark(), 1);
+        assertEquals(Set.of(pair[0]), ids(third));
+        assertFalse(third.isHasMore());
+        assertEquals(changeLog.committedSequence(), third.getWatermark());
+
+        AppointmentChangesResponse caughtUp = appointmentService.getChanges(third.getWatermark(), null);
+        assertTrue(caughtUp.getUpserts().isEmpty());
+        assertEquals(third.getWatermark(), caughtUp.getWatermark());
+    }
+
+    @Test
+    void deletionsComeBackAsTombstones() {
+        long start = changeLog.committedSequence();
+        UUID kept = book(NEXT_WEEK);
+        UUID deleted = book(NEXT_WEEK.plusHours(1));
+        UUID removedWithoutTombstone = book(NEXT_WEEK.plusHours(2));
+        inTransaction(() -> {
+            jdbcTemplate.update("DELETE FROM appointment WHERE id = ?", deleted);
+            changeLog.recordDeleted(deleted);
+            // Only marked changed, as when a row goes along with its client
+            jdbcTemplate.update("DELETE FROM appointment WHERE id = ?", removedWithoutTombstone);
+            changeLog.recordChanged(List.of(removedWithoutTombstone));
+            return null;
+        });
+
+        AppointmentChangesResponse response = appointmentService.getChanges(start, null);
+
+        assertEquals(Set.of(kept), ids(response));
+        assertEquals(Set.of(deleted, removedWithoutTombstone), Set.copyOf(response.getDeletedIds()));
+    }
+
+    @Test
+    void clientsTheLogCannotServeAreToldToResync() {
+        long before = changeLog.committedSequence();
+        book(NEXT_WEEK);
+        inTransaction(() -> {
+            changeLog.requireResync();
+            return null;
+        });
+        long watermark = changeLog.committedSequence();
+
+        assertTrue(appointmentService.getChanges(before, null).isResyncRequired());
+        assertTrue(appointmentService.getChanges(watermark + 1, null).isResyncRequired());
+        AppointmentChangesResponse current = appointmentService.getChanges(watermark, null);
+        assertFalse(current.isResyncRequired());
+        assertEquals(watermark, current.getWatermark());
+
+        assertThrows(ValidationException.class, () -> appointmentService.getChanges(-1L, null));
+        assertThrows(ValidationException.class, () -> appointmentService.getChanges(watermark, 0));
+        assertThrows(ValidationException.class, () -> appointmentService.getChanges(watermark, 5_001));
+    }
+
+    private UUID book(LocalDateTime time) {
+        return inTransaction(() -> insert(time));
+    }
+
+    // Call inside a transaction; records the booking as the service's writes do
+    private UUID insert(LocalDateTime time) {
+        UUID appointmentId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO appointment (id, client_id, doctor_id, appointment_time, status) "
+                + "VALUES (?, ?, ?, ?, 'SCHEDULED')", appointmentId, clientId, doctorId, Timestamp.valueOf(time));
+        changeLog.recordChanged(List.of(appointmentId));
+        return appointmentId;
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return new TransactionTemplate(transactionManager).execute(status -> work.get());
+    }
+
+    private static Set<UUID> ids(AppointmentChangesResponse response) {
+        return response.getUpserts().stream().map(CalendarAppointmentResponse::getId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.getrem.serviceImpl;
+
+import jakarta.persistence.EntityManager;
+import org.example.getrem.config.DispatchProperties;
+import org.example.getrem.config.NotificationExecutionProperties;
+import org.example.getrem.config.NotificationLogWriterProperties;
+import org.example.getrem.config.NotificationPreferenceProperties;
+import org.example.getrem.config.ReminderPlanProperties;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.Gender;
+import org.example.getrem.enums.ReminderStatus;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.Doctor;
+import org.example.getrem.model.Reminder;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentLinkSigner;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.DispatchControl;
+import org.example.getrem.service.EngagementTracker;
+import org.example.getrem.service.MailRelayRouter;
+import org.example.getrem.service.MailSpool;
+import org.example.getrem.service.NotificationExecutor;
+import org.example.getrem.service.NotificationLogWriter;
+import org.example.getrem.service.NotificationPreferenceCache;
+import org.example.getrem.service.ReminderLoadIndex;
+import org.example.getrem.service.ReminderReplanDebouncer;
+import org.example.getrem.service.ReminderSchedulerService;
+import org.example.getrem.service.ReminderService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Asserts how many JDBC statements the reminder write paths prepare. With
+ * batching each table costs one statement per flush, regardless of rows.
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        // Synchronous log writes so they are counted inside the dispatch transaction
+        "getrem.notification-log.writer.enabled=false"
+})
+@EnableConfigurationProperties({
+        DispatchProperties.class,
+        NotificationExecutionProperties.class,
+        NotificationLogWriterProperties.class,
+        NotificationPreferenceProperties.class,
+        ReminderPlanProperties.class
+})
+@Import({
+        ReminderServiceImpl.class,
+        NotificationServiceImpl.class,
+        ReminderSchedulerService.class,
+        NotificationPreferenceCache.class,
+        NotificationExecutor.class,
+        NotificationLogWriter.class,
+        DispatchControl.class
+})
+class BatchInsertStatementCountTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ReminderService reminderService;
+
+    @Autowired
+    private ReminderSchedulerService reminderSchedulerService;
+
+    @MockBean
+    private MailRelayRouter mailRelayRouter;
+
+    @MockBean
+    private MailSpool mailSpool;
+
+    @MockBean
+    private AppointmentLinkSigner appointmentLinkSigner;
+
+    @MockBean
+    private EngagementTracker engagementTracker;
+
+    @MockBean
+    private ReminderLoadIndex reminderLoadIndex;
+
+    @MockBean
+    private ReminderReplanDebouncer reminderReplanDebouncer;
+
+    @MockBean
+    private CalendarCache calendarCache;
+
+    @MockBean
+    private CalendarEventBroadcaster calendarEvents;
+
+    @MockBean
+    private AppointmentChangeLog changeLog;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void schedulingRemindersForABookingIsOneInsertStatement() {
+        // Inside the materialisation horizon, so every reminder gets a row straight away
+        Appointment appointment = persistAppointment(LocalDateTime.now().plusHours(30));
+        entityManager.flush();
+        statistics.clear();
+
+        reminderService.scheduleRemindersForAppointment(appointment,
+                List.of("TEN_MINUTES_BEFORE", "ONE_DAY_BEFORE"),
+                List.of(LocalDateTime.now().plusHours(20)));
+        entityManager.flush();
+
+        // one batched reminder insert + the plan written to the already-flushed appointment
+        assertEquals(3, statistics.getEntityInsertCount());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void dispatchRunWritesLogsAndStatusesInOneStatementEach() {
+        for (int i = 0; i < 10; i++) {
+            Appointment appointment = persistAppointment(LocalDateTime.now().plusHours(1 + i));
+            persistDueReminder(appointment);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        reminderSchedulerService.processPendingReminders();
+        entityManager.flush();
+
+        // pending reminders + preference lookup + claim update + claimed ids + claim renewal
+        // + claimed reminders + log insert batch + reminder update batch
+        assertEquals(10, statistics.getEntityInsertCount());
+        assertEquals(10, statistics.getEntityUpdateCount());
+        assertEquals(8, statistics.getPrepareStatementCount());
+        entityManager.clear();
+        assertEquals(ReminderStatus.SENT, entityManager
+                .createQuery("SELECT DISTINCT r.status FROM Reminder r", ReminderStatus.class)
+                .getSingleResult());
+    }
+
+    private Appointment persistAppointment(LocalDateTime time) {
+        Clients client = new Clients();
+        client.setName("Client " + time);
+        client.setAge(30);
+        client.setGender(Gender.OTHER);
+        client.setEmail("client@example.com");
+        entityManager.persist(client);
+
+        Doctor doctor = new Doctor();
+        doctor.setName("Dr. Batch");
+        entityManager.persist(doctor);
+
+        Appointment appointment = new Appointment();
+        appointment.setClient(client);
+        appointment.setDoctor(doctor);
+        appointment.setAppointmentTime(time);
+        appointment.setStatus(AppointmentStatus.SCHEDULED);
+        entityManager.persist(appointment);
+        return appointment;
+    }
+
+    private void persistDueReminder(Appointment appointment) {
+        Reminder reminder = new Reminder();
+        reminder.setAppointment(appointment);
+        reminder.setType(ReminderType.CUSTOM);
+        reminder.setScheduledTime(LocalDateTime.now().minusMinutes(1));
+        reminder.setStatus(ReminderStatus.PENDING);
+        reminder.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(reminder);
+    }
+}
@@ -0,0 +1,235 @@
+package org.example.getrem.serviceImpl;
+
+import jakarta.persistence.EntityManager;
+import org.example.getrem.config.CalendarCacheProperties;
+import org.example.getrem.config.CalendarEventProperties;
+import org.example.getrem.config.DeltaSyncProperties;
+import org.example.getrem.config.SlotIndexProperties;
+import org.example.getrem.dto.appointment.CalendarAppointmentResponse;
+import org.example.getrem.dto.appointment.ReminderScheduleInfo;
+import org.example.getrem.enums.AppointmentStatus;
+import org.example.getrem.enums.Gender;
+import org.example.getrem.enums.ReminderStatus;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.mapper.AppointmentMapper;
+import org.example.getrem.mapper.ReminderMapper;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.Doctor;
+import org.example.getrem.model.Reminder;
+import org.example.getrem.model.ReminderPlan;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentService;
+import org.example.getrem.service.AppointmentSlotIndex;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.ReminderReplanDebouncer;
+import org.example.getrem.service.ReminderService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Asserts the calendar read path costs the same number of statements however
+ * many appointments fall in the range: one for the appointments with their
+ * client and doctor, one for all of their reminders. Cached views cost only
+ * the change log watermark read until a write touches one of their days.
+ * Plan entries without a row yet are listed alongside the rows.
+ */
+@DataJpaTest
+@AutoConfigureJson
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false"
+})
+@EnableConfigurationProperties({CalendarCacheProperties.class, CalendarEventProperties.class, DeltaSyncProperties.class,
+        SlotIndexProperties.class})
+@Import({
+        AppointmentServiceImpl.class,
+        AppointmentSlotIndex.class,
+        CalendarCache.class,
+        CalendarEventBroadcaster.class,
+        AppointmentChangeLog.class,
+        AppointmentMapper.class,
+        ReminderMapper.class
+})
+class CalendarQueryCountTest {
+
+    private static final LocalDate MONTH = LocalDate.now().plusYears(1).withDayOfMonth(1);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private CalendarCache calendarCache;
+
+    @MockBean
+    private ReminderService reminderService;
+
+    @MockBean
+    private ReminderReplanDebouncer reminderReplanDebouncer;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void monthViewIsTwoStatementsRegardlessOfSize() {
+        assertEquals(2, monthViewStatements(3));
+        assertEquals(2, monthViewStatements(40));
+    }
+
+    @Test
+    void upcomingViewIsTwoStatementsRegardlessOfSize() {
+        persistAppointments(LocalDateTime.now().plusDays(1), 3);
+        assertEquals(2, countStatements(() -> appointmentService.getUpcomingAppointments()));
+
+        persistAppointments(LocalDateTime.now().plusDays(2), 40);
+        assertEquals(2, countStatements(() -> appointmentService.getUpcomingAppointments()));
+    }
+
+    @Test
+    void remindersAreGroupedUnderTheirAppointments() {
+        persistAppointments(MONTH.atTime(9, 0), 5);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<CalendarAppointmentResponse> month =
+                appointmentService.getAppointmentsForMonth(MONTH.getYear(), MONTH.getMonthValue());
+
+        assertEquals(5, month.size());
+        for (CalendarAppointmentResponse appointment : month) {
+            assertEquals(2, appointment.getReminderSchedules().size());
+            assertEquals("Dr. Calendar", appointment.getDoctorName());
+        }
+    }
+
+    @Test
+    void plannedRemindersShowAsPendingWithoutAnId() {
+        Appointment appointment = persistAppointments(MONTH.atTime(9, 0), 1);
+        LocalDateTime custom = MONTH.atTime(7, 0);
+        // The one-day reminder already has a row; the ten-minute and custom ones are still only planned
+        appointment.setReminderPlan(new ReminderPlan(List.of(ReminderPlan.Entry.offset(ReminderType.ONE_DAY_BEFORE),
+                ReminderPlan.Entry.offset(ReminderType.TEN_MINUTES_BEFORE), ReminderPlan.Entry.custom(custom))));
+        appointment.setPlanNextDueAt(custom);
+        entityManager.flush();
+        entityManager.createQuery("DELETE FROM Reminder r WHERE r.type = :type")
+                .setParameter("type", ReminderType.TEN_MINUTES_BEFORE)
+                .executeUpdate();
+        entityManager.clear();
+
+        List<ReminderScheduleInfo> schedules = appointmentService
+                .getAppointmentsForMonth(MONTH.getYear(), MONTH.getMonthValue())
+                .get(0)
+                .getReminderSchedules();
+
+        assertEquals(List.of(MONTH.minusDays(1).atTime(9, 0), custom, MONTH.atTime(8, 50)),
+                schedules.stream().map(ReminderScheduleInfo::getScheduledTime).toList());
+        assertNotNull(schedules.get(0).getReminderId());
+        assertNull(schedules.get(1).getReminderId());
+        assertNull(schedules.get(2).getReminderId());
+        assertTrue(schedules.stream().allMatch(schedule -> schedule.getStatus() == ReminderStatus.PENDING));
+    }
+
+    @Test
+    void cachedMonthViewIsRebuiltOnlyForTheChangedDay() {
+        persistAppointments(MONTH.atTime(9, 0), 3);
+        Appointment later = persistAppointments(MONTH.plusDays(10).atTime(9, 0), 2);
+
+        // The watermark read, then the two loads; after that the watermark read alone
+        assertEquals(1 + 2, countStatements(() -> monthJson()));
+        assertEquals(1, countStatements(() -> monthJson()));
+
+        // Moving an appointment invalidates the day it left as well as the one it lands on
+        calendarCache.invalidateAppointment(later);
+        assertEquals(1 + 2, countStatements(() -> monthJson()));
+        assertEquals(1, countStatements(() -> monthJson()));
+        assertTrue(monthJson().contains(later.getId().toString()));
+    }
+
+    private String monthJson() {
+        return new String(appointmentService.getCalendarMonthView(MONTH.getYear(), MONTH.getMonthValue(), null).json(),
+                StandardCharsets.UTF_8);
+    }
+
+    private long monthViewStatements(int appointments) {
+        persistAppointments(MONTH.atTime(9, 0), appointments);
+        return countStatements(() -> {
+            List<CalendarAppointmentResponse> month =
+                    appointmentService.getAppointmentsForMonth(MONTH.getYear(), MONTH.getMonthValue());
+            // Touch everything the JSON serializer would
+            month.forEach(appointment -> appointment.getReminderSchedules().size());
+        });
+    }
+
+    private long countStatements(Runnable read) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        read.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private Appointment persistAppointments(LocalDateTime first, int count) {
+        Appointment appointment = null;
+        for (int i = 0; i < count; i++) {
+            Clients client = new Clients();
+            client.setName("Client " + i);
+            client.setAge(30);
+            client.setGender(Gender.OTHER);
+            client.setEmail("client" + i + "@example.com");
+            entityManager.persist(client);
+
+            Doctor doctor = new Doctor();
+            doctor.setName("Dr. Calendar");
+            entityManager.persist(doctor);
+
+            appointment = new Appointment();
+            appointment.setClient(client);
+            appointment.setDoctor(doctor);
+            appointment.setAppointmentTime(first.plusMinutes(30L * i));
+            appointment.setStatus(AppointmentStatus.SCHEDULED);
+            entityManager.persist(appointment);
+
+            persistReminder(appointment, ReminderType.ONE_DAY_BEFORE, appointment.getAppointmentTime().minusDays(1));
+            persistReminder(appointment, ReminderType.TEN_MINUTES_BEFORE,
+                    appointment.getAppointmentTime().minusMinutes(10));
+        }
+        return appointment;
+    }
+
+    private void persistReminder(Appointment appointment, ReminderType type, LocalDateTime time) {
+        Reminder reminder = new Reminder();
+        reminder.setAppointment(appointment);
+        reminder.setType(type);
+        reminder.setScheduledTime(time);
+        reminder.setStatus(ReminderStatus.PENDING);
+        reminder.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(reminder);
+    }
+}
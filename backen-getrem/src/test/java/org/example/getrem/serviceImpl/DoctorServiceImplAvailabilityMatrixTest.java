@@ -0,0 +1,197 @@
+package org.example.getrem.serviceImpl;
+
+import org.example.getrem.config.FreeSlotProperties;
+import org.example.getrem.dto.doctor.AvailabilityMatrixRequest;
+import org.example.getrem.dto.doctor.AvailabilityMatrixResponse;
+import org.example.getrem.exception.NotFoundException;
+import org.example.getrem.exception.ValidationException;
+import org.example.getrem.model.Doctor;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.DoctorRepository;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.AppointmentSlotIndex;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.FreeSlotFinder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts the availability matrix sets bit i of each row, least significant
+ * bit first, exactly when slot i is free, for explicit slots in request
+ * order and for from/to ranges expanded every step, and that oversized
+ * requests are refused.
+ */
+class DoctorServiceImplAvailabilityMatrixTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2030, 6, 3, 9, 0);
+
+    private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+    private final AppointmentSlotIndex slotIndex = mock(AppointmentSlotIndex.class);
+    private final FreeSlotProperties properties = new FreeSlotProperties();
+    private final DoctorServiceImpl service = new DoctorServiceImpl(doctorRepository, mock(CalendarCache.class),
+            slotIndex, mock(FreeSlotFinder.class), properties, mock(AppointmentRepository.class),
+            mock(AppointmentChangeLog.class));
+
+    private final Map<UUID, List<LocalDateTime>> booked = new HashMap<>();
+    private final UUID doctorA = UUID.randomUUID();
+    private final UUID doctorB = UUID.randomUUID();
+    private Set<UUID> known = Set.of(doctorA, doctorB);
+
+    @BeforeEach
+    void setUp() {
+        when(doctorRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Doctor> found = new ArrayList<>();
+            for (UUID id : invocation.<Iterable<UUID>>getArgument(0)) {
+                if (known.contains(id)) {
+                    Doctor doctor = new Doctor();
+                    doctor.setId(id);
+                    found.add(doctor);
+                }
+            }
+            return found;
+        });
+        when(slotIndex.bookedStarts(anyCollection(), any(), any())).thenReturn(booked);
+    }
+
+    @Test
+    void bitsFollowTheRequestedSlotOrderLeastSignificantFirst() {
+        // Ten slots, latest first, so bit order and time order disagree and the row spills into a second byte
+        List<LocalDateTime> slots = new ArrayList<>();
+        for (int i = 9; i >= 0; i--) {
+            slots.add(NINE.plusMinutes(30L * i));
+        }
+        // Blocks 10:00 (index 7) and 13:30 (index 0)
+        booked.put(doctorA, List.of(NINE.plusHours(1), NINE.plusMinutes(270)));
+
+        AvailabilityMatrixResponse response = service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA, doctorB))
+                .slots(slots)
+                .build());
+
+        assertEquals(AvailabilityMatrixResponse.ENCODING, response.getEncoding());
+        assertEquals(10, response.getSlotCount());
+        assertNull(response.getFrom());
+        assertNull(response.getStepMinutes());
+        assertEquals(List.of(doctorA, doctorB), List.copyOf(response.getAvailability().keySet()));
+        assertArrayEquals(new byte[]{(byte) 0b0111_1110, 0b11}, row(response, doctorA));
+        assertArrayEquals(new byte[]{(byte) 0b1111_1111, 0b11}, row(response, doctorB));
+        verify(slotIndex).bookedStarts(eq(List.of(doctorA, doctorB)), eq(NINE.minusMinutes(30)),
+                eq(NINE.plusMinutes(271)));
+    }
+
+    @Test
+    void rangeIsExpandedEveryStepFromInclusiveToExclusive() {
+        booked.put(doctorA, List.of(NINE.plusMinutes(50)));
+
+        AvailabilityMatrixResponse response = service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .from(NINE)
+                .to(NINE.plusHours(1))
+                .stepMinutes(25)
+                .build());
+
+        // 09:00, 09:25 and 09:50; the last one is booked
+        assertEquals(3, response.getSlotCount());
+        assertEquals(NINE, response.getFrom());
+        assertEquals(25, response.getStepMinutes());
+        assertArrayEquals(new byte[]{0b011}, row(response, doctorA));
+
+        // Without a step the configured one applies
+        properties.setStepMinutes(30);
+        AvailabilityMatrixResponse defaultStep = service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .from(NINE)
+                .to(NINE.plusHours(1))
+                .build());
+        assertEquals(2, defaultStep.getSlotCount());
+        assertEquals(30, defaultStep.getStepMinutes());
+    }
+
+    @Test
+    void repeatedDoctorsGetOneRow() {
+        AvailabilityMatrixResponse response = service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorB, doctorA, doctorB))
+                .slots(List.of(NINE))
+                .build());
+
+        assertEquals(List.of(doctorB, doctorA), List.copyOf(response.getAvailability().keySet()));
+    }
+
+    @Test
+    void oversizedRequestsAreRefused() {
+        properties.setMaxMatrixDoctors(1);
+        assertThrows(ValidationException.class, () -> service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA, doctorB))
+                .slots(List.of(NINE))
+                .build()));
+
+        properties.setMaxMatrixSlots(2);
+        assertThrows(ValidationException.class, () -> service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .slots(List.of(NINE, NINE.plusMinutes(30), NINE.plusHours(1)))
+                .build()));
+        // 61 minutes at a 30 minute step is three slots
+        assertThrows(ValidationException.class, () -> service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .from(NINE)
+                .to(NINE.plusMinutes(61))
+                .stepMinutes(30)
+                .build()));
+        assertEquals(2, service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .from(NINE)
+                .to(NINE.plusMinutes(60))
+                .stepMinutes(30)
+                .build()).getSlotCount());
+    }
+
+    @Test
+    void malformedRangesAndUnknownDoctorsAreRefused() {
+        assertThrows(ValidationException.class, () -> service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .from(NINE)
+                .build()));
+        assertThrows(ValidationException.class, () -> service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .from(NINE)
+                .to(NINE)
+                .stepMinutes(30)
+                .build()));
+        assertThrows(ValidationException.class, () -> service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA))
+                .from(NINE)
+                .to(NINE.plusHours(1))
+                .stepMinutes(0)
+                .build()));
+
+        known = Set.of(doctorA);
+        assertThrows(NotFoundException.class, () -> service.getAvailabilityMatrix(AvailabilityMatrixRequest.builder()
+                .doctorIds(List.of(doctorA, doctorB))
+                .slots(List.of(NINE))
+                .build()));
+    }
+
+    private static byte[] row(AvailabilityMatrixResponse response, UUID doctorId) {
+        return Base64.getDecoder().decode(response.getAvailability().get(doctorId));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.getrem.serviceImpl;
+
+import org.example.getrem.dto.preference.NotificationPreferenceRequest;
+import org.example.getrem.dto.preference.NotificationPreferenceResponse;
+import org.example.getrem.enums.NotificationChannel;
+import org.example.getrem.model.Clients;
+import org.example.getrem.model.NotificationPreference;
+import org.example.getrem.repository.ClientsRepository;
+import org.example.getrem.repository.NotificationPreferenceRepository;
+import org.example.getrem.service.NotificationPreferenceCache;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts an update replaces every preference the same way: a field left out
+ * of the request goes back to its default, booleans included, and that a
+ * locale has to be a language tag we can actually use.
+ */
+class NotificationPreferenceServiceImplTest {
+
+    private final NotificationPreferenceRepository preferenceRepository = mock(NotificationPreferenceRepository.class);
+    private final ClientsRepository clientsRepository = mock(ClientsRepository.class);
+    private final NotificationPreferenceServiceImpl service = new NotificationPreferenceServiceImpl(
+            preferenceRepository, clientsRepository, mock(NotificationPreferenceCache.class));
+
+    private final UUID clientId = UUID.randomUUID();
+    private NotificationPreference stored;
+
+    @BeforeEach
+    void setUp() {
+        Clients client = new Clients();
+        client.setId(clientId);
+        stored = new NotificationPreference();
+        stored.setClient(client);
+        stored.setEmailEnabled(false);
+        stored.setSmsEnabled(false);
+        stored.setWhatsappEnabled(false);
+        stored.setPreferredChannel(NotificationChannel.SMS);
+        stored.setQuietHoursStart(LocalTime.of(22, 0));
+        stored.setQuietHoursEnd(LocalTime.of(7, 0));
+        stored.setLocale("de-DE");
+        when(clientsRepository.findById(clientId)).thenReturn(Optional.of(client));
+        when(preferenceRepository.findByClientId(clientId)).thenReturn(Optional.of(stored));
+        when(preferenceRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void omittedFieldsAllGoBackToTheirDefaults() {
+        NotificationPreferenceResponse response = service.updatePreferences(clientId,
+                NotificationPreferenceRequest.builder().smsEnabled(false).build());
+
+        assertTrue(response.getEmailEnabled());
+        assertEquals(false, response.getSmsEnabled());
+        assertTrue(response.getWhatsappEnabled());
+        assertNull(response.getPreferredChannel());
+        assertNull(response.getQuietHoursStart());
+        assertNull(response.getQuietHoursEnd());
+        assertNull(response.getLocale());
+    }
+
+    @Test
+    void givenFieldsAreAllApplied() {
+        NotificationPreferenceResponse response = service.updatePreferences(clientId, NotificationPreferenceRequest.builder()
+                .emailEnabled(true)
+                .smsEnabled(false)
+                .whatsappEnabled(false)
+                .preferredChannel(NotificationChannel.EMAIL)
+                .quietHoursStart(LocalTime.of(21, 0))
+                .quietHoursEnd(LocalTime.of(8, 0))
+                .locale("fr-FR")
+                .build());
+
+        assertTrue(response.getEmailEnabled());
+        assertEquals(false, response.getWhatsappEnabled());
+        assertEquals(NotificationChannel.EMAIL, response.getPreferredChannel());
+        assertEquals(LocalTime.of(21, 0), response.getQuietHoursStart());
+        assertEquals("fr-FR", response.getLocale());
+    }
+
+    @Test
+    void unknownLocalesAreRejected() {
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            Validator validator = factory.getValidator();
+
+            assertTrue(validator.validate(NotificationPreferenceRequest.builder().locale("pt-BR").build()).isEmpty());
+            assertTrue(validator.validate(NotificationPreferenceRequest.builder().build()).isEmpty());
+            assertFalse(validator.validate(NotificationPreferenceRequest.builder().locale("klingon").build()).isEmpty());
+            assertFalse(validator.validate(NotificationPreferenceRequest.builder().locale("de_DE").build()).isEmpty());
+        }
+    }
+}
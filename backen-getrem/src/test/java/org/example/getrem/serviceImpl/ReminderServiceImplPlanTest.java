@@ -0,0 +1,207 @@
+package org.example.getrem.serviceImpl;
+
+import org.example.getrem.config.ReminderPlanProperties;
+import org.example.getrem.enums.ReminderStatus;
+import org.example.getrem.enums.ReminderType;
+import org.example.getrem.model.Appointment;
+import org.example.getrem.model.Reminder;
+import org.example.getrem.model.ReminderPlan;
+import org.example.getrem.repository.AppointmentRepository;
+import org.example.getrem.repository.ReminderRepository;
+import org.example.getrem.service.AppointmentChangeLog;
+import org.example.getrem.service.CalendarCache;
+import org.example.getrem.service.CalendarEventBroadcaster;
+import org.example.getrem.service.NotificationPreferenceCache;
+import org.example.getrem.service.NotificationService;
+import org.example.getrem.service.ReminderLoadIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Asserts booking only creates rows for reminders inside the horizon and
+ * keeps the rest as a plan, that materialising moves the plan forward one
+ * reminder at a time without repeating any, that moving the appointment
+ * carries its offset reminders along without a new confirmation, and that
+ * cancelling drops what was still planned.
+ */
+class ReminderServiceImplPlanTest {
+
+    private final ReminderRepository reminderRepository = mock(ReminderRepository.class);
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final ReminderLoadIndex reminderLoadIndex = mock(ReminderLoadIndex.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final List<Reminder> saved = new ArrayList<>();
+
+    private ReminderServiceImpl reminderService;
+
+    @BeforeEach
+    void setUp() {
+        when(reminderRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            saved.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        reminderService = new ReminderServiceImpl(reminderRepository, appointmentRepository,
+                notificationService, mock(NotificationPreferenceCache.class), reminderLoadIndex,
+                new ReminderPlanProperties(), mock(CalendarCache.class), mock(CalendarEventBroadcaster.class),
+                mock(AppointmentChangeLog.class));
+    }
+
+    @Test
+    void onlyRemindersInsideTheHorizonGetRows() {
+        Appointment appointment = appointment(LocalDateTime.now().plusHours(60));
+        LocalDateTime custom = LocalDateTime.now().plusHours(55).truncatedTo(ChronoUnit.SECONDS);
+
+        reminderService.scheduleRemindersForAppointment(appointment,
+                List.of("TEN_MINUTES_BEFORE", "ONE_DAY_BEFORE"), List.of(custom));
+
+        // A day before is 36 hours out, inside the default 48; the others stay planned
+        assertEquals(1, saved.size());
+        assertEquals(ReminderType.ONE_DAY_BEFORE, saved.get(0).getType());
+        assertEquals(3, appointment.getReminderPlan().entries().size());
+        assertEquals(custom, appointment.getPlanNextDueAt());
+        verify(reminderLoadIndex).onScheduled(appointment, ReminderType.CUSTOM, custom);
+        verify(reminderLoadIndex).onScheduled(appointment, ReminderType.TEN_MINUTES_BEFORE, tenMinutesBefore(appointment));
+    }
+
+    @Test
+    void materialisingMovesThePlanForwardWithoutRepeats() {
+        Appointment appointment = appointment(LocalDateTime.now().plusDays(5));
+        reminderService.scheduleRemindersForAppointment(appointment,
+                List.of("TEN_MINUTES_BEFORE", "ONE_DAY_BEFORE"), null);
+        assertEquals(0, saved.size());
+
+        LocalDateTime dayBefore = appointment.getAppointmentTime().minusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        assertEquals(1, reminderService.materializePlannedReminders(appointment, dayBefore));
+        assertEquals(tenMinutesBefore(appointment), appointment.getPlanNextDueAt());
+        assertEquals(0, reminderService.materializePlannedReminders(appointment, dayBefore.plusHours(1)));
+
+        assertEquals(1, reminderService.materializePlannedReminders(appointment, appointment.getAppointmentTime()));
+        assertNull(appointment.getPlanNextDueAt());
+        assertEquals(List.of(dayBefore, tenMinutesBefore(appointment)),
+                saved.stream().map(Reminder::getScheduledTime).toList());
+
+        // Offsets are stored by type, not time, so they follow the appointment if it moves
+        String stored = appointment.getReminderPlan().format();
+        assertEquals("TEN_MINUTES_BEFORE;ONE_DAY_BEFORE", stored);
+        assertEquals(appointment.getReminderPlan(), ReminderPlan.parse(stored));
+    }
+
+    @Test
+    void movingTheAppointmentKeepsItsOffsetReminders() {
+        Appointment appointment = appointment(LocalDateTime.now().plusHours(30));
+        LocalDateTime custom = LocalDateTime.now().plusHours(20).truncatedTo(ChronoUnit.SECONDS);
+        reminderService.scheduleRemindersForAppointment(appointment,
+                List.of("TEN_MINUTES_BEFORE", "ONE_DAY_BEFORE"), List.of(custom));
+        assertEquals(3, saved.size(), "all three are inside the horizon");
+        List<Reminder> rows = List.copyOf(saved);
+        when(reminderRepository.findByAppointmentId(appointment.getId())).thenReturn(rows);
+
+        // Ten minutes before now falls outside the horizon; a day before is still inside it
+        appointment.setAppointmentTime(appointment.getAppointmentTime().plusHours(40));
+        reminderService.moveRemindersWithAppointment(appointment);
+
+        Reminder dayBefore = row(rows, ReminderType.ONE_DAY_BEFORE);
+        assertEquals(ReminderStatus.PENDING, dayBefore.getStatus());
+        assertEquals(appointment.getAppointmentTime().minusDays(1), dayBefore.getScheduledTime());
+        assertEquals(ReminderStatus.CANCELLED, row(rows, ReminderType.TEN_MINUTES_BEFORE).getStatus());
+        assertEquals(ReminderStatus.PENDING, row(rows, ReminderType.CUSTOM).getStatus());
+        assertEquals(custom, row(rows, ReminderType.CUSTOM).getScheduledTime());
+        assertEquals(3, appointment.getReminderPlan().entries().size());
+        assertEquals(tenMinutesBefore(appointment), appointment.getPlanNextDueAt());
+        verify(notificationService, never()).sendAllChannelNotifications(any(), any(), any(), any());
+        verify(reminderLoadIndex).onAppointmentsCancelled(Set.of(appointment.getId()));
+        verify(reminderLoadIndex).onScheduled(appointment, ReminderType.TEN_MINUTES_BEFORE, tenMinutesBefore(appointment));
+
+        // The reminder the move pushed out comes back once it is near
+        saved.clear();
+        assertEquals(1, reminderService.materializePlannedReminders(appointment, appointment.getAppointmentTime()));
+        assertEquals(ReminderType.TEN_MINUTES_BEFORE, saved.get(0).getType());
+        assertEquals(tenMinutesBefore(appointment), saved.get(0).getScheduledTime());
+    }
+
+    @Test
+    void movingBeforeACustomReminderDropsIt() {
+        Appointment appointment = appointment(LocalDateTime.now().plusHours(30));
+        LocalDateTime custom = LocalDateTime.now().plusHours(20).truncatedTo(ChronoUnit.SECONDS);
+        reminderService.scheduleRemindersForAppointment(appointment, List.of("TEN_MINUTES_BEFORE"), List.of(custom));
+        List<Reminder> rows = List.copyOf(saved);
+        when(reminderRepository.findByAppointmentId(appointment.getId())).thenReturn(rows);
+
+        appointment.setAppointmentTime(custom.minusHours(2));
+        reminderService.moveRemindersWithAppointment(appointment);
+
+        assertEquals(ReminderStatus.CANCELLED, row(rows, ReminderType.CUSTOM).getStatus());
+        assertEquals(tenMinutesBefore(appointment), row(rows, ReminderType.TEN_MINUTES_BEFORE).getScheduledTime());
+        assertEquals(List.of(ReminderPlan.Entry.offset(ReminderType.TEN_MINUTES_BEFORE)),
+                appointment.getReminderPlan().entries());
+        assertNull(appointment.getPlanNextDueAt());
+    }
+
+    @Test
+    void cancellingDropsWhatIsStillPlanned() {
+        Appointment appointment = appointment(LocalDateTime.now().plusDays(5));
+        reminderService.scheduleRemindersForAppointment(appointment, List.of("TEN_MINUTES_BEFORE"), null);
+        when(reminderRepository.findByAppointmentId(appointment.getId())).thenReturn(List.of());
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(Optional.of(appointment));
+
+        reminderService.cancelRemindersForAppointment(appointment.getId());
+
+        assertNull(appointment.getReminderPlan());
+        assertNull(appointment.getPlanNextDueAt());
+        verify(reminderLoadIndex).onAppointmentsCancelled(Set.of(appointment.getId()));
+    }
+
+    @Test
+    void reschedulingAfterATimeChangeKeepsOnlyTheNewForecastKeys() {
+        Appointment appointment = appointment(LocalDateTime.now().plusDays(5));
+        reminderService.scheduleRemindersForAppointment(appointment, List.of("TEN_MINUTES_BEFORE"), null);
+        when(reminderRepository.findByAppointmentId(appointment.getId())).thenReturn(List.of());
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(Optional.of(appointment));
+        LocalDateTime previous = tenMinutesBefore(appointment);
+
+        // The edit has already moved the appointment when its reminders are rescheduled
+        appointment.setAppointmentTime(appointment.getAppointmentTime().plusDays(2));
+        reminderService.rescheduleRemindersForAppointment(appointment, List.of("TEN_MINUTES_BEFORE"), null);
+
+        InOrder order = inOrder(reminderLoadIndex);
+        order.verify(reminderLoadIndex).onScheduled(appointment, ReminderType.TEN_MINUTES_BEFORE, previous);
+        order.verify(reminderLoadIndex).onAppointmentsCancelled(Set.of(appointment.getId()));
+        order.verify(reminderLoadIndex).onScheduled(appointment, ReminderType.TEN_MINUTES_BEFORE,
+                tenMinutesBefore(appointment));
+        assertEquals(tenMinutesBefore(appointment), appointment.getPlanNextDueAt());
+    }
+
+    private static Reminder row(List<Reminder> rows, ReminderType type) {
+        return rows.stream().filter(reminder -> reminder.getType() == type).findFirst().orElseThrow();
+    }
+
+    private static LocalDateTime tenMinutesBefore(Appointment appointment) {
+        return appointment.getAppointmentTime().minusMinutes(10).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static Appointment appointment(LocalDateTime time) {
+        Appointment appointment = new Appointment();
+        appointment.setId(UUID.randomUUID());
+        appointment.setAppointmentTime(time.truncatedTo(ChronoUnit.SECONDS));
+        return appointment;
+    }
+}